@@ -0,0 +1,179 @@
+package fr.ubo.hello.Controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ubo.hello.Dao.OTPDao_Memory;
+import fr.ubo.hello.Dao.RateLimitStore_Memory;
+import fr.ubo.hello.Dao.UserCacheBenchmark;
+import fr.ubo.hello.Dao.UserDao_Cached;
+import fr.ubo.hello.Service.OTPExpiryService;
+import fr.ubo.hello.Service.OTPService;
+import fr.ubo.hello.Service.RateLimiter;
+import fr.ubo.hello.Service.SMSDispatchQueue;
+import fr.ubo.hello.Service.SMSService;
+import fr.ubo.hello.Service.UserServiceImpl;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit du parcours login puis verify-otp, appelé directement sur {@link AuthController} avec les
+ * services réels (cache utilisateurs devant une base simulée, OTP en mémoire, file d'envoi SMS),
+ * selon le mode de journalisation :
+ * <ul>
+ *     <li>{@code off} : loggers de l'application coupés ;</li>
+ *     <li>{@code sync} : configuration de production, écritures sur le thread de la requête ;</li>
+ *     <li>{@code async} : {@code LOG_MODE=async}, écritures déportées sur le thread du Disruptor.</li>
+ * </ul>
+ * {@code samplesPerSecond} règle l'échantillonnage des messages répétitifs ({@code LOG_SAMPLE_PER_SECOND}).
+ * Les fichiers de log sont réellement écrits (dans un répertoire temporaire) ; la console est
+ * redirigée vers un flux nul pour ne pas noyer la sortie de JMH.
+ * <pre>./gradlew jmh -Pjmh.includes=LoggingBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"off", "sync", "async"})
+    public String logging;
+
+    /**
+     * Messages par seconde et par point d'appel échantillonné ; 0 : tout est journalisé.
+     */
+    @Param({"10", "0"})
+    public String samplesPerSecond;
+
+    private Path logDir;
+    private UserDao_Cached cachedDao;
+    private OTPDao_Memory otpDao;
+    private RateLimiter rateLimiter;
+    private SMSDispatchQueue smsDispatchQueue;
+    private OTPService otpService;
+    private AuthController controller;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws Exception {
+        logDir = Files.createTempDirectory("logging-benchmark");
+        System.setProperty("LOG_DIR", logDir.toString());
+        System.setProperty("LOG_MODE", logging);
+        System.setProperty("LOG_SAMPLE_PER_SECOND", samplesPerSecond);
+        // le benchmark mesure le coût des logs, pas les limites anti-abus
+        System.setProperty("RATE_LIMIT_OTP_REQUEST", "65535/1s");
+        System.setProperty("RATE_LIMIT_OTP_VERIFY", "65535/1s");
+
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Configurator.reconfigure();
+        } finally {
+            System.setOut(stdout);
+        }
+        if (logging.equals("off")) {
+            Configurator.setLevel("fr.ubo.hello", Level.OFF);
+            Configurator.setRootLevel(Level.OFF);
+        }
+
+        // index des emails activé (opt-in, instance unique) : même configuration que les références
+        System.setProperty("USER_EMAIL_INDEX", "true");
+        cachedDao = new UserDao_Cached(new UserCacheBenchmark.SimulatedUserDao(USERS, 0));
+        cachedDao.afterPropertiesSet();
+        UserServiceImpl userService = new UserServiceImpl();
+        new DirectFieldAccessor(userService).setPropertyValue("dao", cachedDao);
+
+        otpDao = new OTPDao_Memory();
+        new DirectFieldAccessor(otpDao).setPropertyValue("userDao", cachedDao);
+        otpDao.afterPropertiesSet();
+
+        rateLimiter = new RateLimiter();
+        new DirectFieldAccessor(rateLimiter).setPropertyValue("store", new RateLimitStore_Memory());
+        rateLimiter.afterPropertiesSet();
+
+        OTPExpiryService otpExpiryService = new OTPExpiryService();
+        new DirectFieldAccessor(otpExpiryService).setPropertyValue("otpDao", otpDao);
+
+        // passerelle instantanée : seul le coût côté application est mesuré
+        SMSService smsService = new SMSService("http://127.0.0.1:9/send-sms", "http://127.0.0.1:9") {
+            @Override
+            public boolean sendOTP(String phoneNumber, String otpCode) {
+                return true;
+            }
+        };
+        smsDispatchQueue = new SMSDispatchQueue();
+        new DirectFieldAccessor(smsDispatchQueue).setPropertyValue("smsService", smsService);
+
+        otpService = new OTPService();
+        DirectFieldAccessor otpFields = new DirectFieldAccessor(otpService);
+        otpFields.setPropertyValue("otpDao", otpDao);
+        otpFields.setPropertyValue("userService", userService);
+        otpFields.setPropertyValue("smsService", smsService);
+        otpFields.setPropertyValue("smsDispatchQueue", smsDispatchQueue);
+        otpFields.setPropertyValue("otpExpiryService", otpExpiryService);
+        otpFields.setPropertyValue("rateLimiter", rateLimiter);
+
+        controller = new AuthController();
+        DirectFieldAccessor controllerFields = new DirectFieldAccessor(controller);
+        controllerFields.setPropertyValue("userService", userService);
+        controllerFields.setPropertyValue("otpService", otpService);
+
+        while (!cachedDao.getStats().emailIndexReady()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        smsDispatchQueue.destroy();
+        rateLimiter.destroy();
+        otpDao.destroy();
+        cachedDao.destroy();
+        LogManager.shutdown();
+        try (var files = Files.walk(logDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Une connexion complète : login (OTP généré et mis en file), puis vérification du code.
+     */
+    @Benchmark
+    public boolean loginThenVerify() throws IOException {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        byte[] login = controller.login(
+                new AuthController.LoginRequest("user" + userId + "@example.com", "secret")).getBody();
+        String deliveryId = mapper.readTree(login).get("deliveryId").asText();
+        String otpCode = otpService.getSmsDelivery(deliveryId).getOtpCode();
+
+        ResponseEntity<byte[]> verify = controller.verifyOTP(
+                new AuthController.VerifyOtpRequest(userId, otpCode, null));
+        return verify.getStatusCode().is2xxSuccessful();
+    }
+}
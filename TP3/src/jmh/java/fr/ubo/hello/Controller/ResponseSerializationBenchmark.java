@@ -0,0 +1,124 @@
+package fr.ubo.hello.Controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import fr.ubo.hello.Model.SmsDelivery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction et sérialisation JSON des réponses des contrôleurs : {@code Map} passée à l'ObjectMapper
+ * que configure Spring MVC pour {@code @RestController} ({@code _map}), contre records écrits par un
+ * {@code ObjectWriter} préparé ou corps constants déjà sérialisés ({@code _record}, {@code _constant}).
+ * Même comparaison pour la lecture du corps de {@code POST /api/auth/login}.
+ * <pre>./gradlew jmh -Pjmh.includes=ResponseSerializationBenchmark -Pjmh.args="-prof gc"</pre>
+ * {@code gc.alloc.rate.norm} donne les octets alloués par réponse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    private static final byte[] LOGIN_REQUEST =
+            "{\"email\":\"user4242@example.com\",\"password\":\"secret\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INVALID_OTP = JsonBodies.constant(
+            new OTPController.StatusResponse("error", "Code OTP invalide ou expiré"));
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectWriter loginWriter = JsonBodies.writerFor(AuthController.LoginResponse.class);
+    private final ObjectWriter verifyWriter = JsonBodies.writerFor(AuthController.VerifyOtpResponse.class);
+    private final ObjectReader loginRequestReader = mapper.readerFor(AuthController.LoginRequest.class);
+
+    /**
+     * Réponse de {@code POST /api/auth/login} avec OTP envoyé.
+     */
+    @Benchmark
+    public byte[] loginResponse_map() throws JsonProcessingException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("otpSent", true);
+        response.put("requiresOTP", true);
+        response.put("message", "Code OTP envoyé par SMS. Veuillez le saisir.");
+        response.put("userId", 4242);
+        response.put("email", "user4242@example.com");
+        response.put("deliveryId", "3f2b6c1e-8d4a-4a57-9a0e-5c1d2e3f4a5b");
+        response.put("smsStatus", "QUEUED");
+        return mapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Réponse de {@code POST /api/auth/verify-otp} réussie, avec l'utilisateur imbriqué.
+     */
+    @Benchmark
+    public byte[] verifyOtpResponse_map() throws JsonProcessingException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("authenticated", true);
+        response.put("message", "Authentification réussie");
+        response.put("user", Map.of(
+                "id", 4242,
+                "name", "Utilisateur 4242",
+                "email", "user4242@example.com"
+        ));
+        return mapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * Réponse d'erreur de {@code OTPController}.
+     */
+    @Benchmark
+    public byte[] errorResponse_map() throws JsonProcessingException {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", "Code OTP invalide ou expiré");
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] loginResponse_record() {
+        return JsonBodies.write(loginWriter, new AuthController.LoginResponse(true, true, true,
+                "Code OTP envoyé par SMS. Veuillez le saisir.", 4242, "user4242@example.com",
+                "3f2b6c1e-8d4a-4a57-9a0e-5c1d2e3f4a5b", SmsDelivery.Status.QUEUED));
+    }
+
+    @Benchmark
+    public byte[] verifyOtpResponse_record() {
+        return JsonBodies.write(verifyWriter, new AuthController.VerifyOtpResponse(true, true,
+                "Authentification réussie",
+                new AuthController.UserSummary(4242, "Utilisateur 4242", "user4242@example.com")));
+    }
+
+    @Benchmark
+    public byte[] errorResponse_constant() {
+        return INVALID_OTP;
+    }
+
+    @Benchmark
+    public Object loginRequest_map() throws IOException {
+        return mapper.readValue(LOGIN_REQUEST, Map.class);
+    }
+
+    @Benchmark
+    public Object loginRequest_record() throws IOException {
+        return loginRequestReader.readValue(LOGIN_REQUEST);
+    }
+}
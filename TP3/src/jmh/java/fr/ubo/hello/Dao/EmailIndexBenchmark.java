@@ -0,0 +1,56 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connexion avec un email inconnu (credential stuffing) : rejet par l'index des emails
+ * comparé à la requête en base simulée.
+ * <pre>./gradlew jmh -Pjmh.includes=EmailIndexBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class EmailIndexBenchmark {
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"true", "false"})
+    public boolean emailIndex;
+
+    private UserDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserCacheBenchmark.SimulatedUserDao database = new UserCacheBenchmark.SimulatedUserDao(users, 50);
+        UserDao_Cached cached = new UserDao_Cached(database, 10_000, 300, 0, 60, emailIndex, 10);
+        if (emailIndex) {
+            cached.rebuildEmailIndex();
+        }
+        dao = cached;
+    }
+
+    @Benchmark
+    public User unknownEmail() {
+        // emails toujours différents : le cache négatif ne sert pas, seul l'index peut éviter la base
+        return dao.findByEmail("attaquant" + ThreadLocalRandom.current().nextLong() + "@example.com");
+    }
+}
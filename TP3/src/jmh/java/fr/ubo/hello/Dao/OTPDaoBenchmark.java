@@ -0,0 +1,91 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.OTP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare l'OTPDao mémoire au DAO JDBC sur le chemin OTP complet : émission, comptage anti-abus, vérification.
+ * <p>
+ * {@code dao=jdbc} nécessite la base MySQL (docker compose up db) et des utilisateurs d'id 1..users
+ * (clé étrangère de otp_codes) :
+ * <pre>./gradlew jmh -Pjmh.includes=OTPDaoBenchmark -Pjmh.args="-p dao=memory"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OTPDaoBenchmark {
+
+    @Param({"memory", "jdbc"})
+    public String dao;
+
+    @Param({"1000"})
+    public int users;
+
+    private OTPDao otpDao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("memory".equals(dao)) {
+            OTPDao_Memory memory = new OTPDao_Memory();
+            memory.afterPropertiesSet();
+            otpDao = memory;
+        } else {
+            otpDao = new OTPDao_BD();
+        }
+        for (int userId = 1; userId <= users; userId++) {
+            otpDao.save(new OTP(userId, "123456", LocalDateTime.now().plusMinutes(2)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (otpDao instanceof OTPDao_Memory) {
+            ((OTPDao_Memory) otpDao).destroy();
+        }
+    }
+
+    @Benchmark
+    public boolean save() {
+        return otpDao.save(new OTP(randomUser(), "654321", LocalDateTime.now().plusMinutes(2)));
+    }
+
+    @Benchmark
+    public int countRecent() {
+        return otpDao.countRecentOTPsByUserId(randomUser(), 15);
+    }
+
+    @Benchmark
+    public OTP findValid() {
+        return otpDao.findValidOTP(randomUser(), "123456");
+    }
+
+    @Benchmark
+    public boolean issueAndConsume() {
+        int userId = randomUser();
+        otpDao.save(new OTP(userId, "987654", LocalDateTime.now().plusMinutes(2)));
+        return otpDao.consumeValidOTP(userId, "987654");
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(users) + 1;
+    }
+}
@@ -0,0 +1,234 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Charge mixte lecture (findById / findByEmail) et écriture (update) sur le cache utilisateurs,
+ * pour plusieurs tailles de cache. Les clés suivent une loi de Zipf (quelques comptes très actifs,
+ * une longue traîne) ; la base est simulée par une map avec une latence fixe par requête.
+ * Le cache est préchauffé avant la mesure ; la part des lectures qui atteignent encore la base
+ * est affichée à la fin de chaque itération.
+ * <pre>./gradlew jmh -Pjmh.includes=UserCacheBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class UserCacheBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int SAMPLES = 1 << 20;
+
+    /** 0 = sans cache, appels directs à la base simulée. */
+    @Param({"0", "1000", "10000"})
+    public int cacheSize;
+
+    @Param({"0", "5", "20"})
+    public int writePercent;
+
+    @Param({"50"})
+    public int dbLatencyMicros;
+
+    private SimulatedUserDao database;
+    private UserDao dao;
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SimulatedUserDao(USERS, dbLatencyMicros);
+        dao = cacheSize == 0 ? database : new UserDao_Cached(database, cacheSize, 300, 0, 60, true, 10);
+        keys = zipfSamples(USERS, 0.99, SAMPLES, new Random(42));
+
+        // préchauffage du cache sans latence, pour mesurer le régime établi
+        database.latencyNanos = 0;
+        for (int i = 0; i < SAMPLES / 4; i++) {
+            int id = keys[i];
+            if ((i & 1) == 0) {
+                dao.findById(id);
+            } else {
+                dao.findByEmail(email(id));
+            }
+        }
+        database.latencyNanos = TimeUnit.MICROSECONDS.toNanos(dbLatencyMicros);
+        database.reads.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printDatabaseHits() {
+        long reads = database.reads.sumThenReset();
+        long calls = database.calls.sumThenReset();
+        System.out.printf("%n[cache=%d, writes=%d%%] lectures base : %d (%.1f %% des lectures)%n",
+                cacheSize, writePercent, reads, calls == 0 ? 0 : 100.0 * reads / calls);
+    }
+
+    @Benchmark
+    public User mixedWorkload() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = keys[random.nextInt(SAMPLES)];
+        int dice = random.nextInt(100);
+        if (dice < writePercent) {
+            User user = new User(id, "Utilisateur " + id, email(id), "secret", "0600000000");
+            dao.update(user);
+            return user;
+        }
+        database.calls.increment();
+        // la moitié des lectures vient de /login (email), l'autre de l'OTP (id)
+        return (dice & 1) == 0 ? dao.findById(id) : dao.findByEmail(email(id));
+    }
+
+    private static String email(int id) {
+        return "user" + id + "@example.com";
+    }
+
+    /**
+     * Tire {@code count} ids dans [1, n] selon une loi de Zipf d'exposant {@code s}.
+     */
+    private static int[] zipfSamples(int n, double s, int count, Random random) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1 / Math.pow(rank, s);
+            cumulative[rank - 1] = sum;
+        }
+        // les rangs sont mélangés pour que les comptes actifs ne soient pas les petits ids
+        List<Integer> ids = new ArrayList<>(n);
+        for (int id = 1; id <= n; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+
+        int[] samples = new int[count];
+        for (int i = 0; i < count; i++) {
+            double target = random.nextDouble() * sum;
+            int index = Arrays.binarySearch(cumulative, target);
+            samples[i] = ids.get(index >= 0 ? index : -index - 1);
+        }
+        return samples;
+    }
+
+    /**
+     * Base simulée : une map et une attente active de {@code latencyMicros} par requête.
+     */
+    public static final class SimulatedUserDao implements UserDao {
+        final LongAdder reads = new LongAdder();
+        final LongAdder calls = new LongAdder();
+        private final Map<Integer, User> users = new ConcurrentHashMap<>();
+        private final Map<String, Integer> idByEmail = new ConcurrentHashMap<>();
+        volatile long latencyNanos;
+
+        public SimulatedUserDao(int count, int latencyMicros) {
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+            for (int id = 1; id <= count; id++) {
+                users.put(id, new User(id, "Utilisateur " + id, email(id), "secret", "0600000000"));
+                idByEmail.put(email(id), id);
+            }
+        }
+
+        private void roundTrip() {
+            long end = System.nanoTime() + latencyNanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public List<User> findAll() {
+            roundTrip();
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public User findById(int id) {
+            reads.increment();
+            roundTrip();
+            return users.get(id);
+        }
+
+        @Override
+        public User findByEmail(String email) {
+            reads.increment();
+            roundTrip();
+            Integer id = idByEmail.get(email);
+            return id == null ? null : users.get(id);
+        }
+
+        @Override
+        public boolean save(User user) {
+            roundTrip();
+            return users.putIfAbsent(user.getId(), user) == null;
+        }
+
+        @Override
+        public boolean update(User user) {
+            roundTrip();
+            return users.replace(user.getId(), user) != null;
+        }
+
+        @Override
+        public boolean delete(int id) {
+            roundTrip();
+            return users.remove(id) != null;
+        }
+
+        @Override
+        public void forEachEmail(Consumer<String> consumer) {
+            idByEmail.keySet().forEach(consumer);
+        }
+
+        @Override
+        public List<User> findPage(int afterId, int limit) {
+            roundTrip();
+            List<User> page = new ArrayList<>();
+            for (int id = afterId + 1; page.size() < limit && id <= users.size(); id++) {
+                page.add(users.get(id));
+            }
+            return page;
+        }
+
+        @Override
+        public void forEachUser(Consumer<User> consumer) {
+            roundTrip();
+            users.values().forEach(consumer);
+        }
+
+        @Override
+        public Map<Integer, String> saveAll(List<User> batch) {
+            roundTrip();
+            Map<Integer, String> errors = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (users.putIfAbsent(batch.get(i).getId(), batch.get(i)) != null) {
+                    errors.put(i, "id en double");
+                }
+            }
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.OTPDao;
+import fr.ubo.hello.Dao.OTPDao_Memory;
+import fr.ubo.hello.Dao.RateLimitStore;
+import fr.ubo.hello.Dao.RateLimitStore_Memory;
+import fr.ubo.hello.Dao.UserCacheBenchmark;
+import fr.ubo.hello.Dao.UserDao;
+import fr.ubo.hello.Dao.UserDao_Cached;
+import fr.ubo.hello.Model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durée d'un login (identifiants, limite anti-abus, OTP enregistré et mis en file) selon le chemin suivi :
+ * <ul>
+ *     <li>{@code sequential} : {@code authenticateUser} puis {@code generateAndDispatchOTP}, une requête
+ *     par étape ;</li>
+ *     <li>{@code singleRoundTrip} : {@link OTPService#loginAndDispatchOTP}, identifiants et OTP en un seul
+ *     accès ({@link OTPDao#issueLoginOTP}), après la lecture de l'id de l'utilisateur (clé de la limite)
+ *     par {@code findByEmail}.</li>
+ * </ul>
+ * Chaque appel aux DAO simulés coûte {@code rttMicros} d'attente active, comme un aller-retour réseau
+ * vers MySQL. {@code userCache} : utilisateurs lus directement en base ({@code none}) ou derrière le
+ * cache préchauffé ({@code warm}) ; {@code rateLimitStore} : compteurs en mémoire ou partagés en base
+ * (profil {@code rate-limit-shared}). Le nombre d'allers-retours par login est affiché à la fin de
+ * chaque itération ; le mode SampleTime donne les percentiles.
+ * <pre>./gradlew jmh -Pjmh.includes=LoginRoundTripBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LoginRoundTripBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final String PASSWORD = "secret";
+
+    @Param({"sequential", "singleRoundTrip"})
+    public String path;
+
+    @Param({"none", "warm"})
+    public String userCache;
+
+    @Param({"memory", "shared"})
+    public String rateLimitStore;
+
+    @Param({"250"})
+    public int rttMicros;
+
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+    private volatile long rttNanos;
+    private UserDao_Cached cachedDao;
+    private OTPDao_Memory otpStore;
+    private RateLimiter rateLimiter;
+    private SMSDispatchQueue smsDispatchQueue;
+    private UserServiceImpl userService;
+    private OTPService otpService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // le benchmark mesure les accès base du login, pas les refus anti-abus
+        System.setProperty("RATE_LIMIT_OTP_REQUEST", "65535/1s");
+
+        UserDao users = remote(UserDao.class, new UserCacheBenchmark.SimulatedUserDao(USERS, 0));
+        if (userCache.equals("warm")) {
+            // index des emails activé (opt-in, instance unique) : même configuration que les références
+            System.setProperty("USER_EMAIL_INDEX", "true");
+            cachedDao = new UserDao_Cached(users);
+            cachedDao.afterPropertiesSet();
+            while (!cachedDao.getStats().emailIndexReady()) {
+                Thread.sleep(10);
+            }
+            for (int id = 1; id <= USERS; id++) {
+                cachedDao.findByEmail(email(id));
+            }
+            users = cachedDao;
+        }
+        userService = new UserServiceImpl();
+        new DirectFieldAccessor(userService).setPropertyValue("dao", users);
+
+        // les OTPs et la lecture de l'utilisateur par le login en un accès ne coûtent qu'un aller-retour par appel
+        otpStore = new OTPDao_Memory();
+        new DirectFieldAccessor(otpStore).setPropertyValue("userDao", new UserCacheBenchmark.SimulatedUserDao(USERS, 0));
+        otpStore.afterPropertiesSet();
+
+        rateLimiter = new RateLimiter();
+        RateLimitStore store = new RateLimitStore_Memory();
+        new DirectFieldAccessor(rateLimiter).setPropertyValue("store",
+                rateLimitStore.equals("shared") ? remote(RateLimitStore.class, store) : store);
+        rateLimiter.afterPropertiesSet();
+
+        OTPExpiryService otpExpiryService = new OTPExpiryService();
+        new DirectFieldAccessor(otpExpiryService).setPropertyValue("otpDao", otpStore);
+
+        SMSService smsService = new SMSService("http://127.0.0.1:9/send-sms", "http://127.0.0.1:9") {
+            @Override
+            public boolean sendOTP(String phoneNumber, String otpCode) {
+                return true;
+            }
+        };
+        smsDispatchQueue = new SMSDispatchQueue();
+        new DirectFieldAccessor(smsDispatchQueue).setPropertyValue("smsService", smsService);
+
+        otpService = new OTPService();
+        DirectFieldAccessor otpFields = new DirectFieldAccessor(otpService);
+        otpFields.setPropertyValue("otpDao", remote(OTPDao.class, otpStore));
+        otpFields.setPropertyValue("userService", userService);
+        otpFields.setPropertyValue("smsService", smsService);
+        otpFields.setPropertyValue("smsDispatchQueue", smsDispatchQueue);
+        otpFields.setPropertyValue("otpExpiryService", otpExpiryService);
+        otpFields.setPropertyValue("rateLimiter", rateLimiter);
+        otpFields.setPropertyValue("singleRoundTripLogin", path.equals("singleRoundTrip"));
+
+        // préchauffage sans latence, puis mesure du régime établi
+        roundTrips.reset();
+        rttNanos = TimeUnit.MICROSECONDS.toNanos(rttMicros);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRoundTrips() {
+        long count = logins.sumThenReset();
+        long trips = roundTrips.sumThenReset();
+        System.out.printf("%n[%s, cache=%s, limite=%s] allers-retours base par login : %.2f%n",
+                path, userCache, rateLimitStore, count == 0 ? 0 : (double) trips / count);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        smsDispatchQueue.destroy();
+        rateLimiter.destroy();
+        otpStore.destroy();
+        if (cachedDao != null) {
+            cachedDao.destroy();
+        }
+    }
+
+    @Benchmark
+    public Object login() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        String email = email(userId);
+        logins.increment();
+        if (path.equals("singleRoundTrip")) {
+            return otpService.loginAndDispatchOTP(email, PASSWORD).delivery();
+        }
+        User user = userService.authenticateUser(email, PASSWORD);
+        return otpService.generateAndDispatchOTP(user.getId());
+    }
+
+    private static String email(int id) {
+        return "user" + id + "@example.com";
+    }
+
+    /**
+     * Même objet, derrière un aller-retour simulé par appel d'une méthode de l'interface.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T remote(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            roundTrips.increment();
+            long end = System.nanoTime() + rttNanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.OTPDao;
+import fr.ubo.hello.Dao.OTPDao_Memory;
+import fr.ubo.hello.Dao.RateLimitStore_Memory;
+import fr.ubo.hello.Dao.UserCacheBenchmark;
+import fr.ubo.hello.Dao.UserDao_Cached;
+import fr.ubo.hello.Model.SmsDelivery;
+import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.HmacOtp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Émission puis vérification d'un OTP selon {@code OTP_MODE} :
+ * <ul>
+ *     <li>{@code stored} : code aléatoire inséré dans {@code otp_codes}, puis consommé en base ;</li>
+ *     <li>{@code totp} : code calculé ({@link HmacOtp}), aucun accès à la table des OTPs.</li>
+ * </ul>
+ * Chaque appel à l'{@link OTPDao} simulé coûte {@code rttMicros} d'attente active, comme un aller-retour
+ * vers MySQL ; les utilisateurs sont servis par le cache préchauffé, comme en production. En mode
+ * {@code totp}, l'horloge avance d'un pas à chaque opération, pour que l'anti-rejeu ne refuse pas les
+ * codes d'un même utilisateur tiré deux fois. Le nombre d'allers-retours par opération est affiché
+ * à la fin de chaque itération.
+ * <pre>./gradlew jmh -Pjmh.includes=OTPModeBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OTPModeBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int STEP_SECONDS = 30;
+
+    @Param({"stored", "totp"})
+    public String mode;
+
+    @Param({"250"})
+    public int rttMicros;
+
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+    private volatile long rttNanos;
+    private UserDao_Cached cachedDao;
+    private OTPDao_Memory otpStore;
+    private RateLimiter rateLimiter;
+    private SMSDispatchQueue smsDispatchQueue;
+    private OTPService otpService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // le benchmark mesure l'émission et la vérification, pas les refus anti-abus
+        System.setProperty("RATE_LIMIT_OTP_REQUEST", "65535/1s");
+
+        UserCacheBenchmark.SimulatedUserDao users = new UserCacheBenchmark.SimulatedUserDao(USERS, 0);
+        cachedDao = new UserDao_Cached(users);
+        cachedDao.afterPropertiesSet();
+        for (int id = 1; id <= USERS; id++) {
+            cachedDao.findById(id);
+        }
+        UserServiceImpl userService = new UserServiceImpl();
+        new DirectFieldAccessor(userService).setPropertyValue("dao", cachedDao);
+
+        otpStore = new OTPDao_Memory();
+        new DirectFieldAccessor(otpStore).setPropertyValue("userDao", users);
+        otpStore.afterPropertiesSet();
+
+        rateLimiter = new RateLimiter();
+        new DirectFieldAccessor(rateLimiter).setPropertyValue("store", new RateLimitStore_Memory());
+        rateLimiter.afterPropertiesSet();
+
+        OTPExpiryService otpExpiryService = new OTPExpiryService();
+        new DirectFieldAccessor(otpExpiryService).setPropertyValue("otpDao", otpStore);
+
+        SMSService smsService = new SMSService("http://127.0.0.1:9/send-sms", "http://127.0.0.1:9") {
+            @Override
+            public boolean sendOTP(String phoneNumber, String otpCode) {
+                return true;
+            }
+        };
+        smsDispatchQueue = new SMSDispatchQueue();
+        new DirectFieldAccessor(smsDispatchQueue).setPropertyValue("smsService", smsService);
+
+        otpService = new OTPService();
+        DirectFieldAccessor otpFields = new DirectFieldAccessor(otpService);
+        otpFields.setPropertyValue("otpDao", remote(otpStore));
+        otpFields.setPropertyValue("userService", userService);
+        otpFields.setPropertyValue("smsService", smsService);
+        otpFields.setPropertyValue("smsDispatchQueue", smsDispatchQueue);
+        otpFields.setPropertyValue("otpExpiryService", otpExpiryService);
+        otpFields.setPropertyValue("rateLimiter", rateLimiter);
+        otpFields.setPropertyValue("statelessOTP", mode.equals("totp"));
+        otpFields.setPropertyValue("hmacOtp", new HmacOtp("clé de benchmark".getBytes(StandardCharsets.UTF_8),
+                STEP_SECONDS, 3, clock::get));
+
+        roundTrips.reset();
+        rttNanos = TimeUnit.MICROSECONDS.toNanos(rttMicros);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printRoundTrips() {
+        long count = operations.sumThenReset();
+        long trips = roundTrips.sumThenReset();
+        System.out.printf("%n[%s] allers-retours base par opération : %.2f%n",
+                mode, count == 0 ? 0 : (double) trips / count);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        smsDispatchQueue.destroy();
+        rateLimiter.destroy();
+        otpStore.destroy();
+        cachedDao.destroy();
+    }
+
+    /**
+     * Émission d'un code (mis en file d'envoi SMS) puis vérification réussie.
+     */
+    @Benchmark
+    public User issueAndVerify() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(STEP_SECONDS));
+        operations.increment();
+        SmsDelivery delivery = otpService.generateAndDispatchOTP(userId);
+        return otpService.verifyOTPAndGetUser(userId, delivery.getOtpCode());
+    }
+
+    /**
+     * Code erroné : le cas le plus fréquent sous une attaque par force brute.
+     */
+    @Benchmark
+    public User verify_wrongCode() {
+        operations.increment();
+        return otpService.verifyOTPAndGetUser(1 + ThreadLocalRandom.current().nextInt(USERS), "999999");
+    }
+
+    /**
+     * Même objet, derrière un aller-retour simulé par appel d'une méthode de l'interface.
+     */
+    private OTPDao remote(OTPDao target) {
+        return (OTPDao) Proxy.newProxyInstance(OTPDao.class.getClassLoader(), new Class<?>[]{OTPDao.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(target, args);
+                    }
+                    roundTrips.increment();
+                    long end = System.nanoTime() + rttNanos;
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,109 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.OTPDao;
+import fr.ubo.hello.Dao.OTPDao_Memory;
+import fr.ubo.hello.Model.OTP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chemins chauds d'{@link OTPService} sans base : génération du code, nettoyage du numéro,
+ * vérification contre l'{@link OTPDao_Memory}, et contention sur le {@link SecureRandom} partagé
+ * (comparée à une instance par thread).
+ * <pre>./gradlew jmh -Pjmh.includes=OTPServiceBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class OTPServiceBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final String[] PHONES = {"0612345678", "06 12 34 56 78", "+33 6 12 34 56 78", "06.12.34.56.78"};
+
+    private OTPService otpService;
+    private OTPDao otpDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        otpDao = new OTPDao_Memory();
+        otpService = new OTPService();
+        new DirectFieldAccessor(otpService).setPropertyValue("otpDao", otpDao);
+
+        // un OTP en cours par utilisateur, comme après une vague de connexions
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        for (int userId = 1; userId <= USERS; userId++) {
+            otpDao.save(new OTP(userId, "123456", expiresAt));
+        }
+    }
+
+    /**
+     * Instance propre à chaque thread, pour comparer au {@link SecureRandom} partagé du service.
+     */
+    @State(Scope.Thread)
+    public static class PerThreadRandom {
+        final SecureRandom random = new SecureRandom();
+    }
+
+    @Benchmark
+    public String generateOTPCode() {
+        return otpService.generateOTPCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateOTPCode_sharedRandom_4threads() {
+        return otpService.generateOTPCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateOTPCode_perThreadRandom_4threads(PerThreadRandom state) {
+        StringBuilder otp = new StringBuilder(6);
+        for (int i = 0; i < 6; i++) {
+            otp.append(state.random.nextInt(10));
+        }
+        return otp.toString();
+    }
+
+    @Benchmark
+    public String cleanPhoneNumber() {
+        return otpService.cleanPhoneNumber(PHONES[ThreadLocalRandom.current().nextInt(PHONES.length)]);
+    }
+
+    /**
+     * Code erroné : le cas le plus fréquent sous une attaque par force brute.
+     */
+    @Benchmark
+    public boolean verifyOTP_wrongCode() {
+        return otpService.verifyOTP(1 + ThreadLocalRandom.current().nextInt(USERS), "999999");
+    }
+
+    /**
+     * Enregistrement puis vérification réussie d'un nouveau code.
+     */
+    @Benchmark
+    public boolean saveThenVerifyOTP() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        otpDao.save(new OTP(userId, "654321", LocalDateTime.now().plusMinutes(2)));
+        return otpService.verifyOTP(userId, "654321");
+    }
+}
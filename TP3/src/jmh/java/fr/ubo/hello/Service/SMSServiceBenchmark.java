@@ -0,0 +1,244 @@
+package fr.ubo.hello.Service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-message latency of an OTP send against a local stub gateway:
+ * the previous one-HttpURLConnection-per-call client versus the shared pooled HttpClient.
+ * <p>
+ * {@code rttMillis} puts a relay in front of the stub that delays each connection
+ * establishment and each transfer by one network round trip, as a remote gateway would.
+ * With {@code rttMillis = 0} only the local CPU cost of each client is compared.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SMSServiceBenchmark {
+
+    private static final byte[] STUB_RESPONSE = "{\"status\":\"queued\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"0", "5"})
+    public int rttMillis;
+
+    private HttpServer stubGateway;
+    private ExecutorService stubExecutor;
+    private ServerSocket relay;
+    private final AtomicInteger relayedConnections = new AtomicInteger();
+    private String smsUrl;
+    private String healthUrl;
+    private SMSService smsService;
+
+    @Setup(Level.Trial)
+    public void startStubGateway() throws IOException {
+        // Sans TCP_NODELAY, l'ACK retardé du stub ajoute ~40 ms à chaque échange et masque tout le reste
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        stubExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-gateway");
+            thread.setDaemon(true);
+            return thread;
+        });
+        stubGateway = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubGateway.createContext("/send-sms", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, STUB_RESPONSE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(STUB_RESPONSE);
+            }
+        });
+        stubGateway.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, STUB_RESPONSE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(STUB_RESPONSE);
+            }
+        });
+        stubGateway.setExecutor(stubExecutor);
+        stubGateway.start();
+
+        int port = stubGateway.getAddress().getPort();
+        if (rttMillis > 0) {
+            port = startRelay(port);
+        }
+
+        String base = "http://127.0.0.1:" + port;
+        healthUrl = base + "/";
+        smsUrl = base + "/send-sms";
+        smsService = new SMSService(smsUrl, base);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopStubGateway() throws IOException {
+        if (relay != null) {
+            System.out.println("Connexions TCP ouvertes vers la passerelle : " + relayedConnections.get());
+            relay.close();
+        }
+        stubGateway.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean pooledHttpClient() {
+        return smsService.sendOTP("0612345678", "123456");
+    }
+
+    /**
+     * Reproduction of the former SMSService.sendSMS: a new HttpURLConnection per message,
+     * String.format payload and disconnect() at the end. Because the response is read to
+     * the end before disconnect(), the JDK keep-alive cache still reuses the socket here.
+     */
+    @Benchmark
+    public boolean connectionPerMessage() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) URI.create(smsUrl).toURL().openConnection();
+        try {
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setRequestProperty("Accept", "application/json");
+            conn.setRequestProperty("x-api-key", "DOSITPDJF");
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(10000);
+            conn.setReadTimeout(10000);
+
+            String json = String.format("{\"to\": \"%s\", \"message\": \"%s\"}", "0612345678",
+                    String.format("Votre code de vérification est: %s. Valable 2 minutes.", "123456"));
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+
+            int responseCode = conn.getResponseCode();
+            try (InputStream in = conn.getInputStream()) {
+                in.readAllBytes();
+            }
+            return responseCode == 200 || responseCode == 201;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    @Benchmark
+    public boolean pooledHealthCheck() {
+        return smsService.probeHealth();
+    }
+
+    /**
+     * Reproduction of the former blocking SMSService.isSMSServerAvailable: the response body is never
+     * read, so disconnect() closes the socket and every check pays a new TCP handshake.
+     */
+    @Benchmark
+    public boolean connectionPerHealthCheck() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) URI.create(healthUrl).toURL().openConnection();
+        conn.setRequestMethod("GET");
+        conn.setRequestProperty("X-API-Key", "DOSITPDJF");
+        conn.setConnectTimeout(10000);
+        conn.setReadTimeout(10000);
+        int responseCode = conn.getResponseCode();
+        conn.disconnect();
+        return responseCode == 200;
+    }
+
+    /**
+     * Accepts client connections, waits one RTT (TCP handshake) before connecting to the stub,
+     * then forwards each chunk after half an RTT in each direction.
+     */
+    private int startRelay(int targetPort) throws IOException {
+        relay = new ServerSocket(0, 50, java.net.InetAddress.getLoopbackAddress());
+        stubExecutor.execute(() -> {
+            while (!relay.isClosed()) {
+                try {
+                    Socket client = relay.accept();
+                    relayedConnections.incrementAndGet();
+                    stubExecutor.execute(() -> {
+                        try {
+                            Thread.sleep(rttMillis);
+                            Socket upstream = new Socket("127.0.0.1", targetPort);
+                            client.setTcpNoDelay(true);
+                            upstream.setTcpNoDelay(true);
+                            stubExecutor.execute(() -> pump(client, upstream));
+                            pump(upstream, client);
+                        } catch (Exception e) {
+                            closeQuietly(client);
+                        }
+                    });
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        return relay.getLocalPort();
+    }
+
+    /**
+     * Copies bytes from one socket to the other, delivering each chunk half an RTT after it was
+     * read. Chunks are delayed independently (a delay line), not one after the other.
+     */
+    private void pump(Socket from, Socket to) {
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(rttMillis) / 2;
+        BlockingQueue<Chunk> line = new LinkedBlockingQueue<>();
+
+        stubExecutor.execute(() -> {
+            try (OutputStream out = to.getOutputStream()) {
+                while (true) {
+                    Chunk chunk = line.take();
+                    if (chunk.data == null) {
+                        return;
+                    }
+                    long wait = chunk.deliverAt - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    out.write(chunk.data);
+                    out.flush();
+                }
+            } catch (Exception e) {
+                // connexion fermée par l'une des extrémités
+            } finally {
+                closeQuietly(to);
+            }
+        });
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = from.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                line.add(new Chunk(java.util.Arrays.copyOf(buffer, read), System.nanoTime() + delayNanos));
+            }
+        } catch (IOException e) {
+            // connexion fermée par l'une des extrémités
+        } finally {
+            line.add(new Chunk(null, 0));
+            closeQuietly(from);
+        }
+    }
+
+    private record Chunk(byte[] data, long deliverAt) {
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.UserCacheBenchmark;
+import fr.ubo.hello.Dao.UserDao_Cached;
+import fr.ubo.hello.Model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserServiceImpl#authenticateUser(String, String)} derrière le cache utilisateurs,
+ * devant une base simulée : bon mot de passe, mauvais mot de passe et email inconnu.
+ * <pre>./gradlew jmh -Pjmh.includes=UserServiceBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"50"})
+    public int dbLatencyMicros;
+
+    private UserDao_Cached cachedDao;
+    private UserServiceImpl userService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        // index des emails activé (opt-in, instance unique) : même configuration que les références
+        System.setProperty("USER_EMAIL_INDEX", "true");
+        cachedDao = new UserDao_Cached(new UserCacheBenchmark.SimulatedUserDao(USERS, dbLatencyMicros));
+        cachedDao.afterPropertiesSet();
+        userService = new UserServiceImpl();
+        new DirectFieldAccessor(userService).setPropertyValue("dao", cachedDao);
+
+        while (!cachedDao.getStats().emailIndexReady()) {
+            Thread.sleep(10);
+        }
+        for (int id = 1; id <= USERS; id++) {
+            userService.authenticateUser(email(id), "secret");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cachedDao.destroy();
+    }
+
+    @Benchmark
+    public User authenticate_validCredentials() {
+        return userService.authenticateUser(email(randomUser()), "secret");
+    }
+
+    @Benchmark
+    public User authenticate_wrongPassword() {
+        return userService.authenticateUser(email(randomUser()), "wrong");
+    }
+
+    @Benchmark
+    public User authenticate_unknownEmail() {
+        return userService.authenticateUser("nobody" + randomUser() + "@example.com", "secret");
+    }
+
+    private static int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(USERS);
+    }
+
+    private static String email(int id) {
+        return "user" + id + "@example.com";
+    }
+}
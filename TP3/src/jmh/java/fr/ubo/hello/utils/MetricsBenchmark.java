@@ -0,0 +1,52 @@
+package fr.ubo.hello.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'un enregistrement de durée, comparé aux seuls appels à {@link System#nanoTime()}.
+ * L'absence d'allocation se vérifie avec le profileur GC :
+ * <pre>./gradlew jmh -Pjmh.includes=MetricsBenchmark -Pjmh.args="-prof gc"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final Metrics.Timer timer = Metrics.timer("benchmark_seconds", "Durée de test.");
+    private final Metrics.Counter counter = Metrics.counter("benchmark_total", "Compteur de test.");
+
+    @Benchmark
+    public long nanoTimeOnly() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    public void timerRecord() {
+        long start = System.nanoTime();
+        timer.record(start);
+    }
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public String scrape() {
+        return Metrics.scrape();
+    }
+}
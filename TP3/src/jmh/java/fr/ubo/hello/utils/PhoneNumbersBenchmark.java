@@ -0,0 +1,66 @@
+package fr.ubo.hello.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalisation d'un numéro : {@link PhoneNumbers#normalize(String)} comparée à l'ancien nettoyage
+ * d'{@code OTPService} ({@code replaceAll("[^0-9]", "")} puis conversion du 33 initial).
+ * {@code input} : numéros tels que saisis ({@code raw}) ou déjà normalisés, comme relus en base à
+ * l'envoi d'un OTP ({@code stored}). Les allocations se mesurent avec le profileur GC :
+ * <pre>./gradlew jmh -Pjmh.includes=PhoneNumbersBenchmark -Pjmh.args="-prof gc"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PhoneNumbersBenchmark {
+
+    private static final String[] RAW = {"06 12 34 56 78", "+33 6 12 34 56 78", "06.12.34.56.78", "33612345678"};
+    private static final String[] STORED = {"0612345678", "0798765432", "0611223344", "0755667788"};
+
+    @Param({"raw", "stored"})
+    public String input;
+
+    private String[] phones;
+
+    @Setup
+    public void setUp() {
+        phones = input.equals("raw") ? RAW : STORED;
+    }
+
+    @Benchmark
+    public String regex() {
+        return regexClean(phones[ThreadLocalRandom.current().nextInt(phones.length)]);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return PhoneNumbers.normalize(phones[ThreadLocalRandom.current().nextInt(phones.length)]);
+    }
+
+    /**
+     * Nettoyage d'OTPService avant {@link PhoneNumbers}, sans ses traces.
+     */
+    private static String regexClean(String phoneNumber) {
+        String cleaned = phoneNumber.replaceAll("[^0-9]", "");
+        if (cleaned.startsWith("33") && cleaned.length() == 11) {
+            cleaned = "0" + cleaned.substring(2);
+        }
+        return cleaned.length() == 10 && cleaned.startsWith("0") ? cleaned : null;
+    }
+}
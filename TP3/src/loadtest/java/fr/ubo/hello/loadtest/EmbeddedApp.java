@@ -0,0 +1,137 @@
+package fr.ubo.hello.loadtest;
+
+import fr.ubo.hello.utils.SchemaMigrations;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+
+/**
+ * L'application telle que déployée (web.xml et dispatcher-servlet.xml de {@code src/main/webapp})
+ * dans un Tomcat embarqué, sur une base H2 en mémoire en mode MySQL.
+ * <p>
+ * La configuration passe par les propriétés système lues par {@code EnvConfig} : elle doit être
+ * en place avant le démarrage du contexte Spring, qui initialise les services.
+ */
+final class EmbeddedApp implements AutoCloseable {
+
+    private static final String DB_URL = "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String DB_USER = "loadtest";
+    private static final String DB_PASSWORD = "loadtest";
+    static final String PASSWORD = "secret";
+
+    private final Tomcat tomcat;
+    private final Path baseDir;
+
+    private EmbeddedApp(Tomcat tomcat, Path baseDir) {
+        this.tomcat = tomcat;
+        this.baseDir = baseDir;
+    }
+
+    static String email(int userId) {
+        return "user" + userId + "@loadtest.local";
+    }
+
+    /**
+     * Numéro déjà au format attendu par la passerelle, pour le retrouver tel quel dans le stub.
+     */
+    static String phone(int userId) {
+        return String.format("06%08d", userId);
+    }
+
+    /**
+     * Crée le schéma et les utilisateurs, configure l'application puis démarre Tomcat sur un port libre.
+     */
+    static EmbeddedApp start(LoadTest.Options options, StubSmsGateway sms) throws Exception {
+        createDatabase(options.users());
+
+        if (options.dbLatencyMillis() > 0) {
+            SlowDriver.setLatencyMillis(options.dbLatencyMillis());
+            setDefault("DB_URL", SlowDriver.PREFIX + DB_URL.substring("jdbc:".length()));
+            setDefault("DB_DRIVER", SlowDriver.class.getName());
+        }
+        setDefault("DB_URL", DB_URL);
+        setDefault("DB_DRIVER", "org.h2.Driver");
+        setDefault("DB_POOL_MAX_SIZE", String.valueOf(options.dbPoolSize()));
+        setDefault("AUTH_CONCURRENCY_LIMIT_ENABLED", String.valueOf(options.concurrencyLimit()));
+        setDefault("DB_USER", DB_USER);
+        setDefault("DB_PASSWORD", DB_PASSWORD);
+        setDefault("SMS_SERVER_URL", sms.sendUrl());
+        setDefault("SMS_HEALTH_CHECK_URL", sms.healthUrl());
+        // le test mesure la capacité du parcours, pas les limites anti-abus
+        setDefault("RATE_LIMIT_OTP_REQUEST", "65535/1s");
+        setDefault("RATE_LIMIT_OTP_VERIFY", "65535/1s");
+        setDefault("LOG_DIR", Path.of(options.reportDir(), "logs").toAbsolutePath().toString());
+
+        Path baseDir = Files.createTempDirectory("loadtest-tomcat");
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector().setProperty("maxThreads", String.valueOf(options.serverThreads()));
+        if (options.virtualThreads()) {
+            // comme useVirtualThreads="${virtual.threads}" dans le server.xml de l'image Docker
+            tomcat.getConnector().setProperty("useVirtualThreads", "true");
+            setDefault("VIRTUAL_THREADS", "true");
+        }
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        Context context = tomcat.addWebapp("", options.webapp());
+        ((StandardJarScanner) context.getJarScanner()).setScanClassPath(false);
+        tomcat.start();
+        return new EmbeddedApp(tomcat, baseDir);
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + tomcat.getConnector().getLocalPort();
+    }
+
+    private static void setDefault(String name, String value) {
+        if (System.getenv(name) == null && System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+
+    private static void createDatabase(int users) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+            // schéma de production : les migrations sont ensuite reconnues comme appliquées au démarrage
+            SchemaMigrations.apply(conn);
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO users (id, name, email, password, phone) VALUES (?, ?, ?, ?, ?)")) {
+                for (int id = 1; id <= users; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "Utilisateur " + id);
+                    insert.setString(3, email(id));
+                    insert.setString(4, PASSWORD);
+                    insert.setString(5, phone(id));
+                    insert.addBatch();
+                    if (id % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+        try (var files = Files.walk(baseDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // répertoire temporaire : tant pis
+        }
+    }
+}
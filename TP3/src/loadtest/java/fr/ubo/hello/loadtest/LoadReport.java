@@ -0,0 +1,110 @@
+package fr.ubo.hello.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import fr.ubo.hello.utils.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latences par étape (histogrammes log-linéaires de l'application) et erreurs par cause,
+ * pour les flux démarrés après le préchauffage.
+ */
+final class LoadReport {
+
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+
+    void flowStarted() {
+        started.increment();
+    }
+
+    void flowSucceeded() {
+        succeeded.increment();
+    }
+
+    void record(String step, long nanos) {
+        latencies.computeIfAbsent(step, s -> new LatencyHistogram()).record(nanos);
+    }
+
+    void error(String step, String cause) {
+        errors.computeIfAbsent(step + " : " + cause, e -> new LongAdder()).increment();
+    }
+
+    /**
+     * @param measuredSeconds durée de la phase mesurée, hors préchauffage.
+     * @param peakDbConcurrency requêtes SQL simultanées au plus fort de la phase mesurée ({@link SlowDriver}).
+     */
+    Summary summarize(LoadTest.Options options, double measuredSeconds, StubSmsGateway sms, int peakDbConcurrency) {
+        List<StepStats> steps = new ArrayList<>();
+        latencies.forEach((step, histogram) -> {
+            LatencyHistogram.Snapshot s = histogram.snapshot();
+            steps.add(new StepStats(step, s.count(), s.count() / measuredSeconds,
+                    millis(s.valueAtPercentile(50)), millis(s.valueAtPercentile(99)),
+                    millis(s.valueAtPercentile(99.9)), millis(s.maxNanos())));
+        });
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((cause, count) -> errorCounts.put(cause, count.sum()));
+        return new Summary(options.rps(), options.arrivals(), options.durationSeconds(), options.users(),
+                options.smsLatencyMillis(), options.smsErrorRate(), options.serverThreads(),
+                options.virtualThreads(), options.dbLatencyMillis(), peakDbConcurrency, options.concurrencyLimit(),
+                started.sum(), succeeded.sum(), succeeded.sum() / measuredSeconds,
+                steps, errorCounts, sms.accepted(), sms.failed());
+    }
+
+    static void print(Summary summary, PrintStream out) {
+        out.printf("%nTest de charge : %.0f flux/s (%s) pendant %d s, %d utilisateurs, SMS %d ms / %.1f %% d'erreurs%n",
+                summary.targetRps(), summary.arrivals(), summary.durationSeconds(), summary.users(),
+                summary.smsLatencyMillis(), summary.smsErrorRate() * 100);
+        out.printf("Serveur : %s, base %d ms par requête, au plus %d requêtes SQL simultanées, limite adaptative %s%n",
+                summary.virtualThreads() ? "threads virtuels" : summary.serverThreads() + " threads plateforme",
+                summary.dbLatencyMillis(), summary.peakDbConcurrency(),
+                summary.concurrencyLimit() ? "active" : "désactivée");
+        out.printf("Flux démarrés : %d, réussis : %d (%.1f flux/s)%n%n",
+                summary.flowsStarted(), summary.flowsSucceeded(), summary.flowsPerSecond());
+        out.printf("%-28s %9s %9s %10s %10s %10s %10s%n", "Étape", "Nombre", "Débit/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (StepStats step : summary.steps()) {
+            out.printf("%-28s %9d %9.1f %10.2f %10.2f %10.2f %10.2f%n", step.step(), step.count(), step.throughput(),
+                    step.p50Millis(), step.p99Millis(), step.p999Millis(), step.maxMillis());
+        }
+        out.printf("%nErreurs :%s%n", summary.errors().isEmpty() ? " aucune" : "");
+        summary.errors().forEach((cause, count) -> out.printf("  %-60s %d%n", cause, count));
+        out.printf("Passerelle SMS : %d acceptés, %d en erreur%n", summary.smsAccepted(), summary.smsFailed());
+    }
+
+    static void write(Summary summary, Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), summary);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * Latences d'une étape.
+     */
+    record StepStats(String step, long count, double throughput, double p50Millis, double p99Millis,
+                     double p999Millis, double maxMillis) {
+    }
+
+    /**
+     * Résultat complet d'un test.
+     */
+    record Summary(double targetRps, String arrivals, int durationSeconds, int users, int smsLatencyMillis,
+                   double smsErrorRate, int serverThreads, boolean virtualThreads, int dbLatencyMillis,
+                   int peakDbConcurrency, boolean concurrencyLimit, long flowsStarted, long flowsSucceeded,
+                   double flowsPerSecond, List<StepStats> steps, Map<String, Long> errors,
+                   long smsAccepted, long smsFailed) {
+    }
+}
@@ -0,0 +1,154 @@
+package fr.ubo.hello.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Test de charge de bout en bout du parcours login, OTP et vérification, sans aucune dépendance externe :
+ * application dans un Tomcat embarqué ({@link EmbeddedApp}), base H2 en mémoire, passerelle SMS locale
+ * ({@link StubSmsGateway}).
+ * <p>
+ * Modèle ouvert : les parcours arrivent au débit cible (intervalles exponentiels par défaut,
+ * {@code --arrivals=uniform} pour des intervalles fixes), qu'ils se terminent ou non ; un serveur
+ * saturé se traduit donc par des latences qui augmentent, pas par un débit qui baisse.
+ * <pre>./gradlew loadTest -PloadTest.args="--rps=200 --duration=60 --sms-latency-ms=80 --sms-error-rate=0.02"</pre>
+ * Avec {@code --db-latency-ms}, chaque requête SQL attend ce délai ({@link SlowDriver}) ; comparer
+ * {@code --virtual-threads=true} et {@code false} à {@code --server-threads} réduit montre combien de
+ * connexions sont traitées en parallèle au-delà du nombre de threads plateforme :
+ * <pre>./gradlew loadTest -PloadTest.args="--rps=40 --users=100000 --server-threads=20 --db-latency-ms=500 --db-pool-size=200 --virtual-threads=true"</pre>
+ * {@code --concurrency-limit=false} désactive la limite adaptative de l'authentification, pour mesurer
+ * ce qu'elle apporte quand la base sature :
+ * <pre>./gradlew loadTest -PloadTest.args="--rps=40 --users=100000 --db-latency-ms=250 --db-pool-size=10 --concurrency-limit=false"</pre>
+ * Le rapport est affiché et écrit dans {@code build/reports/loadtest/report.json}, avec les métriques
+ * du serveur en fin de test ({@code server-metrics.txt}).
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        int exitCode = 0;
+        try (StubSmsGateway sms = new StubSmsGateway(options.smsLatencyMillis(), options.smsErrorRate())) {
+            sms.start();
+            System.out.println("Démarrage de l'application embarquée...");
+            try (EmbeddedApp app = EmbeddedApp.start(options, sms)) {
+                run(options, app, sms);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        // les pools de l'application ne sont pas tous des threads démons
+        System.exit(exitCode);
+    }
+
+    private static void run(Options options, EmbeddedApp app, StubSmsGateway sms) throws Exception {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(options.clientThreads());
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+        LoginFlow flow = new LoginFlow(client, app.baseUrl(), sms, options);
+        LoadReport warmup = new LoadReport();
+        LoadReport report = new LoadReport();
+
+        System.out.printf("Application sur %s, %.0f parcours/s pendant %d s (+ %d s de préchauffage)%n",
+                app.baseUrl(), options.rps(), options.durationSeconds(), options.warmupSeconds());
+
+        Random random = new Random(42);
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rps();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        boolean measuring = false;
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        long next = start;
+        while (next < end) {
+            long now;
+            while ((now = System.nanoTime()) < next) {
+                LockSupport.parkNanos(next - now);
+            }
+            if (!measuring && next >= measureFrom) {
+                measuring = true;
+                SlowDriver.takePeakConcurrency();
+            }
+            flow.start(next, measuring ? report : warmup);
+            next += "uniform".equals(options.arrivals())
+                    ? (long) meanIntervalNanos
+                    : (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+        }
+
+        int peakDbConcurrency = SlowDriver.takePeakConcurrency();
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(
+                options.otpTimeoutSeconds() + 2L * options.requestTimeoutSeconds());
+        while (flow.inFlight() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+
+        LoadReport.Summary summary = report.summarize(options, options.durationSeconds(), sms, peakDbConcurrency);
+        LoadReport.print(summary, System.out);
+
+        Path reportDir = Path.of(options.reportDir());
+        Files.createDirectories(reportDir);
+        LoadReport.write(summary, reportDir.resolve("report.json"));
+        HttpResponse<String> metrics = client.send(
+                HttpRequest.newBuilder(URI.create(app.baseUrl() + "/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Files.writeString(reportDir.resolve("server-metrics.txt"), metrics.body());
+        System.out.println("Rapport : " + reportDir.resolve("report.json"));
+
+        clientExecutor.shutdownNow();
+    }
+
+    /**
+     * Paramètres du test, passés en {@code --nom=valeur}.
+     */
+    record Options(double rps, int durationSeconds, int warmupSeconds, String arrivals, int users,
+                   int smsLatencyMillis, double smsErrorRate, int serverThreads, boolean virtualThreads,
+                   int dbLatencyMillis, int dbPoolSize, boolean concurrencyLimit, int clientThreads, int maxInFlight, int otpTimeoutSeconds, int requestTimeoutSeconds,
+                   String webapp, String reportDir) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Argument invalide (attendu --nom=valeur) : " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            return new Options(
+                    Double.parseDouble(values.getOrDefault("rps", "50")),
+                    Integer.parseInt(values.getOrDefault("duration", "30")),
+                    Integer.parseInt(values.getOrDefault("warmup", "10")),
+                    values.getOrDefault("arrivals", "poisson"),
+                    Integer.parseInt(values.getOrDefault("users", "10000")),
+                    Integer.parseInt(values.getOrDefault("sms-latency-ms", "50")),
+                    Double.parseDouble(values.getOrDefault("sms-error-rate", "0")),
+                    Integer.parseInt(values.getOrDefault("server-threads", "200")),
+                    Boolean.parseBoolean(values.getOrDefault("virtual-threads", "false")),
+                    Integer.parseInt(values.getOrDefault("db-latency-ms", "0")),
+                    Integer.parseInt(values.getOrDefault("db-pool-size", "10")),
+                    Boolean.parseBoolean(values.getOrDefault("concurrency-limit", "true")),
+                    Integer.parseInt(values.getOrDefault("client-threads", "8")),
+                    Integer.parseInt(values.getOrDefault("max-in-flight", "10000")),
+                    Integer.parseInt(values.getOrDefault("otp-timeout", "15")),
+                    Integer.parseInt(values.getOrDefault("request-timeout", "10")),
+                    values.getOrDefault("webapp", "src/main/webapp"),
+                    values.getOrDefault("report", "build/reports/loadtest"));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package fr.ubo.hello.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Un parcours de connexion complet, entièrement asynchrone pour ne jamais freiner les arrivées :
+ * {@code POST /api/auth/login}, attente du SMS reçu par le stub, puis {@code POST /api/auth/verify-otp}
+ * avec le code lu dans le SMS.
+ * <p>
+ * La latence du login est comptée depuis l'instant d'arrivée prévu et non depuis l'envoi effectif,
+ * pour ne pas masquer le retard du générateur quand le serveur sature (omission coordonnée).
+ */
+final class LoginFlow {
+
+    static final String LOGIN = "POST /api/auth/login";
+    static final String OTP_DELIVERY = "SMS OTP reçu";
+    static final String VERIFY = "POST /api/auth/verify-otp";
+    static final String FLOW = "parcours complet";
+
+    private final HttpClient client;
+    private final URI loginUri;
+    private final URI verifyUri;
+    private final StubSmsGateway sms;
+    private final LoadTest.Options options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicInteger nextUser = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    LoginFlow(HttpClient client, String baseUrl, StubSmsGateway sms, LoadTest.Options options) {
+        this.client = client;
+        this.loginUri = URI.create(baseUrl + "/api/auth/login");
+        this.verifyUri = URI.create(baseUrl + "/api/auth/verify-otp");
+        this.sms = sms;
+        this.options = options;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Démarre un parcours sans attendre sa fin.
+     *
+     * @param intendedStart instant d'arrivée prévu ({@link System#nanoTime()}).
+     */
+    void start(long intendedStart, LoadReport report) {
+        int userId = 1 + Math.floorMod(nextUser.getAndIncrement(), options.users());
+        String phone = EmbeddedApp.phone(userId);
+        if (inFlight.get() >= options.maxInFlight()) {
+            report.error("client", "plus de " + options.maxInFlight() + " parcours en cours");
+            return;
+        }
+        CompletableFuture<String> otpCode = sms.expect(phone);
+        if (otpCode == null) {
+            report.error("client", "utilisateur déjà en cours de connexion (augmenter --users)");
+            return;
+        }
+        inFlight.incrementAndGet();
+        report.flowStarted();
+
+        post(loginUri, Map.of("email", EmbeddedApp.email(userId), "password", EmbeddedApp.PASSWORD))
+                .whenComplete((response, error) -> {
+                    long loginDone = System.nanoTime();
+                    report.record(LOGIN, loginDone - intendedStart);
+                    if (failed(LOGIN, response, error, report)) {
+                        sms.forget(phone, otpCode);
+                        inFlight.decrementAndGet();
+                        return;
+                    }
+                    if (!readJson(response.body()).hasNonNull("deliveryId")) {
+                        report.error(LOGIN, "OTP non mis en file d'envoi");
+                        sms.forget(phone, otpCode);
+                        inFlight.decrementAndGet();
+                        return;
+                    }
+                    otpCode.orTimeout(options.otpTimeoutSeconds(), TimeUnit.SECONDS)
+                            .whenComplete((code, smsError) -> {
+                                if (smsError != null) {
+                                    report.error(OTP_DELIVERY, "non reçu en " + options.otpTimeoutSeconds() + " s");
+                                    sms.forget(phone, otpCode);
+                                    inFlight.decrementAndGet();
+                                    return;
+                                }
+                                report.record(OTP_DELIVERY, System.nanoTime() - loginDone);
+                                verify(userId, code, intendedStart, report);
+                            });
+                });
+    }
+
+    private void verify(int userId, String code, long intendedStart, LoadReport report) {
+        long verifyStart = System.nanoTime();
+        post(verifyUri, Map.of("userId", userId, "otpCode", code))
+                .whenComplete((response, error) -> {
+                    long now = System.nanoTime();
+                    report.record(VERIFY, now - verifyStart);
+                    if (!failed(VERIFY, response, error, report)) {
+                        report.record(FLOW, now - intendedStart);
+                        report.flowSucceeded();
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(URI uri, Map<String, Object> body) {
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(options.requestTimeoutSeconds()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static boolean failed(String step, HttpResponse<String> response, Throwable error, LoadReport report) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            report.error(step, cause instanceof TimeoutException || cause instanceof java.net.http.HttpTimeoutException
+                    ? "délai dépassé" : cause.getClass().getSimpleName());
+            return true;
+        }
+        if (response.statusCode() != 200) {
+            report.error(step, "HTTP " + response.statusCode());
+            return true;
+        }
+        return false;
+    }
+
+    private JsonNode readJson(String body) {
+        try {
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
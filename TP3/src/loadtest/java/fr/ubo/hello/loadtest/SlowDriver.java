@@ -0,0 +1,126 @@
+package fr.ubo.hello.loadtest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Pilote JDBC qui ajoute une latence fixe à chaque exécution de requête, pour simuler une base
+ * distante devant la base H2 en mémoire : {@code jdbc:slow:h2:mem:...} délègue à {@code jdbc:h2:mem:...}.
+ * <p>
+ * Compte aussi les requêtes en cours d'exécution, ce qui donne le nombre de requêtes HTTP
+ * réellement traitées en parallèle par le serveur pendant leur accès à la base.
+ */
+public final class SlowDriver implements Driver {
+
+    static final String PREFIX = "jdbc:slow:";
+
+    private static final AtomicInteger active = new AtomicInteger();
+    private static final AtomicInteger peak = new AtomicInteger();
+    private static volatile long latencyMillis;
+
+    static {
+        try {
+            DriverManager.registerDriver(new SlowDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static void setLatencyMillis(long millis) {
+        latencyMillis = millis;
+    }
+
+    /**
+     * @return le plus grand nombre de requêtes SQL exécutées simultanément depuis le dernier appel.
+     */
+    static int takePeakConcurrency() {
+        return peak.getAndSet(active.get());
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        Connection connection = DriverManager.getConnection("jdbc:" + url.substring(PREFIX.length()), info);
+        return (Connection) proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return proxy(method.getReturnType(), result, SlowDriver::slowStatement);
+            }
+            return result;
+        });
+    }
+
+    private static Object slowStatement(Object target, Method method, Object[] args) throws Throwable {
+        if (!method.getName().startsWith("execute")) {
+            return invoke(target, method, args);
+        }
+        peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(latencyMillis);
+            return invoke(target, method, args);
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static Object proxy(Class<?> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return Proxy.newProxyInstance(SlowDriver.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
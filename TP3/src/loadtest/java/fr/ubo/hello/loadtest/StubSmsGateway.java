@@ -0,0 +1,144 @@
+package fr.ubo.hello.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Passerelle SMS locale qui remplace {@code dosipa.univ-brest.fr} : chaque envoi répond après
+ * {@code latencyMillis}, en erreur 500 avec la probabilité {@code errorRate}.
+ * Le code OTP des messages acceptés est remis au flux qui l'attend pour ce numéro.
+ */
+final class StubSmsGateway implements AutoCloseable {
+
+    private static final Pattern OTP_CODE = Pattern.compile("\\b(\\d{6})\\b");
+    private static final byte[] ACCEPTED = "{\"status\":\"queued\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FAILED = "{\"status\":\"error\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final int latencyMillis;
+    private final double errorRate;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, CompletableFuture<String>> expected = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder unexpected = new LongAdder();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    StubSmsGateway(int latencyMillis, double errorRate) {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+    }
+
+    void start() throws IOException {
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-sms-gateway");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/send-sms", this::handleSend);
+        server.createContext("/", exchange -> respond(exchange, 200, ACCEPTED));
+        server.start();
+    }
+
+    String sendUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/send-sms";
+    }
+
+    String healthUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return future complétée par le code du prochain SMS accepté pour ce numéro,
+     *         ou null si un autre flux attend déjà un SMS pour ce numéro.
+     */
+    CompletableFuture<String> expect(String phone) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        return expected.putIfAbsent(phone, future) == null ? future : null;
+    }
+
+    void forget(String phone, CompletableFuture<String> future) {
+        expected.remove(phone, future);
+    }
+
+    long accepted() {
+        return accepted.sum();
+    }
+
+    long failed() {
+        return failed.sum();
+    }
+
+    long unexpected() {
+        return unexpected.sum();
+    }
+
+    private void handleSend(HttpExchange exchange) throws IOException {
+        JsonNode payload;
+        try (InputStream body = exchange.getRequestBody()) {
+            payload = mapper.readTree(body);
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            failed.increment();
+            respond(exchange, 500, FAILED);
+            return;
+        }
+
+        accepted.increment();
+        respond(exchange, 200, ACCEPTED);
+
+        String phone = payload.path("to").asText();
+        Matcher code = OTP_CODE.matcher(payload.path("message").asText());
+        CompletableFuture<String> future = expected.remove(phone);
+        if (future != null && code.find()) {
+            future.complete(code.group(1));
+        } else {
+            unexpected.increment();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
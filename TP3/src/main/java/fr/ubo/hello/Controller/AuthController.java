@@ -1,18 +1,21 @@
 package fr.ubo.hello.Controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import fr.ubo.hello.Model.SmsDelivery;
 import fr.ubo.hello.Model.User;
 import fr.ubo.hello.Service.OTPService;
+import fr.ubo.hello.Service.RateLimiter;
 import fr.ubo.hello.Service.UserService;
+import fr.ubo.hello.utils.LogSampler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Controller responsible for authentication operations.
  */
@@ -23,139 +26,214 @@ public class AuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
+    // Messages émis à chaque requête : échantillonnés par point d'appel
+    private static final LogSampler LOGIN_LOGS = LogSampler.perSecond();
+    private static final LogSampler INVALID_CREDENTIALS_LOGS = LogSampler.perSecond();
+    private static final LogSampler OTP_GENERATED_LOGS = LogSampler.perSecond();
+    private static final LogSampler VERIFY_LOGS = LogSampler.perSecond();
+    private static final LogSampler TOO_MANY_ATTEMPTS_LOGS = LogSampler.perSecond();
+
+    private static final ObjectWriter LOGIN_WRITER = JsonBodies.writerFor(LoginResponse.class);
+    private static final ObjectWriter VERIFY_WRITER = JsonBodies.writerFor(VerifyOtpResponse.class);
+    private static final ObjectWriter ERROR_WRITER = JsonBodies.writerFor(ErrorResponse.class);
+
+    private static final String OTP_SENT_MESSAGE = "Code OTP envoyé par SMS. Veuillez le saisir.";
+    private static final byte[] MISSING_CREDENTIALS = JsonBodies.constant(
+            new ErrorResponse(false, "Email et mot de passe requis"));
+    private static final byte[] INVALID_CREDENTIALS = JsonBodies.constant(
+            new ErrorResponse(false, "Email ou mot de passe incorrect"));
+    private static final byte[] MISSING_OTP_PARAMETERS = JsonBodies.constant(
+            new ErrorResponse(false, "ID utilisateur et code OTP requis"));
+    private static final byte[] TOO_MANY_ATTEMPTS = JsonBodies.constant(
+            new VerifyOtpResponse(false, false, "Trop de tentatives. Veuillez réessayer plus tard.", null));
+    private static final byte[] INVALID_OTP = JsonBodies.constant(
+            new VerifyOtpResponse(false, false, "Code OTP invalide ou expiré", null));
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private OTPService otpService;
 
+    /**
+     * Body of {@code POST /api/auth/login}.
+     */
+    public record LoginRequest(String email, String password) {
+    }
+
+    /**
+     * Body of {@code POST /api/auth/verify-otp}; {@code otp} is accepted as an alias of {@code otpCode}.
+     * A {@code userId} sent as a JSON string is coerced by Jackson.
+     */
+    public record VerifyOtpRequest(Integer userId, String otpCode, String otp) {
+        String code() {
+            return otpCode != null ? otpCode : otp;
+        }
+    }
+
+    /**
+     * Successful login; the delivery fields are omitted when no SMS was queued.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record LoginResponse(boolean success, boolean otpSent, boolean requiresOTP, String message,
+                                int userId, String email, String deliveryId, SmsDelivery.Status smsStatus) {
+    }
+
+    /**
+     * Outcome of an OTP verification; {@code user} is only present once authenticated.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record VerifyOtpResponse(boolean success, boolean authenticated, String message, UserSummary user) {
+    }
+
+    public record UserSummary(int id, String name, String email) {
+    }
+
+    public record ErrorResponse(boolean success, String message) {
+    }
+
     /**
      * Authenticates a user with email and password, generates OTP if successful.
      *
-     * @param credentials Map containing "email" and "password".
-     * @return ResponseEntity containing success status, OTP information, and user details.
+     * @param credentials email and password.
+     * @return JSON {@link LoginResponse}, or {@link ErrorResponse} on failure.
      */
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> credentials) {
-        logger.info("Controller : POST /api/auth/login - Tentative de connexion pour {}",
-                credentials.get("email"));
+    public ResponseEntity<byte[]> login(@RequestBody LoginRequest credentials) {
+        String email = credentials.email();
+        if (logger.isInfoEnabled() && LOGIN_LOGS.sample()) {
+            logger.info("Controller : POST /api/auth/login - Tentative de connexion pour {} ({} similaires omis)",
+                    email, LOGIN_LOGS.takeSuppressed());
+        }
 
-        Map<String, Object> response = new HashMap<>();
         try {
-            String email = credentials.get("email");
-            String password = credentials.get("password");
+            String password = credentials.password();
 
             if (email == null || email.isEmpty() || password == null || password.isEmpty()) {
                 logger.warn("Controller : Email ou mot de passe manquant");
-                response.put("success", false);
-                response.put("message", "Email et mot de passe requis");
-                return ResponseEntity.badRequest().body(response);
+                return JsonBodies.json(HttpStatus.BAD_REQUEST).body(MISSING_CREDENTIALS);
             }
 
-            User user = userService.authenticateUser(email, password);
+            // identifiants et OTP en un seul accès base, sauf LOGIN_SINGLE_ROUND_TRIP=false
+            boolean singleRoundTrip = otpService.isSingleRoundTripLogin();
+            User user;
+            SmsDelivery delivery = null;
+            if (singleRoundTrip) {
+                OTPService.LoginResult result = otpService.loginAndDispatchOTP(email, password);
+                user = result.user();
+                delivery = result.delivery();
+            } else {
+                user = userService.authenticateUser(email, password);
+            }
 
             if (user == null) {
-                logger.warn("Controller : Identifiants invalides pour {}", email);
-                response.put("success", false);
-                response.put("message", "Email ou mot de passe incorrect");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+                if (logger.isWarnEnabled() && INVALID_CREDENTIALS_LOGS.sample()) {
+                    logger.warn("Controller : Identifiants invalides pour {} ({} similaires omis)",
+                            email, INVALID_CREDENTIALS_LOGS.takeSuppressed());
+                }
+                return JsonBodies.json(HttpStatus.UNAUTHORIZED).body(INVALID_CREDENTIALS);
             }
 
-            try {
-                otpService.generateAndSendOTP(user.getId());
-                logger.info("Controller : OTP généré pour user_id={}", user.getId());
-            } catch (Exception e) {
-                logger.warn("Controller : Erreur génération OTP (ignorée pour test): {}", e.getMessage());
+            if (!singleRoundTrip) {
+                try {
+                    delivery = otpService.generateAndDispatchOTP(user.getId());
+                    if (logger.isInfoEnabled() && OTP_GENERATED_LOGS.sample()) {
+                        logger.info("Controller : OTP généré pour user_id={} ({} similaires omis)",
+                                user.getId(), OTP_GENERATED_LOGS.takeSuppressed());
+                    }
+                } catch (Exception e) {
+                    logger.warn("Controller : Erreur génération OTP (ignorée pour test): {}", e.getMessage());
+                }
             }
 
-            response.put("success", true);
-            response.put("otpSent", true);
-            response.put("requiresOTP", true);
-            response.put("message", "Code OTP envoyé par SMS. Veuillez le saisir.");
-            response.put("userId", user.getId());
-            response.put("email", email);
-
-            logger.info("Controller : Réponse envoyée - userId: {}", user.getId());
-
-            return ResponseEntity.ok(response);
+            LoginResponse response = new LoginResponse(true, true, true, OTP_SENT_MESSAGE, user.getId(), email,
+                    delivery != null ? delivery.getId() : null,
+                    delivery != null ? delivery.getStatus() : null);
+            return JsonBodies.json(HttpStatus.OK).body(JsonBodies.write(LOGIN_WRITER, response));
 
         } catch (Exception e) {
             logger.error("Controller : Erreur lors de la connexion", e);
-            response.put("success", false);
-            response.put("message", "Une erreur inattendue est survenue: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return JsonBodies.json(HttpStatus.INTERNAL_SERVER_ERROR).body(JsonBodies.write(ERROR_WRITER,
+                    new ErrorResponse(false, "Une erreur inattendue est survenue: " + e.getMessage())));
         }
     }
 
     /**
      * Verifies a user's OTP code.
      *
-     * @param request Map containing "userId" and "otpCode".
-     * @return ResponseEntity with authentication status and user info if successful.
+     * @param request user id and OTP code.
+     * @return JSON {@link VerifyOtpResponse} with the user if authenticated, or {@link ErrorResponse}.
      */
     @PostMapping("/verify-otp")
-    public ResponseEntity<Map<String, Object>> verifyOTP(@RequestBody Map<String, Object> request) {
-        logger.info("Controller : POST /api/auth/verify-otp - Vérification OTP");
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<byte[]> verifyOTP(@RequestBody VerifyOtpRequest request) {
+        if (logger.isInfoEnabled() && VERIFY_LOGS.sample()) {
+            logger.info("Controller : POST /api/auth/verify-otp - Vérification OTP ({} similaires omis)",
+                    VERIFY_LOGS.takeSuppressed());
+        }
 
         try {
-            Integer userId = null;
-            String otpCode = null;
-
-            if (request.get("userId") != null) {
-                userId = Integer.valueOf(request.get("userId").toString());
-            }
-            if (request.get("otpCode") != null) {
-                otpCode = (String) request.get("otpCode");
-            } else if (request.get("otp") != null) {
-                otpCode = (String) request.get("otp");
-            }
+            Integer userId = request.userId();
+            String otpCode = request.code();
 
             if (userId == null || otpCode == null || otpCode.isEmpty()) {
                 logger.warn("Controller : Paramètres manquants pour la vérification OTP");
-                response.put("success", false);
-                response.put("message", "ID utilisateur et code OTP requis");
-                return ResponseEntity.badRequest().body(response);
+                return JsonBodies.json(HttpStatus.BAD_REQUEST).body(MISSING_OTP_PARAMETERS);
             }
 
-            boolean isValid = otpService.verifyOTP(userId, otpCode);
-
-            if (isValid) {
-                User user = userService.getById(userId);
-                response.put("success", true);
-                response.put("authenticated", true);
-                response.put("message", "Authentification réussie");
-                response.put("user", Map.of(
-                        "id", user.getId(),
-                        "name", user.getName(),
-                        "email", user.getEmail()
-                ));
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("success", false);
-                response.put("authenticated", false);
-                response.put("message", "Code OTP invalide ou expiré");
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+            RateLimiter.Decision attempt = otpService.acquireVerifyAttempt(userId);
+            if (!attempt.allowed()) {
+                if (logger.isWarnEnabled() && TOO_MANY_ATTEMPTS_LOGS.sample()) {
+                    logger.warn("Controller : Trop de tentatives OTP pour user_id={} ({} similaires omis)",
+                            userId, TOO_MANY_ATTEMPTS_LOGS.takeSuppressed());
+                }
+                return JsonBodies.json(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf((attempt.retryAfterMillis() + 999) / 1000))
+                        .body(TOO_MANY_ATTEMPTS);
             }
 
+            User user = otpService.verifyOTPAndGetUser(userId, otpCode);
+
+            if (user == null) {
+                return JsonBodies.json(HttpStatus.UNAUTHORIZED).body(INVALID_OTP);
+            }
+            VerifyOtpResponse response = new VerifyOtpResponse(true, true, "Authentification réussie",
+                    new UserSummary(user.getId(), user.getName(), user.getEmail()));
+            return JsonBodies.json(HttpStatus.OK).body(JsonBodies.write(VERIFY_WRITER, response));
+
         } catch (Exception e) {
             logger.error("Controller : Erreur lors de la vérification de l'OTP", e);
-            response.put("success", false);
-            response.put("message", "Une erreur est survenue lors de la vérification: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return JsonBodies.json(HttpStatus.INTERNAL_SERVER_ERROR).body(JsonBodies.write(ERROR_WRITER,
+                    new ErrorResponse(false, "Une erreur est survenue lors de la vérification: " + e.getMessage())));
+        }
+    }
+
+    /**
+     * Returns the delivery status of the OTP SMS queued at login.
+     *
+     * @param deliveryId id returned by /login.
+     * @return ResponseEntity with the delivery status, or 404 if unknown.
+     */
+    @GetMapping("/sms-delivery/{deliveryId}")
+    public ResponseEntity<SmsDelivery> getSmsDelivery(@PathVariable String deliveryId) {
+        SmsDelivery delivery = otpService.getSmsDelivery(deliveryId);
+        if (delivery == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
+        return ResponseEntity.ok(delivery);
     }
 
     /**
-     * Cleans up expired OTP entries from the system.
+     * Triggers a cleanup of expired OTP entries; deletion runs in the background.
      *
      * @return ResponseEntity indicating success or failure.
      */
     @PostMapping("/cleanup-otp")
     public ResponseEntity<String> cleanupOTP() {
         try {
-            otpService.cleanupExpiredOTPs();
-            return ResponseEntity.ok("OTP expirés nettoyés avec succès");
+            boolean started = otpService.cleanupExpiredOTPs();
+            return ResponseEntity.ok(started
+                    ? "Nettoyage des OTP expirés lancé"
+                    : "Nettoyage des OTP expirés déjà en cours");
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Erreur lors du nettoyage: " + e.getMessage());
         }
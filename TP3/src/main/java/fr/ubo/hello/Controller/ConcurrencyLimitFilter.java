@@ -0,0 +1,154 @@
+package fr.ubo.hello.Controller;
+
+import fr.ubo.hello.utils.ConcurrencyLimiter;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.LogSampler;
+import fr.ubo.hello.utils.Metrics;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+
+/**
+ * Servlet filter shedding load on the authentication endpoints with an adaptive concurrency
+ * limit ({@link ConcurrencyLimiter}) driven by their observed latency.
+ * <p>
+ * Login and OTP issuance fan out to the database, the rate limiter and the SMS gateway: when one of
+ * them slows down, the limit shrinks and excess requests get an immediate 503 with {@code Retry-After}
+ * instead of piling up on request threads until everything times out. OTP verification shares the
+ * same limit but has priority: issuance may only use {@code AUTH_CONCURRENCY_ISSUANCE_PERCENT} % of
+ * it and the rest stays reserved for verification, so users who already received a code can still
+ * finish signing in.
+ * <p>
+ * The limit, the requests in flight and the rejections per priority are published on {@code /metrics}.
+ * {@code AUTH_CONCURRENCY_LIMIT_ENABLED=false} turns the filter into a pass-through.
+ */
+public class ConcurrencyLimitFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+    private static final LogSampler REJECTED_LOGS = LogSampler.perSecond();
+
+    private static final String GROUP = "auth";
+
+    private ConcurrencyLimiter limiter;
+    private Metrics.Counter rejectedVerify;
+    private Metrics.Counter rejectedIssuance;
+    private String retryAfterSeconds;
+    private byte[] overloadedAuthBody;
+    private byte[] overloadedOtpBody;
+
+    /**
+     * Kind of request, decided from its path.
+     */
+    enum Priority { VERIFY, ISSUANCE, UNLIMITED }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        if (!EnvConfig.getBoolean("AUTH_CONCURRENCY_LIMIT_ENABLED", true)) {
+            logger.info("Controller : Limite adaptative de concurrence désactivée");
+            return;
+        }
+        init(new ConcurrencyLimiter(GROUP,
+                EnvConfig.getInt("AUTH_CONCURRENCY_INITIAL_LIMIT", 20),
+                EnvConfig.getInt("AUTH_CONCURRENCY_MIN_LIMIT", 4),
+                EnvConfig.getInt("AUTH_CONCURRENCY_MAX_LIMIT", 200),
+                EnvConfig.getInt("AUTH_CONCURRENCY_ISSUANCE_PERCENT", 80),
+                EnvConfig.getInt("AUTH_CONCURRENCY_LATENCY_TOLERANCE_PERCENT", 150) / 100.0),
+                EnvConfig.getInt("AUTH_CONCURRENCY_RETRY_AFTER_SECONDS", 1));
+    }
+
+    void init(ConcurrencyLimiter limiter, int retryAfterSeconds) {
+        this.limiter = limiter;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        this.overloadedAuthBody = JsonBodies.constant(new AuthController.ErrorResponse(false,
+                "Service momentanément surchargé, veuillez réessayer dans quelques instants"));
+        this.overloadedOtpBody = JsonBodies.constant(new OTPController.StatusResponse("error",
+                "Service momentanément surchargé, veuillez réessayer dans quelques instants"));
+
+        Metrics.gauge("http_concurrency_limit", "Limite adaptative de requêtes simultanées.",
+                limiter::getLimit, "group", GROUP);
+        Metrics.gauge("http_concurrency_in_flight", "Requêtes en cours sous la limite adaptative.",
+                limiter::getInFlight, "group", GROUP);
+        String help = "Requêtes refusées (503) par la limite adaptative.";
+        rejectedVerify = Metrics.counter("http_concurrency_rejected_total", help,
+                "group", GROUP, "priority", "verify");
+        rejectedIssuance = Metrics.counter("http_concurrency_rejected_total", help,
+                "group", GROUP, "priority", "issuance");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest httpRequest)
+                || !(response instanceof HttpServletResponse httpResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        Priority priority = priorityOf(httpRequest.getMethod(), path);
+        if (priority == Priority.UNLIMITED || limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean critical = priority == Priority.VERIFY;
+        if (!limiter.tryAcquire(critical)) {
+            reject(httpResponse, path, priority);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = httpResponse.getStatus() >= 500;
+        } finally {
+            if (failed) {
+                limiter.onDropped(critical);
+            } else {
+                limiter.onSuccess(critical, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static Priority priorityOf(String method, String path) {
+        if (!"POST".equals(method)) {
+            return Priority.UNLIMITED;
+        }
+        switch (path) {
+            case "/api/auth/verify-otp":
+            case "/auth/verify-otp":
+                return Priority.VERIFY;
+            case "/api/auth/login":
+            case "/auth/request-otp":
+                return Priority.ISSUANCE;
+            default:
+                return Priority.UNLIMITED;
+        }
+    }
+
+    private void reject(HttpServletResponse response, String path, Priority priority) throws IOException {
+        (priority == Priority.VERIFY ? rejectedVerify : rejectedIssuance).increment();
+        if (logger.isWarnEnabled() && REJECTED_LOGS.sample()) {
+            logger.warn("Controller : {} refusé, limite de {} requêtes simultanées atteinte ({} similaires omis)",
+                    path, limiter.getLimit(), REJECTED_LOGS.takeSuppressed());
+        }
+        byte[] body = path.startsWith("/api/") ? overloadedAuthBody : overloadedOtpBody;
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        // les contrôleurs autorisent toutes les origines (@CrossOrigin) : le refus doit rester lisible par le front
+        response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,61 @@
+package fr.ubo.hello.Controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * JSON response bodies written by controllers themselves: typed records go through an
+ * {@link ObjectWriter} resolved once per type, and constant bodies are serialized once at
+ * class initialization, instead of letting the message converter introspect a fresh
+ * {@code Map} on every request.
+ * <p>
+ * The mapper is configured like the one Spring MVC registers for {@code @RestController},
+ * so the JSON on the wire is the same.
+ */
+final class JsonBodies {
+
+    private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private JsonBodies() {
+    }
+
+    static ObjectWriter writerFor(Class<?> type) {
+        return MAPPER.writerFor(type);
+    }
+
+    /**
+     * Reader configured like the one Spring MVC uses for {@code @RequestBody}, for request bodies a
+     * controller parses itself (streamed imports).
+     */
+    static ObjectReader readerFor(Class<?> type) {
+        return MAPPER.readerFor(type);
+    }
+
+    /**
+     * Serializes a body that never changes; meant for static final fields.
+     */
+    static byte[] constant(Object body) {
+        return write(MAPPER.writer(), body);
+    }
+
+    static byte[] write(ObjectWriter writer, Object body) {
+        try {
+            return writer.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Réponse non sérialisable : " + body, e);
+        }
+    }
+
+    /**
+     * @return a response builder with the JSON content type, to be completed with a serialized body.
+     */
+    static ResponseEntity.BodyBuilder json(HttpStatusCode status) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON);
+    }
+}
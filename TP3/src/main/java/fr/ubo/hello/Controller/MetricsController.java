@@ -0,0 +1,22 @@
+package fr.ubo.hello.Controller;
+
+import fr.ubo.hello.utils.Metrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller exposing the application metrics to Prometheus.
+ */
+@RestController
+public class MetricsController {
+
+    /**
+     * Returns every registered histogram, counter and gauge.
+     *
+     * @return the metrics in the Prometheus text exposition format.
+     */
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return Metrics.scrape();
+    }
+}
@@ -0,0 +1,97 @@
+package fr.ubo.hello.Controller;
+
+import fr.ubo.hello.Dao.UserDao_Cached;
+import fr.ubo.hello.Service.OTPExpiryService;
+import fr.ubo.hello.Service.RateLimiter;
+import fr.ubo.hello.Service.SMSDispatchQueue;
+import fr.ubo.hello.Service.SMSService;
+import fr.ubo.hello.utils.DBConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller exposing runtime statistics for operations.
+ */
+@RestController
+@RequestMapping("/api/monitoring")
+@CrossOrigin(origins = "*")
+public class MonitoringController {
+
+    @Autowired
+    private SMSDispatchQueue smsDispatchQueue;
+
+    @Autowired
+    private SMSService smsService;
+
+    @Autowired
+    private OTPExpiryService otpExpiryService;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private UserDao_Cached cachedUserDao;
+
+    /**
+     * Returns a snapshot of the JDBC connection pool statistics.
+     *
+     * @return ResponseEntity containing active, idle and wait-time figures.
+     */
+    @GetMapping("/db-pool")
+    public ResponseEntity<DBConnection.PoolStats> getDbPoolStats() {
+        return ResponseEntity.ok(DBConnection.getPoolStats());
+    }
+
+    /**
+     * Returns a snapshot of the SMS dispatch queue metrics.
+     *
+     * @return ResponseEntity containing queue depth, outcomes and time-in-queue.
+     */
+    @GetMapping("/sms-queue")
+    public ResponseEntity<SMSDispatchQueue.Stats> getSmsQueueStats() {
+        return ResponseEntity.ok(smsDispatchQueue.getStats());
+    }
+
+    /**
+     * Returns the cached SMS gateway health and circuit breaker state.
+     *
+     * @return ResponseEntity containing the gateway status.
+     */
+    @GetMapping("/sms-gateway")
+    public ResponseEntity<SMSService.GatewayStatus> getSmsGatewayStatus() {
+        return ResponseEntity.ok(smsService.getGatewayStatus());
+    }
+
+    /**
+     * Returns the progress and backlog of the background OTP cleanup.
+     *
+     * @return ResponseEntity containing scheduled, pending and deleted counts.
+     */
+    @GetMapping("/otp-expiry")
+    public ResponseEntity<OTPExpiryService.Stats> getOtpExpiryStats() {
+        return ResponseEntity.ok(otpExpiryService.getStats());
+    }
+
+    /**
+     * Returns the configured rate limits with their allowed and rejected counts.
+     *
+     * @return ResponseEntity containing one entry per limit.
+     */
+    @GetMapping("/rate-limits")
+    public ResponseEntity<List<RateLimiter.LimitStats>> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimiter.getStats());
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the user cache.
+     *
+     * @return ResponseEntity containing the cache statistics.
+     */
+    @GetMapping("/user-cache")
+    public ResponseEntity<UserDao_Cached.Stats> getUserCacheStats() {
+        return ResponseEntity.ok(cachedUserDao.getStats());
+    }
+}
@@ -1,16 +1,15 @@
 package fr.ubo.hello.Controller;
 
 import fr.ubo.hello.Service.OTPService;
+import fr.ubo.hello.Service.RateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Controller responsible for OTP management.
  * Provides endpoints for requesting and verifying OTP codes.
@@ -22,22 +21,44 @@ public class OTPController {
 
     private static final Logger logger = LoggerFactory.getLogger(OTPController.class);
 
+    // Toutes les réponses sont constantes : sérialisées une fois pour toutes
+    private static final byte[] EMAIL_REQUIRED = error("Email requis");
+    private static final byte[] EMAIL_AND_CODE_REQUIRED = error("Email et code OTP requis");
+    private static final byte[] OTP_SENT = success("OTP envoyé avec succès");
+    private static final byte[] OTP_NOT_SENT = error("Impossible d'envoyer l'OTP. Veuillez réessayer.");
+    private static final byte[] AUTHENTICATED = success("Authentification réussie");
+    private static final byte[] INVALID_OTP = error("Code OTP invalide ou expiré");
+    private static final byte[] TOO_MANY_ATTEMPTS = error("Trop de tentatives. Veuillez réessayer plus tard.");
+    private static final byte[] INTERNAL_ERROR = error("Erreur interne du serveur");
+
     @Autowired
     private OTPService otpService;
 
+    /**
+     * Body of the OTP endpoints; {@code email} actually carries the user ID.
+     */
+    public record OtpRequest(String email, String otpCode) {
+    }
+
+    /**
+     * Response of the OTP endpoints: {@code status} is "success" or "error".
+     */
+    public record StatusResponse(String status, String message) {
+    }
+
     /**
      * Requests an OTP for a given user.
      *
-     * @param request Map containing "email" (as a string representing user ID).
-     * @return ResponseEntity containing success/error message.
+     * @param request "email" (as a string representing user ID).
+     * @return JSON {@link StatusResponse}.
      */
     @PostMapping("/request-otp")
-    public ResponseEntity<Map<String, String>> requestOTP(@RequestBody Map<String, String> request) {
-        String email = request.get("email");
+    public ResponseEntity<byte[]> requestOTP(@RequestBody OtpRequest request) {
+        String email = request.email();
         logger.info("Demande OTP reçue pour: {}", email);
 
         if (email == null || email.trim().isEmpty()) {
-            return ResponseEntity.badRequest().body(createErrorResponse("Email requis"));
+            return JsonBodies.json(HttpStatus.BAD_REQUEST).body(EMAIL_REQUIRED);
         }
 
         try {
@@ -45,76 +66,78 @@ public class OTPController {
 
             if (success) {
                 logger.info("OTP envoyé avec succès à: {}", email);
-                return ResponseEntity.ok(createSuccessResponse("OTP envoyé avec succès"));
+                return JsonBodies.json(HttpStatus.OK).body(OTP_SENT);
             } else {
                 logger.warn("Échec envoi OTP pour: {}", email);
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                        .body(createErrorResponse("Impossible d'envoyer l'OTP. Veuillez réessayer."));
+                return JsonBodies.json(HttpStatus.SERVICE_UNAVAILABLE).body(OTP_NOT_SENT);
             }
 
         } catch (Exception e) {
             logger.error("Erreur lors de la demande OTP pour: {}", email, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("Erreur interne du serveur"));
+            return JsonBodies.json(HttpStatus.INTERNAL_SERVER_ERROR).body(INTERNAL_ERROR);
         }
     }
 
     /**
+     * Verifies an OTP code; attempts count against the same per-user limit as {@code /api/auth/verify-otp}.
      *
-     * @param request Map containing "email" (user ID) and "otpCode".
-     * @return ResponseEntity indicating authentication success or failure.
+     * @param request "email" (user ID) and "otpCode".
+     * @return JSON {@link StatusResponse} indicating authentication success or failure,
+     *         429 with {@code Retry-After} when too many attempts were made.
      */
     @PostMapping("/verify-otp")
-    public ResponseEntity<Map<String, String>> verifyOTP(@RequestBody Map<String, String> request) {
-        String email = request.get("email");
-        String otpCode = request.get("otpCode");
+    public ResponseEntity<byte[]> verifyOTP(@RequestBody OtpRequest request) {
+        String email = request.email();
+        String otpCode = request.otpCode();
 
         logger.info("Vérification OTP pour: {}", email);
 
         if (email == null || otpCode == null) {
-            return ResponseEntity.badRequest().body(createErrorResponse("Email et code OTP requis"));
+            return JsonBodies.json(HttpStatus.BAD_REQUEST).body(EMAIL_AND_CODE_REQUIRED);
         }
 
         try {
-            boolean isValid = otpService.verifyOTP(Integer.parseInt(email), otpCode);
+            int userId = Integer.parseInt(email);
+
+            RateLimiter.Decision attempt = otpService.acquireVerifyAttempt(userId);
+            if (!attempt.allowed()) {
+                logger.warn("Trop de tentatives OTP pour: {}", email);
+                return JsonBodies.json(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf((attempt.retryAfterMillis() + 999) / 1000))
+                        .body(TOO_MANY_ATTEMPTS);
+            }
+
+            boolean isValid = otpService.verifyOTP(userId, otpCode);
 
             if (isValid) {
                 logger.info("OTP vérifié avec succès pour: {}", email);
-                return ResponseEntity.ok(createSuccessResponse("Authentification réussie"));
+                return JsonBodies.json(HttpStatus.OK).body(AUTHENTICATED);
             } else {
                 logger.warn("OTP invalide pour: {}", email);
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                        .body(createErrorResponse("Code OTP invalide ou expiré"));
+                return JsonBodies.json(HttpStatus.UNAUTHORIZED).body(INVALID_OTP);
             }
 
         } catch (Exception e) {
             logger.error("Erreur lors de la vérification OTP pour: {}", email, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("Erreur interne du serveur"));
+            return JsonBodies.json(HttpStatus.INTERNAL_SERVER_ERROR).body(INTERNAL_ERROR);
         }
     }
 
     /**
      *
      * @param message Success message.
-     * @return Map with keys "status" and "message".
+     * @return serialized {@link StatusResponse} with status "success".
      */
-    private Map<String, String> createSuccessResponse(String message) {
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "success");
-        response.put("message", message);
-        return response;
+    private static byte[] success(String message) {
+        return JsonBodies.constant(new StatusResponse("success", message));
     }
 
     /**
      *
      * @param message Error message.
-     * @return Map with keys "status" and "message".
+     * @return serialized {@link StatusResponse} with status "error".
      */
-    private Map<String, String> createErrorResponse(String message) {
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "error");
-        response.put("message", message);
-        return response;
+    private static byte[] error(String message) {
+        return JsonBodies.constant(new StatusResponse("error", message));
     }
 }
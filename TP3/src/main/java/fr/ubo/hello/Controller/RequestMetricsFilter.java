@@ -0,0 +1,81 @@
+package fr.ubo.hello.Controller;
+
+import fr.ubo.hello.utils.Metrics;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servlet filter timing every HTTP request into {@code http_server_requests_seconds}.
+ * <p>
+ * Series are labelled by HTTP method, status class and the matched mapping pattern (such as
+ * {@code /users/{id}}), never by the raw path, so the number of series stays bounded. The
+ * timers of each pattern are looked up once and then kept in an array indexed by method and
+ * status class, so a request records its duration without allocating.
+ */
+public class RequestMetricsFilter implements Filter {
+
+    private static final String METRIC = "http_server_requests_seconds";
+    private static final String HELP = "Durée de traitement des requêtes HTTP.";
+    private static final String UNMATCHED = "UNMATCHED";
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "OTHER"};
+
+    private final Map<String, Metrics.Timer[]> timersByPattern = new ConcurrentHashMap<>();
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest httpRequest)
+                || !(response instanceof HttpServletResponse httpResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            int status = failed ? 500 : httpResponse.getStatus();
+            timer(httpRequest, status).record(start);
+        }
+    }
+
+    private Metrics.Timer timer(HttpServletRequest request, int status) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern instanceof String ? (String) pattern : UNMATCHED;
+        Metrics.Timer[] timers = timersByPattern.computeIfAbsent(uri, p -> new Metrics.Timer[METHODS.length * 5]);
+
+        int statusClass = Math.min(Math.max(status / 100, 1), 5);
+        int slot = methodIndex(request.getMethod()) * 5 + statusClass - 1;
+        Metrics.Timer timer = timers[slot];
+        if (timer == null) {
+            // course bénigne : le registre renvoie la même série aux deux threads
+            timer = Metrics.timer(METRIC, HELP,
+                    "method", METHODS[slot / 5], "status", statusClass + "xx", "uri", uri);
+            timers[slot] = timer;
+        }
+        return timer;
+    }
+
+    private static int methodIndex(String method) {
+        switch (method) {
+            case "GET": return 0;
+            case "POST": return 1;
+            case "PUT": return 2;
+            case "DELETE": return 3;
+            case "PATCH": return 4;
+            default: return 5;
+        }
+    }
+}
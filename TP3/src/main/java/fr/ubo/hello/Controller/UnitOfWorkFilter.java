@@ -0,0 +1,52 @@
+package fr.ubo.hello.Controller;
+
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.UnitOfWork;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Servlet filter opening a {@link UnitOfWork} around each request, so that every DAO call made while
+ * handling it shares one pooled connection instead of borrowing and returning one per statement.
+ * <p>
+ * The connection is only borrowed on the first database access and goes back to the pool when the
+ * request completes, with any transaction left open rolled back. Services needing several statements
+ * to succeed or fail together wrap them in {@link UnitOfWork#inTransaction}.
+ * {@code DB_UNIT_OF_WORK_ENABLED=false} turns the filter into a pass-through: each DAO call then
+ * borrows its own connection again.
+ */
+public class UnitOfWorkFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWorkFilter.class);
+
+    private boolean enabled = true;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        enabled = EnvConfig.getBoolean("DB_UNIT_OF_WORK_ENABLED", true);
+        if (!enabled) {
+            logger.info("Controller : Unité de travail par requête désactivée");
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        // requête déjà couverte (forward, dispatch d'erreur) ou filtre désactivé
+        if (!enabled || UnitOfWork.current() != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try (UnitOfWork ignored = UnitOfWork.begin()) {
+            chain.doFilter(request, response);
+        }
+    }
+}
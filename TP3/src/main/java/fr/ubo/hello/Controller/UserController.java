@@ -1,19 +1,57 @@
 package fr.ubo.hello.Controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import fr.ubo.hello.Model.User;
 import fr.ubo.hello.Service.UserService;
 import fr.ubo.hello.Exceptions.UserNotFoundException;
+import fr.ubo.hello.utils.Csv;
+import fr.ubo.hello.utils.EnvConfig;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Controller responsible for managing users.
+ * <p>
+ * {@code GET /users} has three forms:
+ * <ul>
+ *     <li>without parameters, the whole table in one list (kept for existing clients);</li>
+ *     <li>{@code ?after=<id>&limit=<n>}, one page in ID order (keyset pagination: each page costs
+ *     an index range scan, however deep into the table), with the cursor of the next page;</li>
+ *     <li>{@code ?stream=true}, every user written to the response as rows are read, so memory
+ *     use does not grow with the table.</li>
+ * </ul>
+ * {@code /users/bulk} imports (POST) and exports (GET) users in bulk, as NDJSON or CSV, in memory
+ * bounded by one import chunk whatever the size of the file.
  */
 @RestController
 @RequestMapping("/users")
@@ -22,9 +60,55 @@ public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    // Éléments du flux écrits au fil de l'eau : c'est le tampon de la réponse qui décide des envois
+    private static final ObjectWriter USER_WRITER = JsonBodies.writerFor(UserView.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectWriter PAGE_WRITER = JsonBodies.writerFor(UserPage.class);
+    private static final ObjectWriter REPORT_WRITER = JsonBodies.writerFor(ImportReport.class);
+    private static final ObjectReader IMPORT_READER = JsonBodies.readerFor(User.class);
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     @Autowired
     private UserService service;
 
+    private int pageSize = EnvConfig.getInt("USERS_PAGE_SIZE", 100);
+    private int maxPageSize = EnvConfig.getInt("USERS_PAGE_MAX_SIZE", 1000);
+    private int importBatchSize = EnvConfig.getInt("USERS_IMPORT_BATCH_SIZE", 500);
+    private int maxReportedErrors = EnvConfig.getInt("USERS_IMPORT_MAX_REPORTED_ERRORS", 1000);
+
+    /**
+     * A user as listed by the paginated and streaming forms; the password is never read.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record UserView(int id, String name, String email, String phone) {
+        static UserView of(User user) {
+            return new UserView(user.getId(), user.getName(), user.getEmail(), user.getPhone());
+        }
+    }
+
+    /**
+     * One page of users; {@code nextCursor} is the {@code after} value of the next page, absent on the last one.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record UserPage(List<UserView> users, Integer nextCursor) {
+    }
+
+    /**
+     * An input line of an import that was not inserted, and why.
+     */
+    public record RowError(long line, String error) {
+    }
+
+    /**
+     * Outcome of an import. Every input line up to {@code lastLine} was either inserted or rejected,
+     * so an interrupted import can be resumed from the following line. {@code failed} counts every
+     * rejected line; only the first {@code USERS_IMPORT_MAX_REPORTED_ERRORS} are listed.
+     */
+    public record ImportReport(long lastLine, int inserted, int failed, List<RowError> errors) {
+    }
+
     /**
      * Retrieves all users.
      *
@@ -45,6 +129,161 @@ public class UserController {
         }
     }
 
+    /**
+     * Retrieves one page of users in ID order.
+     *
+     * @param after ID of the last user of the previous page, 0 for the first page.
+     * @param limit page size, capped by {@code USERS_PAGE_MAX_SIZE}.
+     * @return JSON {@link UserPage}, or 400 if {@code limit} is not positive.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<byte[]> getUsersPage(@RequestParam(defaultValue = "0") int after, @RequestParam int limit) {
+        if (limit < 1) {
+            logger.warn("Controller : GET /users - Taille de page invalide ({}) - Retour 400", limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        int size = Math.min(limit, maxPageSize);
+
+        try {
+            // une ligne de plus que la page : sa présence indique qu'une page suit
+            List<User> users = service.findPage(after, size + 1);
+            boolean hasNext = users.size() > size;
+            List<UserView> views = new ArrayList<>(Math.min(users.size(), size));
+            for (int i = 0; i < users.size() && i < size; i++) {
+                views.add(UserView.of(users.get(i)));
+            }
+            Integer nextCursor = hasNext ? views.get(views.size() - 1).id() : null;
+            logger.debug("Controller : GET /users - Page de {} utilisateurs après id={}", views.size(), after);
+            return JsonBodies.json(HttpStatus.OK).body(JsonBodies.write(PAGE_WRITER, new UserPage(views, nextCursor)));
+
+        } catch (Exception e) {
+            logger.error("Controller : Erreur lors de la récupération de la page après id={}", after, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Retrieves one page of users with the configured page size ({@code USERS_PAGE_SIZE}).
+     *
+     * @param after ID of the last user of the previous page.
+     * @return JSON {@link UserPage}.
+     */
+    @GetMapping(params = {"after", "!limit"})
+    public ResponseEntity<byte[]> getUsersPage(@RequestParam int after) {
+        return getUsersPage(after, pageSize);
+    }
+
+    /**
+     * Writes every user as a JSON array of {@link UserView}, element by element while the rows are
+     * read: neither the rows nor the JSON are held in memory as a whole.
+     * <p>
+     * An error before anything was sent gives a 500; once the response is committed, the status can
+     * no longer change and the array is left unterminated, which clients detect as malformed JSON.
+     *
+     * @param response the HTTP response written to.
+     */
+    @GetMapping(params = "stream=true")
+    public void streamUsers(HttpServletResponse response) throws IOException {
+        logger.info("Controller : GET /users?stream=true - Envoi en flux des utilisateurs");
+        stream(response, MediaType.APPLICATION_JSON, null, UserController::jsonArray);
+    }
+
+    /**
+     * Exports every user, one per line, as rows are read (same guarantees as {@code ?stream=true}).
+     * The CSV form has a header line and can be imported back once a password column is added.
+     *
+     * @param format {@code ndjson} (default) or {@code csv}.
+     * @param response the HTTP response written to; 400 for an unknown format.
+     */
+    @GetMapping("/bulk")
+    public void exportUsers(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response)
+            throws IOException {
+        logger.info("Controller : GET /users/bulk - Export des utilisateurs ({})", format);
+        switch (format) {
+            case "ndjson" -> stream(response, MediaType.APPLICATION_NDJSON, "users.ndjson", UserController::ndjson);
+            case "csv" -> stream(response, TEXT_CSV, "users.csv", UserController::csv);
+            default -> {
+                logger.warn("Controller : GET /users/bulk - Format inconnu ({}) - Retour 400", format);
+                response.setStatus(HttpStatus.BAD_REQUEST.value());
+            }
+        }
+    }
+
+    /**
+     * Creates users from an NDJSON ({@code application/x-ndjson}, one {@link User} object per line)
+     * or CSV ({@code text/csv}, header line naming the {@code name}, {@code email}, {@code password}
+     * and {@code phone} columns, {@code ,} or {@code ;} separated) request body.
+     * <p>
+     * The body is read line by line and inserted in chunks of {@code USERS_IMPORT_BATCH_SIZE} users,
+     * each chunk being one batched insert in its own transaction: memory use does not depend on the
+     * size of the file. A malformed line, or a user the database refuses (duplicate email...), is
+     * reported and skipped without affecting the rest of its chunk.
+     *
+     * @param contentType type of the body.
+     * @param body        the request body.
+     * @return JSON {@link ImportReport}: 200 once the whole body was read, 400 if the CSV header
+     * lacks the {@code name} or {@code email} column, 500 if reading or inserting failed midway
+     * (chunks before {@code lastLine} are kept).
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public ResponseEntity<byte[]> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                              InputStream body) {
+        logger.info("Controller : POST /users/bulk - Import d'utilisateurs ({})", contentType);
+        MediaType type = MediaType.parseMediaType(contentType);
+        Charset charset = type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
+        Importer importer = new Importer();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset))) {
+            CsvColumns columns = null;
+            if (type.isCompatibleWith(TEXT_CSV)) {
+                String header = reader.readLine();
+                importer.nextLine();
+                columns = header == null ? null : CsvColumns.of(header);
+                if (columns == null) {
+                    logger.warn("Controller : POST /users/bulk - En-tête CSV sans colonnes name et email - Retour 400");
+                    importer.reject(1, "En-tête CSV : colonnes name et email obligatoires");
+                    return JsonBodies.json(HttpStatus.BAD_REQUEST).body(JsonBodies.write(REPORT_WRITER, importer.report()));
+                }
+                importer.skip();
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long number = importer.nextLine();
+                if (line.isBlank()) {
+                    importer.skip();
+                    continue;
+                }
+                User user;
+                try {
+                    user = columns != null ? columns.read(line) : IMPORT_READER.readValue(line);
+                } catch (IllegalArgumentException | JsonProcessingException e) {
+                    importer.reject(number, e instanceof JsonProcessingException json
+                            ? "JSON invalide : " + json.getOriginalMessage() : e.getMessage());
+                    continue;
+                }
+                if (user == null || isBlank(user.getName()) || isBlank(user.getEmail())) {
+                    importer.reject(number, "Champs name et email obligatoires");
+                    continue;
+                }
+                user.setId(0);
+                importer.add(number, user);
+            }
+            importer.flush();
+
+        } catch (Exception e) {
+            ImportReport report = importer.report();
+            logger.error("Controller : Import interrompu après la ligne {} ({} utilisateurs créés)",
+                    report.lastLine(), report.inserted(), e);
+            return JsonBodies.json(HttpStatus.INTERNAL_SERVER_ERROR).body(JsonBodies.write(REPORT_WRITER, report));
+        }
+
+        ImportReport report = importer.report();
+        logger.info("Controller : Import terminé - {} utilisateurs créés, {} lignes rejetées",
+                report.inserted(), report.failed());
+        return JsonBodies.json(HttpStatus.OK).body(JsonBodies.write(REPORT_WRITER, report));
+    }
+
     /**
      *
      * @param id ID of the user.
@@ -147,6 +386,241 @@ public class UserController {
         }
     }
 
+    /**
+     * Writes every user to the response through a sink opened on its output stream.
+     * <p>
+     * An error before anything was sent gives a 500; once the response is committed, the status can
+     * no longer change and the output is left unterminated, which clients detect as malformed.
+     */
+    private void stream(HttpServletResponse response, MediaType type, String filename, SinkFactory factory)
+            throws IOException {
+        response.setContentType(type.toString());
+        if (filename != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(filename).build().toString());
+        }
+
+        int[] count = {0};
+        try {
+            UserSink sink = factory.open(response.getOutputStream());
+            service.forEachUser(user -> {
+                try {
+                    sink.write(UserView.of(user));
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            sink.close();
+            logger.info("Controller : {} utilisateurs envoyés en flux", count[0]);
+
+        } catch (Exception e) {
+            if (response.isCommitted()) {
+                logger.error("Controller : Envoi en flux interrompu après {} utilisateurs", count[0], e);
+                return;
+            }
+            logger.error("Controller : Erreur lors de l'envoi en flux des utilisateurs", e);
+            response.reset();
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        }
+    }
+
+    /**
+     * Output of a streamed listing: one {@link #write} per user, then {@link #close} after the last one.
+     */
+    private interface UserSink extends Closeable {
+        void write(UserView user) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SinkFactory {
+        UserSink open(OutputStream out) throws IOException;
+    }
+
+    private static UserSink jsonArray(OutputStream out) throws IOException {
+        JsonGenerator generator = USER_WRITER.createGenerator(out);
+        generator.writeStartArray();
+        return new UserSink() {
+            @Override
+            public void write(UserView user) throws IOException {
+                USER_WRITER.writeValue(generator, user);
+            }
+
+            @Override
+            public void close() throws IOException {
+                generator.writeEndArray();
+                generator.close();
+            }
+        };
+    }
+
+    private static UserSink ndjson(OutputStream out) throws IOException {
+        JsonGenerator generator = USER_WRITER.createGenerator(out);
+        generator.setRootValueSeparator(null); // chaque ligne se termine par son propre saut de ligne
+        return new UserSink() {
+            @Override
+            public void write(UserView user) throws IOException {
+                USER_WRITER.writeValue(generator, user);
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void close() throws IOException {
+                generator.close();
+            }
+        };
+    }
+
+    private static UserSink csv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,name,email,phone\r\n");
+        return new UserSink() {
+            @Override
+            public void write(UserView user) throws IOException {
+                writer.write(Integer.toString(user.id()));
+                writer.write(',');
+                Csv.appendField(writer, user.name(), ',');
+                writer.write(',');
+                Csv.appendField(writer, user.email(), ',');
+                writer.write(',');
+                Csv.appendField(writer, user.phone(), ',');
+                writer.write("\r\n");
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+        };
+    }
+
+    /**
+     * Positions of the columns of an imported CSV file, read from its header line.
+     */
+    private record CsvColumns(char separator, int count, int name, int email, int password, int phone) {
+
+        /**
+         * @return the columns, or null if the header has no {@code name} or {@code email} column.
+         */
+        static CsvColumns of(String header) {
+            char separator = Csv.detectSeparator(header);
+            List<String> names = Csv.parseLine(header.startsWith("\uFEFF") ? header.substring(1) : header, separator);
+            if (names == null) {
+                return null;
+            }
+            int[] positions = {-1, -1, -1, -1};
+            List<String> known = List.of("name", "email", "password", "phone");
+            for (int i = 0; i < names.size(); i++) {
+                int column = known.indexOf(names.get(i).trim().toLowerCase(Locale.ROOT));
+                if (column >= 0) {
+                    positions[column] = i;
+                }
+            }
+            if (positions[0] < 0 || positions[1] < 0) {
+                return null;
+            }
+            return new CsvColumns(separator, names.size(), positions[0], positions[1], positions[2], positions[3]);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the line is malformed or has the wrong number of fields.
+         */
+        User read(String line) {
+            List<String> fields = Csv.parseLine(line, separator);
+            if (fields == null) {
+                throw new IllegalArgumentException("Ligne CSV mal formée");
+            }
+            if (fields.size() != count) {
+                throw new IllegalArgumentException(count + " colonnes attendues, " + fields.size() + " trouvées");
+            }
+            User user = new User();
+            user.setName(field(fields, name));
+            user.setEmail(field(fields, email));
+            user.setPassword(field(fields, password));
+            user.setPhone(field(fields, phone));
+            return user;
+        }
+
+        private static String field(List<String> fields, int position) {
+            if (position < 0) {
+                return null;
+            }
+            String value = fields.get(position).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    /**
+     * State of one import: the chunk being filled, with the input line of each user, and the report so far.
+     */
+    private final class Importer {
+        private final int chunkSize = Math.max(1, importBatchSize);
+        private final List<User> chunk = new ArrayList<>(chunkSize);
+        private final long[] chunkLines = new long[chunkSize];
+        private final List<RowError> errors = new ArrayList<>();
+        private long read;
+        private long handled;
+        private int inserted;
+        private int failed;
+
+        long nextLine() {
+            return ++read;
+        }
+
+        /**
+         * Marks the line just read as handled without inserting it.
+         */
+        void skip() {
+            if (chunk.isEmpty()) {
+                handled = read;
+            }
+        }
+
+        void reject(long line, String error) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(line, error));
+            }
+            skip();
+        }
+
+        void add(long line, User user) {
+            chunkLines[chunk.size()] = line;
+            chunk.add(user);
+            if (chunk.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Inserts the pending chunk; its lines are handled once the call returns.
+         */
+        void flush() {
+            if (!chunk.isEmpty()) {
+                Map<Integer, String> rejected = service.createAll(chunk);
+                inserted += chunk.size() - rejected.size();
+                int size = chunk.size();
+                chunk.clear();
+                for (int i = 0; i < size && !rejected.isEmpty(); i++) {
+                    String error = rejected.get(i);
+                    if (error != null) {
+                        reject(chunkLines[i], error);
+                    }
+                }
+                logger.debug("Controller : Lot de {} utilisateurs importé ({} rejetés)", size, rejected.size());
+            }
+            handled = read;
+        }
+
+        ImportReport report() {
+            return new ImportReport(handled, inserted, failed, errors);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleException(Exception e) {
         logger.error("Controller : Exception non gérée interceptée", e);
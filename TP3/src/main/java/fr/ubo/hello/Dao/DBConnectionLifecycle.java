@@ -0,0 +1,27 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.utils.DBConnection;
+import fr.ubo.hello.utils.SchemaMigrations;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ties the JDBC connection pool to the Spring context lifecycle:
+ * the pool is prefilled and the schema migrated when the context starts,
+ * and the pool is closed when it stops.
+ */
+@Component
+public class DBConnectionLifecycle implements InitializingBean, DisposableBean {
+
+    @Override
+    public void afterPropertiesSet() {
+        DBConnection.init();
+        SchemaMigrations.migrate();
+    }
+
+    @Override
+    public void destroy() {
+        DBConnection.shutdown();
+    }
+}
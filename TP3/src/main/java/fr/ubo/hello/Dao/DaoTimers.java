@@ -0,0 +1,78 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.utils.Metrics;
+
+/**
+ * Chronomètres des méthodes DAO : une série {@code dao_operation_seconds{dao, method}} par méthode
+ * et par implémentation, créée au chargement de la classe.
+ */
+final class DaoTimers {
+
+    private static final String METRIC = "dao_operation_seconds";
+    private static final String HELP = "Durée des appels aux DAO.";
+
+    private DaoTimers() {
+    }
+
+    static Metrics.Timer of(Class<?> dao, String method) {
+        return Metrics.timer(METRIC, HELP, "dao", dao.getSimpleName(), "method", method);
+    }
+
+    /**
+     * Méthodes de {@link UserDao}.
+     */
+    static final class ForUserDao {
+        final Metrics.Timer findAll;
+        final Metrics.Timer findById;
+        final Metrics.Timer findByEmail;
+        final Metrics.Timer save;
+        final Metrics.Timer update;
+        final Metrics.Timer delete;
+        final Metrics.Timer forEachEmail;
+        final Metrics.Timer findPage;
+        final Metrics.Timer forEachUser;
+        final Metrics.Timer saveAll;
+
+        ForUserDao(Class<? extends UserDao> dao) {
+            findAll = of(dao, "findAll");
+            findById = of(dao, "findById");
+            findByEmail = of(dao, "findByEmail");
+            save = of(dao, "save");
+            update = of(dao, "update");
+            delete = of(dao, "delete");
+            forEachEmail = of(dao, "forEachEmail");
+            findPage = of(dao, "findPage");
+            forEachUser = of(dao, "forEachUser");
+            saveAll = of(dao, "saveAll");
+        }
+    }
+
+    /**
+     * Méthodes de {@link OTPDao}.
+     */
+    static final class ForOTPDao {
+        final Metrics.Timer save;
+        final Metrics.Timer findValidOTP;
+        final Metrics.Timer markAsUsed;
+        final Metrics.Timer consumeValidOTP;
+        final Metrics.Timer consumeValidOTPAndGetUser;
+        final Metrics.Timer countRecentOTPsByUserId;
+        final Metrics.Timer deleteExpiredOTPs;
+        final Metrics.Timer findPurgeableOTPIds;
+        final Metrics.Timer deleteOTPsByIds;
+        final Metrics.Timer issueLoginOTP;
+
+        ForOTPDao(Class<? extends OTPDao> dao) {
+            save = of(dao, "save");
+            findValidOTP = of(dao, "findValidOTP");
+            markAsUsed = of(dao, "markAsUsed");
+            consumeValidOTP = of(dao, "consumeValidOTP");
+            consumeValidOTPAndGetUser = of(dao, "consumeValidOTPAndGetUser");
+            countRecentOTPsByUserId = of(dao, "countRecentOTPsByUserId");
+            deleteExpiredOTPs = of(dao, "deleteExpiredOTPs");
+            findPurgeableOTPIds = of(dao, "findPurgeableOTPIds");
+            deleteOTPsByIds = of(dao, "deleteOTPsByIds");
+            issueLoginOTP = of(dao, "issueLoginOTP");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.utils.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index en mémoire des emails existants, sous forme de filtre de Bloom : un email absent du filtre
+ * n'existe pas en base, sans aller-retour SQL. Les emails sont normalisés (minuscules, sans espaces),
+ * comme la collation insensible à la casse de la colonne {@code users.email}.
+ * <p>
+ * Un email doit être ajouté avant son insertion en base pour ne jamais produire de faux négatif.
+ * Les emails supprimés ou modifiés restent dans le filtre (faux positifs, vérifiés en base)
+ * jusqu'à la reconstruction suivante. Tant que le premier chargement n'a pas abouti, l'index
+ * laisse tout passer.
+ */
+public class EmailIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailIndex.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 10_000;
+
+    private final UserDao source;
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    // Emails ajoutés depuis la dernière reconstruction, rejoués dans le nouveau filtre
+    private volatile Queue<String> recentAdds = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // add() en lecture, changements de building/filter/recentAdds en écriture : un ajout ne chevauche
+    // jamais une bascule, il atteint le filtre publié ensuite, ou la file rejouée dedans
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int indexedEmails;
+    private volatile long lastRebuildAt;
+
+    public EmailIndex(UserDao source) {
+        this.source = source;
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return false si l'email n'existe certainement pas.
+     */
+    public boolean mightExist(String normalizedEmail) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(normalizedEmail)) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Déclare un email qui va être écrit en base (création ou changement d'email).
+     */
+    public void add(String normalizedEmail) {
+        swapLock.readLock().lock();
+        try {
+            recentAdds.add(normalizedEmail);
+            BloomFilter current = filter;
+            if (current != null) {
+                current.put(normalizedEmail);
+            }
+            BloomFilter next = building;
+            if (next != null) {
+                next.put(normalizedEmail);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recharge tous les emails depuis la base dans un nouveau filtre, dimensionné pour le double
+     * du volume précédent, puis le substitue à l'ancien. Si la base a dépassé cette capacité
+     * (premier chargement notamment), le parcours est refait avec la bonne taille.
+     */
+    public void rebuild() {
+        // verrou plutôt que synchronized : le parcours de la table bloque sur JDBC
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            int capacity = Math.max(MIN_CAPACITY, indexedEmails * 2);
+            while (true) {
+                int count = rebuild(capacity);
+                if (count <= capacity) {
+                    logger.info("DAO Cache : Index des emails reconstruit, {} emails, {} bits en {} ms",
+                            count, filter.bitSize(), (System.nanoTime() - start) / 1_000_000);
+                    return;
+                }
+                capacity = count * 2;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private int rebuild(int capacity) {
+        BloomFilter next = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        Queue<String> addedBefore;
+        swapLock.writeLock().lock();
+        try {
+            addedBefore = recentAdds;
+            building = next;
+            recentAdds = new ConcurrentLinkedQueue<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        int[] count = {0};
+        try {
+            source.forEachEmail(email -> {
+                next.put(normalize(email));
+                count[0]++;
+            });
+        } catch (RuntimeException e) {
+            abandon(addedBefore);
+            throw e;
+        }
+        // ajouts terminés avant la reconstruction, dont l'insertion a pu échapper au parcours
+        addedBefore.forEach(next::put);
+
+        indexedEmails = count[0];
+        if (count[0] > capacity) {
+            // filtre saturé : on garde l'ancien, les ajouts récents seront rejoués au prochain passage
+            abandon(addedBefore);
+            return count[0];
+        }
+        swapLock.writeLock().lock();
+        try {
+            filter = next;
+            building = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        lastRebuildAt = System.currentTimeMillis();
+        return count[0];
+    }
+
+    /**
+     * Renonce au filtre en construction : les ajouts des deux files seront rejoués au prochain passage.
+     */
+    private void abandon(Queue<String> addedBefore) {
+        swapLock.writeLock().lock();
+        try {
+            building = null;
+            addedBefore.addAll(recentAdds);
+            recentAdds = addedBefore;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public int getIndexedEmails() {
+        return indexedEmails;
+    }
+
+    public long getLastRebuildAt() {
+        return lastRebuildAt;
+    }
+}
@@ -1,6 +1,8 @@
 package fr.ubo.hello.Dao;
 
 import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.User;
+import java.time.LocalDateTime;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -8,6 +10,21 @@ public interface OTPDao {
     boolean save(OTP otp);
     OTP findValidOTP(int userId, String otpCode);
     void markAsUsed(int otpId);
+    boolean consumeValidOTP(int userId, String otpCode);  // Vérifie et consomme en une seule requête
+    User consumeValidOTPAndGetUser(int userId, String otpCode);  // Idem + colonnes id, name, email, phone
     int countRecentOTPsByUserId(int userId, int minutes);  // Ajouté
     boolean deleteExpiredOTPs();  // Ajouté (pour compatibilité)
+    int[] findPurgeableOTPIds(LocalDateTime createdBefore, int afterId, int limit);  // Expirés ou consommés, par id croissant
+    int deleteOTPsByIds(int[] ids, int count);  // Suppression par clé primaire des count premiers ids
+    LoginIssue issueLoginOTP(String email, String password, OTP otp);  // Identifiants vérifiés et OTP inséré sur une connexion
+
+    /**
+     * Résultat de {@link #issueLoginOTP} : identifiants vérifiés, et OTP inséré s'ils sont valides et que
+     * l'utilisateur a un numéro. La limite anti-abus est réservée avant par l'appelant.
+     *
+     * @param user   l'utilisateur, ou null si l'email ou le mot de passe est invalide.
+     * @param issued true si l'OTP a été enregistré (son id est alors renseigné).
+     */
+    record LoginIssue(User user, boolean issued) {
+    }
 }
\ No newline at end of file
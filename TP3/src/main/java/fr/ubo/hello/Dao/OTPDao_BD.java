@@ -1,130 +1,384 @@
 package fr.ubo.hello.Dao;
 
 import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.User;
 import fr.ubo.hello.utils.DBConnection;
+import fr.ubo.hello.utils.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 
 @Repository("mysqlOTPDao")
 public class OTPDao_BD implements OTPDao {
 
     private static final Logger logger = LoggerFactory.getLogger(OTPDao_BD.class);
+    private static final DaoTimers.ForOTPDao TIMERS = new DaoTimers.ForOTPDao(OTPDao_BD.class);
+    private static final int PURGE_BATCH_SIZE = 500;
+
+    // Requêtes SQL, vérifiées par QueryPlanTest (EXPLAIN sur le schéma des migrations)
+    static final String INSERT_SQL = "INSERT INTO otp_codes (user_id, otp, expires_at) VALUES (?, ?, ?)";
+    static final String FIND_VALID_SQL = "SELECT * FROM otp_codes " +
+            "WHERE user_id = ? AND otp = ? AND is_valid = 1 AND expires_at > NOW()";
+    static final String MARK_AS_USED_SQL = "UPDATE otp_codes SET is_valid = 0 WHERE id = ?";
+    static final String CONSUME_VALID_SQL = "UPDATE otp_codes SET is_valid = 0 " +
+            "WHERE user_id = ? AND otp = ? AND is_valid = 1 AND expires_at > NOW()";
+    // Colonnes publiques de l'utilisateur, relues après CONSUME_VALID_SQL sur la même connexion
+    static final String OTP_OWNER_SQL = "SELECT id, name, email, phone FROM users WHERE id = ?";
+    static final String FIND_PURGEABLE_IDS_SQL = "SELECT id FROM otp_codes " +
+            "WHERE id > ? AND created_at < ? AND (expires_at < NOW() OR is_valid = 0) " +
+            "ORDER BY id LIMIT ?";
+    static final String DELETE_BY_ID_SQL = "DELETE FROM otp_codes WHERE id = ?";
+    static final String COUNT_RECENT_SQL =
+            "SELECT COUNT(*) FROM otp_codes WHERE user_id = ? AND created_at > DATE_SUB(NOW(), INTERVAL ? MINUTE)";
+    static final String ISSUE_LOGIN_SQL = "INSERT INTO otp_codes (user_id, otp, expires_at) " +
+            "SELECT u.id, ?, ? FROM users u " +
+            "WHERE u.email = ? AND u.password = ? AND u.phone IS NOT NULL AND u.phone <> ''";
+    static final String LOGIN_USER_SQL = "SELECT id, name, email, password, phone FROM users WHERE email = ?";
 
     @Override
     public boolean save(OTP otp) {
-        String sql = "INSERT INTO otp_codes (user_id, otp, expires_at) VALUES (?, ?, ?)";
+        long start = System.nanoTime();
+        try {
+            // dans une unité de travail, l'OTP est inséré sur sa connexion, dans sa transaction éventuelle
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+                stmt.setInt(1, otp.getUserId());
+                stmt.setString(2, otp.getOtpCode());
+                stmt.setTimestamp(3, Timestamp.valueOf(otp.getExpiresAt()));
+
+                int affectedRows = stmt.executeUpdate();
+
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            otp.setId(generatedKeys.getInt(1));
+                        }
+                    }
+                    return true;
+                }
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors de la sauvegarde de l'OTP", e);
+            }
+            return false;
+        } finally {
+            TIMERS.save.record(start);
+        }
+    }
 
-            stmt.setInt(1, otp.getUserId());
-            stmt.setString(2, otp.getOtpCode());
-            stmt.setTimestamp(3, Timestamp.valueOf(otp.getExpiresAt()));
+    @Override
+    public OTP findValidOTP(int userId, String otpCode) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FIND_VALID_SQL)) {
 
-            int affectedRows = stmt.executeUpdate();
+                stmt.setInt(1, userId);
+                stmt.setString(2, otpCode);
 
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        otp.setId(generatedKeys.getInt(1));
-                    }
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    return extractOTP(rs);
                 }
-                return true;
+
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors de la recherche de l'OTP valide", e);
             }
 
-        } catch (SQLException e) {
-            logger.error("DAO OTP : Erreur lors de la sauvegarde de l'OTP", e);
+            return null;
+        } finally {
+            TIMERS.findValidOTP.record(start);
         }
-        return false;
     }
 
 
-    @Override
-    public OTP findValidOTP(int userId, String otpCode) {
-        String sql = "SELECT * FROM otp_codes " +
-                "WHERE user_id = ? AND otp = ? AND is_valid = 1 AND expires_at > NOW()";
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, userId);
-            stmt.setString(2, otpCode);
+    @Override
+    public void markAsUsed(int otpId) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(MARK_AS_USED_SQL)) {
 
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return extractOTP(rs);
-            }
+                stmt.setInt(1, otpId);
+                stmt.executeUpdate();
 
-        } catch (SQLException e) {
-            logger.error("DAO OTP : Erreur lors de la recherche de l'OTP valide", e);
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors du marquage de l'OTP comme utilisé", e);
+            }
+        } finally {
+            TIMERS.markAsUsed.record(start);
         }
-
-        return null;
     }
 
 
 
 
+
     @Override
-    public void markAsUsed(int otpId) {
-        String sql = "UPDATE otp_codes SET is_valid = 0 WHERE id = ?";
+    public boolean consumeValidOTP(int userId, String otpCode) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(CONSUME_VALID_SQL)) {
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, userId);
+                stmt.setString(2, otpCode);
 
-            stmt.setInt(1, otpId);
-            stmt.executeUpdate();
+                // Une seule requête conditionnelle : deux vérifications concurrentes ne peuvent
+                // pas toutes deux passer is_valid de 1 à 0
+                return stmt.executeUpdate() > 0;
 
-        } catch (SQLException e) {
-            logger.error("DAO OTP : Erreur lors du marquage de l'OTP comme utilisé", e);
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors de la consommation de l'OTP", e);
+            }
+            return false;
+        } finally {
+            TIMERS.consumeValidOTP.record(start);
         }
     }
 
+    /**
+     * Consomme l'OTP puis relit l'utilisateur, sur une seule connexion et dans une transaction : seul
+     * l'UPDATE conditionnel décide qui consomme le code, la lecture n'a lieu que s'il a modifié une ligne.
+     */
+    @Override
+    public User consumeValidOTPAndGetUser(int userId, String otpCode) {
+        long start = System.nanoTime();
+        try {
+            return UnitOfWork.inTransaction(() -> {
+                try (Connection conn = DBConnection.getConnection()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(CONSUME_VALID_SQL)) {
+                        stmt.setInt(1, userId);
+                        stmt.setString(2, otpCode);
+                        if (stmt.executeUpdate() <= 0) {
+                            return null;
+                        }
+                    }
 
+                    try (PreparedStatement stmt = conn.prepareStatement(OTP_OWNER_SQL)) {
+                        stmt.setInt(1, userId);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            if (rs.next()) {
+                                User user = new User();
+                                user.setId(rs.getInt("id"));
+                                user.setName(rs.getString("name"));
+                                user.setEmail(rs.getString("email"));
+                                user.setPhone(rs.getString("phone"));
+                                return user;
+                            }
+                        }
+                    }
 
+                    logger.warn("DAO OTP : OTP consommé mais utilisateur {} introuvable", userId);
 
+                } catch (SQLException e) {
+                    logger.error("DAO OTP : Erreur lors de la consommation de l'OTP", e);
+                }
+                return null;
+            });
+        } finally {
+            TIMERS.consumeValidOTPAndGetUser.record(start);
+        }
+    }
 
+    /**
+     * Supprime tous les OTPs expirés ou consommés, par lots de {@value #PURGE_BATCH_SIZE} clés primaires
+     * (jamais de DELETE par plage). Le nettoyage courant est fait par OTPExpiryService.
+     */
     @Override
     public boolean deleteExpiredOTPs() {
-        String sql = "DELETE FROM otp_codes WHERE expires_at < NOW() OR is_used = 1";
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int deleted = 0;
+            int afterId = 0;
+            int[] ids;
+            do {
+                ids = findPurgeableOTPIds(now, afterId, PURGE_BATCH_SIZE);
+                if (ids.length == 0) {
+                    break;
+                }
+                int count = deleteOTPsByIds(ids, ids.length);
+                if (count < 0) {
+                    return false;
+                }
+                deleted += count;
+                afterId = ids[ids.length - 1];
+            } while (ids.length == PURGE_BATCH_SIZE);
 
-            int deleted = stmt.executeUpdate();
             logger.info("DAO OTP : {} OTPs expirés supprimés", deleted);
             return true;
+        } finally {
+            TIMERS.deleteExpiredOTPs.record(start);
+        }
+    }
 
-        } catch (SQLException e) {
-            logger.error("DAO OTP : Erreur lors du nettoyage des OTPs expirés", e);
-            return false;
+    @Override
+    public int[] findPurgeableOTPIds(LocalDateTime createdBefore, int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FIND_PURGEABLE_IDS_SQL)) {
+
+                stmt.setInt(1, afterId);
+                stmt.setTimestamp(2, Timestamp.valueOf(createdBefore));
+                stmt.setInt(3, limit);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int[] ids = new int[limit];
+                    int count = 0;
+                    while (rs.next()) {
+                        ids[count++] = rs.getInt(1);
+                    }
+                    return Arrays.copyOf(ids, count);
+                }
+
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors de la recherche des OTPs à purger", e);
+            }
+            return new int[0];
+        } finally {
+            TIMERS.findPurgeableOTPIds.record(start);
         }
     }
 
     @Override
-    public int countRecentOTPsByUserId(int userId, int minutes) {
-        String sql = "SELECT COUNT(*) FROM otp_codes WHERE user_id = ? AND created_at > DATE_SUB(NOW(), INTERVAL ? MINUTE)";
+    public int deleteOTPsByIds(int[] ids, int count) {
+        long start = System.nanoTime();
+        try {
+            if (count == 0) {
+                return 0;
+            }
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(deleteByIdsSql(count))) {
+
+                for (int i = 0; i < count; i++) {
+                    stmt.setInt(i + 1, ids[i]);
+                }
+                return stmt.executeUpdate();
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors de la suppression de {} OTPs", count, e);
+                return -1;
+            }
+        } finally {
+            TIMERS.deleteOTPsByIds.record(start);
+        }
+    }
 
-            stmt.setInt(1, userId);
-            stmt.setInt(2, minutes);
+    /**
+     * @return la suppression de {@code count} OTPs par clé primaire ({@code id IN (?, ...)}).
+     */
+    static String deleteByIdsSql(int count) {
+        StringBuilder sql = new StringBuilder("DELETE FROM otp_codes WHERE id IN (?");
+        for (int i = 1; i < count; i++) {
+            sql.append(",?");
+        }
+        return sql.append(')').toString();
+    }
 
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                int count = rs.getInt(1);
-                logger.debug("DAO OTP : {} OTPs récents pour l'utilisateur {}", count, userId);
-                return count;
+    @Override
+    public int countRecentOTPsByUserId(int userId, int minutes) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(COUNT_RECENT_SQL)) {
+
+                stmt.setInt(1, userId);
+                stmt.setInt(2, minutes);
+
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    int count = rs.getInt(1);
+                    logger.debug("DAO OTP : {} OTPs récents pour l'utilisateur {}", count, userId);
+                    return count;
+                }
+
+            } catch (SQLException e) {
+                logger.error("DAO OTP : Erreur lors du comptage des OTPs récents", e);
             }
+            return 0;
+        } finally {
+            TIMERS.countRecentOTPsByUserId.record(start);
+        }
+    }
 
-        } catch (SQLException e) {
-            logger.error("DAO OTP : Erreur lors du comptage des OTPs récents", e);
+    /**
+     * Connexion sur une seule connexion, dans une transaction : l'INSERT ... SELECT n'enregistre l'OTP que
+     * si l'email et le mot de passe correspondent et que l'utilisateur a un numéro (l'id de l'OTP est la
+     * clé générée par cet INSERT, jamais un LAST_INSERT_ID() resté d'une requête précédente de la
+     * connexion), puis le SELECT suivant relit l'utilisateur.
+     * <p>
+     * En SQL, le mot de passe est comparé selon la collation de la colonne (insensible à la casse par
+     * défaut) : il est recomparé exactement ici, et un OTP inséré pour un mot de passe qui ne diffère
+     * que par la casse est supprimé avant la validation.
+     */
+    @Override
+    public LoginIssue issueLoginOTP(String email, String password, OTP otp) {
+        long start = System.nanoTime();
+        try {
+            return UnitOfWork.inTransaction(() -> {
+                try (Connection conn = DBConnection.getConnection()) {
+                    int otpId = 0;
+                    try (PreparedStatement stmt = conn.prepareStatement(ISSUE_LOGIN_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                        stmt.setString(1, otp.getOtpCode());
+                        stmt.setTimestamp(2, Timestamp.valueOf(otp.getExpiresAt()));
+                        stmt.setString(3, email);
+                        stmt.setString(4, password);
+                        if (stmt.executeUpdate() == 1) {
+                            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                                if (generatedKeys.next()) {
+                                    otpId = generatedKeys.getInt(1);
+                                }
+                            }
+                        }
+                    }
+
+                    User user = null;
+                    try (PreparedStatement stmt = conn.prepareStatement(LOGIN_USER_SQL)) {
+                        stmt.setString(1, email);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            if (rs.next()) {
+                                user = new User();
+                                user.setId(rs.getInt("id"));
+                                user.setName(rs.getString("name"));
+                                user.setEmail(rs.getString("email"));
+                                user.setPassword(rs.getString("password"));
+                                user.setPhone(rs.getString("phone"));
+                            }
+                        }
+                    }
+
+                    if (user == null || !password.equals(user.getPassword())) {
+                        if (otpId > 0) {
+                            try (PreparedStatement delete = conn.prepareStatement(DELETE_BY_ID_SQL)) {
+                                delete.setInt(1, otpId);
+                                delete.executeUpdate();
+                            }
+                        }
+                        return new LoginIssue(null, false);
+                    }
+                    if (otpId > 0) {
+                        otp.setId(otpId);
+                        otp.setUserId(user.getId());
+                    }
+                    return new LoginIssue(user, otpId > 0);
+
+                } catch (SQLException e) {
+                    logger.error("DAO OTP : Erreur lors de la connexion de {}", email, e);
+                    throw new RuntimeException("Erreur lors de la vérification des identifiants.", e);
+                }
+            });
+        } finally {
+            TIMERS.issueLoginOTP.record(start);
         }
-        return 0;
     }
 
     private OTP extractOTP(ResultSet rs) throws SQLException {
@@ -0,0 +1,452 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.StripedIntMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * OTPDao en mémoire, sans aucune E/S base de données.
+ * <p>
+ * Activé par le profil Spring {@code otp-memory} (SPRING_PROFILES_ACTIVE=otp-memory), où il devient
+ * l'OTPDao principal ; {@code mysqlOTPDao} reste injectable par qualifier.
+ * <p>
+ * Chaque utilisateur possède un petit anneau de {@code OTP_MEMORY_SLOTS_PER_USER} emplacements
+ * compactés dans un {@code long[]} (id, code, validité, dates de création et d'expiration à la seconde),
+ * indexé par user_id dans une {@link StripedIntMap}. Les OTPs sont conservés
+ * {@code OTP_MEMORY_RETENTION_MINUTES} après leur création pour que le comptage anti-abus reste exact,
+ * puis purgés ; le nombre d'utilisateurs suivis est plafonné à {@code OTP_MEMORY_MAX_USERS}.
+ * Les codes doivent être numériques (8 chiffres au plus).
+ */
+@Repository("memoryOTPDao")
+@Primary
+@Profile("otp-memory")
+public class OTPDao_Memory implements OTPDao, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(OTPDao_Memory.class);
+    private static final DaoTimers.ForOTPDao TIMERS = new DaoTimers.ForOTPDao(OTPDao_Memory.class);
+
+    private static final int MAX_CODE_DIGITS = 8;
+    private static final long VALID_BIT = 1L << 31;
+
+    @Autowired
+    @Qualifier("cachedUserDao")
+    private UserDao userDao;
+
+    private final int slotsPerUser;
+    private final int maxUsers;
+    private final long retentionSeconds;
+    private final LongSupplier clock;
+
+    private final StripedIntMap<UserOtps> byUser = new StripedIntMap<>(64);
+    private final StripedIntMap<UserOtps> byOtpId = new StripedIntMap<>(64);
+    private final AtomicInteger idSequence = new AtomicInteger();
+    private ScheduledExecutorService sweeper;
+
+    public OTPDao_Memory() {
+        this(EnvConfig.getInt("OTP_MEMORY_SLOTS_PER_USER", 4),
+                EnvConfig.getInt("OTP_MEMORY_MAX_USERS", 1_000_000),
+                EnvConfig.getInt("OTP_MEMORY_RETENTION_MINUTES", 30),
+                System::currentTimeMillis);
+    }
+
+    OTPDao_Memory(int slotsPerUser, int maxUsers, int retentionMinutes, LongSupplier clock) {
+        this.slotsPerUser = slotsPerUser;
+        this.maxUsers = maxUsers;
+        this.retentionSeconds = TimeUnit.MINUTES.toSeconds(retentionMinutes);
+        this.clock = clock;
+    }
+
+    /**
+     * Anneau des derniers OTPs d'un utilisateur : deux {@code long} par emplacement.
+     * [2i]   = id (32 bits) | valide (1 bit) | nombre de chiffres (4 bits) | code (27 bits)
+     * [2i+1] = création (32 bits) | expiration (32 bits), en secondes epoch non signées
+     * Un id à 0 signale un emplacement vide. Tous les accès se font sous le verrou de l'objet.
+     */
+    private static final class UserOtps {
+        final long[] slots;
+        int next;
+        boolean removed;
+
+        UserOtps(int slotCount) {
+            slots = new long[slotCount * 2];
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "otp-memory-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::deleteExpiredOTPs, 1, 1, TimeUnit.MINUTES);
+        logger.info("DAO OTP mémoire : {} emplacements/utilisateur, {} utilisateurs max, rétention {} min",
+                slotsPerUser, maxUsers, retentionSeconds / 60);
+    }
+
+    @Override
+    public void destroy() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean save(OTP otp) {
+        long start = System.nanoTime();
+        try {
+            long packedCode = packCode(otp.getOtpCode());
+            if (packedCode < 0) {
+                logger.error("DAO OTP mémoire : Code non numérique ou trop long refusé pour user_id={}", otp.getUserId());
+                return false;
+            }
+
+            long nowSeconds = nowSeconds();
+            long createdSeconds = otp.getCreatedAt() != null ? toEpochSeconds(otp.getCreatedAt()) : nowSeconds;
+            long expiresSeconds = toEpochSeconds(otp.getExpiresAt());
+
+            if (byUser.get(otp.getUserId()) == null && byUser.size() >= maxUsers) {
+                deleteExpiredOTPs();
+                if (byUser.size() >= maxUsers) {
+                    logger.error("DAO OTP mémoire : Capacité de {} utilisateurs atteinte, OTP refusé pour user_id={}",
+                            maxUsers, otp.getUserId());
+                    return false;
+                }
+            }
+
+            int id = idSequence.incrementAndGet();
+            while (true) {
+                UserOtps user = byUser.computeIfAbsent(otp.getUserId(), key -> new UserOtps(slotsPerUser));
+                synchronized (user) {
+                    if (user.removed) {
+                        continue; // purgé entre-temps par le balayage : on recrée l'entrée
+                    }
+                    int slot = user.next;
+                    int replacedId = slotId(user, slot);
+                    user.slots[2 * slot] = ((long) id << 32) | VALID_BIT | packedCode;
+                    user.slots[2 * slot + 1] = (createdSeconds << 32) | (expiresSeconds & 0xFFFFFFFFL);
+                    user.next = (slot + 1) % slotsPerUser;
+
+                    if (replacedId != 0) {
+                        byOtpId.remove(replacedId, user);
+                    }
+                    byOtpId.put(id, user);
+                }
+                otp.setId(id);
+                return true;
+            }
+        } finally {
+            TIMERS.save.record(start);
+        }
+    }
+
+    @Override
+    public OTP findValidOTP(int userId, String otpCode) {
+        long start = System.nanoTime();
+        try {
+            UserOtps user = byUser.get(userId);
+            long packedCode = packCode(otpCode);
+            if (user == null || packedCode < 0) {
+                return null;
+            }
+            synchronized (user) {
+                int slot = findValidSlot(user, packedCode, nowSeconds());
+                return slot < 0 ? null : toOTP(userId, user, slot);
+            }
+        } finally {
+            TIMERS.findValidOTP.record(start);
+        }
+    }
+
+    @Override
+    public void markAsUsed(int otpId) {
+        long start = System.nanoTime();
+        try {
+            UserOtps user = byOtpId.get(otpId);
+            if (user == null) {
+                return;
+            }
+            synchronized (user) {
+                for (int slot = 0; slot < slotsPerUser; slot++) {
+                    if (slotId(user, slot) == otpId) {
+                        user.slots[2 * slot] &= ~VALID_BIT;
+                        return;
+                    }
+                }
+            }
+        } finally {
+            TIMERS.markAsUsed.record(start);
+        }
+    }
+
+    @Override
+    public boolean consumeValidOTP(int userId, String otpCode) {
+        long start = System.nanoTime();
+        try {
+            UserOtps user = byUser.get(userId);
+            long packedCode = packCode(otpCode);
+            if (user == null || packedCode < 0) {
+                return false;
+            }
+            synchronized (user) {
+                int slot = findValidSlot(user, packedCode, nowSeconds());
+                if (slot < 0) {
+                    return false;
+                }
+                user.slots[2 * slot] &= ~VALID_BIT;
+                return true;
+            }
+        } finally {
+            TIMERS.consumeValidOTP.record(start);
+        }
+    }
+
+    /**
+     * Même projection que la version MySQL (id, name, email, phone) : une copie de l'utilisateur, sans
+     * son mot de passe.
+     */
+    @Override
+    public User consumeValidOTPAndGetUser(int userId, String otpCode) {
+        long start = System.nanoTime();
+        try {
+            if (!consumeValidOTP(userId, otpCode)) {
+                return null;
+            }
+            User user = userDao.findById(userId);
+            return user != null ? new User(user.getId(), user.getName(), user.getEmail(), null, user.getPhone()) : null;
+        } finally {
+            TIMERS.consumeValidOTPAndGetUser.record(start);
+        }
+    }
+
+    @Override
+    public int countRecentOTPsByUserId(int userId, int minutes) {
+        long start = System.nanoTime();
+        try {
+            return countCreatedAfter(userId, nowSeconds() - TimeUnit.MINUTES.toSeconds(minutes));
+        } finally {
+            TIMERS.countRecentOTPsByUserId.record(start);
+        }
+    }
+
+    /**
+     * Mêmes étapes que la version MySQL, enchaînées en mémoire : utilisateur lu dans le cache puis
+     * enregistrement.
+     */
+    @Override
+    public LoginIssue issueLoginOTP(String email, String password, OTP otp) {
+        long start = System.nanoTime();
+        try {
+            User user = userDao.findByEmail(email);
+            if (user == null || user.getPassword() == null || !user.getPassword().equals(password)) {
+                return new LoginIssue(null, false);
+            }
+            if (user.getPhone() == null || user.getPhone().isEmpty()) {
+                return new LoginIssue(user, false);
+            }
+            otp.setUserId(user.getId());
+            return new LoginIssue(user, save(otp));
+        } finally {
+            TIMERS.issueLoginOTP.record(start);
+        }
+    }
+
+    private int countCreatedAfter(int userId, long sinceSeconds) {
+        UserOtps user = byUser.get(userId);
+        if (user == null) {
+            return 0;
+        }
+        int count = 0;
+        synchronized (user) {
+            for (int slot = 0; slot < slotsPerUser; slot++) {
+                if (slotId(user, slot) != 0 && createdSeconds(user, slot) > sinceSeconds) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Libère les OTPs créés il y a plus de la durée de rétention (ils sont forcément expirés),
+     * puis les utilisateurs qui n'ont plus aucun OTP.
+     */
+    @Override
+    public boolean deleteExpiredOTPs() {
+        long start = System.nanoTime();
+        try {
+            long limit = nowSeconds() - retentionSeconds;
+            int removedUsers = byUser.removeIf(user -> {
+                synchronized (user) {
+                    boolean empty = true;
+                    for (int slot = 0; slot < slotsPerUser; slot++) {
+                        int id = slotId(user, slot);
+                        if (id == 0) {
+                            continue;
+                        }
+                        if (createdSeconds(user, slot) <= limit) {
+                            user.slots[2 * slot] = 0;
+                            user.slots[2 * slot + 1] = 0;
+                            byOtpId.remove(id, user);
+                        } else {
+                            empty = false;
+                        }
+                    }
+                    user.removed = empty;
+                    return empty;
+                }
+            });
+            logger.debug("DAO OTP mémoire : {} utilisateurs purgés, {} restants", removedUsers, byUser.size());
+            return true;
+        } finally {
+            TIMERS.deleteExpiredOTPs.record(start);
+        }
+    }
+
+    /**
+     * Le balayage périodique purge déjà la mémoire : rien n'est délégué à OTPExpiryService.
+     */
+    @Override
+    public int[] findPurgeableOTPIds(LocalDateTime createdBefore, int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return new int[0];
+        } finally {
+            TIMERS.findPurgeableOTPIds.record(start);
+        }
+    }
+
+    @Override
+    public int deleteOTPsByIds(int[] ids, int count) {
+        long start = System.nanoTime();
+        try {
+            int deleted = 0;
+            for (int i = 0; i < count; i++) {
+                UserOtps user = byOtpId.get(ids[i]);
+                if (user == null) {
+                    continue;
+                }
+                synchronized (user) {
+                    for (int slot = 0; slot < slotsPerUser; slot++) {
+                        if (slotId(user, slot) == ids[i]) {
+                            user.slots[2 * slot] = 0;
+                            user.slots[2 * slot + 1] = 0;
+                            byOtpId.remove(ids[i], user);
+                            deleted++;
+                            break;
+                        }
+                    }
+                }
+            }
+            return deleted;
+        } finally {
+            TIMERS.deleteOTPsByIds.record(start);
+        }
+    }
+
+    /**
+     * @return nombre d'utilisateurs ayant au moins un OTP en mémoire.
+     */
+    public int trackedUsers() {
+        return byUser.size();
+    }
+
+    private int findValidSlot(UserOtps user, long packedCode, long nowSeconds) {
+        for (int slot = 0; slot < slotsPerUser; slot++) {
+            long head = user.slots[2 * slot];
+            if ((int) (head >>> 32) != 0
+                    && (head & VALID_BIT) != 0
+                    && (head & (VALID_BIT - 1)) == packedCode
+                    && expiresSeconds(user, slot) > nowSeconds) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private OTP toOTP(int userId, UserOtps user, int slot) {
+        long head = user.slots[2 * slot];
+        OTP otp = new OTP();
+        otp.setId(slotId(user, slot));
+        otp.setUserId(userId);
+        otp.setOtpCode(unpackCode(head));
+        otp.setCreatedAt(toLocalDateTime(createdSeconds(user, slot)));
+        otp.setExpiresAt(toLocalDateTime(expiresSeconds(user, slot)));
+        otp.setUsed((head & VALID_BIT) == 0);
+        return otp;
+    }
+
+    private static int slotId(UserOtps user, int slot) {
+        return (int) (user.slots[2 * slot] >>> 32);
+    }
+
+    private static long createdSeconds(UserOtps user, int slot) {
+        return user.slots[2 * slot + 1] >>> 32;
+    }
+
+    private static long expiresSeconds(UserOtps user, int slot) {
+        return user.slots[2 * slot + 1] & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Encode un code numérique et sa longueur (les zéros de tête comptent) sur 31 bits.
+     *
+     * @return le code encodé, ou -1 s'il n'est pas numérique ou dépasse {@value #MAX_CODE_DIGITS} chiffres.
+     */
+    private static long packCode(String code) {
+        if (code == null || code.isEmpty() || code.length() > MAX_CODE_DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return ((long) code.length() << 27) | value;
+    }
+
+    private static String unpackCode(long head) {
+        int length = (int) ((head >>> 27) & 0xF);
+        int value = (int) (head & ((1L << 27) - 1));
+        char[] digits = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    private long nowSeconds() {
+        return clock.getAsLong() / 1000;
+    }
+
+    private static long toEpochSeconds(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSeconds) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,21 @@
+package fr.ubo.hello.Dao;
+
+/**
+ * Registre de compteurs de limitation de débit, partagé ou non entre instances.
+ * <p>
+ * Chaque compteur est un {@code long} manipulé uniquement par compare-and-set, ce qui rend
+ * la vérification et la réservation atomiques quel que soit le stockage.
+ * Les 32 bits de poids fort de l'état sont l'index de la fenêtre courante ; un compteur absent vaut 0.
+ */
+public interface RateLimitStore {
+    long get(String limitName, String key);
+    boolean compareAndSet(String limitName, String key, long expected, long update);
+    int evictIdle(String limitName, long oldestActiveWindow);  // Supprime les compteurs dont la fenêtre est plus ancienne
+
+    /**
+     * @return true si les compteurs sont vus par toutes les instances du backend.
+     */
+    default boolean isShared() {
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.utils.DBConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.sql.*;
+
+/**
+ * Compteurs partagés par toutes les instances du backend, stockés dans MySQL.
+ * Activé par le profil {@code rate-limit-shared} ; le compare-and-set est un UPDATE conditionnel
+ * sur l'ancien état (ou un INSERT IGNORE pour un compteur absent). La table est créée par les
+ * migrations du schéma ({@code SchemaMigrations}).
+ */
+@Repository("mysqlRateLimitStore")
+@Profile("rate-limit-shared")
+public class RateLimitStore_BD implements RateLimitStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitStore_BD.class);
+    private static final int EVICT_BATCH_SIZE = 1000;
+
+    // Requêtes SQL, vérifiées par QueryPlanTest (EXPLAIN sur le schéma des migrations)
+    static final String GET_SQL = "SELECT state FROM rate_limit_counters WHERE limit_name = ? AND limit_key = ?";
+    static final String INSERT_IF_ABSENT_SQL =
+            "INSERT IGNORE INTO rate_limit_counters (state, limit_name, limit_key) VALUES (?, ?, ?)";
+    static final String COMPARE_AND_SET_SQL =
+            "UPDATE rate_limit_counters SET state = ? WHERE limit_name = ? AND limit_key = ? AND state = ?";
+    static final String EVICT_SQL =
+            "DELETE FROM rate_limit_counters WHERE limit_name = ? AND (state >> 32) < ? LIMIT " + EVICT_BATCH_SIZE;
+
+    @Override
+    public long get(String limitName, String key) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(GET_SQL)) {
+
+            stmt.setString(1, limitName);
+            stmt.setString(2, key);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+
+        } catch (SQLException e) {
+            logger.error("DAO RateLimit : Erreur lors de la lecture du compteur {}/{}", limitName, key, e);
+            throw new RuntimeException("Erreur lors de la lecture du compteur de limitation.", e);
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(String limitName, String key, long expected, long update) {
+        String sql = expected == 0 ? INSERT_IF_ABSENT_SQL : COMPARE_AND_SET_SQL;
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, update);
+            stmt.setString(2, limitName);
+            stmt.setString(3, key);
+            if (expected != 0) {
+                stmt.setLong(4, expected);
+            }
+            return stmt.executeUpdate() == 1;
+
+        } catch (SQLException e) {
+            logger.error("DAO RateLimit : Erreur lors de la mise à jour du compteur {}/{}", limitName, key, e);
+            throw new RuntimeException("Erreur lors de la mise à jour du compteur de limitation.", e);
+        }
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public int evictIdle(String limitName, long oldestActiveWindow) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(EVICT_SQL)) {
+
+            stmt.setString(1, limitName);
+            stmt.setLong(2, oldestActiveWindow);
+            return stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            logger.error("DAO RateLimit : Erreur lors de l'éviction des compteurs {}", limitName, e);
+            return 0;
+        }
+    }
+}
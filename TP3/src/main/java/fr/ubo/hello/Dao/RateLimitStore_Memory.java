@@ -0,0 +1,76 @@
+package fr.ubo.hello.Dao;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs locaux au processus : une {@link ConcurrentHashMap} par limite (lectures sans verrou,
+ * table découpée en compartiments) et un {@link AtomicLong} par clé, modifié par CAS.
+ * <p>
+ * L'éviction marque d'abord le compteur {@link #EVICTED} par CAS avant de le retirer de la table :
+ * un thread qui détenait encore l'ancien compteur échoue sur son CAS et repart d'un compteur neuf,
+ * aucune réservation ne peut donc se perdre.
+ */
+@Repository("memoryRateLimitStore")
+@Profile("!rate-limit-shared")
+public class RateLimitStore_Memory implements RateLimitStore {
+
+    private static final long EVICTED = -1L;
+
+    private final Map<String, ConcurrentHashMap<String, AtomicLong>> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public long get(String limitName, String key) {
+        AtomicLong counter = countersOf(limitName).get(key);
+        if (counter == null) {
+            return 0;
+        }
+        long state = counter.get();
+        return state == EVICTED ? 0 : state;
+    }
+
+    @Override
+    public boolean compareAndSet(String limitName, String key, long expected, long update) {
+        ConcurrentHashMap<String, AtomicLong> map = countersOf(limitName);
+        while (true) {
+            AtomicLong counter = map.computeIfAbsent(key, k -> new AtomicLong());
+            if (counter.compareAndSet(expected, update)) {
+                return true;
+            }
+            if (counter.get() != EVICTED) {
+                return false;
+            }
+            map.remove(key, counter);
+        }
+    }
+
+    @Override
+    public int evictIdle(String limitName, long oldestActiveWindow) {
+        ConcurrentHashMap<String, AtomicLong> map = countersOf(limitName);
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : map.entrySet()) {
+            AtomicLong counter = entry.getValue();
+            long state = counter.get();
+            if (state != EVICTED && (state >>> 32) < oldestActiveWindow && counter.compareAndSet(state, EVICTED)) {
+                map.remove(entry.getKey(), counter);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return nombre de compteurs en mémoire pour la limite.
+     */
+    public int size(String limitName) {
+        return countersOf(limitName).size();
+    }
+
+    private ConcurrentHashMap<String, AtomicLong> countersOf(String limitName) {
+        return counters.computeIfAbsent(limitName, name -> new ConcurrentHashMap<>());
+    }
+}
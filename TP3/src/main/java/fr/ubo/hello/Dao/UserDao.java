@@ -2,6 +2,8 @@ package fr.ubo.hello.Dao;
 
 import fr.ubo.hello.Model.User;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserDao {
     List<User> findAll();
@@ -10,4 +12,8 @@ public interface UserDao {
     boolean save(User user);
     boolean update(User user);
     boolean delete(int id);
+    void forEachEmail(Consumer<String> consumer);  // Parcours en flux de tous les emails
+    List<User> findPage(int afterId, int limit);  // Pagination par clé : ids > afterId croissants, sans mot de passe
+    void forEachUser(Consumer<User> consumer);  // Parcours en flux de tous les utilisateurs par id, sans mot de passe
+    Map<Integer, String> saveAll(List<User> users);  // Insertion par lot : erreur de chaque ligne rejetée par position, vide si tout est inséré
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package fr.ubo.hello.Dao;
 
 import fr.ubo.hello.Model.User;
 import fr.ubo.hello.utils.DBConnection;
+import fr.ubo.hello.utils.LogSampler;
+import fr.ubo.hello.utils.PhoneNumbers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Primary;
@@ -9,177 +11,424 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Repository("mysqlDAO")
 @Primary
 public class UserDao_BD implements UserDao {
 
     private static final Logger logger = LoggerFactory.getLogger(UserDao_BD.class);
+    private static final LogSampler FOUND_BY_ID_LOGS = LogSampler.perSecond();
+    private static final LogSampler NOT_FOUND_BY_ID_LOGS = LogSampler.perSecond();
+    private static final LogSampler FOUND_BY_EMAIL_LOGS = LogSampler.perSecond();
+    private static final DaoTimers.ForUserDao TIMERS = new DaoTimers.ForUserDao(UserDao_BD.class);
+    // Lignes lues par aller-retour hors MySQL (sous MySQL, lecture en flux ligne à ligne)
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Requêtes SQL, vérifiées par QueryPlanTest (EXPLAIN sur le schéma des migrations)
+    static final String INSERT_SQL = "INSERT INTO users(name, email, password, phone) VALUES(?, ?, ?, ?)";
+    static final String FIND_ALL_SQL = "SELECT * FROM users";
+    static final String FIND_BY_ID_SQL = "SELECT * FROM users WHERE id = ?";
+    static final String UPDATE_SQL = "UPDATE users SET name=?, email=?, password=?, phone=? WHERE id=?";
+    static final String DELETE_SQL = "DELETE FROM users WHERE id = ?";
+    static final String FIND_BY_EMAIL_SQL = "SELECT * FROM users WHERE email = ?";
+    static final String FOR_EACH_EMAIL_SQL = "SELECT email FROM users";
+    static final String FIND_PAGE_SQL = "SELECT id, name, email, phone FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    static final String FOR_EACH_USER_SQL = "SELECT id, name, email, phone FROM users ORDER BY id";
 
     @Override
     public List<User> findAll() {
-        logger.debug("DAO : SELECT * FROM users");
-        List<User> users = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : SELECT * FROM users");
+            List<User> users = new ArrayList<>();
 
-        String sql = "SELECT * FROM users";
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FIND_ALL_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(extractUser(rs));
+                }
 
-            while (rs.next()) {
-                users.add(extractUser(rs));
-            }
+                logger.info("DAO : {} utilisateurs récupérés", users.size());
 
-            logger.info("DAO : {} utilisateurs récupérés", users.size());
+            } catch (SQLException e) {
+                logger.error("Erreur DAO findAll(): {}", e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de la récupération des utilisateurs.", e);
+            }
 
-        } catch (SQLException e) {
-            logger.error("Erreur DAO findAll(): {}", e.getMessage(), e);
-            throw new RuntimeException("Erreur lors de la récupération des utilisateurs.", e);
+            return users;
+        } finally {
+            TIMERS.findAll.record(start);
         }
-
-        return users;
     }
 
     @Override
     public User findById(int id) {
-        logger.debug("DAO : SELECT * FROM users WHERE id={}", id);
-        String sql = "SELECT * FROM users WHERE id = ?";
-
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, id);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    User user = extractUser(rs);
-                    logger.info("DAO : Utilisateur id={} trouvé", id);
-                    return user;
-                } else {
-                    logger.warn("DAO : Utilisateur id={} non trouvé", id);
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : SELECT * FROM users WHERE id={}", id);
+
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
+
+                stmt.setInt(1, id);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        User user = extractUser(rs);
+                        if (logger.isInfoEnabled() && FOUND_BY_ID_LOGS.sample()) {
+                            logger.info("DAO : Utilisateur id={} trouvé ({} similaires omis)",
+                                    id, FOUND_BY_ID_LOGS.takeSuppressed());
+                        }
+                        return user;
+                    } else {
+                        if (logger.isWarnEnabled() && NOT_FOUND_BY_ID_LOGS.sample()) {
+                            logger.warn("DAO : Utilisateur id={} non trouvé ({} similaires omis)",
+                                    id, NOT_FOUND_BY_ID_LOGS.takeSuppressed());
+                        }
+                    }
                 }
+
+            } catch (SQLException e) {
+                logger.error("Erreur DAO findById({}): {}", id, e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de la récupération de l'utilisateur.", e);
             }
 
-        } catch (SQLException e) {
-            logger.error("Erreur DAO findById({}): {}", id, e.getMessage(), e);
-            throw new RuntimeException("Erreur lors de la récupération de l'utilisateur.", e);
+            return null;
+        } finally {
+            TIMERS.findById.record(start);
         }
-
-        return null;
     }
 
     @Override
     public boolean save(User user) {
-        logger.debug("DAO : INSERT INTO users(name,email,password,phone) VALUES (?, ?, ?, ?)");
-        String sql = "INSERT INTO users(name, email, password, phone) VALUES(?, ?, ?, ?)";
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : INSERT INTO users(name,email,password,phone) VALUES (?, ?, ?, ?)");
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
 
-            stmt.setString(1, user.getName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getPassword());
-            stmt.setString(4, user.getPhone());
+                bindInsert(stmt, user);
 
-            boolean success = stmt.executeUpdate() > 0;
+                boolean success = stmt.executeUpdate() > 0;
 
-            if (success) {
-                logger.info("DAO : Utilisateur '{}' créé avec succès", user.getName());
-            } else {
-                logger.warn("DAO : Échec création utilisateur '{}'", user.getName());
-            }
+                if (success) {
+                    logger.info("DAO : Utilisateur '{}' créé avec succès", user.getName());
+                } else {
+                    logger.warn("DAO : Échec création utilisateur '{}'", user.getName());
+                }
 
-            return success;
+                return success;
 
-        } catch (SQLException e) {
-            logger.error("Erreur DAO save({}): {}", user.getName(), e.getMessage(), e);
-            throw new RuntimeException("Erreur lors de l'insertion de l'utilisateur.", e);
+            } catch (SQLException e) {
+                logger.error("Erreur DAO save({}): {}", user.getName(), e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de l'insertion de l'utilisateur.", e);
+            }
+        } finally {
+            TIMERS.save.record(start);
         }
     }
 
     @Override
     public boolean update(User user) {
-        logger.debug("DAO : UPDATE users WHERE id={}", user.getId());
-        String sql = "UPDATE users SET name=?, email=?, password=?, phone=? WHERE id=?";
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : UPDATE users WHERE id={}", user.getId());
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
 
-            stmt.setString(1, user.getName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getPassword());
-            stmt.setString(4, user.getPhone());
-            stmt.setInt(5, user.getId());
+                stmt.setString(1, user.getName());
+                stmt.setString(2, user.getEmail());
+                stmt.setString(3, user.getPassword());
+                stmt.setString(4, normalizePhone(user));
+                stmt.setInt(5, user.getId());
 
-            boolean success = stmt.executeUpdate() > 0;
+                boolean success = stmt.executeUpdate() > 0;
 
-            if (success) {
-                logger.info("DAO : Utilisateur id={} mis à jour", user.getId());
-            } else {
-                logger.warn("DAO : Échec mise à jour utilisateur id={}", user.getId());
-            }
+                if (success) {
+                    logger.info("DAO : Utilisateur id={} mis à jour", user.getId());
+                } else {
+                    logger.warn("DAO : Échec mise à jour utilisateur id={}", user.getId());
+                }
 
-            return success;
+                return success;
 
-        } catch (SQLException e) {
-            logger.error("Erreur DAO update(id={}): {}", user.getId(), e.getMessage(), e);
-            throw new RuntimeException("Erreur lors de la mise à jour de l'utilisateur.", e);
+            } catch (SQLException e) {
+                logger.error("Erreur DAO update(id={}): {}", user.getId(), e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de la mise à jour de l'utilisateur.", e);
+            }
+        } finally {
+            TIMERS.update.record(start);
         }
     }
 
     @Override
     public boolean delete(int id) {
-        logger.debug("DAO : DELETE FROM users WHERE id={}", id);
-        String sql = "DELETE FROM users WHERE id = ?";
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : DELETE FROM users WHERE id={}", id);
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
 
-            stmt.setInt(1, id);
+                stmt.setInt(1, id);
 
-            boolean success = stmt.executeUpdate() > 0;
+                boolean success = stmt.executeUpdate() > 0;
 
-            if (success) {
-                logger.info("DAO : Utilisateur id={} supprimé", id);
-            } else {
-                logger.warn("DAO : Échec suppression utilisateur id={}", id);
-            }
+                if (success) {
+                    logger.info("DAO : Utilisateur id={} supprimé", id);
+                } else {
+                    logger.warn("DAO : Échec suppression utilisateur id={}", id);
+                }
 
-            return success;
+                return success;
 
-        } catch (SQLException e) {
-            logger.error("Erreur DAO delete(id={}): {}", id, e.getMessage(), e);
-            throw new RuntimeException("Erreur lors de la suppression de l'utilisateur.", e);
+            } catch (SQLException e) {
+                logger.error("Erreur DAO delete(id={}): {}", id, e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de la suppression de l'utilisateur.", e);
+            }
+        } finally {
+            TIMERS.delete.record(start);
         }
     }
 
     @Override
     public User findByEmail(String email) {
-        logger.debug("DAO : SELECT * FROM users WHERE email={}", email);
-        String sql = "SELECT * FROM users WHERE email = ?";
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : SELECT * FROM users WHERE email={}", email);
+
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FIND_BY_EMAIL_SQL)) {
+
+                stmt.setString(1, email);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        User user = extractUser(rs);
+                        if (logger.isInfoEnabled() && FOUND_BY_EMAIL_LOGS.sample()) {
+                            logger.info("DAO : Utilisateur trouvé pour email={} ({} similaires omis)",
+                                    email, FOUND_BY_EMAIL_LOGS.takeSuppressed());
+                        }
+                        return user;
+                    }
+                }
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+                logger.debug("DAO : Aucun utilisateur trouvé pour email={}", email);
+                return null;
 
-            stmt.setString(1, email);
+            } catch (SQLException e) {
+                logger.error("DAO : Erreur lors de la recherche par email", e);
+                return null;
+            }
+        } finally {
+            TIMERS.findByEmail.record(start);
+        }
+    }
+
+    @Override
+    public void forEachEmail(Consumer<String> consumer) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FOR_EACH_EMAIL_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                if ("MySQL".equals(conn.getMetaData().getDatabaseProductName())) {
+                    stmt.setFetchSize(Integer.MIN_VALUE); // MySQL : lignes lues en flux, sans tout charger en mémoire
+                }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    User user = extractUser(rs);
-                    logger.info("DAO : Utilisateur trouvé pour email={}", email);
-                    return user;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String email = rs.getString(1);
+                        if (email != null) {
+                            consumer.accept(email);
+                        }
+                    }
                 }
+
+            } catch (SQLException e) {
+                logger.error("Erreur DAO forEachEmail(): {}", e.getMessage(), e);
+                throw new RuntimeException("Erreur lors du parcours des emails.", e);
             }
+        } finally {
+            TIMERS.forEachEmail.record(start);
+        }
+    }
 
-            logger.warn("DAO : Aucun utilisateur trouvé pour email={}", email);
-            return null;
+    /**
+     * Page suivant {@code afterId} dans l'ordre des ids (clé primaire) : le coût ne dépend pas de la
+     * position dans la table, contrairement à un OFFSET. Le mot de passe n'est pas lu.
+     */
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FIND_PAGE_SQL)) {
+
+                stmt.setInt(1, afterId);
+                stmt.setInt(2, limit);
+
+                List<User> users = new ArrayList<>(Math.min(limit, 1000));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        users.add(extractPublicUser(rs));
+                    }
+                }
+                logger.debug("DAO : Page de {} utilisateurs après id={}", users.size(), afterId);
+                return users;
 
-        } catch (SQLException e) {
-            logger.error("DAO : Erreur lors de la recherche par email", e);
-            return null;
+            } catch (SQLException e) {
+                logger.error("Erreur DAO findPage(after={}): {}", afterId, e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de la récupération des utilisateurs.", e);
+            }
+        } finally {
+            TIMERS.findPage.record(start);
+        }
+    }
+
+    /**
+     * Parcours de toute la table en flux, sans mot de passe. Sous MySQL, les lignes arrivent au fil
+     * de la lecture ; la connexion reste occupée jusqu'à la dernière : {@code consumer} ne doit pas
+     * accéder à la base.
+     */
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        long start = System.nanoTime();
+        try {
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(FOR_EACH_USER_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                stmt.setFetchSize("MySQL".equals(conn.getMetaData().getDatabaseProductName())
+                        ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(extractPublicUser(rs));
+                    }
+                }
+
+            } catch (SQLException e) {
+                logger.error("Erreur DAO forEachUser(): {}", e.getMessage(), e);
+                throw new RuntimeException("Erreur lors du parcours des utilisateurs.", e);
+            }
+        } finally {
+            TIMERS.forEachUser.record(start);
+        }
+    }
+
+    /**
+     * Insère les utilisateurs par un lot JDBC ({@code addBatch}/{@code executeBatch}), validé en une
+     * transaction ; sous MySQL, {@code rewriteBatchedStatements} en fait des INSERT multi-lignes.
+     * Si le lot échoue (email en double…), il est annulé puis rejoué ligne à ligne, chaque ligne
+     * derrière un point de sauvegarde : seules les lignes fautives sont écartées, avec leur erreur.
+     * <p>
+     * Appelé dans une transaction déjà ouverte ({@code UnitOfWork.inTransaction}), le lot y est
+     * ajouté sans validation propre.
+     */
+    @Override
+    public Map<Integer, String> saveAll(List<User> users) {
+        long start = System.nanoTime();
+        try {
+            logger.debug("DAO : INSERT INTO users par lot de {}", users.size());
+            Map<Integer, String> errors = new LinkedHashMap<>();
+
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+
+                boolean ownTransaction = conn.getAutoCommit();
+                if (ownTransaction) {
+                    conn.setAutoCommit(false);
+                }
+                try {
+                    Savepoint batch = conn.setSavepoint();
+                    try {
+                        for (User user : users) {
+                            bindInsert(stmt, user);
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                        conn.releaseSavepoint(batch);
+                    } catch (SQLException e) {
+                        conn.rollback(batch);
+                        stmt.clearBatch();
+                        logger.warn("DAO : Échec du lot de {} utilisateurs, insertion ligne à ligne: {}",
+                                users.size(), e.getMessage());
+                        for (int i = 0; i < users.size(); i++) {
+                            Savepoint row = conn.setSavepoint();
+                            try {
+                                bindInsert(stmt, users.get(i));
+                                stmt.executeUpdate();
+                                conn.releaseSavepoint(row);
+                            } catch (SQLException rowError) {
+                                conn.rollback(row);
+                                errors.put(i, rowError.getMessage());
+                            }
+                        }
+                    }
+                    if (ownTransaction) {
+                        conn.commit();
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    if (ownTransaction) {
+                        conn.rollback();
+                    }
+                    throw e;
+                } finally {
+                    if (ownTransaction) {
+                        conn.setAutoCommit(true);
+                    }
+                }
+
+                logger.info("DAO : {} utilisateurs créés par lot ({} rejetés)", users.size() - errors.size(), errors.size());
+                return errors;
+
+            } catch (SQLException e) {
+                logger.error("Erreur DAO saveAll({} utilisateurs): {}", users.size(), e.getMessage(), e);
+                throw new RuntimeException("Erreur lors de l'insertion des utilisateurs.", e);
+            }
+        } finally {
+            TIMERS.saveAll.record(start);
+        }
+    }
+
+    private void bindInsert(PreparedStatement stmt, User user) throws SQLException {
+        stmt.setString(1, user.getName());
+        stmt.setString(2, user.getEmail());
+        stmt.setString(3, user.getPassword());
+        stmt.setString(4, normalizePhone(user));
+    }
+
+    /**
+     * Numéro normalisé une fois pour toutes à l'écriture ({@link PhoneNumbers}) : l'envoi des OTP le
+     * relit prêt à l'emploi. Seule la valeur enregistrée change, pas l'objet de l'appelant. Un numéro
+     * invalide est enregistré tel quel ; aucun SMS n'y sera envoyé.
+     */
+    private String normalizePhone(User user) {
+        String phone = PhoneNumbers.normalize(user.getPhone());
+        if (phone == null) {
+            if (user.getPhone() != null && !user.getPhone().isEmpty()) {
+                logger.warn("DAO : Numéro de téléphone invalide pour '{}', enregistré sans normalisation", user.getEmail());
+            }
+            return user.getPhone();
         }
+        return phone;
+    }
+
+    private User extractPublicUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setName(rs.getString("name"));
+        user.setEmail(rs.getString("email"));
+        user.setPhone(rs.getString("phone"));
+        return user;
     }
 
     private User extractUser(ResultSet rs) throws SQLException {
@@ -0,0 +1,438 @@
+package fr.ubo.hello.Dao;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.UnitOfWork;
+import fr.ubo.hello.utils.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Cache de lecture devant {@code mysqlDAO}.
+ * <p>
+ * Les utilisateurs sont indexés par id dans un cache Caffeine borné à {@code USER_CACHE_MAX_SIZE}
+ * entrées, dont l'éviction W-TinyLFU n'admet une nouvelle entrée que si elle est plus fréquemment
+ * demandée que celle qu'elle remplacerait. Les entrées expirent après {@code USER_CACHE_TTL_SECONDS} ;
+ * si {@code USER_CACHE_REFRESH_AHEAD_SECONDS} est positif, une entrée plus ancienne est rechargée
+ * en arrière-plan au premier accès, sans bloquer l'appelant.
+ * <p>
+ * Un défaut de cache est chargé sur le thread appelant, donc sur la connexion de son {@link UnitOfWork} :
+ * une requête n'emprunte jamais une seconde connexion au pool pour remplir le cache. Pendant une
+ * transaction, les lectures absentes du cache ne le remplissent pas : elles peuvent voir des
+ * écritures pas encore validées.
+ * <p>
+ * Un second cache associe l'email (normalisé) à l'id ; il est vérifié contre l'utilisateur trouvé,
+ * si bien qu'une association périmée est simplement rechargée. save, update et delete invalident les caches.
+ * <p>
+ * Les emails inconnus sont écartés par un cache négatif de {@code USER_NEGATIVE_CACHE_TTL_SECONDS}.
+ * Avec {@code USER_EMAIL_INDEX=true}, ils le sont d'abord sans requête SQL par l'{@link EmailIndex}
+ * (filtre de Bloom de tous les emails, reconstruit toutes les {@code USER_EMAIL_INDEX_REBUILD_MINUTES}).
+ * L'index ne connaît que les écritures faites par cette instance : un utilisateur créé par une autre
+ * réplique, en SQL ou par une migration y reste inconnu, donc refusé, jusqu'à la reconstruction
+ * suivante. Il est réservé aux déploiements à une seule instance par lesquels passent toutes les écritures.
+ */
+@Repository("cachedUserDao")
+public class UserDao_Cached implements UserDao, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDao_Cached.class);
+    private static final DaoTimers.ForUserDao TIMERS = new DaoTimers.ForUserDao(UserDao_Cached.class);
+
+    private final UserDao delegate;
+    private final AsyncLoadingCache<Integer, User> asyncById;
+    private final LoadingCache<Integer, User> byId;
+    private final Cache<String, Integer> idByEmail;
+    private final Cache<String, Boolean> missingEmails;
+    // null sans USER_EMAIL_INDEX
+    private final EmailIndex emailIndex;
+    private final int rebuildMinutes;
+    private ScheduledExecutorService indexRebuilder;
+
+    // Incrémenté à chaque écriture : un email absent n'est mis en cache négatif que si
+    // aucune écriture n'a eu lieu pendant sa recherche en base
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    @Autowired
+    public UserDao_Cached(@Qualifier("mysqlDAO") UserDao delegate) {
+        this(delegate,
+                EnvConfig.getInt("USER_CACHE_MAX_SIZE", 10_000),
+                EnvConfig.getInt("USER_CACHE_TTL_SECONDS", 300),
+                EnvConfig.getInt("USER_CACHE_REFRESH_AHEAD_SECONDS", 240),
+                EnvConfig.getInt("USER_NEGATIVE_CACHE_TTL_SECONDS", 60),
+                EnvConfig.getBoolean("USER_EMAIL_INDEX", false),
+                EnvConfig.getInt("USER_EMAIL_INDEX_REBUILD_MINUTES", 10));
+    }
+
+    UserDao_Cached(UserDao delegate, int maxSize, int ttlSeconds, int refreshAheadSeconds,
+                   int negativeTtlSeconds, boolean emailIndexEnabled, int rebuildMinutes) {
+        this.delegate = delegate;
+        this.emailIndex = emailIndexEnabled ? new EmailIndex(delegate) : null;
+        this.rebuildMinutes = rebuildMinutes;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats();
+        if (refreshAheadSeconds > 0 && refreshAheadSeconds < ttlSeconds) {
+            builder.refreshAfterWrite(refreshAheadSeconds, TimeUnit.SECONDS);
+        }
+        if (VirtualThreads.ENABLED) {
+            // rechargements anticipés sur des threads virtuels
+            builder.executor(VirtualThreads.perTaskExecutor("user-cache-loader"));
+        }
+        // Cache asynchrone : le compute de ConcurrentHashMap n'y dépose qu'un futur, complété ensuite par
+        // load() hors de tout verrou de moniteur (un thread virtuel n'est pas épinglé pendant la requête SQL).
+        // Le loader ne sert qu'au rechargement anticipé, en arrière-plan et hors unité de travail.
+        this.asyncById = builder.buildAsync(delegate::findById);
+        this.byId = asyncById.synchronous();
+
+        this.idByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+
+        this.missingEmails = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(negativeTtlSeconds, TimeUnit.SECONDS)
+                .build();
+
+        logger.info("DAO Cache : {} utilisateurs max, TTL {} s, rafraîchissement anticipé {} s",
+                maxSize, ttlSeconds, refreshAheadSeconds);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (emailIndex == null) {
+            logger.info("DAO Cache : Index des emails désactivé (USER_EMAIL_INDEX=false)");
+            return;
+        }
+        indexRebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-index-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // premier chargement immédiat ; en cas d'échec l'index laisse tout passer jusqu'au suivant
+        indexRebuilder.scheduleWithFixedDelay(this::rebuildEmailIndex, 0, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void destroy() {
+        if (indexRebuilder != null) {
+            indexRebuilder.shutdownNow();
+        }
+    }
+
+    void rebuildEmailIndex() {
+        if (emailIndex == null) {
+            return;
+        }
+        try {
+            emailIndex.rebuild();
+        } catch (Exception e) {
+            logger.error("DAO Cache : Erreur lors de la reconstruction de l'index des emails", e);
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            TIMERS.findAll.record(start);
+        }
+    }
+
+    @Override
+    public User findById(int id) {
+        long start = System.nanoTime();
+        try {
+            return copy(load(id));
+        } finally {
+            TIMERS.findById.record(start);
+        }
+    }
+
+    /**
+     * Lit l'utilisateur dans le cache ou, à défaut, en base sur le thread appelant. Les appels concurrents
+     * pour le même id attendent le même chargement ; une invalidation pendant le chargement le détache
+     * du cache, sa valeur n'y entre pas.
+     */
+    private User load(int id) {
+        if (!cacheable()) {
+            User cached = byId.getIfPresent(id);
+            return cached != null ? cached : delegate.findById(id);
+        }
+        CompletableFuture<User> mine = new CompletableFuture<>();
+        CompletableFuture<User> future = asyncById.get(id, (key, executor) -> mine);
+        if (future == mine) {
+            try {
+                mine.complete(delegate.findById(id));
+            } catch (RuntimeException | Error e) {
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return future.join();
+    }
+
+    /**
+     * @return false pendant une transaction : ce qu'elle lit peut encore être annulé.
+     */
+    private static boolean cacheable() {
+        UnitOfWork unit = UnitOfWork.current();
+        return unit == null || !unit.isTransactionOpen();
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        long start = System.nanoTime();
+        try {
+            if (email == null) {
+                return null;
+            }
+            String key = EmailIndex.normalize(email);
+            if (emailIndex != null && !emailIndex.mightExist(key)) {
+                return null;
+            }
+            if (missingEmails.getIfPresent(key) != null) {
+                negativeHits.incrementAndGet();
+                return null;
+            }
+
+            Integer id = idByEmail.getIfPresent(key);
+            if (id != null) {
+                User user = load(id);
+                if (user != null && user.getEmail() != null && key.equals(EmailIndex.normalize(user.getEmail()))) {
+                    return copy(user);
+                }
+                idByEmail.invalidate(key);
+            }
+
+            // Seule l'association est mise en cache : insérer l'utilisateur lu ici pourrait écraser
+            // l'invalidation d'une mise à jour concurrente, alors que le chargement par id est sérialisé avec elle
+            long writesBefore = writes.get();
+            User user = delegate.findByEmail(email);
+            if (!cacheable()) {
+                return user;
+            }
+            if (user != null) {
+                idByEmail.put(key, user.getId());
+            } else {
+                // compute est sérialisé avec l'invalidation faite par save/update sur la même clé
+                missingEmails.asMap().compute(key, (k, present) -> writes.get() == writesBefore ? Boolean.TRUE : present);
+            }
+            return user;
+        } finally {
+            TIMERS.findByEmail.record(start);
+        }
+    }
+
+    @Override
+    public boolean save(User user) {
+        long start = System.nanoTime();
+        try {
+            String key = user.getEmail() == null ? null : EmailIndex.normalize(user.getEmail());
+            if (key != null && emailIndex != null) {
+                emailIndex.add(key);
+            }
+            try {
+                return delegate.save(user);
+            } finally {
+                writes.incrementAndGet();
+                if (key != null) {
+                    missingEmails.invalidate(key);
+                    idByEmail.invalidate(key);
+                }
+            }
+        } finally {
+            TIMERS.save.record(start);
+        }
+    }
+
+    @Override
+    public boolean update(User user) {
+        long start = System.nanoTime();
+        try {
+            String key = user.getEmail() == null ? null : EmailIndex.normalize(user.getEmail());
+            if (key != null && emailIndex != null) {
+                emailIndex.add(key);
+            }
+            try {
+                return delegate.update(user);
+            } finally {
+                writes.incrementAndGet();
+                invalidate(user.getId());
+                if (key != null) {
+                    missingEmails.invalidate(key);
+                    idByEmail.invalidate(key);
+                }
+            }
+        } finally {
+            TIMERS.update.record(start);
+        }
+    }
+
+    @Override
+    public boolean delete(int id) {
+        long start = System.nanoTime();
+        try {
+            try {
+                return delegate.delete(id);
+            } finally {
+                writes.incrementAndGet();
+                invalidate(id);
+            }
+        } finally {
+            TIMERS.delete.record(start);
+        }
+    }
+
+    @Override
+    public void forEachEmail(Consumer<String> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.forEachEmail(consumer);
+        } finally {
+            TIMERS.forEachEmail.record(start);
+        }
+    }
+
+    /**
+     * Lecture directe en base : une page n'est jamais servie depuis le cache, qui ne contient
+     * qu'une partie des utilisateurs.
+     */
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findPage(afterId, limit);
+        } finally {
+            TIMERS.findPage.record(start);
+        }
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.forEachUser(consumer);
+        } finally {
+            TIMERS.forEachUser.record(start);
+        }
+    }
+
+    /**
+     * Comme {@link #save} pour chaque utilisateur du lot : emails ajoutés à l'index avant l'écriture,
+     * absences et ids mis en cache invalidés après.
+     */
+    @Override
+    public Map<Integer, String> saveAll(List<User> users) {
+        long start = System.nanoTime();
+        try {
+            if (emailIndex != null) {
+                for (User user : users) {
+                    if (user.getEmail() != null) {
+                        emailIndex.add(EmailIndex.normalize(user.getEmail()));
+                    }
+                }
+            }
+            try {
+                return delegate.saveAll(users);
+            } finally {
+                writes.incrementAndGet();
+                for (User user : users) {
+                    if (user.getEmail() != null) {
+                        String key = EmailIndex.normalize(user.getEmail());
+                        missingEmails.invalidate(key);
+                        idByEmail.invalidate(key);
+                    }
+                }
+            }
+        } finally {
+            TIMERS.saveAll.record(start);
+        }
+    }
+
+    /**
+     * @return un instantané des statistiques du cache par id.
+     */
+    public Stats getStats() {
+        CacheStats stats = byId.stats();
+        return new Stats(
+                byId.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                stats.loadCount(),
+                stats.loadFailureCount(),
+                (long) (stats.averageLoadPenalty() / 1000),
+                emailIndex != null && emailIndex.isReady(),
+                emailIndex != null ? emailIndex.getIndexedEmails() : 0,
+                emailIndex != null ? emailIndex.getRejected() : 0,
+                negativeHits.get(),
+                emailIndex != null ? emailIndex.getLastRebuildAt() : 0
+        );
+    }
+
+    private void invalidate(int id) {
+        User cached = byId.getIfPresent(id);
+        if (cached != null && cached.getEmail() != null) {
+            idByEmail.invalidate(EmailIndex.normalize(cached.getEmail()));
+        }
+        byId.invalidate(id);
+    }
+
+    /**
+     * Les appelants peuvent modifier l'utilisateur renvoyé : on ne leur donne jamais l'instance du cache.
+     */
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new User(user.getId(), user.getName(), user.getEmail(), user.getPassword(), user.getPhone());
+    }
+
+    /**
+     * Statistiques du cache utilisateurs.
+     *
+     * @param size           entrées en cache (estimation).
+     * @param hits           lectures servies par le cache.
+     * @param misses         lectures ayant nécessité un chargement.
+     * @param hitRate        taux de succès.
+     * @param evictions      entrées évincées (taille ou TTL).
+     * @param loads          chargements depuis la base.
+     * @param loadFailures   chargements en erreur.
+     * @param avgLoadMicros  durée moyenne d'un chargement.
+     * @param emailIndexReady       index des emails activé et chargé.
+     * @param indexedEmails         emails présents lors de la dernière reconstruction.
+     * @param unknownEmailsRejected emails inconnus écartés par le filtre de Bloom.
+     * @param negativeCacheHits     emails inconnus écartés par le cache négatif.
+     * @param emailIndexBuiltAt     date (epoch ms) de la dernière reconstruction.
+     */
+    public record Stats(long size, long hits, long misses, double hitRate, long evictions,
+                        long loads, long loadFailures, long avgLoadMicros,
+                        boolean emailIndexReady, int indexedEmails, long unknownEmailsRejected,
+                        long negativeCacheHits, long emailIndexBuiltAt) {
+    }
+}
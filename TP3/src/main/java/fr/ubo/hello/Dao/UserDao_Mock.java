@@ -1,10 +1,15 @@
 package fr.ubo.hello.Dao;
 
 import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.PhoneNumbers;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository("mockDAO")
 
@@ -43,8 +48,37 @@ public class UserDao_Mock implements UserDao {
         return false;
     }
 
-    public boolean save(User u) { users.add(u);
+    public boolean save(User u) {
+        // copie enregistrée avec le numéro normalisé, comme la version MySQL : l'argument reste intact
+        String phone = PhoneNumbers.normalize(u.getPhone());
+        users.add(new User(u.getId(), u.getName(), u.getEmail(), u.getPassword(), phone != null ? phone : u.getPhone()));
         return false;
     }
 
+    @Override
+    public void forEachEmail(Consumer<String> consumer) {
+        users.forEach(u -> consumer.accept(u.getEmail()));
+    }
+
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return users.stream()
+                .filter(u -> u.getId() > afterId)
+                .sorted(Comparator.comparingInt(User::getId))
+                .limit(limit)
+                .map(u -> new User(u.getId(), u.getName(), u.getEmail(), null, u.getPhone()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        findPage(0, Integer.MAX_VALUE).forEach(consumer);
+    }
+
+    @Override
+    public Map<Integer, String> saveAll(List<User> batch) {
+        batch.forEach(this::save);
+        return Map.of();
+    }
+
 }
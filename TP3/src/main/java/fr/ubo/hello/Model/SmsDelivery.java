@@ -0,0 +1,74 @@
+package fr.ubo.hello.Model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class SmsDelivery {
+
+    public enum Status {
+        QUEUED,     // en attente dans la file
+        SENDING,    // en cours d'envoi par un worker
+        RETRYING,   // échec temporaire, nouvel essai programmé
+        SENT,       // accepté par la passerelle SMS
+        FAILED,     // échec après toutes les tentatives
+        REJECTED,   // refusé à l'entrée : file pleine
+        DROPPED     // évincé de la file pleine par un envoi plus récent
+    }
+
+    private final String id;
+    private final int userId;
+    private final long createdAt;     // epoch millis
+    private volatile Status status;
+    private volatile int attempts;
+    private volatile long updatedAt;  // epoch millis
+    private volatile long queuedMillis;
+
+    @JsonIgnore
+    private final String phoneNumber;
+    @JsonIgnore
+    private final String otpCode;
+    @JsonIgnore
+    private volatile long enqueuedNanos;
+
+    public SmsDelivery(String id, int userId, String phoneNumber, String otpCode) {
+        this.id = id;
+        this.userId = userId;
+        this.phoneNumber = phoneNumber;
+        this.otpCode = otpCode;
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = createdAt;
+        this.status = Status.QUEUED;
+    }
+
+    public String getId() { return id; }
+
+    public int getUserId() { return userId; }
+
+    public String getPhoneNumber() { return phoneNumber; }
+
+    public String getOtpCode() { return otpCode; }
+
+    public long getCreatedAt() { return createdAt; }
+
+    public long getUpdatedAt() { return updatedAt; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) {
+        this.status = status;
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    public int getAttempts() { return attempts; }
+    public void incrementAttempts() { attempts++; }
+
+    public long getQueuedMillis() { return queuedMillis; }
+    public void setQueuedMillis(long queuedMillis) { this.queuedMillis = queuedMillis; }
+
+    public long getEnqueuedNanos() { return enqueuedNanos; }
+    public void setEnqueuedNanos(long enqueuedNanos) { this.enqueuedNanos = enqueuedNanos; }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.SENT || status == Status.FAILED
+                || status == Status.REJECTED || status == Status.DROPPED;
+    }
+}
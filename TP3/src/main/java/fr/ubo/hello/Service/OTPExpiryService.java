@@ -0,0 +1,246 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.OTPDao;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Background engine that deletes expired and consumed OTP rows.
+ * <p>
+ * Every saved OTP is tracked in a {@link TimingWheel} (O(1) insert). Once its deadline has passed,
+ * its id joins a backlog that a single worker deletes by primary key, in small batches separated by
+ * a pause, so cleanup never holds long range locks on {@code otp_codes}. Rows are kept for
+ * {@code OTP_RETENTION_MINUTES} after creation, so that {@code countRecentOTPsByUserId} still sees them.
+ * <p>
+ * OTPs saved before a restart are not in the wheel: a keyset sweep over the table picks them up
+ * at startup and whenever {@link #requestSweep()} is called.
+ */
+@Service
+public class OTPExpiryService implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(OTPExpiryService.class);
+
+    private static final int BATCH_SIZE = EnvConfig.getInt("OTP_CLEANUP_BATCH_SIZE", 200);
+    private static final int BATCH_PAUSE_MS = EnvConfig.getInt("OTP_CLEANUP_BATCH_PAUSE_MS", 50);
+    private static final int MAX_BATCHES_PER_RUN = EnvConfig.getInt("OTP_CLEANUP_MAX_BATCHES_PER_RUN", 10);
+    private static final int RETENTION_MINUTES = EnvConfig.getInt("OTP_RETENTION_MINUTES", 30);
+
+    private static final long TICK_MS = 1000;
+
+    @Autowired
+    private OTPDao otpDao;
+
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final int maxBatchesPerRun;
+    private final long retentionMillis;
+    private final LongSupplier clock;
+    private final TimingWheel wheel;
+    private ScheduledExecutorService worker;
+
+    // Backlog d'ids à supprimer : uniquement manipulé par le thread de nettoyage
+    private int[] backlog = new int[1024];
+    private volatile int backlogSize;
+    private volatile int sweepCursor = -1;  // dernier id balayé, -1 si aucun balayage en cours
+
+    private final AtomicLong tracked = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong sweeps = new AtomicLong();
+    private final AtomicLong totalBatchNanos = new AtomicLong();
+    private volatile long lastRunAt;
+
+    public OTPExpiryService() {
+        this(BATCH_SIZE, BATCH_PAUSE_MS, MAX_BATCHES_PER_RUN, RETENTION_MINUTES, System::currentTimeMillis);
+    }
+
+    OTPExpiryService(int batchSize, long batchPauseMs, int maxBatchesPerRun, int retentionMinutes,
+                     LongSupplier clock) {
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.clock = clock;
+        // 3 niveaux de 64 cases d'une seconde : ~73 h de portée
+        this.wheel = new TimingWheel(TICK_MS, 64, 3, clock.getAsLong());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        sweepCursor = 0;  // rattrape les OTPs enregistrés avant le démarrage
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "otp-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::runSafely, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        logger.info("Expiration OTP : lots de {} ids, pause {} ms, {} lots max par passage, rétention {} min",
+                batchSize, batchPauseMs, maxBatchesPerRun, retentionMillis / 60000);
+    }
+
+    @Override
+    public void destroy() {
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the deletion of a freshly saved OTP.
+     *
+     * @param otpId     OTP primary key.
+     * @param expiresAt OTP expiry date.
+     */
+    public void track(int otpId, LocalDateTime expiresAt) {
+        long expiresMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        wheel.schedule(otpId, Math.max(expiresMillis, clock.getAsLong() + retentionMillis));
+        tracked.incrementAndGet();
+    }
+
+    /**
+     * Starts a keyset sweep of the OTP table; rows found are deleted by the background worker
+     * with the usual batching and throttling.
+     *
+     * @return false if a sweep is already in progress.
+     */
+    public synchronized boolean requestSweep() {
+        if (sweepCursor >= 0) {
+            return false;
+        }
+        sweepCursor = 0;
+        return true;
+    }
+
+    /**
+     * @return a snapshot of the cleanup progress and backlog.
+     */
+    public Stats getStats() {
+        long batchCount = batches.get();
+        return new Stats(
+                wheel.size(),
+                backlogSize,
+                sweepCursor >= 0,
+                tracked.get(),
+                deleted.get(),
+                batchCount,
+                failedBatches.get(),
+                sweeps.get(),
+                batchCount == 0 ? 0 : totalBatchNanos.get() / batchCount / 1000,
+                lastRunAt
+        );
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Expiration OTP : Erreur lors du nettoyage", e);
+        }
+    }
+
+    /**
+     * One worker pass: collects due ids from the wheel, tops the backlog up from the sweep,
+     * then deletes at most {@code maxBatchesPerRun} batches.
+     */
+    void runOnce() throws InterruptedException {
+        lastRunAt = clock.getAsLong();
+        wheel.advance(lastRunAt, this::addToBacklog);
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            if (backlogSize < batchSize && sweepCursor >= 0) {
+                continueSweep();
+            }
+            if (backlogSize == 0) {
+                return;
+            }
+            if (batch > 0 && batchPauseMs > 0) {
+                Thread.sleep(batchPauseMs);
+            }
+            if (!deleteBatch()) {
+                return;  // base indisponible : on réessaie au prochain passage
+            }
+        }
+    }
+
+    private void continueSweep() {
+        LocalDateTime createdBefore = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(clock.getAsLong() - retentionMillis), ZoneId.systemDefault());
+        int[] ids = otpDao.findPurgeableOTPIds(createdBefore, sweepCursor, batchSize);
+        for (int id : ids) {
+            addToBacklog(id);
+        }
+        synchronized (this) {
+            if (ids.length < batchSize) {
+                sweepCursor = -1;
+                sweeps.incrementAndGet();
+            } else {
+                sweepCursor = ids[ids.length - 1];
+            }
+        }
+    }
+
+    private boolean deleteBatch() {
+        int count = Math.min(batchSize, backlogSize);
+        int from = backlogSize - count;
+        int[] ids = Arrays.copyOfRange(backlog, from, backlogSize);
+
+        long start = System.nanoTime();
+        int result = otpDao.deleteOTPsByIds(ids, count);
+        totalBatchNanos.addAndGet(System.nanoTime() - start);
+        batches.incrementAndGet();
+
+        if (result < 0) {
+            // les ids restent dans le backlog : nouvel essai au prochain passage
+            failedBatches.incrementAndGet();
+            return false;
+        }
+        deleted.addAndGet(result);
+        backlogSize = from;
+        return true;
+    }
+
+    private void addToBacklog(int id) {
+        if (backlogSize == backlog.length) {
+            backlog = Arrays.copyOf(backlog, backlog.length * 2);
+        }
+        backlog[backlogSize] = id;
+        backlogSize++;
+    }
+
+    /**
+     * Snapshot of the OTP cleanup engine.
+     *
+     * @param scheduled        OTPs waiting for their deadline in the timing wheel.
+     * @param backlog          due OTP ids waiting to be deleted.
+     * @param sweepInProgress  whether a table sweep is running.
+     * @param tracked          OTPs tracked since startup.
+     * @param deleted          rows deleted since startup.
+     * @param batches          delete batches executed.
+     * @param failedBatches    delete batches that failed (retried on the next pass).
+     * @param sweeps           table sweeps completed.
+     * @param avgBatchMicros   average duration of a delete batch.
+     * @param lastRunAt        epoch millis of the last worker pass.
+     */
+    public record Stats(int scheduled, int backlog, boolean sweepInProgress, long tracked, long deleted,
+                        long batches, long failedBatches, long sweeps, long avgBatchMicros, long lastRunAt) {
+    }
+}
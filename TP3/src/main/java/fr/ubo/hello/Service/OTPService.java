@@ -1,27 +1,51 @@
 package fr.ubo.hello.Service;
 
 import fr.ubo.hello.Dao.OTPDao;
+import fr.ubo.hello.Dao.RateLimitStore;
 import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.SmsDelivery;
 import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.HmacOtp;
+import fr.ubo.hello.utils.LogSampler;
+import fr.ubo.hello.utils.PhoneNumbers;
+import fr.ubo.hello.utils.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Service responsible for OTP (One-Time Password) operations.
  * Handles OTP generation, validation, sending via SMS, and cleanup of expired OTPs.
+ * <p>
+ * {@code OTP_MODE} selects how codes are issued:
+ * <ul>
+ *     <li>{@code stored} (default): a random code saved in {@code otp_codes} and consumed from there
+ *     on verification;</li>
+ *     <li>{@code totp}: a code derived from a per-user secret and the current time step
+ *     ({@link HmacOtp}); issuing writes nothing and verifying is computed in memory, with a replay
+ *     guard. Codes are then only recognized by instances sharing {@code OTP_HMAC_KEY}. The replay
+ *     guard is kept in the shared {@link RateLimitStore} under the {@code rate-limit-shared} profile;
+ *     otherwise it is per process and this mode is for single-instance deployments only.</li>
+ * </ul>
  */
 @Service
-public class OTPService {
+public class OTPService implements InitializingBean {
 
     private static final Logger logger = LoggerFactory.getLogger(OTPService.class);
+    private static final LogSampler GENERATION_LOGS = LogSampler.perSecond();
+    private static final LogSampler QUEUED_LOGS = LogSampler.perSecond();
+    private static final LogSampler LOGIN_ISSUED_LOGS = LogSampler.perSecond();
+    private static final LogSampler RATE_LIMITED_LOGS = LogSampler.perSecond();
     private static final int OTP_LENGTH = 6;
     private static final int OTP_EXPIRY_MINUTES = 2;
-    private static final int MAX_OTP_PER_30_MIN = 3;
 
     @Autowired
     private OTPDao otpDao;
@@ -32,30 +56,53 @@ public class OTPService {
     @Autowired
     private SMSService smsService;
 
+    @Autowired
+    private SMSDispatchQueue smsDispatchQueue;
+
+    @Autowired
+    private OTPExpiryService otpExpiryService;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private RateLimitStore rateLimitStore;
+
     private final SecureRandom random = new SecureRandom();
+    private boolean singleRoundTripLogin = EnvConfig.getBoolean("LOGIN_SINGLE_ROUND_TRIP", true);
+    private boolean statelessOTP = "totp".equalsIgnoreCase(EnvConfig.getString("OTP_MODE", "stored"));
+    private HmacOtp hmacOtp = statelessOTP ? HmacOtp.fromConfig(OTP_EXPIRY_MINUTES * 60) : null;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (hmacOtp == null) {
+            return;
+        }
+        if (rateLimitStore.isShared()) {
+            hmacOtp.useReplayGuard(new StoreReplayGuard(rateLimitStore));
+            logger.info("OTP : Mode totp, codes acceptés enregistrés dans le registre partagé");
+        } else {
+            logger.warn("OTP : Mode totp sans registre partagé (profil rate-limit-shared) : "
+                    + "un code accepté reste rejouable sur les autres instances");
+        }
+    }
 
     /**
      * Cleans and formats a phone number for SMS sending.
+     * Numbers are normalized when users are saved, so this normally returns its argument as is;
+     * rows written before that are normalized here.
      *
-     * @param phoneNumber raw phone number.
-     * @return cleaned phone number in standard French format, or null if invalid.
+     * @param phoneNumber stored phone number.
+     * @return phone number in the {@link PhoneNumbers} normalized form, or null if invalid.
      */
-    private String cleanPhoneNumber(String phoneNumber) {
+    String cleanPhoneNumber(String phoneNumber) {
         if (phoneNumber == null) return null;
 
-        String cleaned = phoneNumber.replaceAll("[^0-9]", "");
-
-        if (cleaned.startsWith("33") && cleaned.length() == 11) {
-            cleaned = "0" + cleaned.substring(2);
+        String cleaned = PhoneNumbers.normalize(phoneNumber);
+        if (cleaned == null) {
+            logger.error("Service : Format de numéro invalide: {}", phoneNumber);
         }
-
-        if (cleaned.length() == 10 && cleaned.startsWith("0")) {
-            logger.debug("Service : Numéro nettoyé: {} -> {}", phoneNumber, cleaned);
-            return cleaned;
-        }
-
-        logger.error("Service : Format de numéro invalide: {} (nettoyé: {})", phoneNumber, cleaned);
-        return null;
+        return cleaned;
     }
 
     /**
@@ -63,7 +110,7 @@ public class OTPService {
      *
      * @return OTP as a string.
      */
-    private String generateOTPCode() {
+    String generateOTPCode() {
         StringBuilder otp = new StringBuilder();
         for (int i = 0; i < OTP_LENGTH; i++) {
             otp.append(random.nextInt(10));
@@ -74,87 +121,238 @@ public class OTPService {
     }
 
     /**
-     * Sends an OTP via SMS.
+     * Requests an OTP for a user (alias for generateAndSendOTP).
      *
-     * @param phoneNumber destination phone number.
-     * @param otpCode     OTP code to send.
-     * @return true if SMS successfully sent, false otherwise.
+     * @param userId user ID.
+     * @return true if OTP generated successfully.
      */
-    private boolean sendSMS(String phoneNumber, String otpCode) {
-        try {
-            String cleanPhone = cleanPhoneNumber(phoneNumber);
-
-            if (cleanPhone == null) {
-                logger.error("Service : Numéro de téléphone invalide après nettoyage: {}", phoneNumber);
-                return false;
-            }
-
-            boolean smsSent = smsService.sendOTP(cleanPhone, otpCode);
-            return smsSent;
-
-        } catch (Exception e) {
-            logger.error("Service : Exception lors de l'envoi SMS via API: {}", e.getMessage(), e);
-            return false;
-        }
+    public boolean requestOTP(int userId) {
+        return generateAndSendOTP(userId);
     }
 
     /**
-     * Requests an OTP for a user (alias for generateAndSendOTP).
+     * Generates a new OTP, saves it in DB, and queues it for SMS delivery.
      *
      * @param userId user ID.
-     * @return true if OTP generated successfully.
+     * @return true if OTP successfully generated (SMS delivery happens asynchronously).
      */
-    public boolean requestOTP(int userId) throws InterruptedException {
-        return generateAndSendOTP(userId);
+    public boolean generateAndSendOTP(int userId) {
+        generateAndDispatchOTP(userId);
+        return true;
     }
 
     /**
-     * Generates a new OTP, saves it in DB, and sends it via SMS.
+     * Generates a new OTP, saves it in DB, and queues it for SMS delivery.
+     * Returns as soon as the OTP is persisted; the SMS is sent by {@link SMSDispatchQueue}.
      *
      * @param userId user ID.
-     * @return true if OTP successfully generated and sent (or in dev mode, just generated).
+     * @return the SMS delivery record to poll, or null if the phone number is invalid.
      */
-    public boolean generateAndSendOTP(int userId) throws InterruptedException {
-        logger.info("Service : Début génération OTP pour user_id={}", userId);
+    public SmsDelivery generateAndDispatchOTP(int userId) {
+        if (logger.isInfoEnabled() && GENERATION_LOGS.sample()) {
+            logger.info("Service : Début génération OTP pour user_id={} ({} similaires omis)",
+                    userId, GENERATION_LOGS.takeSuppressed());
+        }
+
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(RateLimiter.OTP_REQUEST, userId);
+        if (!decision.allowed()) {
+            throw new RuntimeException("Trop de demandes d'OTP. Veuillez réessayer dans "
+                    + Math.max(1, decision.retryAfterMillis() / 60000) + " minute(s).");
+        }
 
+        boolean saved = false;
         try {
-            int recentOTPCount = otpDao.countRecentOTPsByUserId(userId, 30);
-            if (recentOTPCount >= MAX_OTP_PER_30_MIN) {
-                throw new RuntimeException("Trop de demandes d'OTP. Veuillez patienter 30 minutes.");
+            if (statelessOTP) {
+                User owner = userService.getById(userId);
+                if (owner.getPhone() == null || owner.getPhone().isEmpty()) {
+                    throw new RuntimeException("Aucun numéro de téléphone associé à ce compte.");
+                }
+                OTP otp = issueStatelessOTP(userId);
+                saved = true;
+                return dispatch(owner, otp);
             }
 
-            User user = userService.getById(userId);
-            if (user.getPhone() == null || user.getPhone().isEmpty()) {
-                throw new RuntimeException("Aucun numéro de téléphone associé à ce compte.");
+            String otpCode = generateOTPCode();
+            LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES);
+            OTP otp = new OTP(userId, otpCode, expiresAt);
+
+            // lecture de l'utilisateur et insertion de l'OTP dans une même transaction, validée
+            // avant la mise en file : le SMS ne part jamais pour un code qui n'a pas été enregistré
+            User user = UnitOfWork.inTransaction(() -> {
+                User owner = userService.getById(userId);
+                if (owner.getPhone() == null || owner.getPhone().isEmpty()) {
+                    throw new RuntimeException("Aucun numéro de téléphone associé à ce compte.");
+                }
+                if (!otpDao.save(otp)) {
+                    throw new RuntimeException("Erreur lors de la génération de l'OTP.");
+                }
+                return owner;
+            });
+            saved = true;
+            return dispatch(user, otp);
+
+        } catch (Exception e) {
+            logger.error("Service : Erreur lors de la génération/envoi de l'OTP pour user_id={}", userId, e);
+            throw e;
+        } finally {
+            if (!saved) {
+                // aucun OTP émis : la demande ne compte pas dans la limite
+                rateLimiter.release(RateLimiter.OTP_REQUEST, userId);
             }
+        }
+    }
 
+    /**
+     * @return true if {@link #loginAndDispatchOTP} should replace the authenticate-then-generate
+     *         sequence ({@code LOGIN_SINGLE_ROUND_TRIP}, on by default).
+     */
+    public boolean isSingleRoundTripLogin() {
+        return singleRoundTripLogin;
+    }
+
+    /**
+     * Login data path: checks the credentials and saves the OTP in one transaction on one connection
+     * ({@link OTPDao#issueLoginOTP}), then queues the SMS.
+     * <p>
+     * The {@code otp-request} permit is reserved from {@link RateLimiter} before that statement, under
+     * the user id read through {@link UserService#findByEmail} (served by the user cache), and given
+     * back if no OTP was saved: login and {@code /auth/request-otp} draw from the same budget.
+     * OTP errors do not fail the login, as with {@link #generateAndDispatchOTP}: the delivery is then null.
+     *
+     * @param email    user email.
+     * @param password user password.
+     * @return the authenticated user (null if the credentials are invalid) and the SMS delivery to poll.
+     */
+    public LoginResult loginAndDispatchOTP(String email, String password) {
+        if (statelessOTP) {
+            return loginAndDispatchStatelessOTP(email, password);
+        }
+        User known = userService.findByEmail(email);
+        if (known == null) {
+            return new LoginResult(null, null);
+        }
+        if (!rateLimiter.tryAcquire(RateLimiter.OTP_REQUEST, known.getId()).allowed()) {
+            if (!password.equals(known.getPassword())) {
+                return new LoginResult(null, null);
+            }
+            if (logger.isWarnEnabled() && RATE_LIMITED_LOGS.sample()) {
+                logger.warn("Service : Trop de demandes d'OTP pour user_id={} ({} similaires omis)",
+                        known.getId(), RATE_LIMITED_LOGS.takeSuppressed());
+            }
+            return new LoginResult(known, null);
+        }
+
+        boolean issued = false;
+        try {
             String otpCode = generateOTPCode();
             LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES);
+            OTP otp = new OTP(0, otpCode, expiresAt);
 
-            OTP otp = new OTP(userId, otpCode, expiresAt);
-
-            if (!otpDao.save(otp)) {
-                throw new RuntimeException("Erreur lors de la génération de l'OTP.");
+            OTPDao.LoginIssue issue = otpDao.issueLoginOTP(email, password, otp);
+            User user = issue.user();
+            if (user == null) {
+                return new LoginResult(null, null);
+            }
+            if (!issue.issued()) {
+                if (user.getPhone() == null || user.getPhone().isEmpty()) {
+                    logger.warn("Service : Aucun numéro de téléphone associé au compte user_id={}, OTP non généré", user.getId());
+                } else {
+                    logger.error("Service : Erreur lors de la génération de l'OTP pour user_id={}", user.getId());
+                }
+                return new LoginResult(user, null);
             }
+            issued = true;
 
-            boolean smsSent = false;
-            int maxRetries = 2;
-            for (int attempt = 1; attempt <= maxRetries; attempt++) {
-                smsSent = sendSMS(user.getPhone(), otpCode);
-                if (smsSent) break;
-                if (attempt < maxRetries) Thread.sleep(3000);
+            if (logger.isInfoEnabled() && LOGIN_ISSUED_LOGS.sample()) {
+                logger.info("Service : OTP généré à la connexion pour user_id={} ({} similaires omis)",
+                        user.getId(), LOGIN_ISSUED_LOGS.takeSuppressed());
             }
+            return new LoginResult(user, dispatch(user, otp));
+        } finally {
+            if (!issued) {
+                // aucun OTP émis : la demande ne compte pas dans la limite
+                rateLimiter.release(RateLimiter.OTP_REQUEST, known.getId());
+            }
+        }
+    }
 
-            if (!smsSent) {
-                logger.warn("MODE DÉVELOPPEMENT - Échec envoi SMS. OTP généré: {} pour user_id={}", otpCode, userId);
+    /**
+     * {@link #loginAndDispatchOTP} in {@code totp} mode: nothing is written, so the credentials are
+     * checked through {@link UserService} (cached) and the limit through the limiter's own counters.
+     */
+    private LoginResult loginAndDispatchStatelessOTP(String email, String password) {
+        User user = userService.authenticateUser(email, password);
+        if (user == null) {
+            return new LoginResult(null, null);
+        }
+        if (user.getPhone() == null || user.getPhone().isEmpty()) {
+            logger.warn("Service : Aucun numéro de téléphone associé au compte user_id={}, OTP non généré", user.getId());
+            return new LoginResult(user, null);
+        }
+        if (!rateLimiter.tryAcquire(RateLimiter.OTP_REQUEST, user.getId()).allowed()) {
+            if (logger.isWarnEnabled() && RATE_LIMITED_LOGS.sample()) {
+                logger.warn("Service : Trop de demandes d'OTP pour user_id={} ({} similaires omis)",
+                        user.getId(), RATE_LIMITED_LOGS.takeSuppressed());
             }
+            return new LoginResult(user, null);
+        }
 
-            return true;
+        if (logger.isInfoEnabled() && LOGIN_ISSUED_LOGS.sample()) {
+            logger.info("Service : OTP généré à la connexion pour user_id={} ({} similaires omis)",
+                    user.getId(), LOGIN_ISSUED_LOGS.takeSuppressed());
+        }
+        return new LoginResult(user, dispatch(user, issueStatelessOTP(user.getId())));
+    }
 
-        } catch (Exception e) {
-            logger.error("Service : Erreur lors de la génération/envoi de l'OTP pour user_id={}", userId, e);
-            throw e;
+    /**
+     * @return the current time-step code of the user, never saved.
+     */
+    private OTP issueStatelessOTP(int userId) {
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(hmacOtp.expiresAtMillis()),
+                ZoneId.systemDefault());
+        return new OTP(userId, hmacOtp.currentCode(userId), expiresAt);
+    }
+
+    /**
+     * @return true if codes are derived rather than stored ({@code OTP_MODE=totp}).
+     */
+    public boolean isStatelessOTP() {
+        return statelessOTP;
+    }
+
+    /**
+     * Tracks a saved OTP for expiry and queues its SMS.
+     *
+     * @return the SMS delivery record, or null if the phone number is invalid.
+     */
+    private SmsDelivery dispatch(User user, OTP otp) {
+        if (!statelessOTP) {
+            otpExpiryService.track(otp.getId(), otp.getExpiresAt());
+        }
+
+        String cleanPhone = cleanPhoneNumber(user.getPhone());
+        if (cleanPhone == null) {
+            logger.warn("MODE DÉVELOPPEMENT - Numéro invalide, SMS non envoyé. OTP généré: {} pour user_id={}",
+                    otp.getOtpCode(), user.getId());
+            return null;
+        }
+
+        SmsDelivery delivery = smsDispatchQueue.submitOTP(user.getId(), cleanPhone, otp.getOtpCode());
+        if (logger.isInfoEnabled() && QUEUED_LOGS.sample()) {
+            logger.info("Service : OTP pour user_id={} mis en file d'envoi (delivery {}, statut {}, {} similaires omis)",
+                    user.getId(), delivery.getId(), delivery.getStatus(), QUEUED_LOGS.takeSuppressed());
         }
+        return delivery;
+    }
+
+    /**
+     * Returns the delivery status of a queued OTP SMS.
+     *
+     * @param deliveryId id returned at OTP generation.
+     * @return the delivery record, or null if unknown.
+     */
+    public SmsDelivery getSmsDelivery(String deliveryId) {
+        return smsDispatchQueue.getDelivery(deliveryId);
     }
 
     /**
@@ -166,6 +364,16 @@ public class OTPService {
         return smsService.isSMSServerAvailable();
     }
 
+    /**
+     * Counts one OTP verification attempt against the per-user limit.
+     *
+     * @param userId user ID.
+     * @return the rate limit decision; verification must not be attempted if not allowed.
+     */
+    public RateLimiter.Decision acquireVerifyAttempt(int userId) {
+        return rateLimiter.tryAcquire(RateLimiter.OTP_VERIFY, userId);
+    }
+
     /**
      * Verifies the OTP code for a user.
      *
@@ -175,13 +383,10 @@ public class OTPService {
      */
     public boolean verifyOTP(int userId, String otpCode) {
         try {
-            OTP otp = otpDao.findValidOTP(userId, otpCode);
-            if (otp != null) {
-                otpDao.markAsUsed(otp.getId());
-                return true;
-            } else {
-                return false;
+            if (statelessOTP) {
+                return hmacOtp.verify(userId, otpCode);
             }
+            return otpDao.consumeValidOTP(userId, otpCode);
         } catch (Exception e) {
             logger.error("Service : Erreur lors de la vérification de l'OTP pour user_id={}", userId, e);
             return false;
@@ -189,15 +394,41 @@ public class OTPService {
     }
 
     /**
-     * Deletes expired OTPs from the database.
+     * Verifies and consumes the OTP code for a user, returning the user's public
+     * columns in the same DB round trip.
+     *
+     * @param userId  user ID.
+     * @param otpCode OTP code.
+     * @return the user (id, name, email, phone) if OTP valid, null otherwise.
      */
-    public void cleanupExpiredOTPs() {
-        if (otpDao != null) {
-            boolean deletedCount = otpDao.deleteExpiredOTPs();
-            logger.info("Service : {} OTP expirés supprimés", deletedCount);
+    public User verifyOTPAndGetUser(int userId, String otpCode) {
+        try {
+            if (statelessOTP) {
+                if (!hmacOtp.verify(userId, otpCode)) {
+                    return null;
+                }
+                User user = userService.getById(userId);
+                return new User(user.getId(), user.getName(), user.getEmail(), null, user.getPhone());
+            }
+            return otpDao.consumeValidOTPAndGetUser(userId, otpCode);
+        } catch (Exception e) {
+            logger.error("Service : Erreur lors de la vérification de l'OTP pour user_id={}", userId, e);
+            return null;
         }
     }
 
+    /**
+     * Starts a sweep of expired and consumed OTPs; rows are deleted in the background
+     * by {@link OTPExpiryService}.
+     *
+     * @return false if a sweep was already in progress.
+     */
+    public boolean cleanupExpiredOTPs() {
+        boolean started = otpExpiryService.requestSweep();
+        logger.info("Service : Nettoyage des OTP expirés {}", started ? "lancé" : "déjà en cours");
+        return started;
+    }
+
     /**
      * Checks if a user can request a new OTP based on rate limiting.
      *
@@ -206,11 +437,19 @@ public class OTPService {
      */
     public boolean canRequestOTP(int userId) {
         try {
-            int recentOTPCount = otpDao.countRecentOTPsByUserId(userId, 30);
-            return recentOTPCount < MAX_OTP_PER_30_MIN;
+            return rateLimiter.peek(RateLimiter.OTP_REQUEST, userId).allowed();
         } catch (Exception e) {
             logger.error("Service : Erreur lors de la vérification de l'éligibilité OTP", e);
             return false;
         }
     }
+
+    /**
+     * Outcome of {@link #loginAndDispatchOTP}.
+     *
+     * @param user     authenticated user, or null if the credentials are invalid.
+     * @param delivery SMS delivery of the new OTP, or null if none was queued.
+     */
+    public record LoginResult(User user, SmsDelivery delivery) {
+    }
 }
@@ -0,0 +1,343 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.RateLimitStore;
+import fr.ubo.hello.utils.EnvConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-key sliding-window rate limiter.
+ * <p>
+ * Each (limit, key) pair has one {@code long} counter holding the current window index and the
+ * request counts of the current and previous windows. The number of requests in the last window is
+ * estimated as {@code previous * (1 - elapsed) + current}, where {@code elapsed} is the fraction of the
+ * current window already spent. Checking the estimate and reserving a permit is a single
+ * compare-and-set on that counter, so concurrent requests can never push the estimate past the
+ * limit. The estimate itself is approximate: see {@link Limit} for its worst case.
+ * <p>
+ * Counters live in a {@link RateLimitStore}: in process by default, in MySQL with the
+ * {@code rate-limit-shared} profile so that every backend replica enforces the same budget.
+ * Limits are registered by name and configured with {@code RATE_LIMIT_*} variables such as
+ * {@code 3/30m} (units s, m, h).
+ */
+@Service
+public class RateLimiter implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    public static final String OTP_REQUEST = "otp-request";
+    public static final String OTP_VERIFY = "otp-verify";
+
+    private static final int MAX_COUNT = 0xFFFF;
+
+    @Autowired
+    private RateLimitStore store;
+
+    private final LongSupplier clock;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong[]> outcomes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService evictor;
+
+    public RateLimiter() {
+        this(System::currentTimeMillis);
+        register(Limit.fromEnv(OTP_REQUEST, "RATE_LIMIT_OTP_REQUEST", "3/30m"));
+        register(Limit.fromEnv(OTP_VERIFY, "RATE_LIMIT_OTP_VERIFY", "10/5m"));
+    }
+
+    RateLimiter(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+        logger.info("RateLimiter : limites {}", limits.values());
+    }
+
+    @Override
+    public void destroy() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers (or replaces) a named limit.
+     */
+    public void register(Limit limit) {
+        limits.put(limit.name(), limit);
+        outcomes.putIfAbsent(limit.name(), new AtomicLong[]{new AtomicLong(), new AtomicLong()});
+    }
+
+    /**
+     * Checks the limit and, if the request is allowed, reserves one permit in the same atomic step.
+     *
+     * @param limitName registered limit.
+     * @param key       rate-limited subject (user id, IP address...).
+     * @return the decision; {@code retryAfterMillis} tells when the next request would pass.
+     */
+    public Decision tryAcquire(String limitName, String key) {
+        Limit limit = limitOf(limitName);
+        while (true) {
+            long now = clock.getAsLong();
+            long state = store.get(limitName, key);
+            Window window = Window.of(state, limit, now);
+            double used = window.estimate(limit, now);
+
+            if (used + 1 > limit.maxRequests()) {
+                outcomes.get(limitName)[1].incrementAndGet();
+                return new Decision(false, 0, window.retryAfterMillis(limit, now));
+            }
+            long update = pack(window.index, window.previous, Math.min(window.current + 1, MAX_COUNT));
+            if (store.compareAndSet(limitName, key, state, update)) {
+                outcomes.get(limitName)[0].incrementAndGet();
+                return new Decision(true, (int) (limit.maxRequests() - used - 1), 0);
+            }
+        }
+    }
+
+    public Decision tryAcquire(String limitName, int userId) {
+        return tryAcquire(limitName, String.valueOf(userId));
+    }
+
+    /**
+     * Same check as {@link #tryAcquire(String, String)} without reserving anything.
+     */
+    public Decision peek(String limitName, String key) {
+        Limit limit = limitOf(limitName);
+        long now = clock.getAsLong();
+        Window window = Window.of(store.get(limitName, key), limit, now);
+        double used = window.estimate(limit, now);
+        return used + 1 > limit.maxRequests()
+                ? new Decision(false, 0, window.retryAfterMillis(limit, now))
+                : new Decision(true, (int) (limit.maxRequests() - used - 1), 0);
+    }
+
+    public Decision peek(String limitName, int userId) {
+        return peek(limitName, String.valueOf(userId));
+    }
+
+    /**
+     * Gives back a permit reserved by {@link #tryAcquire(String, String)} when the guarded
+     * operation failed before doing anything.
+     */
+    public void release(String limitName, String key) {
+        Limit limit = limitOf(limitName);
+        while (true) {
+            long now = clock.getAsLong();
+            long state = store.get(limitName, key);
+            Window window = Window.of(state, limit, now);
+            long update;
+            if (window.current > 0) {
+                update = pack(window.index, window.previous, window.current - 1);
+            } else if (window.previous > 0) {
+                update = pack(window.index, window.previous - 1, 0);
+            } else {
+                return;
+            }
+            if (store.compareAndSet(limitName, key, state, update)) {
+                return;
+            }
+        }
+    }
+
+    public void release(String limitName, int userId) {
+        release(limitName, String.valueOf(userId));
+    }
+
+    /**
+     * @return the registered limit.
+     * @throws IllegalArgumentException if no limit has this name.
+     */
+    public Limit getLimit(String limitName) {
+        return limitOf(limitName);
+    }
+
+    /**
+     * @return the configured limits with their allowed/rejected counts since startup.
+     */
+    public List<LimitStats> getStats() {
+        List<LimitStats> stats = new ArrayList<>();
+        for (Limit limit : limits.values()) {
+            AtomicLong[] counts = outcomes.get(limit.name());
+            stats.add(new LimitStats(limit.name(), limit.maxRequests(), limit.windowMillis() / 1000,
+                    counts[0].get(), counts[1].get()));
+        }
+        return stats;
+    }
+
+    /**
+     * Drops the counters whose last request is older than a full window: they no longer
+     * weigh on the estimate.
+     */
+    void evictIdle() {
+        long now = clock.getAsLong();
+        for (Limit limit : limits.values()) {
+            try {
+                int evicted = store.evictIdle(limit.name(), now / limit.windowMillis() - 1);
+                if (evicted > 0) {
+                    logger.debug("RateLimiter : {} compteurs inactifs supprimés pour {}", evicted, limit.name());
+                }
+            } catch (Exception e) {
+                logger.error("RateLimiter : Erreur lors de l'éviction des compteurs {}", limit.name(), e);
+            }
+        }
+    }
+
+    private Limit limitOf(String limitName) {
+        Limit limit = limits.get(limitName);
+        if (limit == null) {
+            throw new IllegalArgumentException("Limite inconnue : " + limitName);
+        }
+        return limit;
+    }
+
+    private static long pack(long windowIndex, int previous, int current) {
+        return (windowIndex << 32) | ((long) previous << 16) | current;
+    }
+
+    /**
+     * Counter state brought forward to the window containing {@code now}.
+     */
+    private static final class Window {
+        final long index;
+        final int previous;
+        final int current;
+
+        private Window(long index, int previous, int current) {
+            this.index = index;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        static Window of(long state, Limit limit, long now) {
+            long nowIndex = now / limit.windowMillis();
+            long index = state >>> 32;
+            int previous = (int) ((state >>> 16) & MAX_COUNT);
+            int current = (int) (state & MAX_COUNT);
+            if (index == nowIndex) {
+                return new Window(index, previous, current);
+            }
+            return new Window(nowIndex, index == nowIndex - 1 ? current : 0, 0);
+        }
+
+        double elapsed(Limit limit, long now) {
+            return (double) (now - index * limit.windowMillis()) / limit.windowMillis();
+        }
+
+        double estimate(Limit limit, long now) {
+            return previous * (1 - elapsed(limit, now)) + current;
+        }
+
+        long retryAfterMillis(Limit limit, long now) {
+            double budget = limit.maxRequests() - 1;
+            double target;  // fraction de la fenêtre courante à atteindre
+            if (current <= budget) {
+                target = 1 - (budget - current) / previous;
+            } else {
+                // il faut attendre la fenêtre suivante, où current devient previous
+                target = 1 + (current == 0 ? 0 : 1 - budget / current);
+            }
+            return Math.max(1, (long) Math.ceil((target - elapsed(limit, now)) * limit.windowMillis()));
+        }
+    }
+
+    /**
+     * A named limit: about {@code maxRequests} per key over a sliding {@code windowMillis} span.
+     * <p>
+     * This is the sliding-window estimate described on the class, not an exact count: it assumes the
+     * previous window's requests were spread evenly over it. Bursts around a window boundary can go
+     * past the limit. With {@code 3/30m}, 3 requests at the end of one window let a 4th through 10
+     * minutes later and a 5th 20 minutes later. In the worst case, {@code 2 * maxRequests - 1}
+     * requests pass within one window length; any single fixed window never admits more than
+     * {@code maxRequests}.
+     */
+    public record Limit(String name, int maxRequests, long windowMillis) {
+
+        public Limit {
+            if (maxRequests < 1 || maxRequests > MAX_COUNT) {
+                throw new IllegalArgumentException("maxRequests hors bornes : " + maxRequests);
+            }
+            if (windowMillis < 1000) {
+                throw new IllegalArgumentException("La fenêtre doit durer au moins une seconde : " + windowMillis);
+            }
+        }
+
+        /**
+         * Parses a {@code <count>/<duration><unit>} specification such as {@code 3/30m}.
+         */
+        public static Limit parse(String name, String spec) {
+            String[] parts = spec.trim().split("/");
+            if (parts.length != 2 || parts[1].length() < 2) {
+                throw new IllegalArgumentException("Limite invalide : " + spec);
+            }
+            int maxRequests = Integer.parseInt(parts[0].trim());
+            String duration = parts[1].trim();
+            long amount = Long.parseLong(duration.substring(0, duration.length() - 1));
+            TimeUnit unit;
+            switch (duration.charAt(duration.length() - 1)) {
+                case 's': unit = TimeUnit.SECONDS; break;
+                case 'm': unit = TimeUnit.MINUTES; break;
+                case 'h': unit = TimeUnit.HOURS; break;
+                default: throw new IllegalArgumentException("Unité invalide : " + spec);
+            }
+            return new Limit(name, maxRequests, unit.toMillis(amount));
+        }
+
+        static Limit fromEnv(String name, String envName, String defaultSpec) {
+            String spec = EnvConfig.getString(envName, defaultSpec);
+            try {
+                return parse(name, spec);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Config : Valeur invalide pour {}: {} (défaut {} utilisé)", envName, spec, defaultSpec);
+                return parse(name, defaultSpec);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + maxRequests + "/" + windowMillis / 1000 + "s";
+        }
+    }
+
+    /**
+     * Outcome of a rate limit check.
+     *
+     * @param allowed          whether the request may proceed.
+     * @param remaining        requests still allowed right now after this one.
+     * @param retryAfterMillis when rejected, delay before a request would be allowed.
+     */
+    public record Decision(boolean allowed, int remaining, long retryAfterMillis) {
+    }
+
+    /**
+     * Configuration and outcomes of one limit.
+     *
+     * @param name          limit name.
+     * @param maxRequests   requests allowed per window.
+     * @param windowSeconds window length.
+     * @param allowed       requests allowed since startup.
+     * @param rejected      requests rejected since startup.
+     */
+    public record LimitStats(String name, int maxRequests, long windowSeconds, long allowed, long rejected) {
+    }
+}
@@ -0,0 +1,268 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Model.SmsDelivery;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Bounded in-process queue that delivers OTP SMS on a dedicated worker pool,
+ * so that request threads never wait on the SMS gateway.
+ * Each submission gets a delivery id whose status can be polled.
+ */
+@Service
+public class SMSDispatchQueue implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SMSDispatchQueue.class);
+
+    /**
+     * What to do when the queue is full.
+     */
+    public enum OverflowPolicy {
+        REJECT,       // refuse the new delivery
+        DROP_OLDEST,  // evict the oldest queued delivery to make room
+        CALLER_RUNS   // send synchronously on the caller thread
+    }
+
+    // a virtual worker blocked on the gateway is cheap, so allow many more concurrent sends
+    private static final int WORKERS = EnvConfig.getInt("SMS_QUEUE_WORKERS", VirtualThreads.ENABLED ? 64 : 4);
+    private static final int CAPACITY = EnvConfig.getInt("SMS_QUEUE_CAPACITY", 1000);
+    private static final int MAX_ATTEMPTS = EnvConfig.getInt("SMS_MAX_ATTEMPTS", 2);
+    private static final int RETRY_DELAY_MS = EnvConfig.getInt("SMS_RETRY_DELAY_MS", 3000);
+    private static final int RETENTION_MINUTES = EnvConfig.getInt("SMS_DELIVERY_RETENTION_MINUTES", 10);
+    private static final OverflowPolicy OVERFLOW_POLICY =
+            EnvConfig.getEnum("SMS_QUEUE_OVERFLOW_POLICY", OverflowPolicy.class, OverflowPolicy.REJECT);
+
+    @Autowired
+    private SMSService smsService;
+
+    private final Map<String, SmsDelivery> deliveries = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService scheduler;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong dequeued = new AtomicLong();
+    private final AtomicLong totalQueuedNanos = new AtomicLong();
+    private final LongAccumulator maxQueuedNanos = new LongAccumulator(Math::max, 0);
+
+    public SMSDispatchQueue() {
+        this(WORKERS, CAPACITY, OVERFLOW_POLICY);
+    }
+
+    SMSDispatchQueue(int workerCount, int capacity, OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), VirtualThreads.factory("sms-dispatch"), overflowHandler(overflowPolicy));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(namedThreads("sms-dispatch-scheduler"));
+        this.scheduler.scheduleAtFixedRate(this::purgeFinishedDeliveries, 1, 1, TimeUnit.MINUTES);
+        logger.info("SMS Queue : {} workers, capacité {}, politique de débordement {}",
+                workerCount, capacity, overflowPolicy);
+    }
+
+    /**
+     * Queues an OTP SMS for asynchronous delivery.
+     *
+     * @param userId      owner of the OTP.
+     * @param phoneNumber cleaned destination phone number.
+     * @param otpCode     OTP code to send.
+     * @return the delivery record; its status is REJECTED if the queue was full.
+     */
+    public SmsDelivery submitOTP(int userId, String phoneNumber, String otpCode) {
+        SmsDelivery delivery = new SmsDelivery(UUID.randomUUID().toString(), userId, phoneNumber, otpCode);
+        deliveries.put(delivery.getId(), delivery);
+        submitted.incrementAndGet();
+        enqueue(delivery);
+        return delivery;
+    }
+
+    /**
+     * @param deliveryId id returned by {@link #submitOTP(int, String, String)}.
+     * @return the delivery, or null if unknown or already purged.
+     */
+    public SmsDelivery getDelivery(String deliveryId) {
+        return deliveries.get(deliveryId);
+    }
+
+    /**
+     * @return a snapshot of the queue metrics.
+     */
+    public Stats getStats() {
+        long count = dequeued.get();
+        return new Stats(
+                workers.getQueue().size(),
+                workers.getQueue().remainingCapacity(),
+                workers.getActiveCount(),
+                overflowPolicy.name(),
+                submitted.get(),
+                sent.get(),
+                failed.get(),
+                rejected.get(),
+                dropped.get(),
+                count == 0 ? 0 : totalQueuedNanos.get() / count / 1_000_000,
+                maxQueuedNanos.get() / 1_000_000
+        );
+    }
+
+    private void enqueue(SmsDelivery delivery) {
+        delivery.setEnqueuedNanos(System.nanoTime());
+        delivery.setStatus(delivery.getAttempts() == 0 ? SmsDelivery.Status.QUEUED : SmsDelivery.Status.RETRYING);
+        try {
+            workers.execute(new DispatchTask(delivery));
+        } catch (RejectedExecutionException e) {
+            markRejected(delivery);
+        }
+    }
+
+    private void dispatch(SmsDelivery delivery) {
+        long queuedNanos = System.nanoTime() - delivery.getEnqueuedNanos();
+        dequeued.incrementAndGet();
+        totalQueuedNanos.addAndGet(queuedNanos);
+        maxQueuedNanos.accumulate(queuedNanos);
+        delivery.setQueuedMillis(delivery.getQueuedMillis() + queuedNanos / 1_000_000);
+
+        delivery.setStatus(SmsDelivery.Status.SENDING);
+        delivery.incrementAttempts();
+
+        boolean smsSent;
+        try {
+            smsSent = smsService.sendOTP(delivery.getPhoneNumber(), delivery.getOtpCode());
+        } catch (Exception e) {
+            logger.error("SMS Queue : Exception lors de l'envoi {}: {}", delivery.getId(), e.getMessage(), e);
+            smsSent = false;
+        }
+
+        if (smsSent) {
+            delivery.setStatus(SmsDelivery.Status.SENT);
+            sent.incrementAndGet();
+            return;
+        }
+
+        if (delivery.getAttempts() < MAX_ATTEMPTS && !scheduler.isShutdown()) {
+            delivery.setStatus(SmsDelivery.Status.RETRYING);
+            scheduler.schedule(() -> enqueue(delivery), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        delivery.setStatus(SmsDelivery.Status.FAILED);
+        failed.incrementAndGet();
+        logger.warn("MODE DÉVELOPPEMENT - Échec envoi SMS. OTP généré: {} pour user_id={}",
+                delivery.getOtpCode(), delivery.getUserId());
+    }
+
+    private void markRejected(SmsDelivery delivery) {
+        delivery.setStatus(SmsDelivery.Status.REJECTED);
+        rejected.incrementAndGet();
+        logger.warn("SMS Queue : File pleine, envoi {} refusé pour user_id={}", delivery.getId(), delivery.getUserId());
+    }
+
+    private RejectedExecutionHandler overflowHandler(OverflowPolicy policy) {
+        switch (policy) {
+            case DROP_OLDEST:
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("SMS Queue arrêtée");
+                    }
+                    Runnable oldest = executor.getQueue().poll();
+                    if (oldest instanceof DispatchTask) {
+                        SmsDelivery evicted = ((DispatchTask) oldest).delivery;
+                        evicted.setStatus(SmsDelivery.Status.DROPPED);
+                        dropped.incrementAndGet();
+                        logger.warn("SMS Queue : File pleine, envoi {} évincé", evicted.getId());
+                    }
+                    executor.execute(task);
+                };
+            case CALLER_RUNS:
+                return (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("SMS Queue arrêtée");
+                    }
+                    task.run();
+                };
+            case REJECT:
+            default:
+                return (task, executor) -> {
+                    throw new RejectedExecutionException("SMS Queue pleine");
+                };
+        }
+    }
+
+    private void purgeFinishedDeliveries() {
+        long limit = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(RETENTION_MINUTES);
+        deliveries.values().removeIf(d -> d.isFinished() && d.getUpdatedAt() < limit);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private final class DispatchTask implements Runnable {
+        private final SmsDelivery delivery;
+
+        private DispatchTask(SmsDelivery delivery) {
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void run() {
+            dispatch(delivery);
+        }
+    }
+
+    /**
+     * Snapshot of the SMS dispatch queue metrics.
+     *
+     * @param queueDepth          deliveries waiting for a worker.
+     * @param remainingCapacity   free slots left in the queue.
+     * @param activeWorkers       workers currently sending.
+     * @param overflowPolicy      configured overflow policy.
+     * @param submitted           deliveries submitted since startup.
+     * @param sent                deliveries accepted by the gateway.
+     * @param failed              deliveries failed after all attempts.
+     * @param rejected            deliveries refused because the queue was full.
+     * @param dropped             queued deliveries evicted by DROP_OLDEST.
+     * @param avgTimeInQueueMs    average time spent waiting for a worker.
+     * @param maxTimeInQueueMs    maximum time spent waiting for a worker.
+     */
+    public record Stats(int queueDepth, int remainingCapacity, int activeWorkers, String overflowPolicy,
+                        long submitted, long sent, long failed, long rejected, long dropped,
+                        long avgTimeInQueueMs, long maxTimeInQueueMs) {
+    }
+}
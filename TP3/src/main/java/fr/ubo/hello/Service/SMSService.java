@@ -1,48 +1,190 @@
 package fr.ubo.hello.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import fr.ubo.hello.utils.CircuitBreaker;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.LogSampler;
+import fr.ubo.hello.utils.Metrics;
+import fr.ubo.hello.utils.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Client de la passerelle SMS.
+ * Toutes les requêtes passent par un unique {@link HttpClient} partagé : les connexions
+ * sont maintenues ouvertes (keep-alive) et réutilisées d'un envoi à l'autre, et HTTP/2
+ * est négocié lorsque la passerelle le supporte.
+ * <p>
+ * Un disjoncteur protège la passerelle : quand elle est en panne ou trop lente, les envois
+ * échouent immédiatement au lieu d'occuper un thread jusqu'au délai global ; seuls les envois
+ * l'alimentent. Une sonde périodique de l'URL de santé tient à jour l'état renvoyé par
+ * {@link #isSMSServerAvailable()}.
+ */
 @Service
-public class SMSService {
+public class SMSService implements InitializingBean, DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(SMSService.class);
-    private static final String SMS_SERVER_URL = "http://dosipa.univ-brest.fr/send-sms";
-    private static final String HEALTH_CHECK_URL = "http://dosipa.univ-brest.fr";
+    private static final LogSampler SEND_LOGS = LogSampler.perSecond();
+    private static final LogSampler SENT_LOGS = LogSampler.perSecond();
+    private static final String SMS_SERVER_URL = EnvConfig.getString("SMS_SERVER_URL", "http://dosipa.univ-brest.fr/send-sms");
+    private static final String HEALTH_CHECK_URL = EnvConfig.getString("SMS_HEALTH_CHECK_URL", "http://dosipa.univ-brest.fr");
     private static final String API_KEY = "DOSITPDJF";
-    private static final int TIMEOUT = 10000;
 
+    // Délais distincts : établissement de la connexion, réponse à une requête, envoi complet
+    private static final int CONNECT_TIMEOUT_MS = EnvConfig.getInt("SMS_CONNECT_TIMEOUT_MS", 3000);
+    private static final int REQUEST_TIMEOUT_MS = EnvConfig.getInt("SMS_REQUEST_TIMEOUT_MS", 5000);
+    private static final int DEADLINE_MS = EnvConfig.getInt("SMS_DEADLINE_MS", 8000);
 
-    public boolean isSMSServerAvailable() {
-        try {
-            URL url = new URL(HEALTH_CHECK_URL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("X-API-Key", API_KEY);
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
+    private static final int HEALTH_PROBE_INTERVAL_MS = EnvConfig.getInt("SMS_HEALTH_PROBE_INTERVAL_MS", 15000);
 
-            int responseCode = conn.getResponseCode();
-            logger.info("Health check - Code: {}", responseCode);
+    private static final ObjectWriter PAYLOAD_WRITER = new ObjectMapper().writer();
 
-            conn.disconnect();
+    private static final String SEND_METRIC = "sms_send_seconds";
+    private static final String SEND_HELP = "Durée des envois à la passerelle SMS, par issue.";
+    private static final Metrics.Timer SENT = Metrics.timer(SEND_METRIC, SEND_HELP, "outcome", "sent");
+    private static final Metrics.Timer FAILED = Metrics.timer(SEND_METRIC, SEND_HELP, "outcome", "failed");
+    private static final Metrics.Counter REJECTED = Metrics.counter("sms_send_rejected_total",
+            "Envois abandonnés sans appel réseau, disjoncteur ouvert.");
 
-            boolean available = (responseCode == 200);
-            logger.info("SMS Server health check: {}", available ? "OK" : "FAILED");
-            return available;
+    private final URI smsServerUri;
+    private final URI healthCheckUri;
+    private final HttpClient httpClient;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("sms-gateway",
+            EnvConfig.getInt("SMS_CB_WINDOW_SIZE", 20),
+            EnvConfig.getInt("SMS_CB_MINIMUM_CALLS", 5),
+            EnvConfig.getInt("SMS_CB_FAILURE_RATE", 50),
+            EnvConfig.getInt("SMS_CB_SLOW_CALL_RATE", 80),
+            EnvConfig.getInt("SMS_CB_SLOW_CALL_MS", 3000),
+            EnvConfig.getInt("SMS_CB_OPEN_MS", 30000),
+            EnvConfig.getInt("SMS_CB_HALF_OPEN_CALLS", 2));
+
+    // Dernier résultat de la sonde ; optimiste tant qu'aucune sonde n'a eu lieu
+    private volatile boolean gatewayHealthy = true;
+    private volatile long lastProbeAt;
+    private ScheduledExecutorService healthProber;
+
+    public SMSService() {
+        this(SMS_SERVER_URL, HEALTH_CHECK_URL);
+    }
+
+    public SMSService(String smsServerUrl, String healthCheckUrl) {
+        this.smsServerUri = URI.create(smsServerUrl);
+        this.healthCheckUri = URI.create(healthCheckUrl);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        ExecutorService executor = VirtualThreads.perTaskExecutor("sms-http");
+        if (executor != null) {
+            // VIRTUAL_THREADS=true : réponses traitées sur des threads virtuels plutôt que sur le pool du client
+            builder.executor(executor);
+        }
+        this.httpClient = builder.build();
+    }
+
+    /**
+     * Payload attendu par la passerelle SMS.
+     */
+    record SmsPayload(String to, String message) {
+    }
+
+    /**
+     * Payload du format alternatif.
+     */
+    record AlternativeSmsPayload(String phoneNumber, String text, String apiKey) {
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        healthProber = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sms-health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthProber.scheduleWithFixedDelay(this::probeHealth, 0, HEALTH_PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (healthProber != null) {
+            healthProber.shutdownNow();
+        }
+    }
+
+    /**
+     * État de la passerelle en O(1), sans appel réseau : dernier résultat de la sonde,
+     * et disjoncteur non ouvert.
+     */
+    public boolean isSMSServerAvailable() {
+        return gatewayHealthy && circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Interroge la passerelle (GET bloquant) et met à jour l'état mis en cache.
+     * Appelé périodiquement par la sonde. Le résultat ne touche pas au disjoncteur : l'URL de santé
+     * n'est pas celle des envois, et la sonde ne prend pas de place d'essai en demi-ouverture.
+     */
+    public boolean probeHealth() {
+        HttpRequest request = HttpRequest.newBuilder(healthCheckUri)
+                .timeout(Duration.ofMillis(REQUEST_TIMEOUT_MS))
+                .header("X-API-Key", API_KEY)
+                .GET()
+                .build();
+
+        boolean available;
+        try {
+            int responseCode = awaitDeadline(
+                    httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                            .thenApply(HttpResponse::statusCode));
+            logger.debug("Health check - Code: {}", responseCode);
+            available = (responseCode == 200);
 
         } catch (Exception e) {
             logger.warn("SMS Server non disponible: {}", e.getMessage());
-            return false;
+            available = false;
+        }
+
+        if (available != gatewayHealthy) {
+            logger.info("SMS Server health check: {}", available ? "OK" : "FAILED");
         }
+        gatewayHealthy = available;
+        lastProbeAt = System.currentTimeMillis();
+        return available;
+    }
+
+    /**
+     * @return état du disjoncteur et dernier résultat de la sonde.
+     */
+    public GatewayStatus getGatewayStatus() {
+        return new GatewayStatus(gatewayHealthy, lastProbeAt, circuitBreaker.getStats());
+    }
+
+    /**
+     * État de la passerelle SMS.
+     *
+     * @param healthy        dernier résultat de la sonde.
+     * @param lastProbeAt    date de la dernière sonde (epoch millis, 0 si aucune).
+     * @param circuitBreaker état du disjoncteur.
+     */
+    public record GatewayStatus(boolean healthy, long lastProbeAt, CircuitBreaker.Stats circuitBreaker) {
     }
 
     /**
@@ -52,82 +194,75 @@ public class SMSService {
      * @return true si l'envoi a réussi
      */
     public boolean sendSMS(String phoneNumber, String message) {
-        logger.info("Tentative d'envoi SMS vers: {}", phoneNumber);
+        try {
+            return awaitDeadline(sendSMSAsync(phoneNumber, message));
+        } catch (Exception e) {
+            logger.error("Exception lors de l'envoi SMS: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Envoie un SMS sans bloquer le thread appelant
+     * @param phoneNumber Numéro de téléphone (format: 0612345678)
+     * @param message Message à envoyer
+     * @return future complétée par true si l'envoi a réussi ; échoue au-delà du délai global
+     */
+    public CompletableFuture<Boolean> sendSMSAsync(String phoneNumber, String message) {
+        if (logger.isInfoEnabled() && SEND_LOGS.sample()) {
+            logger.info("Tentative d'envoi SMS vers: {} ({} similaires omis)", phoneNumber, SEND_LOGS.takeSuppressed());
+        }
 
-        HttpURLConnection conn = null;
+        HttpRequest request;
         try {
-            URL url = new URL(SMS_SERVER_URL);
-            conn = (HttpURLConnection) url.openConnection();
-
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("x-api-key", API_KEY);
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
-
-            String jsonInputString = String.format(
-                    "{\"to\": \"%s\", \"message\": \"%s\"}",
-                    phoneNumber,
-                    message
-            );
-
-            logger.info("Envoi vers: {}", SMS_SERVER_URL);
-            logger.info("Payload JSON: {}", jsonInputString);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
-            }
+            request = jsonPost(new SmsPayload(phoneNumber, message));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-            int responseCode = conn.getResponseCode();
-            logger.info("Code réponse serveur SMS: {}", responseCode);
+        if (!circuitBreaker.tryAcquire()) {
+            logger.warn("Passerelle SMS indisponible (disjoncteur ouvert), envoi vers {} abandonné", phoneNumber);
+            REJECTED.increment();
+            return CompletableFuture.completedFuture(false);
+        }
 
-            if (responseCode == 200 || responseCode == 201) {
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder response = new StringBuilder();
-                    String responseLine;
-                    while ((responseLine = br.readLine()) != null) {
-                        response.append(responseLine.trim());
-                    }
-                    logger.info("SMS envoyé avec succès. Réponse: {}", response.toString());
-                    return true;
-                }
-            } else {
-                try (BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder errorResponse = new StringBuilder();
-                    String responseLine;
-                    while ((responseLine = br.readLine()) != null) {
-                        errorResponse.append(responseLine.trim());
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    int responseCode = response.statusCode();
+                    if (responseCode == 200 || responseCode == 201) {
+                        if (logger.isInfoEnabled() && SENT_LOGS.sample()) {
+                            logger.info("SMS envoyé avec succès, code {} ({} similaires omis)",
+                                    responseCode, SENT_LOGS.takeSuppressed());
+                        }
+                        logger.debug("Réponse du serveur SMS: {}", response.body());
+                        return true;
                     }
-                    logger.error("Erreur serveur SMS ({}): {}", responseCode, errorResponse.toString());
-                }
-                return false;
-            }
+                    logger.error("Erreur serveur SMS ({}): {}", responseCode, response.body());
+                    return false;
+                })
+                .orTimeout(DEADLINE_MS, TimeUnit.MILLISECONDS)
+                .whenComplete((sent, error) -> recordSend(error == null && sent, System.nanoTime() - start));
+    }
 
-        } catch (Exception e) {
-            logger.error("Exception lors de l'envoi SMS: {}", e.getMessage());
-            return false;
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
-        }
-    }    /**
+    /**
      * Envoie un OTP par SMS
      * @param phoneNumber Numéro de téléphone
      * @param otpCode Code OTP
      * @return true si l'envoi a réussi
      */
     public boolean sendOTP(String phoneNumber, String otpCode) {
-        String message = String.format(
-                "Votre code de vérification est: %s. Valable 2 minutes.",
-                otpCode
-        );
-        return sendSMS(phoneNumber, message);
+        return sendSMS(phoneNumber, otpMessage(otpCode));
+    }
+
+    /**
+     * Envoie un OTP par SMS sans bloquer le thread appelant
+     * @param phoneNumber Numéro de téléphone
+     * @param otpCode Code OTP
+     * @return future complétée par true si l'envoi a réussi
+     */
+    public CompletableFuture<Boolean> sendOTPAsync(String phoneNumber, String otpCode) {
+        return sendSMSAsync(phoneNumber, otpMessage(otpCode));
     }
 
     /**
@@ -137,37 +272,31 @@ public class SMSService {
         logger.info("Tentative alternative d'envoi SMS vers: {}", phoneNumber);
 
         try {
-            URL url = new URL(SMS_SERVER_URL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("x-api-key", API_KEY);
-            conn.setDoOutput(true);
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
-
-            String jsonInputString = String.format(
-                    "{\"phoneNumber\": \"%s\", \"text\": \"%s\", \"apiKey\": \"%s\"}",
-                    phoneNumber, message, API_KEY
-            );
-
-            logger.info("Format alternatif - Payload: {}", jsonInputString);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                byte[] input = jsonInputString.getBytes(StandardCharsets.UTF_8);
-                os.write(input, 0, input.length);
+            HttpRequest request = jsonPost(new AlternativeSmsPayload(phoneNumber, message, API_KEY));
+
+            if (!circuitBreaker.tryAcquire()) {
+                logger.warn("Passerelle SMS indisponible (disjoncteur ouvert), envoi alternatif abandonné");
+                REJECTED.increment();
+                return false;
             }
 
-            int responseCode = conn.getResponseCode();
-            logger.info("Code réponse (format alternatif): {}", responseCode);
+            long start = System.nanoTime();
+            boolean sent = false;
+            try {
+                int responseCode = awaitDeadline(
+                        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                                .thenApply(HttpResponse::statusCode));
+                logger.info("Code réponse (format alternatif): {}", responseCode);
 
-            if (responseCode == 200 || responseCode == 201) {
-                logger.info("SMS envoyé avec format alternatif");
-                return true;
-            } else {
-                logger.error("Échec avec format alternatif: {}", responseCode);
-                return false;
+                sent = responseCode == 200 || responseCode == 201;
+                if (sent) {
+                    logger.info("SMS envoyé avec format alternatif");
+                } else {
+                    logger.error("Échec avec format alternatif: {}", responseCode);
+                }
+                return sent;
+            } finally {
+                recordSend(sent, System.nanoTime() - start);
             }
 
         } catch (Exception e) {
@@ -175,4 +304,44 @@ public class SMSService {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Issue d'un envoi autorisé par {@link CircuitBreaker#tryAcquire()}.
+     */
+    private void recordSend(boolean success, long durationNanos) {
+        if (success) {
+            circuitBreaker.onSuccess(durationNanos);
+        } else {
+            circuitBreaker.onError(durationNanos);
+        }
+        (success ? SENT : FAILED).recordNanos(durationNanos);
+    }
+
+    private static String otpMessage(String otpCode) {
+        return "Votre code de vérification est: " + otpCode + ". Valable 2 minutes.";
+    }
+
+    private HttpRequest jsonPost(Object payload) throws JsonProcessingException {
+        byte[] body = PAYLOAD_WRITER.writeValueAsBytes(payload);
+        return HttpRequest.newBuilder(smsServerUri)
+                .timeout(Duration.ofMillis(REQUEST_TIMEOUT_MS))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("x-api-key", API_KEY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    /**
+     * Attend le résultat d'un envoi au plus {@code DEADLINE_MS} ; la requête est annulée au-delà.
+     */
+    private static <T> T awaitDeadline(CompletableFuture<T> future)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return future.get(DEADLINE_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TimeoutException("Délai global de " + DEADLINE_MS + " ms dépassé");
+        }
+    }
+}
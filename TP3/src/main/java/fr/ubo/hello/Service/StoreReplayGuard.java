@@ -0,0 +1,40 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.RateLimitStore;
+import fr.ubo.hello.utils.HmacOtp;
+
+/**
+ * Replay guard of {@link HmacOtp} kept in a {@link RateLimitStore}, so that a TOTP code accepted by
+ * one instance is rejected by all the others. The last accepted step of a user is stored in the high
+ * 32 bits of the counter, where the store expects a window index: evicting idle windows forgets the
+ * users whose codes have all expired.
+ */
+final class StoreReplayGuard implements HmacOtp.ReplayGuard {
+
+    static final String OTP_REPLAY = "otp-replay";
+
+    private final RateLimitStore store;
+
+    StoreReplayGuard(RateLimitStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean advance(int userId, long step) {
+        String key = String.valueOf(userId);
+        while (true) {
+            long state = store.get(OTP_REPLAY, key);
+            if (step <= state >>> 32) {
+                return false;
+            }
+            if (store.compareAndSet(OTP_REPLAY, key, state, step << 32)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void forgetBefore(long oldestStep) {
+        store.evictIdle(OTP_REPLAY, oldestStep);
+    }
+}
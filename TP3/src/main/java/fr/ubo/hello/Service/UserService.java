@@ -3,13 +3,18 @@ package fr.ubo.hello.Service;
 import fr.ubo.hello.Model.User;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     List<User> findAll();
+    List<User> findPage(int afterId, int limit);
+    void forEachUser(Consumer<User> consumer);
 
     User getById(int id);
     void create(User u);
+    Map<Integer, String> createAll(List<User> users);
     void update(User u);
     void delete(int id);
 
@@ -10,6 +10,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Implementation of UserService interface.
@@ -21,7 +23,7 @@ public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
     @Autowired
-    @Qualifier("mysqlDAO")
+    @Qualifier("cachedUserDao")
     private UserDao dao;
 
     /**
@@ -35,6 +37,29 @@ public class UserServiceImpl implements UserService {
         return dao.findAll();
     }
 
+    /**
+     * Retrieves the users whose ID follows {@code afterId}, in ID order, without their password.
+     *
+     * @param afterId last ID of the previous page, 0 for the first page.
+     * @param limit   maximum number of users returned.
+     * @return list of users, shorter than {@code limit} on the last page.
+     */
+    @Override
+    public List<User> findPage(int afterId, int limit) {
+        return dao.findPage(afterId, limit);
+    }
+
+    /**
+     * Passes every user to {@code consumer} in ID order, without their password, as rows are read.
+     *
+     * @param consumer called once per user; must not access the database.
+     */
+    @Override
+    public void forEachUser(Consumer<User> consumer) {
+        logger.info("Service : forEachUser()");
+        dao.forEachUser(consumer);
+    }
+
     /**
      * Retrieves a user by ID.
      *
@@ -59,6 +84,17 @@ public class UserServiceImpl implements UserService {
         if (!dao.save(u)) throw new RuntimeException("Erreur lors de la création de l'utilisateur.");
     }
 
+    /**
+     * Creates the given users with one batched insert; a rejected user does not prevent the others.
+     *
+     * @param users users to create, typically one chunk of an import.
+     * @return the error of each rejected user, by position in {@code users}; empty if all were created.
+     */
+    @Override
+    public Map<Integer, String> createAll(List<User> users) {
+        return dao.saveAll(users);
+    }
+
     /**
      * Updates an existing user.
      *
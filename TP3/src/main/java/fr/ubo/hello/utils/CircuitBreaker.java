@@ -0,0 +1,201 @@
+package fr.ubo.hello.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Disjoncteur à trois états (fermé, ouvert, semi-ouvert) piloté par le taux d'erreur
+ * et le taux d'appels lents sur une fenêtre glissante des N derniers appels.
+ * <ul>
+ *     <li>CLOSED : les appels passent ; ouverture si l'un des taux dépasse son seuil.</li>
+ *     <li>OPEN : les appels sont refusés immédiatement pendant {@code openDurationMs}.</li>
+ *     <li>HALF_OPEN : quelques appels d'essai passent ; fermeture s'ils réussissent tous,
+ *     réouverture au premier échec ou appel lent.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final int halfOpenPermittedCalls;
+    private final LongSupplier clock;
+
+    // Fenêtre glissante circulaire des derniers résultats
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int next;
+    private int buffered;
+    private int failureCount;
+    private int slowCount;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private long rejectedCalls;
+    private long openings;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          int slowCallRateThreshold, long slowCallMs, long openDurationMs, int halfOpenPermittedCalls) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallMs,
+                openDurationMs, halfOpenPermittedCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                   int slowCallRateThreshold, long slowCallMs, long openDurationMs, int halfOpenPermittedCalls,
+                   LongSupplier clock) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+        this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+        this.clock = clock;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Demande l'autorisation d'effectuer un appel.
+     *
+     * @return false si le disjoncteur est ouvert (ou si les appels d'essai sont épuisés) :
+     * l'appelant doit échouer immédiatement sans contacter le service distant.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openDurationNanos) {
+                rejectedCalls++;
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenPermittedCalls) {
+                rejectedCalls++;
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Enregistre un appel réussi et sa durée.
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    /**
+     * Enregistre un appel en échec (erreur, réponse invalide, délai dépassé) et sa durée.
+     */
+    public synchronized void onError(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(name, getState(), buffered, rate(failureCount), rate(slowCount), rejectedCalls, openings);
+    }
+
+    private void record(boolean failed, long durationNanos) {
+        boolean slow = durationNanos >= slowCallNanos;
+
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight > 0) {
+                halfOpenInFlight--;
+            }
+            if (failed || slow) {
+                transitionTo(State.OPEN);
+            } else if (++halfOpenSuccesses >= halfOpenPermittedCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return; // résultat tardif d'un appel lancé avant l'ouverture
+        }
+
+        if (buffered == windowSize) {
+            if (failedCalls[next]) failureCount--;
+            if (slowCalls[next]) slowCount--;
+        } else {
+            buffered++;
+        }
+        failedCalls[next] = failed;
+        slowCalls[next] = slow;
+        if (failed) failureCount++;
+        if (slow) slowCount++;
+        next = (next + 1) % windowSize;
+
+        if (buffered >= minimumCalls
+                && (rate(failureCount) >= failureRateThreshold || rate(slowCount) >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private int rate(int count) {
+        return buffered == 0 ? 0 : count * 100 / buffered;
+    }
+
+    private void transitionTo(State newState) {
+        logger.warn("CircuitBreaker {} : {} -> {} (échecs {}%, lents {}%)",
+                name, state, newState, rate(failureCount), rate(slowCount));
+        state = newState;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+
+        if (newState == State.OPEN) {
+            openedAt = clock.getAsLong();
+            openings++;
+        }
+        if (newState != State.HALF_OPEN) {
+            // Nouvelle fenêtre après chaque changement d'état stable
+            Arrays.fill(failedCalls, false);
+            Arrays.fill(slowCalls, false);
+            next = 0;
+            buffered = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+    }
+
+    /**
+     * Instantané de l'état du disjoncteur.
+     *
+     * @param name          nom du service protégé.
+     * @param state         état courant.
+     * @param bufferedCalls appels présents dans la fenêtre glissante.
+     * @param failureRate   pourcentage d'appels en échec dans la fenêtre.
+     * @param slowCallRate  pourcentage d'appels lents dans la fenêtre.
+     * @param rejectedCalls appels refusés depuis le démarrage.
+     * @param openings      nombre d'ouvertures depuis le démarrage.
+     */
+    public record Stats(String name, State state, int bufferedCalls, int failureRate, int slowCallRate,
+                        long rejectedCalls, long openings) {
+    }
+}
@@ -0,0 +1,175 @@
+package fr.ubo.hello.utils;
+
+/**
+ * Limite adaptative du nombre de requêtes traitées simultanément, ajustée d'après leur latence
+ * (algorithme « gradient ») :
+ * <ul>
+ *     <li>deux moyennes mobiles exponentielles de la durée des requêtes, l'une courte (état actuel),
+ *     l'autre longue (référence), tenues séparément pour chaque priorité : des requêtes de durées
+ *     très différentes ne faussent pas la comparaison quand leur proportion varie ;</li>
+ *     <li>tant que la latence courte de chaque priorité reste sous {@code tolerance} fois sa référence,
+ *     la limite croît d'environ sa racine carrée par ajustement ; au-delà, elle est réduite en proportion
+ *     (au plus de moitié). C'est la priorité la plus dégradée qui compte : des requêtes rapides qui
+ *     n'atteignent pas la ressource saturée ne font pas remonter la limite ;</li>
+ *     <li>une requête en échec (erreur serveur, délai dépassé) réduit la limite de 10 % (recul multiplicatif).</li>
+ * </ul>
+ * La limite ne croît que si elle est réellement utilisée (au moins la moitié de la limite en cours),
+ * pour ne pas gonfler pendant les périodes calmes.
+ * <p>
+ * Deux priorités : les requêtes prioritaires peuvent occuper toute la limite, les autres
+ * seulement {@code nonCriticalPercent} % ; sous charge, ce sont donc elles qui sont refusées d'abord.
+ * Le reste de la limite est réservé aux prioritaires même quand la limite vient de baisser sous
+ * le nombre de requêtes non prioritaires déjà en cours.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int nonCriticalPercent;
+    private final double tolerance;
+
+    private double limit;
+    private int inFlight;
+    private int criticalInFlight;
+    // index 0 : requêtes prioritaires, 1 : les autres
+    private final double[] shortRttNanos = new double[2];
+    private final double[] longRttNanos = new double[2];
+    private long rejectedCritical;
+    private long rejectedNonCritical;
+
+    /**
+     * @param tolerance rapport entre latence courte et latence de référence toléré avant de réduire la limite.
+     */
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                              int nonCriticalPercent, double tolerance) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.nonCriticalPercent = nonCriticalPercent;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Demande une place pour une requête.
+     *
+     * @param critical requête prioritaire (elle peut occuper toute la limite).
+     * @return false si la limite est atteinte : la requête doit être refusée sans être traitée.
+     * Sinon, l'appelant doit ensuite appeler {@link #onSuccess(boolean, long)} ou {@link #onDropped(boolean)}.
+     */
+    public synchronized boolean tryAcquire(boolean critical) {
+        int nonCriticalAllowed = Math.max(1, (int) (limit * nonCriticalPercent / 100));
+        boolean admitted = critical
+                ? inFlight < (int) limit || criticalInFlight < Math.max(1, (int) limit - nonCriticalAllowed)
+                : inFlight < nonCriticalAllowed;
+        if (!admitted) {
+            if (critical) {
+                rejectedCritical++;
+            } else {
+                rejectedNonCritical++;
+            }
+            return false;
+        }
+        inFlight++;
+        if (critical) {
+            criticalInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Enregistre une requête terminée normalement et sa durée.
+     *
+     * @param critical priorité donnée à {@link #tryAcquire(boolean)}.
+     */
+    public synchronized void onSuccess(boolean critical, long durationNanos) {
+        int concurrent = inFlight;
+        release(critical);
+
+        int i = critical ? 0 : 1;
+        if (longRttNanos[i] == 0) {
+            shortRttNanos[i] = durationNanos;
+            longRttNanos[i] = durationNanos;
+            return;
+        }
+        shortRttNanos[i] += (durationNanos - shortRttNanos[i]) * 2 / (SHORT_WINDOW + 1);
+        longRttNanos[i] += (durationNanos - longRttNanos[i]) * 2 / (LONG_WINDOW + 1);
+        if (longRttNanos[i] > 2 * shortRttNanos[i]) {
+            // la latence a durablement baissé : la référence la rejoint plus vite
+            longRttNanos[i] *= 0.95;
+        }
+
+        double gradient = Math.min(gradient(0), gradient(1));
+        if (gradient == 1.0 && concurrent < limit / 2) {
+            return;
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        setLimit(limit * (1 - SMOOTHING) + target * SMOOTHING);
+    }
+
+    /**
+     * Enregistre une requête en échec : signe de surcharge, la limite recule.
+     */
+    public synchronized void onDropped(boolean critical) {
+        release(critical);
+        setLimit(limit * BACKOFF);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(name, (int) limit, inFlight,
+                (long) (shortRttNanos[0] / 1000), (long) (longRttNanos[0] / 1000),
+                (long) (shortRttNanos[1] / 1000), (long) (longRttNanos[1] / 1000),
+                rejectedCritical, rejectedNonCritical);
+    }
+
+    private double gradient(int i) {
+        if (shortRttNanos[i] == 0) {
+            return 1.0;
+        }
+        return Math.max(0.5, Math.min(1.0, tolerance * longRttNanos[i] / shortRttNanos[i]));
+    }
+
+    private void release(boolean critical) {
+        inFlight--;
+        if (critical) {
+            criticalInFlight--;
+        }
+    }
+
+    private void setLimit(double value) {
+        limit = Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * Instantané du limiteur.
+     *
+     * @param name                      nom du groupe de requêtes limité.
+     * @param limit                     limite courante.
+     * @param inFlight                  requêtes en cours.
+     * @param criticalShortRttMicros    latence récente des requêtes prioritaires (moyenne mobile courte).
+     * @param criticalLongRttMicros     latence de référence des requêtes prioritaires (moyenne mobile longue).
+     * @param nonCriticalShortRttMicros latence récente des autres requêtes.
+     * @param nonCriticalLongRttMicros  latence de référence des autres requêtes.
+     * @param rejectedCritical          requêtes prioritaires refusées depuis le démarrage.
+     * @param rejectedNonCritical       autres requêtes refusées depuis le démarrage.
+     */
+    public record Stats(String name, int limit, int inFlight,
+                        long criticalShortRttMicros, long criticalLongRttMicros,
+                        long nonCriticalShortRttMicros, long nonCriticalLongRttMicros,
+                        long rejectedCritical, long rejectedNonCritical) {
+    }
+}
@@ -0,0 +1,101 @@
+package fr.ubo.hello.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture et écriture de lignes CSV (RFC 4180) : champs séparés par {@code ,} ou {@code ;}
+ * (export des tableurs en français), entourés de guillemets s'ils contiennent le séparateur ou un
+ * guillemet, doublé à l'intérieur. Un champ ne peut pas contenir de saut de ligne : chaque ligne
+ * du fichier est un enregistrement, ce qui permet de lire un fichier ligne à ligne.
+ */
+public final class Csv {
+
+    private Csv() {
+    }
+
+    /**
+     * @return le séparateur d'un fichier d'après sa ligne d'en-tête : {@code ;} si elle en contient
+     * et pas de virgule, {@code ,} sinon.
+     */
+    public static char detectSeparator(String header) {
+        return header.indexOf(';') >= 0 && header.indexOf(',') < 0 ? ';' : ',';
+    }
+
+    /**
+     * @return les champs de la ligne, ou null si un guillemet n'est pas refermé ou est suivi
+     * d'autre chose que le séparateur.
+     */
+    public static List<String> parseLine(String line, char separator) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int n = line.length();
+        while (true) {
+            field.setLength(0);
+            if (i < n && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i == n) {
+                        return null;
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < n && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < n && line.charAt(i) != separator) {
+                    return null;
+                }
+            } else {
+                int end = line.indexOf(separator, i);
+                if (end < 0) {
+                    end = n;
+                }
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i == n) {
+                return fields;
+            }
+            i++; // séparateur
+        }
+    }
+
+    /**
+     * Écrit un champ, entre guillemets s'il le faut ; null est écrit comme un champ vide.
+     */
+    public static void appendField(Appendable out, String value, char separator) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == separator || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r') {
+                c = ' '; // un enregistrement par ligne
+            }
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
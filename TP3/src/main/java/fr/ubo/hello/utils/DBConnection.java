@@ -1,60 +1,208 @@
 package fr.ubo.hello.utils;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
 
+/**
+ * Point d'accès unique aux connexions MySQL.
+ * Les connexions sont empruntées à un pool HikariCP borné, créé une seule fois
+ * (au démarrage via {@link #init()} ou au premier appel) ; {@link Connection#close()}
+ * rend la connexion au pool au lieu de fermer la session MySQL.
+ */
 public class DBConnection {
 
-    private static final String DB_HOST = System.getenv().getOrDefault("DB_HOST", "mysql-djf");
-    private static final String DB_PORT = System.getenv().getOrDefault("DB_PORT", "3306");
-    private static final String DB_NAME = System.getenv().getOrDefault("DB_NAME", "djfdb");
-    private static final String DB_USER = System.getenv().getOrDefault("DB_USER", "kaoutar");
-    private static final String DB_PASSWORD = System.getenv().getOrDefault("DB_PASSWORD", "kaoutar");
+    private static final Logger logger = LoggerFactory.getLogger(DBConnection.class);
+
+    private static final String DB_HOST = EnvConfig.getString("DB_HOST", "mysql-djf");
+    private static final String DB_PORT = EnvConfig.getString("DB_PORT", "3306");
+    private static final String DB_NAME = EnvConfig.getString("DB_NAME", "djfdb");
+    private static final String DB_USER = EnvConfig.getString("DB_USER", "kaoutar");
+    private static final String DB_PASSWORD = EnvConfig.getString("DB_PASSWORD", "kaoutar");
 
-    private static final String DB_URL = String.format("jdbc:mysql://%s:%s/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC",
-            DB_HOST, DB_PORT, DB_NAME);
+    // DB_URL et DB_DRIVER remplacent l'URL MySQL construite ci-dessous (base embarquée des tests de charge)
+    private static final String DB_URL = EnvConfig.getString("DB_URL", String.format(
+            "jdbc:mysql://%s:%s/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC",
+            DB_HOST, DB_PORT, DB_NAME));
+    private static final String DB_DRIVER = EnvConfig.getString("DB_DRIVER", "com.mysql.cj.jdbc.Driver");
 
     private static final int MAX_RETRIES = 5;
     private static final int RETRY_DELAY_MS = 3000;
 
+    // Dimensionnement du pool (surchargeable par variables d'environnement)
+    private static final int POOL_MAX_SIZE = EnvConfig.getInt("DB_POOL_MAX_SIZE", 10);
+    private static final int POOL_MIN_IDLE = EnvConfig.getInt("DB_POOL_MIN_IDLE", POOL_MAX_SIZE);
+    private static final long POOL_CONNECTION_TIMEOUT_MS = EnvConfig.getInt("DB_POOL_CONNECTION_TIMEOUT_MS", 5000);
+    private static final long POOL_VALIDATION_TIMEOUT_MS = EnvConfig.getInt("DB_POOL_VALIDATION_TIMEOUT_MS", 2000);
+    private static final long POOL_IDLE_TIMEOUT_MS = EnvConfig.getInt("DB_POOL_IDLE_TIMEOUT_MS", 300_000);
+    private static final long POOL_MAX_LIFETIME_MS = EnvConfig.getInt("DB_POOL_MAX_LIFETIME_MS", 1_800_000);
+    private static final long POOL_LEAK_DETECTION_MS = EnvConfig.getInt("DB_POOL_LEAK_DETECTION_MS", 10_000);
+
+    private static volatile HikariDataSource dataSource;
+    // verrou plutôt que synchronized : la création du pool bloque (connexions, attente entre essais)
+    private static final ReentrantLock dataSourceLock = new ReentrantLock();
+
+    private static final Metrics.Timer acquireTimer = Metrics.timer("db_connection_acquire_seconds",
+            "Attente à l'emprunt d'une connexion au pool.");
+    private static final Metrics.Counter acquireFailures = Metrics.counter("db_connection_acquire_failures_total",
+            "Emprunts de connexion en échec (pool épuisé au-delà du délai ou base injoignable).");
+
+    static {
+        Metrics.gauge("db_pool_connections", "Connexions du pool par état.",
+                () -> poolValue(HikariPoolMXBean::getActiveConnections), "state", "active");
+        Metrics.gauge("db_pool_connections", "Connexions du pool par état.",
+                () -> poolValue(HikariPoolMXBean::getIdleConnections), "state", "idle");
+        Metrics.gauge("db_pool_threads_awaiting", "Threads en attente d'une connexion.",
+                () -> poolValue(HikariPoolMXBean::getThreadsAwaitingConnection));
+    }
+
+    private static final Metrics.Counter unitOfWorkBorrows = Metrics.counter("db_connection_borrows_total",
+            "Connexions empruntées au pool.", "scope", "unit_of_work");
+    private static final Metrics.Counter standaloneBorrows = Metrics.counter("db_connection_borrows_total",
+            "Connexions empruntées au pool.", "scope", "standalone");
+
+    /**
+     * @return la connexion partagée de l'{@link UnitOfWork} ouverte sur le thread courant, sinon une
+     *         connexion empruntée au pool, à fermer par l'appelant.
+     */
     public static Connection getConnection() throws SQLException {
-        return getConnectionWithRetry();
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            return unit.connection();
+        }
+        standaloneBorrows.increment();
+        return acquire();
+    }
+
+    /**
+     * Emprunt de la connexion d'une unité de travail.
+     */
+    static Connection borrowConnection() throws SQLException {
+        unitOfWorkBorrows.increment();
+        return acquire();
+    }
+
+    private static Connection acquire() throws SQLException {
+        HikariDataSource ds = getDataSource();
+
+        long start = System.nanoTime();
+        try {
+            return ds.getConnection();
+        } catch (SQLException e) {
+            acquireFailures.increment();
+            throw e;
+        } finally {
+            acquireTimer.record(start);
+        }
+    }
+
+    /**
+     * Crée et préremplit le pool. Appelé au démarrage de l'application ;
+     * en cas d'échec, le prochain {@link #getConnection()} retentera la création.
+     */
+    public static void init() {
+        try {
+            getDataSource();
+        } catch (SQLException e) {
+            logger.error("DB : Pool non initialisé au démarrage, nouvel essai au premier accès", e);
+        }
+    }
+
+    /**
+     * Ferme le pool et toutes ses connexions physiques.
+     */
+    public static void shutdown() {
+        dataSourceLock.lock();
+        try {
+            if (dataSource != null) {
+                logger.info("DB : Fermeture du pool de connexions");
+                dataSource.close();
+                dataSource = null;
+            }
+        } finally {
+            dataSourceLock.unlock();
+        }
     }
 
     /**
-     * Tente de se connecter à la base avec plusieurs retries
+     * @return un instantané des statistiques du pool (connexions actives, inactives, attente).
+     */
+    public static PoolStats getPoolStats() {
+        HikariDataSource ds = dataSource;
+        HikariPoolMXBean pool = ds != null ? ds.getHikariPoolMXBean() : null;
+
+        LatencyHistogram.Snapshot waits = acquireTimer.snapshot();
+        long borrows = waits.count();
+
+        return new PoolStats(
+                pool != null ? pool.getActiveConnections() : 0,
+                pool != null ? pool.getIdleConnections() : 0,
+                pool != null ? pool.getTotalConnections() : 0,
+                pool != null ? pool.getThreadsAwaitingConnection() : 0,
+                POOL_MAX_SIZE,
+                borrows,
+                borrows == 0 ? 0 : waits.sumNanos() / borrows / 1000,
+                waits.maxNanos() / 1000
+        );
+    }
+
+    private static int poolValue(ToIntFunction<HikariPoolMXBean> getter) {
+        HikariDataSource ds = dataSource;
+        HikariPoolMXBean pool = ds != null ? ds.getHikariPoolMXBean() : null;
+        return pool != null ? getter.applyAsInt(pool) : 0;
+    }
+
+    private static HikariDataSource getDataSource() throws SQLException {
+        HikariDataSource ds = dataSource;
+        if (ds != null) {
+            return ds;
+        }
+        dataSourceLock.lock();
+        try {
+            if (dataSource == null) {
+                dataSource = createDataSourceWithRetry();
+            }
+            return dataSource;
+        } finally {
+            dataSourceLock.unlock();
+        }
+    }
+
+    /**
+     * Tente de créer le pool (et donc d'ouvrir les premières connexions) avec plusieurs retries
      * Important pour le démarrage : MySQL peut prendre du temps à être prêt
      */
-    private static Connection getConnectionWithRetry() throws SQLException {
-        SQLException lastException = null;
+    private static HikariDataSource createDataSourceWithRetry() throws SQLException {
+        Exception lastException = null;
 
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
             try {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-
-                Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                HikariDataSource ds = new HikariDataSource(buildConfig());
 
                 if (attempt > 1) {
-                    System.out.println("Connexion MySQL réussie après " + attempt + " tentative(s)");
+                    logger.info("DB : Pool MySQL initialisé après {} tentative(s) - URL: {}, user: {}", attempt, DB_URL, DB_USER);
                 } else {
-                    System.out.println("Connexion MySQL réussie");
+                    logger.info("DB : Pool MySQL initialisé - URL: {}, user: {}", DB_URL, DB_USER);
                 }
-                System.out.println("URL: " + DB_URL);
-                System.out.println("User: " + DB_USER);
-
-                return connection;
+                logger.info("DB : Taille max={}, min idle={}, max lifetime={}ms, leak detection={}ms",
+                        POOL_MAX_SIZE, POOL_MIN_IDLE, POOL_MAX_LIFETIME_MS, POOL_LEAK_DETECTION_MS);
 
-            } catch (ClassNotFoundException e) {
-                System.err.println("Driver MySQL non trouvé");
-                throw new SQLException("Driver MySQL non trouvé", e);
+                return ds;
 
-            } catch (SQLException e) {
+            } catch (HikariPool.PoolInitializationException e) {
                 lastException = e;
 
                 if (attempt < MAX_RETRIES) {
-                    System.err.println("Tentative " + attempt + "/" + MAX_RETRIES + " échouée: " + e.getMessage());
-                    System.out.println("Nouvelle tentative dans " + (RETRY_DELAY_MS/1000) + " secondes...");
+                    logger.warn("DB : Tentative {}/{} échouée: {} - nouvelle tentative dans {} secondes",
+                            attempt, MAX_RETRIES, e.getMessage(), RETRY_DELAY_MS / 1000);
 
                     try {
                         Thread.sleep(RETRY_DELAY_MS);
@@ -63,11 +211,9 @@ public class DBConnection {
                         throw new SQLException("Interruption lors de la reconnexion", ie);
                     }
                 } else {
-                    System.err.println("Échec de connexion MySQL après " + MAX_RETRIES + " tentatives");
-                    System.err.println("Vérifiez que:");
-                    System.err.println("   - Le conteneur MySQL est démarré: docker ps");
-                    System.err.println("   - Les credentials sont corrects");
-                    System.err.println("   - Le nom du service est 'mysql' dans docker-compose.yml");
+                    logger.error("DB : Échec de connexion MySQL après {} tentatives. Vérifiez que le conteneur MySQL "
+                            + "est démarré (docker ps), que les credentials sont corrects et que le nom du service "
+                            + "correspond à DB_HOST dans docker-compose.yml", MAX_RETRIES);
                 }
             }
         }
@@ -75,5 +221,54 @@ public class DBConnection {
         throw new SQLException("Impossible de se connecter à MySQL après " + MAX_RETRIES + " tentatives", lastException);
     }
 
+    private static HikariConfig buildConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("djf-mysql");
+        config.setDriverClassName(DB_DRIVER);
+        config.setJdbcUrl(DB_URL);
+        config.setUsername(DB_USER);
+        config.setPassword(DB_PASSWORD);
+
+        // Pool borné et prérempli : minimumIdle = maximumPoolSize par défaut
+        config.setMaximumPoolSize(POOL_MAX_SIZE);
+        config.setMinimumIdle(POOL_MIN_IDLE);
+        config.setConnectionTimeout(POOL_CONNECTION_TIMEOUT_MS);
+
+        // Validation à l'emprunt (Connection.isValid) pour les connexions restées inactives
+        config.setValidationTimeout(POOL_VALIDATION_TIMEOUT_MS);
+
+        // Éviction des connexions inactives (seulement si minimumIdle < maximumPoolSize), durée de vie
+        // maximale inférieure au wait_timeout MySQL, détection des connexions non rendues
+        config.setIdleTimeout(POOL_IDLE_TIMEOUT_MS);
+        config.setMaxLifetime(POOL_MAX_LIFETIME_MS);
+        config.setLeakDetectionThreshold(POOL_LEAK_DETECTION_MS);
 
-}
\ No newline at end of file
+        // Échec immédiat si MySQL n'est pas joignable : la boucle de retry gère l'attente
+        config.setInitializationFailTimeout(1);
+        config.setRegisterMbeans(true);
+
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        // Lots JDBC (executeBatch) envoyés en INSERT multi-lignes plutôt qu'une requête par ligne
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return config;
+    }
+
+    /**
+     * Instantané des statistiques du pool de connexions.
+     *
+     * @param active           connexions actuellement empruntées.
+     * @param idle             connexions disponibles dans le pool.
+     * @param total            connexions physiques ouvertes.
+     * @param threadsAwaiting  threads en attente d'une connexion.
+     * @param maxSize          taille maximale configurée.
+     * @param borrowCount      nombre total d'emprunts.
+     * @param avgWaitMicros    temps d'attente moyen à l'emprunt (µs).
+     * @param maxWaitMicros    temps d'attente maximal observé à l'emprunt (µs).
+     */
+    public record PoolStats(int active, int idle, int total, int threadsAwaiting, int maxSize,
+                            long borrowCount, long avgWaitMicros, long maxWaitMicros) {
+    }
+}
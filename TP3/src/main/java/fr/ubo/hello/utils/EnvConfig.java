@@ -0,0 +1,59 @@
+package fr.ubo.hello.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lecture des paramètres de configuration passés par variables d'environnement
+ * (fichier .env de docker-compose), avec valeur par défaut.
+ * À défaut de variable d'environnement, une propriété système du même nom est lue
+ * ({@code -DSMS_SERVER_URL=...}), ce qui permet de configurer une instance embarquée.
+ */
+public final class EnvConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnvConfig.class);
+
+    private EnvConfig() {
+    }
+
+    public static String getString(String name, String defaultValue) {
+        String value = lookup(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = lookup(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Config : Valeur invalide pour {}: {} (défaut {} utilisé)", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = lookup(name);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public static <E extends Enum<E>> E getEnum(String name, Class<E> type, E defaultValue) {
+        String value = lookup(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Config : Valeur invalide pour {}: {} (défaut {} utilisé)", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static String lookup(String name) {
+        String value = System.getenv(name);
+        return value != null ? value : System.getProperty(name);
+    }
+}
@@ -0,0 +1,275 @@
+package fr.ubo.hello.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Codes OTP calculés plutôt que tirés au hasard et enregistrés (TOTP, RFC 6238 sur HOTP, RFC 4226) :
+ * le code d'un utilisateur pour un pas de temps est HOTP(secret de l'utilisateur, numéro du pas).
+ * Émettre un code n'écrit rien ; le vérifier ne demande que quelques HMAC et la table anti-rejeu.
+ * <p>
+ * Le secret de chaque utilisateur est dérivé d'une clé maîtresse ({@code HMAC-SHA256(clé, user_id)}) :
+ * rien n'est stocké par utilisateur. La clé vient de {@code OTP_HMAC_KEY} (base64, 32 octets
+ * conseillés) ; à défaut, une clé aléatoire est tirée au démarrage : les codes émis ne survivent pas
+ * alors à un redémarrage et ne sont pas reconnus par les autres réplicas.
+ * <p>
+ * Un code est accepté pendant son pas et les {@code lookBackSteps} suivants. Une fois accepté, ni lui
+ * ni un code d'un pas antérieur ne le sont plus pour cet utilisateur ; la contrepartie : deux émissions
+ * dans le même pas donnent le même code, utilisable une seule fois.
+ * <p>
+ * Le dernier pas accepté par utilisateur est gardé en mémoire, propre au processus : sans
+ * {@link #useReplayGuard(ReplayGuard) registre partagé}, un code accepté par une instance l'est encore
+ * par les autres pendant sa fenêtre, et ce mode est réservé à une instance unique.
+ */
+public final class HmacOtp {
+
+    private static final Logger logger = LoggerFactory.getLogger(HmacOtp.class);
+
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+    // Table anti-rejeu purgée de ses entrées périmées toutes les SWEEP_INTERVAL acceptations
+    private static final int SWEEP_INTERVAL = 1024;
+
+    // Mac n'est pas sûr entre threads : une instance par thread et par algorithme
+    private final ThreadLocal<Mac> derivation;
+    private final ThreadLocal<Mac> hotp = ThreadLocal.withInitial(() -> mac("HmacSHA1", null));
+
+    private final long stepMillis;
+    private final int lookBackSteps;
+    private final LongSupplier clock;
+
+    // Dernier pas accepté par utilisateur
+    private final StripedIntMap<LastAccepted> lastAccepted = new StripedIntMap<>(64);
+    private final AtomicInteger acceptsSinceSweep = new AtomicInteger();
+    // Registre partagé entre instances, à la place de lastAccepted s'il est défini
+    private volatile ReplayGuard sharedGuard;
+
+    /**
+     * @param masterKey     clé dont sont dérivés les secrets des utilisateurs.
+     * @param stepSeconds   durée d'un pas de temps.
+     * @param lookBackSteps nombre de pas après le sien pendant lesquels un code reste accepté.
+     * @param clock         heure courante en millisecondes.
+     */
+    public HmacOtp(byte[] masterKey, int stepSeconds, int lookBackSteps, LongSupplier clock) {
+        byte[] key = masterKey.clone();
+        this.derivation = ThreadLocal.withInitial(() -> mac("HmacSHA256", key));
+        this.stepMillis = TimeUnit.SECONDS.toMillis(stepSeconds);
+        this.lookBackSteps = lookBackSteps;
+        this.clock = clock;
+    }
+
+    /**
+     * Instance configurée par {@code OTP_HMAC_KEY} et {@code OTP_TOTP_STEP_SECONDS} (30 s par défaut),
+     * les codes restant acceptés au moins {@code validitySeconds}.
+     */
+    public static HmacOtp fromConfig(int validitySeconds) {
+        String encoded = EnvConfig.getString("OTP_HMAC_KEY", null);
+        byte[] key;
+        if (encoded != null) {
+            key = Base64.getDecoder().decode(encoded);
+        } else {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            logger.warn("OTP : OTP_HMAC_KEY absente, clé aléatoire : codes invalidés au redémarrage et propres à cette instance");
+        }
+        int stepSeconds = Math.max(1, EnvConfig.getInt("OTP_TOTP_STEP_SECONDS", 30));
+        return new HmacOtp(key, stepSeconds, Math.max(0, validitySeconds / stepSeconds - 1), System::currentTimeMillis);
+    }
+
+    /**
+     * Remplace la table anti-rejeu locale par un registre partagé entre les instances.
+     */
+    public void useReplayGuard(ReplayGuard guard) {
+        this.sharedGuard = guard;
+    }
+
+    /**
+     * @return le code de l'utilisateur pour le pas de temps courant.
+     */
+    public String currentCode(int userId) {
+        return format(hotp(userSecret(userId), currentStep()));
+    }
+
+    /**
+     * @return l'heure d'expiration (epoch ms) d'un code émis maintenant.
+     */
+    public long expiresAtMillis() {
+        return (currentStep() + 1 + lookBackSteps) * stepMillis;
+    }
+
+    /**
+     * Vérifie un code et le consomme : s'il correspond à un pas encore accepté et postérieur au dernier
+     * code accepté pour cet utilisateur, ce pas devient le dernier accepté.
+     *
+     * @return true si le code est valide et n'avait pas encore servi.
+     */
+    public boolean verify(int userId, String code) {
+        int submitted = parse(code);
+        if (submitted < 0) {
+            return false;
+        }
+        byte[] secret = userSecret(userId);
+        long now = currentStep();
+        for (long step = now; step >= now - lookBackSteps && step >= 0; step--) {
+            if (hotp(secret, step) == submitted) {
+                return accept(userId, step, now);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return le nombre d'utilisateurs suivis par la table anti-rejeu locale.
+     */
+    public int getTrackedUsers() {
+        return lastAccepted.size();
+    }
+
+    private boolean accept(int userId, long step, long now) {
+        ReplayGuard guard = sharedGuard;
+        if (guard != null) {
+            if (!guard.advance(userId, step)) {
+                return false;
+            }
+            if (acceptsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+                acceptsSinceSweep.set(0);
+                guard.forgetBefore(now - lookBackSteps);
+            }
+            return true;
+        }
+        while (true) {
+            LastAccepted entry = lastAccepted.computeIfAbsent(userId, id -> new LastAccepted());
+            synchronized (entry) {
+                if (entry.removed) {
+                    continue; // purgée entre-temps : reprise sur une nouvelle entrée
+                }
+                if (step <= entry.step) {
+                    return false;
+                }
+                entry.step = step;
+            }
+            if (acceptsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+                acceptsSinceSweep.set(0);
+                sweep(now);
+            }
+            return true;
+        }
+    }
+
+    private void sweep(long now) {
+        // un pas plus ancien que la fenêtre ne peut plus être rejoué : l'entrée est inutile
+        lastAccepted.removeIf(entry -> {
+            synchronized (entry) {
+                entry.removed = entry.step < now - lookBackSteps;
+                return entry.removed;
+            }
+        });
+    }
+
+    private long currentStep() {
+        return clock.getAsLong() / stepMillis;
+    }
+
+    private byte[] userSecret(int userId) {
+        return derivation.get().doFinal(("user:" + userId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private int hotp(byte[] secret, long counter) {
+        return hotp(hotp.get(), secret, counter);
+    }
+
+    /**
+     * HOTP (RFC 4226) : HMAC-SHA1 du compteur, troncature dynamique, 6 chiffres.
+     */
+    static int hotp(Mac mac, byte[] secret, long counter) {
+        try {
+            mac.init(new SecretKeySpec(secret, "HmacSHA1"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] message = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            message[i] = (byte) counter;
+            counter >>>= 8;
+        }
+        byte[] hash = mac.doFinal(message);
+        int offset = hash[hash.length - 1] & 0x0f;
+        int binary = (hash[offset] & 0x7f) << 24
+                | (hash[offset + 1] & 0xff) << 16
+                | (hash[offset + 2] & 0xff) << 8
+                | (hash[offset + 3] & 0xff);
+        return binary % MODULUS;
+    }
+
+    static Mac mac(String algorithm, byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            if (key != null) {
+                mac.init(new SecretKeySpec(key, algorithm));
+            }
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Algorithme " + algorithm + " indisponible", e);
+        }
+    }
+
+    private static String format(int code) {
+        char[] digits = new char[DIGITS];
+        for (int i = DIGITS - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + code % 10);
+            code /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * @return la valeur d'un code de 6 chiffres, ou -1 s'il est mal formé.
+     */
+    private static int parse(String code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Dernier pas accepté par utilisateur, partagé entre les instances.
+     */
+    public interface ReplayGuard {
+
+        /**
+         * @return true si {@code step} est postérieur au dernier pas accepté pour l'utilisateur ;
+         *         il devient alors le dernier accepté.
+         */
+        boolean advance(int userId, long step);
+
+        /**
+         * Oublie les utilisateurs dont le dernier pas accepté précède {@code oldestStep} : leurs codes
+         * ne sont plus acceptés de toute façon.
+         */
+        void forgetBefore(long oldestStep);
+    }
+
+    private static final class LastAccepted {
+        long step = -1;
+        boolean removed;
+    }
+}
@@ -0,0 +1,144 @@
+package fr.ubo.hello.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences à seaux log-linéaires (à la HdrHistogram), sûr entre threads sans verrou.
+ * <p>
+ * Chaque puissance de deux est découpée en {@value #SUB_BUCKETS} seaux de même largeur : toute valeur
+ * est connue à 1/{@value #SUB_BUCKETS} près (~3 %), de la nanoseconde jusqu'à {@code 2^36} ns (~68 s) ;
+ * au-delà, les valeurs tombent dans le dernier seau, le maximum restant exact.
+ * {@link #record(long)} ne fait qu'incrémenter un compteur, une somme et au besoin le maximum :
+ * aucune allocation, aucun verrou.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+    private static final long HIGHEST_TRACKABLE = (1L << MAX_EXPONENT) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos durée observée ; les valeurs négatives comptent pour 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, HIGHEST_TRACKABLE)));
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return un instantané cohérent seau par seau (les enregistrements concurrents peuvent
+     *         ne pas y figurer).
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum(), max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return plus grande valeur rangée dans le seau {@code index}.
+     */
+    static long highestValueOf(int index) {
+        return lowestValueOf(index + 1) - 1;
+    }
+
+    private static long lowestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << shift;
+    }
+
+    /**
+     * Contenu d'un histogramme à un instant donné.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sumNanos() {
+            return sum;
+        }
+
+        public long maxNanos() {
+            return max;
+        }
+
+        /**
+         * @return nombre de valeurs inférieures ou égales à {@code nanos}, à la largeur d'un seau près
+         *         (le seau qui contient {@code nanos} est compté en entier).
+         */
+        public long countAtOrBelow(long nanos) {
+            if (nanos < 0) {
+                return 0;
+            }
+            int last = indexOf(Math.min(nanos, HIGHEST_TRACKABLE));
+            long total = 0;
+            for (int i = 0; i <= last; i++) {
+                total += counts[i];
+            }
+            return total;
+        }
+
+        /**
+         * @param percentile entre 0 et 100.
+         * @return valeur sous laquelle se trouvent {@code percentile} % des observations
+         *         (borne haute de son seau, sans dépasser le maximum observé), 0 si vide.
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package fr.ubo.hello.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Échantillonnage d'un message de log répétitif, propre à un point d'appel : au plus
+ * {@code LOG_SAMPLE_PER_SECOND} messages par seconde passent (10 par défaut), les suivants
+ * sont seulement comptés et leur nombre est joint au prochain message émis.
+ * <pre>
+ * private static final LogSampler FOUND = LogSampler.perSecond();
+ *
+ * if (logger.isInfoEnabled() &amp;&amp; FOUND.sample()) {
+ *     logger.info("DAO : Utilisateur id={} trouvé ({} similaires omis)", id, FOUND.takeSuppressed());
+ * }
+ * </pre>
+ * {@link #sample()} ne fait qu'une lecture d'horloge et un incrément, sans verrou ni allocation.
+ * {@code LOG_SAMPLE_PER_SECOND=0} désactive l'échantillonnage : tout est journalisé.
+ */
+public final class LogSampler {
+
+    private static final int DEFAULT_PER_SECOND = EnvConfig.getInt("LOG_SAMPLE_PER_SECOND", 10);
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final int perSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicLong windowStart;
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @return un échantillonneur au débit configuré par {@code LOG_SAMPLE_PER_SECOND}.
+     */
+    public static LogSampler perSecond() {
+        return new LogSampler(DEFAULT_PER_SECOND, System::nanoTime);
+    }
+
+    LogSampler(int perSecond, LongSupplier nanoClock) {
+        this.perSecond = perSecond;
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return true si le message doit être journalisé ; sinon il est compté comme omis.
+     */
+    public boolean sample() {
+        if (perSecond <= 0) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            // course bénigne : quelques messages de plus ou de moins à la bascule de fenêtre
+            sampled.set(0);
+        }
+        if (sampled.incrementAndGet() <= perSecond) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    /**
+     * @return nombre de messages omis depuis le dernier appel, remis à zéro.
+     */
+    public long takeSuppressed() {
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,220 @@
+package fr.ubo.hello.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registre des métriques de l'application, exposées au format texte de Prometheus par {@link #scrape()}.
+ * <p>
+ * Les séries sont créées une fois (champ statique ou premier appel) et gardées par l'appelant :
+ * les étiquettes sont rendues à l'enregistrement, si bien que {@link Timer#record(long)} et
+ * {@link Counter#increment()} n'allouent rien et ne prennent aucun verrou.
+ * Les durées sont exportées en secondes, en histogrammes cumulés (seaux {@code le}) calculés
+ * au moment de la collecte à partir d'un {@link LatencyHistogram}.
+ * <p>
+ * {@code METRICS_ENABLED=false} désactive l'enregistrement (les séries restent exposées, à zéro).
+ */
+public final class Metrics {
+
+    private static final boolean ENABLED = EnvConfig.getBoolean("METRICS_ENABLED", true);
+
+    // Bornes des seaux exportés, en secondes : de 100 µs à 10 s
+    private static final String[] BUCKET_LABELS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025",
+            "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"};
+    private static final long[] BUCKET_NANOS = new long[BUCKET_LABELS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            BUCKET_NANOS[i] = Math.round(Double.parseDouble(BUCKET_LABELS[i]) * 1e9);
+        }
+    }
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param labels paires nom, valeur : {@code timer("x_seconds", "...", "method", "GET")}.
+     * @return la série de durées, créée au premier appel pour ces étiquettes.
+     */
+    public static Timer timer(String name, String help, String... labels) {
+        return (Timer) family(name, help, Type.HISTOGRAM).series(labels, Timer::new);
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).series(labels, Counter::new);
+    }
+
+    /**
+     * Déclare une jauge lue au moment de la collecte.
+     */
+    public static void gauge(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series(labels, () -> new Gauge(value));
+    }
+
+    /**
+     * @return toutes les séries au format d'exposition texte de Prometheus (version 0.0.4).
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        for (Family family : families.values()) {
+            family.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    private static Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Métrique " + name + " déjà déclarée de type " + family.type);
+        }
+        return family;
+    }
+
+    static String renderLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Étiquettes attendues par paires nom, valeur");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                switch (ch) {
+                    case '\\': out.append("\\\\"); break;
+                    case '"': out.append("\\\""); break;
+                    case '\n': out.append("\\n"); break;
+                    default: out.append(ch);
+                }
+            }
+            out.append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private interface Series {
+        void writeTo(StringBuilder out, String name, String labels);
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Series series(String[] labels, Supplier<Series> factory) {
+            return series.computeIfAbsent(renderLabels(labels), l -> factory.get());
+        }
+
+        void writeTo(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type.name().toLowerCase()).append('\n');
+            series.forEach((labels, s) -> s.writeTo(out, name, labels));
+        }
+    }
+
+    /**
+     * Série de durées (histogramme).
+     */
+    public static final class Timer implements Series {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        /**
+         * Enregistre le temps écoulé depuis {@code startNanos}, obtenu par {@link System#nanoTime()}.
+         */
+        public void record(long startNanos) {
+            if (ENABLED) {
+                histogram.record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public void recordNanos(long nanos) {
+            if (ENABLED) {
+                histogram.record(nanos);
+            }
+        }
+
+        public LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+
+        @Override
+        public void writeTo(StringBuilder out, String name, String labels) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            String prefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+            for (int i = 0; i < BUCKET_NANOS.length; i++) {
+                out.append(name).append("_bucket").append(prefix).append("le=\"").append(BUCKET_LABELS[i])
+                        .append("\"} ").append(snapshot.countAtOrBelow(BUCKET_NANOS[i])).append('\n');
+            }
+            out.append(name).append("_bucket").append(prefix).append("le=\"+Inf\"} ")
+                    .append(snapshot.count()).append('\n');
+            out.append(name).append("_sum").append(labels).append(' ')
+                    .append(snapshot.sumNanos() / 1e9).append('\n');
+            out.append(name).append("_count").append(labels).append(' ')
+                    .append(snapshot.count()).append('\n');
+        }
+    }
+
+    /**
+     * Compteur monotone.
+     */
+    public static final class Counter implements Series {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            if (ENABLED) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (ENABLED) {
+                value.add(amount);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public void writeTo(StringBuilder out, String name, String labels) {
+            out.append(name).append(labels).append(' ').append(value.sum()).append('\n');
+        }
+    }
+
+    private static final class Gauge implements Series {
+        private final LongSupplier value;
+
+        Gauge(LongSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public void writeTo(StringBuilder out, String name, String labels) {
+            out.append(name).append(labels).append(' ').append(value.getAsLong()).append('\n');
+        }
+    }
+}
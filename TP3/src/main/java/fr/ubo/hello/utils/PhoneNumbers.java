@@ -0,0 +1,226 @@
+package fr.ubo.hello.utils;
+
+/**
+ * Normalisation des numéros de téléphone saisis par les utilisateurs, en une seule lecture des
+ * caractères, sans expression régulière ni chaîne intermédiaire.
+ * <p>
+ * Formes acceptées : numéro national du pays par défaut ({@code 06 12 34 56 78}, {@code 06.12.34.56.78}),
+ * numéro international précédé de {@code +} ou {@code 00} ({@code +33 6 12 34 56 78},
+ * {@code 0044 7911 123456}, {@code +33 (0)6 12 34 56 78}), et l'ancienne forme {@code 33612345678}.
+ * Les séparateurs (espace, point, tiret, barre oblique, parenthèses) sont ignorés ; tout autre
+ * caractère rend le numéro invalide.
+ * <p>
+ * Forme normalisée :
+ * <ul>
+ *     <li>pays par défaut ({@code PHONE_DEFAULT_COUNTRY_CODE}, 33) : numéro national à 10 chiffres,
+ *     {@code 0612345678}, le format attendu par la passerelle SMS ;</li>
+ *     <li>autres pays : E.164, {@code +447911123456}.</li>
+ * </ul>
+ * L'indicatif est reconnu par la table {@link #COUNTRIES}, qui donne aussi la longueur admise du
+ * numéro national ; un indicatif absent de la table rend le numéro invalide.
+ * Un numéro déjà normalisé est rendu tel quel, sans allocation.
+ */
+public final class PhoneNumbers {
+
+    private static final int DEFAULT_COUNTRY_CODE = EnvConfig.getInt("PHONE_DEFAULT_COUNTRY_CODE", 33);
+
+    // E.164 : 15 chiffres au plus, indicatif compris ; tient dans un long
+    private static final int MAX_DIGITS = 15;
+
+    // jusqu'à 17 chiffres lus : préfixe 00 ou 0 de préfixe national en plus
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 3];
+
+    /**
+     * Indicatif, longueur minimale et maximale du numéro national (sans le 0 de préfixe national).
+     * Les indicatifs E.164 forment un code préfixe : aucun n'est le début d'un autre.
+     */
+    private static final int[][] COUNTRIES = {
+            {1, 10, 10},    // États-Unis, Canada (NANP)
+            {7, 10, 10},    // Russie, Kazakhstan
+            {20, 9, 10},    // Égypte
+            {27, 9, 9},     // Afrique du Sud
+            {30, 10, 10},   // Grèce
+            {31, 9, 9},     // Pays-Bas
+            {32, 8, 9},     // Belgique
+            {33, 9, 9},     // France
+            {34, 9, 9},     // Espagne
+            {36, 8, 9},     // Hongrie
+            {39, 6, 11},    // Italie (le 0 initial fait partie du numéro)
+            {40, 9, 9},     // Roumanie
+            {41, 9, 9},     // Suisse
+            {43, 4, 13},    // Autriche
+            {44, 9, 10},    // Royaume-Uni
+            {45, 8, 8},     // Danemark
+            {46, 7, 13},    // Suède
+            {47, 8, 8},     // Norvège
+            {48, 9, 9},     // Pologne
+            {49, 6, 13},    // Allemagne
+            {52, 10, 10},   // Mexique
+            {55, 10, 11},   // Brésil
+            {61, 9, 9},     // Australie
+            {81, 9, 10},    // Japon
+            {86, 11, 11},   // Chine
+            {90, 10, 10},   // Turquie
+            {91, 10, 10},   // Inde
+            {212, 9, 9},    // Maroc
+            {213, 8, 9},    // Algérie
+            {216, 8, 8},    // Tunisie
+            {221, 9, 9},    // Sénégal
+            {225, 10, 10},  // Côte d'Ivoire
+            {226, 8, 8},    // Burkina Faso
+            {229, 8, 10},   // Bénin
+            {237, 9, 9},    // Cameroun
+            {241, 7, 8},    // Gabon
+            {242, 9, 9},    // Congo
+            {243, 9, 9},    // République démocratique du Congo
+            {261, 9, 9},    // Madagascar
+            {262, 9, 9},    // La Réunion, Mayotte
+            {351, 9, 9},    // Portugal
+            {352, 4, 11},   // Luxembourg
+            {353, 7, 9},    // Irlande
+            {377, 8, 9},    // Monaco
+            {508, 6, 6},    // Saint-Pierre-et-Miquelon
+            {590, 9, 9},    // Guadeloupe
+            {594, 9, 9},    // Guyane
+            {596, 9, 9},    // Martinique
+            {681, 6, 6},    // Wallis-et-Futuna
+            {687, 6, 6},    // Nouvelle-Calédonie
+            {689, 6, 8},    // Polynésie française
+    };
+
+    // Longueurs admises par indicatif (0 : indicatif inconnu), indexées par sa valeur :
+    // 1 à 9 pour un chiffre, 10 à 99 pour deux, 100 à 999 pour trois
+    private static final byte[] MIN_LENGTH = new byte[1000];
+    private static final byte[] MAX_LENGTH = new byte[1000];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+        for (int[] country : COUNTRIES) {
+            MIN_LENGTH[country[0]] = (byte) country[1];
+            MAX_LENGTH[country[0]] = (byte) country[2];
+        }
+    }
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * @param raw numéro tel que saisi, éventuellement null.
+     * @return le numéro normalisé, {@code raw} lui-même s'il l'est déjà, ou null s'il est invalide.
+     */
+    public static String normalize(String raw) {
+        if (raw == null) {
+            return null;
+        }
+
+        // Lecture unique : chiffres accumulés dans un long, leur nombre compté à part (zéros initiaux)
+        long digits = 0;
+        int count = 0;
+        boolean plus = false;
+        boolean separators = false;
+        for (int i = 0, n = raw.length(); i < n; i++) {
+            char c = raw.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (count == MAX_DIGITS + 2) {
+                    return null;
+                }
+                digits = digits * 10 + (c - '0');
+                count++;
+            } else if (c == '+' && count == 0 && !plus) {
+                plus = true;
+            } else if (c == ' ' || c == '.' || c == '-' || c == '/' || c == '(' || c == ')') {
+                separators = true;
+            } else {
+                return null;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        boolean international = plus;
+        if (!plus && count > 2 && digitAt(digits, count, 0) == 0 && digitAt(digits, count, 1) == 0) {
+            // préfixe d'appel international 00
+            international = true;
+            count -= 2;
+        } else if (!plus && digitAt(digits, count, 0) == 0) {
+            // numéro national du pays par défaut : 0 + numéro significatif
+            int nationalLength = count - 1;
+            if (nationalLength < MIN_LENGTH[DEFAULT_COUNTRY_CODE] || nationalLength > MAX_LENGTH[DEFAULT_COUNTRY_CODE]) {
+                return null;
+            }
+            return render(raw, separators, DEFAULT_COUNTRY_CODE, digits, nationalLength, count);
+        } else if (!plus && count == 11 && DEFAULT_COUNTRY_CODE == 33 && digits / POWERS_OF_TEN[9] == 33) {
+            // ancienne forme acceptée : 33 + numéro significatif, sans +
+            international = true;
+        }
+        // un indicatif ne commence jamais par 0
+        if (!international || count > MAX_DIGITS + 1 || count < 2 || digitAt(digits, count, 0) == 0) {
+            return null;
+        }
+
+        for (int codeLength = 1; codeLength <= 3 && codeLength < count; codeLength++) {
+            int code = (int) (digits / POWERS_OF_TEN[count - codeLength]);
+            if (MAX_LENGTH[code] == 0) {
+                continue;
+            }
+            int nationalLength = count - codeLength;
+            long national = digits % POWERS_OF_TEN[nationalLength];
+            if (code != 39 && nationalLength > 1 && national < POWERS_OF_TEN[nationalLength - 1]) {
+                // 0 de préfixe national recopié après l'indicatif : +33 (0)6 12 34 56 78
+                nationalLength--;
+            }
+            if (nationalLength < MIN_LENGTH[code] || nationalLength > MAX_LENGTH[code]
+                    || codeLength + nationalLength > MAX_DIGITS) {
+                return null;
+            }
+            return render(raw, separators || !plus, code, national, nationalLength,
+                    code == DEFAULT_COUNTRY_CODE ? nationalLength + 1 : 1 + codeLength + nationalLength);
+        }
+        return null;
+    }
+
+    /**
+     * @return true si {@code raw} est déjà sous forme normalisée.
+     */
+    public static boolean isNormalized(String raw) {
+        return raw != null && raw == normalize(raw);
+    }
+
+    /**
+     * Écrit la forme normalisée ; rend {@code raw} s'il lui est identique.
+     *
+     * @param rewritten true si {@code raw} contient des caractères absents de la forme normalisée.
+     * @param length    longueur de la forme normalisée.
+     */
+    private static String render(String raw, boolean rewritten, int code, long national, int nationalLength,
+                                 int length) {
+        boolean domestic = code == DEFAULT_COUNTRY_CODE;
+        if (!rewritten && raw.length() == length && (domestic ? raw.charAt(0) == '0' : raw.charAt(0) == '+')) {
+            return raw;
+        }
+
+        char[] out = new char[length];
+        int i = length;
+        for (int k = 0; k < nationalLength; k++) {
+            out[--i] = (char) ('0' + national % 10);
+            national /= 10;
+        }
+        if (domestic) {
+            out[0] = '0';
+        } else {
+            for (int c = code; c > 0; c /= 10) {
+                out[--i] = (char) ('0' + c % 10);
+            }
+            out[0] = '+';
+        }
+        return new String(out);
+    }
+
+    private static int digitAt(long digits, int count, int index) {
+        return (int) (digits / POWERS_OF_TEN[count - 1 - index] % 10);
+    }
+}
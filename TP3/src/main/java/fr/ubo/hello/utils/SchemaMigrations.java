@@ -0,0 +1,265 @@
+package fr.ubo.hello.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.StringJoiner;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Migrations versionnées du schéma : les scripts {@code db/migration/V<n>__<description>.sql} de
+ * {@link #MIGRATIONS} sont exécutés dans l'ordre, chacun une seule fois par base. La table
+ * {@code schema_version} garde les versions appliquées et la somme de contrôle de chaque script ;
+ * un script modifié après son application est signalé, pas rejoué : toute évolution passe par un
+ * nouveau script.
+ * <p>
+ * Un script peut être précédé d'une vérification ({@link #CHECKS}) qui refuse de l'exécuter sur des
+ * données qu'il rejetterait, en désignant les lignes à corriger.
+ * <p>
+ * Appliquées au démarrage ({@link #migrate()}) sauf si {@code DB_MIGRATE=false}. Sous MySQL, un verrou
+ * nommé ({@code GET_LOCK}) évite que deux instances démarrant ensemble appliquent la même migration ;
+ * le DDL y valide implicitement : une migration interrompue n'est pas annulée et doit être terminée
+ * à la main avant le redémarrage.
+ */
+public final class SchemaMigrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    static final List<String> MIGRATIONS = List.of(
+            "V1__initial_schema.sql",
+            "V2__query_indexes.sql"
+    );
+
+    // Vérifications préalables, par script
+    private static final Map<String, Check> CHECKS = Map.of(
+            "V2__query_indexes.sql", SchemaMigrations::checkUniqueEmails
+    );
+    private static final int MAX_REPORTED_DUPLICATES = 20;
+
+    private static final String LOCATION = "/db/migration/";
+    private static final String LOCK_NAME = "djf_schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Applique les migrations manquantes sur une connexion du pool. Une base injoignable est
+     * seulement journalisée, comme à l'initialisation du pool ; une migration en échec empêche
+     * le démarrage.
+     *
+     * @throws IllegalStateException si une migration a échoué.
+     */
+    public static void migrate() {
+        if (!EnvConfig.getBoolean("DB_MIGRATE", true)) {
+            logger.info("DB : Migrations du schéma désactivées (DB_MIGRATE=false)");
+            return;
+        }
+        Connection conn;
+        try {
+            conn = DBConnection.getConnection();
+        } catch (SQLException e) {
+            logger.error("DB : Base injoignable, migrations du schéma non appliquées", e);
+            return;
+        }
+        try (conn) {
+            int applied = apply(conn);
+            logger.info("DB : Schéma à jour ({} migrations appliquées)", applied);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Échec des migrations du schéma", e);
+        }
+    }
+
+    /**
+     * Applique, dans l'ordre, les migrations pas encore enregistrées dans {@code schema_version}.
+     *
+     * @return le nombre de migrations appliquées.
+     */
+    public static int apply(Connection conn) throws SQLException {
+        boolean mysql = "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+        if (mysql) {
+            lock(conn);
+        }
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "description VARCHAR(200) NOT NULL, " +
+                        "checksum BIGINT NOT NULL, " +
+                        "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            Map<Integer, Long> applied = appliedVersions(conn);
+
+            int count = 0;
+            for (String file : MIGRATIONS) {
+                int version = Integer.parseInt(file.substring(1, file.indexOf("__")));
+                String script = read(file);
+                long checksum = checksum(script);
+
+                Long known = applied.get(version);
+                if (known != null) {
+                    if (known != checksum) {
+                        logger.warn("DB : Migration {} modifiée depuis son application, non rejouée", file);
+                    }
+                    continue;
+                }
+
+                Check check = CHECKS.get(file);
+                if (check != null) {
+                    check.verify(conn);
+                }
+                logger.info("DB : Application de la migration {}", file);
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statements(script)) {
+                        stmt.execute(sql);
+                    }
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+                    stmt.setInt(1, version);
+                    stmt.setString(2, file.substring(file.indexOf("__") + 2, file.length() - ".sql".length()));
+                    stmt.setLong(3, checksum);
+                    stmt.executeUpdate();
+                }
+                count++;
+            }
+            return count;
+        } finally {
+            if (mysql) {
+                unlock(conn);
+            }
+        }
+    }
+
+    /**
+     * @return les instructions d'un script : séparées par {@code ;} en fin de ligne, commentaires
+     * {@code --} en début de ligne retirés.
+     */
+    static List<String> statements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                current.setLength(current.lastIndexOf(";"));
+                statements.add(current.toString().trim());
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    /**
+     * Avant l'index unique {@code uk_users_email} : les emails déjà en double, regroupés selon la
+     * collation de la colonne comme l'index les comparerait.
+     *
+     * @throws SQLException avec les emails en double et les ids de leurs comptes.
+     */
+    static void checkUniqueEmails(Connection conn) throws SQLException {
+        List<String> duplicates = new ArrayList<>();
+        int total = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT email FROM users GROUP BY email HAVING COUNT(*) > 1 ORDER BY email")) {
+            while (rs.next()) {
+                if (total++ < MAX_REPORTED_DUPLICATES) {
+                    duplicates.add(rs.getString(1));
+                }
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+
+        StringJoiner report = new StringJoiner(", ");
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM users WHERE email = ? ORDER BY id")) {
+            for (String email : duplicates) {
+                stmt.setString(1, email);
+                StringJoiner ids = new StringJoiner(", ", email + " (ids ", ")");
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(String.valueOf(rs.getInt(1)));
+                    }
+                }
+                report.add(ids.toString());
+            }
+        }
+        if (total > duplicates.size()) {
+            report.add("et " + (total - duplicates.size()) + " autre(s)");
+        }
+        throw new SQLException(total + " email(s) en double dans users, à fusionner ou corriger avant "
+                + "l'index unique uk_users_email : " + report);
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        void verify(Connection conn) throws SQLException;
+    }
+
+    private static Map<Integer, Long> appliedVersions(Connection conn) throws SQLException {
+        Map<Integer, Long> versions = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                versions.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return versions;
+    }
+
+    private static String read(String file) {
+        try (InputStream in = SchemaMigrations.class.getResourceAsStream(LOCATION + file)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration introuvable : " + LOCATION + file);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static void lock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Verrou des migrations non obtenu en " + LOCK_TIMEOUT_SECONDS + " s");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.execute();
+        }
+    }
+}
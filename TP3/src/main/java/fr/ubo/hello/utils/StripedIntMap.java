@@ -0,0 +1,204 @@
+package fr.ubo.hello.utils;
+
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Table de hachage à clés {@code int} primitives (pas de boxing), découpée en segments
+ * verrouillés indépendamment pour limiter la contention entre threads.
+ * Chaque segment est une table à adressage ouvert (sondage linéaire) qui double de taille
+ * au-delà de 60 % de remplissage ; la suppression décale les entrées suivantes
+ * (pas de marqueurs de suppression), la table reste donc compacte.
+ *
+ * @param <V> type des valeurs (jamais null)
+ */
+public final class StripedIntMap<V> {
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+
+    @SuppressWarnings("unchecked")
+    public StripedIntMap(int concurrency) {
+        int count = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+        }
+        segmentMask = count - 1;
+    }
+
+    public V get(int key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public V computeIfAbsent(int key, IntFunction<V> factory) {
+        int hash = hash(key);
+        return segmentFor(hash).computeIfAbsent(key, hash, factory);
+    }
+
+    public void put(int key, V value) {
+        int hash = hash(key);
+        segmentFor(hash).put(key, hash, value);
+    }
+
+    /**
+     * Supprime l'entrée seulement si elle est encore associée à {@code value}.
+     */
+    public boolean remove(int key, V value) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value);
+    }
+
+    /**
+     * Supprime toutes les entrées dont la valeur vérifie le prédicat.
+     * Les segments sont parcourus un par un : les autres restent accessibles pendant ce temps.
+     *
+     * @return nombre d'entrées supprimées.
+     */
+    public int removeIf(Predicate<V> predicate) {
+        int removed = 0;
+        for (Segment<V> segment : segments) {
+            removed += segment.removeIf(predicate);
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return segments[hash & segmentMask];
+    }
+
+    private static int hash(int key) {
+        // Mélange de Murmur3 : les ids consécutifs se répartissent sur tous les segments
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Segment<V> {
+        private int[] keys = new int[INITIAL_SEGMENT_CAPACITY];
+        private Object[] values = new Object[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized V get(int key, int hash) {
+            int index = indexOf(key, hash);
+            return index < 0 ? null : value(index);
+        }
+
+        synchronized V computeIfAbsent(int key, int hash, IntFunction<V> factory) {
+            int index = indexOf(key, hash);
+            if (index >= 0) {
+                return value(index);
+            }
+            V value = factory.apply(key);
+            insert(key, hash, value);
+            return value;
+        }
+
+        synchronized void put(int key, int hash, V value) {
+            int index = indexOf(key, hash);
+            if (index >= 0) {
+                values[index] = value;
+            } else {
+                insert(key, hash, value);
+            }
+        }
+
+        synchronized boolean remove(int key, int hash, V expected) {
+            int index = indexOf(key, hash);
+            if (index < 0 || values[index] != expected) {
+                return false;
+            }
+            delete(index);
+            return true;
+        }
+
+        synchronized int removeIf(Predicate<V> predicate) {
+            int removed = 0;
+            int i = 0;
+            while (i < values.length) {
+                if (values[i] != null && predicate.test(value(i))) {
+                    // delete() peut ramener une entrée suivante à l'indice i : on la réexamine
+                    delete(i);
+                    removed++;
+                } else {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V value(int index) {
+            return (V) values[index];
+        }
+
+        private int indexOf(int key, int hash) {
+            int mask = keys.length - 1;
+            for (int i = (hash >>> 8) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(int key, int hash, Object value) {
+            if ((size + 1) * 10 > keys.length * 6) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = (hash >>> 8) & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        private void delete(int index) {
+            int mask = keys.length - 1;
+            int hole = index;
+            values[hole] = null;
+            size--;
+            // Décalage arrière : remonte les entrées dont la position idéale précède le trou
+            for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                int ideal = (hash(keys[i]) >>> 8) & mask;
+                boolean movable = hole <= i ? (ideal <= hole || ideal > i) : (ideal <= hole && ideal > i);
+                if (movable) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    values[i] = null;
+                    hole = i;
+                }
+            }
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    insert(oldKeys[i], hash(oldKeys[i]), oldValues[i]);
+                }
+            }
+        }
+    }
+}
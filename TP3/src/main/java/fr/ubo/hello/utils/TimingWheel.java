@@ -0,0 +1,132 @@
+package fr.ubo.hello.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Roue temporelle hiérarchique (Varghese et Lauck) pour des échéances identifiées par un {@code int}.
+ * <p>
+ * Le niveau 0 compte {@code wheelSize} cases d'un tick ; chaque niveau supérieur couvre
+ * {@code wheelSize} fois la portée du précédent. L'insertion est en O(1) ; quand le niveau 0 fait
+ * un tour, la case courante du niveau supérieur est redescendue (cascade). Les échéances au-delà de
+ * la portée totale sont reclassées à chaque passage au sommet.
+ * <p>
+ * Chaque entrée est un {@code long} : tick d'échéance (32 bits, relatif à la création) | id (32 bits).
+ */
+public class TimingWheel {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+
+    private final long[][] buckets;
+    private final int[] counts;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis  durée d'un tick.
+     * @param wheelSize   cases par niveau (puissance de 2).
+     * @param levels      nombre de niveaux ; portée = tickMillis * wheelSize^levels.
+     * @param startMillis instant de départ de la roue.
+     */
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize doit être une puissance de 2 : " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        this.buckets = new long[levels * wheelSize][];
+        this.counts = new int[levels * wheelSize];
+    }
+
+    /**
+     * Planifie l'id pour l'échéance donnée. Une échéance déjà passée expire au prochain tick.
+     */
+    public synchronized void schedule(int id, long deadlineMillis) {
+        long deadlineTick = Math.max(currentTick + 1, ceilDiv(deadlineMillis - startMillis, tickMillis));
+        place(deadlineTick, id);
+        size++;
+    }
+
+    /**
+     * Avance la roue jusqu'à {@code nowMillis} et transmet les ids échus.
+     *
+     * @return nombre d'ids échus.
+     */
+    public synchronized int advance(long nowMillis, IntConsumer expired) {
+        long nowTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        int fired = 0;
+        while (currentTick < nowTick) {
+            currentTick++;
+            for (int level = levels - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            int index = (int) (currentTick & mask);
+            long[] entries = buckets[index];
+            int count = counts[index];
+            counts[index] = 0;
+            for (int i = 0; i < count; i++) {
+                expired.accept((int) entries[i]);
+            }
+            size -= count;
+            fired += count;
+        }
+        return fired;
+    }
+
+    /**
+     * @return nombre d'échéances en attente.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level) {
+        int index = level * (mask + 1) + (int) ((currentTick >>> (bits * level)) & mask);
+        long[] entries = buckets[index];
+        int count = counts[index];
+        if (count == 0) {
+            return;
+        }
+        // on détache la case avant de replacer : une entrée peut y revenir si elle est hors de portée
+        buckets[index] = null;
+        counts[index] = 0;
+        for (int i = 0; i < count; i++) {
+            place(Math.max(currentTick, entries[i] >>> 32), (int) entries[i]);
+        }
+    }
+
+    private void place(long deadlineTick, int id) {
+        long delta = deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        long slotTick = deadlineTick;
+        if (delta >= (1L << (bits * levels))) {
+            // hors de portée : rangé dans la dernière case du sommet, reclassé à son passage
+            slotTick = currentTick + (1L << (bits * levels)) - (1L << (bits * (levels - 1)));
+        }
+        // une échéance égale au tick courant (cascade) tombe dans la case du niveau 0 traitée juste après
+        int index = level * (mask + 1) + (int) ((slotTick >>> (bits * level)) & mask);
+        long[] entries = buckets[index];
+        if (entries == null) {
+            entries = buckets[index] = new long[4];
+        } else if (counts[index] == entries.length) {
+            entries = buckets[index] = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[counts[index]++] = (deadlineTick << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
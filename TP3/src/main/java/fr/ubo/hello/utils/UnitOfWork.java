@@ -0,0 +1,244 @@
+package fr.ubo.hello.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Unité de travail liée au thread courant : tous les accès à la base faits entre {@link #begin()} et
+ * {@link #close()} partagent une seule connexion du pool.
+ * <p>
+ * Pendant une unité, {@link DBConnection#getConnection()} rend la connexion de l'unité, empruntée au
+ * premier accès seulement ; son {@code close()} ne la rend pas au pool, c'est {@link #close()} qui
+ * le fait. Les DAO n'ont donc rien à changer : leurs {@code try (Connection conn = ...)} successifs
+ * réutilisent la même session MySQL. {@link #inTransaction(Supplier)} regroupe en plus plusieurs
+ * accès dans une transaction.
+ * <p>
+ * Limites :
+ * <ul>
+ *     <li>la connexion reste empruntée jusqu'à la fin de l'unité, y compris entre deux accès :
+ *     une unité doit couvrir un traitement court (une requête HTTP), pas une tâche de fond ;</li>
+ *     <li>seul le thread qui a ouvert l'unité en profite : une tâche confiée à un autre thread
+ *     emprunte sa propre connexion. Un traitement de la requête ne doit donc jamais attendre une
+ *     tâche qui accède à la base depuis un autre thread : avec le pool entier tenu par des unités, elle
+ *     n'obtiendrait pas de connexion. Les DAO chargent leurs caches sur le thread appelant ; seuls
+ *     des traitements de fond dont la requête n'attend pas le résultat (file d'envoi SMS, rechargement
+ *     anticipé du cache utilisateurs) empruntent leurs propres connexions.</li>
+ * </ul>
+ * Les compteurs {@code db_unit_of_work_*} et {@code db_connection_borrows_total} exposés sur
+ * {@code /metrics} donnent le nombre d'accès et de connexions par unité.
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private static final Metrics.Counter units = Metrics.counter("db_unit_of_work_total",
+            "Unités de travail (requêtes HTTP) ayant accédé à la base.");
+    private static final Metrics.Counter connectionUses = Metrics.counter("db_unit_of_work_connection_uses_total",
+            "Accès à la base servis par la connexion partagée d'une unité de travail.");
+    private static final Metrics.Counter rollbacks = Metrics.counter("db_unit_of_work_rollbacks_total",
+            "Transactions d'unité de travail annulées.");
+
+    /**
+     * Source des connexions physiques : le pool, ou une connexion factice dans les tests.
+     */
+    @FunctionalInterface
+    interface ConnectionSource {
+        Connection borrow() throws SQLException;
+    }
+
+    private final ConnectionSource source;
+    private Connection physical;
+    private Connection shared;
+    private int uses;
+    private int transactionDepth;
+
+    private UnitOfWork(ConnectionSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Ouvre une unité de travail sur le thread courant.
+     *
+     * @throws IllegalStateException si une unité est déjà ouverte sur ce thread.
+     */
+    public static UnitOfWork begin() {
+        return begin(DBConnection::borrowConnection);
+    }
+
+    static UnitOfWork begin(ConnectionSource source) {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("Une unité de travail est déjà ouverte sur ce thread");
+        }
+        UnitOfWork unit = new UnitOfWork(source);
+        CURRENT.set(unit);
+        return unit;
+    }
+
+    /**
+     * @return l'unité ouverte sur le thread courant, ou null.
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Exécute {@code work} dans une transaction : validée s'il se termine normalement, annulée s'il
+     * lève une exception (relancée telle quelle). Une transaction déjà en cours est rejointe.
+     * Sans unité ouverte sur le thread, une unité est ouverte pour la durée de l'appel.
+     */
+    public static <T> T inTransaction(Supplier<T> work) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit != null) {
+            return unit.transaction(work);
+        }
+        try (UnitOfWork own = begin()) {
+            return own.transaction(work);
+        }
+    }
+
+    /**
+     * @return la connexion partagée de l'unité, empruntée au pool au premier appel ;
+     *         son {@code close()} est sans effet.
+     */
+    Connection connection() throws SQLException {
+        if (physical == null) {
+            physical = source.borrow();
+            if (transactionDepth > 0) {
+                physical.setAutoCommit(false);
+            }
+            shared = nonClosing(physical);
+        }
+        uses++;
+        return shared;
+    }
+
+    /**
+     * @return le nombre d'accès à la base servis par l'unité.
+     */
+    public int getUses() {
+        return uses;
+    }
+
+    /**
+     * @return true pendant un {@link #inTransaction(Supplier)} de cette unité.
+     */
+    public boolean isTransactionOpen() {
+        return transactionDepth > 0;
+    }
+
+    /**
+     * @return true si l'unité a emprunté une connexion au pool.
+     */
+    public boolean hasConnection() {
+        return physical != null;
+    }
+
+    /**
+     * Rend la connexion au pool (en annulant une transaction restée ouverte) et détache l'unité du thread.
+     */
+    @Override
+    public void close() {
+        CURRENT.remove();
+        if (physical == null) {
+            return;
+        }
+        units.increment();
+        connectionUses.add(uses);
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warn("DB : Impossible de réinitialiser la connexion de l'unité de travail: {}", e.getMessage());
+        } finally {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.warn("DB : Erreur en rendant la connexion de l'unité de travail: {}", e.getMessage());
+            }
+            logger.debug("DB : Unité de travail terminée, {} accès sur une connexion", uses);
+            physical = null;
+            shared = null;
+        }
+    }
+
+    private <T> T transaction(Supplier<T> work) {
+        if (transactionDepth > 0) {
+            transactionDepth++;
+            try {
+                return work.get();
+            } finally {
+                transactionDepth--;
+            }
+        }
+
+        transactionDepth = 1;
+        boolean committed = false;
+        try {
+            if (physical != null) {
+                physical.setAutoCommit(false);
+            }
+            T result = work.get();
+            if (physical != null) {
+                physical.commit();
+            }
+            committed = true;
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException("Erreur lors de la validation de la transaction.", e);
+        } finally {
+            transactionDepth = 0;
+            if (physical != null) {
+                endTransaction(committed);
+            }
+        }
+    }
+
+    private void endTransaction(boolean committed) {
+        try {
+            if (!committed) {
+                rollbacks.increment();
+                physical.rollback();
+            }
+            physical.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("DB : Erreur lors de l'annulation de la transaction", e);
+        }
+    }
+
+    private static Connection nonClosing(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(UnitOfWork.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            return null;
+                        case "unwrap":
+                            if (((Class<?>) args[0]).isInstance(proxy)) {
+                                return proxy;
+                            }
+                            break;
+                        case "isWrapperFor":
+                            if (((Class<?>) args[0]).isInstance(proxy)) {
+                                return true;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
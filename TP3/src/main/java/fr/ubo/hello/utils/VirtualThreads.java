@@ -0,0 +1,51 @@
+package fr.ubo.hello.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads des traitements bloquants de l'application (envois SMS et appels JDBC qu'ils déclenchent).
+ * <p>
+ * {@code VIRTUAL_THREADS=true} : ces tâches tournent sur des threads virtuels, qui rendent leur
+ * thread porteur pendant les attentes réseau ; le nombre de tâches en attente n'est plus borné
+ * par un pool de threads plateforme. Sinon, threads plateforme démons nommés, comme auparavant.
+ * Dans l'image Docker, la même variable fait traiter les requêtes HTTP par des threads virtuels
+ * (attribut {@code useVirtualThreads} du connecteur Tomcat).
+ * <p>
+ * Un thread virtuel qui bloque dans un bloc {@code synchronized} immobilise son porteur :
+ * les attentes longues (initialisation du pool, reconstruction d'index) utilisent des
+ * {@link java.util.concurrent.locks.ReentrantLock}.
+ */
+public final class VirtualThreads {
+
+    public static final boolean ENABLED = EnvConfig.getBoolean("VIRTUAL_THREADS", false);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return une fabrique de threads virtuels, ou de threads plateforme démons hors mode virtuel,
+     *         nommés {@code prefix-1}, {@code prefix-2}...
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (ENABLED) {
+            return Thread.ofVirtual().name(prefix + "-", 1).factory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return un exécuteur qui lance un thread virtuel par tâche, ou null hors mode virtuel
+     *         (l'appelant garde alors son exécuteur par défaut).
+     */
+    public static ExecutorService perTaskExecutor(String prefix) {
+        return ENABLED ? Executors.newThreadPerTaskExecutor(factory(prefix)) : null;
+    }
+}
@@ -0,0 +1,28 @@
+-- Tables de l'application. IF NOT EXISTS : une base créée avant les migrations est reprise telle quelle,
+-- ses index sont complétés par V2.
+
+CREATE TABLE IF NOT EXISTS users (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    phone VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS otp_codes (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id INT NOT NULL,
+    otp VARCHAR(10) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    is_valid TINYINT DEFAULT 1,
+    CONSTRAINT fk_otp_codes_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- Compteurs partagés des limites anti-abus (profil rate-limit-shared)
+CREATE TABLE IF NOT EXISTS rate_limit_counters (
+    limit_name VARCHAR(64) NOT NULL,
+    limit_key VARCHAR(128) NOT NULL,
+    state BIGINT NOT NULL,
+    PRIMARY KEY (limit_name, limit_key)
+);
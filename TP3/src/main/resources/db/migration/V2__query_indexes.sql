@@ -0,0 +1,10 @@
+-- Un index par forme de requête des DAO (vérifié par QueryPlanTest).
+
+-- users : findByEmail, issueLoginOTP ; un seul compte par email. Les emails en double d'une base
+-- existante sont listés par SchemaMigrations avant ce script, qui n'est alors pas exécuté.
+CREATE UNIQUE INDEX uk_users_email ON users (email);
+
+-- otp_codes : findValidOTP, consumeValidOTP, consumeValidOTPAndGetUser
+-- (égalités d'abord, la borne sur expires_at en dernier). countRecentOTPsByUserId, qu'aucun service
+-- n'appelle plus, se contente du préfixe user_id : pas d'index dédié sur created_at.
+CREATE INDEX idx_otp_codes_lookup ON otp_codes (user_id, otp, is_valid, expires_at);
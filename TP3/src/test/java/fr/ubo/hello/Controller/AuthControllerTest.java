@@ -0,0 +1,166 @@
+package fr.ubo.hello.Controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ubo.hello.Model.SmsDelivery;
+import fr.ubo.hello.Model.User;
+import fr.ubo.hello.Service.OTPService;
+import fr.ubo.hello.Service.RateLimiter;
+import fr.ubo.hello.Service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthControllerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private OTPService otpService;
+
+    @InjectMocks
+    private AuthController controller;
+
+    private final User user = new User(7, "Kaoutar", "kaoutar@gmail.com", "1234", "0612345678");
+
+    @Test
+    void testLogin_Success() throws IOException {
+        SmsDelivery delivery = new SmsDelivery("d-1", 7, "0612345678", "123456");
+        when(userService.authenticateUser("kaoutar@gmail.com", "1234")).thenReturn(user);
+        when(otpService.generateAndDispatchOTP(7)).thenReturn(delivery);
+
+        ResponseEntity<byte[]> response = controller.login(new AuthController.LoginRequest("kaoutar@gmail.com", "1234"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        JsonNode body = json(response);
+        assertTrue(body.get("success").asBoolean());
+        assertTrue(body.get("otpSent").asBoolean());
+        assertTrue(body.get("requiresOTP").asBoolean());
+        assertEquals(7, body.get("userId").asInt());
+        assertEquals("kaoutar@gmail.com", body.get("email").asText());
+        assertEquals("d-1", body.get("deliveryId").asText());
+        assertEquals("QUEUED", body.get("smsStatus").asText());
+    }
+
+    @Test
+    void testLogin_OtpFailureOmitsDeliveryFields() throws IOException {
+        when(userService.authenticateUser("kaoutar@gmail.com", "1234")).thenReturn(user);
+        when(otpService.generateAndDispatchOTP(7)).thenThrow(new RuntimeException("Trop de demandes"));
+
+        JsonNode body = json(controller.login(new AuthController.LoginRequest("kaoutar@gmail.com", "1234")));
+
+        assertTrue(body.get("success").asBoolean());
+        assertFalse(body.has("deliveryId"));
+        assertFalse(body.has("smsStatus"));
+    }
+
+    @Test
+    void testLogin_SingleRoundTrip() throws IOException {
+        SmsDelivery delivery = new SmsDelivery("d-2", 7, "0612345678", "123456");
+        when(otpService.isSingleRoundTripLogin()).thenReturn(true);
+        when(otpService.loginAndDispatchOTP("kaoutar@gmail.com", "1234"))
+                .thenReturn(new OTPService.LoginResult(user, delivery));
+
+        ResponseEntity<byte[]> response = controller.login(new AuthController.LoginRequest("kaoutar@gmail.com", "1234"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode body = json(response);
+        assertEquals(7, body.get("userId").asInt());
+        assertEquals("d-2", body.get("deliveryId").asText());
+        verifyNoInteractions(userService);
+        verify(otpService, never()).generateAndDispatchOTP(anyInt());
+    }
+
+    @Test
+    void testLogin_SingleRoundTrip_InvalidCredentials() {
+        when(otpService.isSingleRoundTripLogin()).thenReturn(true);
+        when(otpService.loginAndDispatchOTP("kaoutar@gmail.com", "bad"))
+                .thenReturn(new OTPService.LoginResult(null, null));
+
+        ResponseEntity<byte[]> response = controller.login(new AuthController.LoginRequest("kaoutar@gmail.com", "bad"));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+    }
+
+    @Test
+    void testLogin_InvalidCredentials() throws IOException {
+        when(userService.authenticateUser("kaoutar@gmail.com", "bad")).thenReturn(null);
+
+        ResponseEntity<byte[]> response = controller.login(new AuthController.LoginRequest("kaoutar@gmail.com", "bad"));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        JsonNode body = json(response);
+        assertFalse(body.get("success").asBoolean());
+        assertEquals("Email ou mot de passe incorrect", body.get("message").asText());
+        assertEquals(2, body.size());
+    }
+
+    @Test
+    void testLogin_MissingPassword() {
+        ResponseEntity<byte[]> response = controller.login(new AuthController.LoginRequest("kaoutar@gmail.com", null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void testVerifyOtp_Success() throws IOException {
+        when(otpService.acquireVerifyAttempt(7)).thenReturn(new RateLimiter.Decision(true, 9, 0));
+        when(otpService.verifyOTPAndGetUser(7, "123456")).thenReturn(user);
+
+        ResponseEntity<byte[]> response = controller.verifyOTP(new AuthController.VerifyOtpRequest(7, "123456", null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode body = json(response);
+        assertTrue(body.get("authenticated").asBoolean());
+        assertEquals(7, body.get("user").get("id").asInt());
+        assertEquals("Kaoutar", body.get("user").get("name").asText());
+        assertEquals("kaoutar@gmail.com", body.get("user").get("email").asText());
+    }
+
+    @Test
+    void testVerifyOtp_AcceptsOtpAliasAndStringUserId() throws IOException {
+        AuthController.VerifyOtpRequest request = mapper.readValue(
+                "{\"userId\":\"7\",\"otp\":\"123456\"}", AuthController.VerifyOtpRequest.class);
+        when(otpService.acquireVerifyAttempt(7)).thenReturn(new RateLimiter.Decision(true, 9, 0));
+        when(otpService.verifyOTPAndGetUser(7, "123456")).thenReturn(null);
+
+        ResponseEntity<byte[]> response = controller.verifyOTP(request);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        JsonNode body = json(response);
+        assertFalse(body.get("authenticated").asBoolean());
+        assertFalse(body.has("user"));
+    }
+
+    @Test
+    void testVerifyOtp_TooManyAttempts() {
+        when(otpService.acquireVerifyAttempt(7)).thenReturn(new RateLimiter.Decision(false, 0, 1500));
+
+        ResponseEntity<byte[]> response = controller.verifyOTP(new AuthController.VerifyOtpRequest(7, "000000", null));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(otpService, never()).verifyOTPAndGetUser(anyInt(), anyString());
+    }
+
+    private JsonNode json(ResponseEntity<byte[]> response) throws IOException {
+        return mapper.readTree(response.getBody());
+    }
+}
@@ -0,0 +1,134 @@
+package fr.ubo.hello.Controller;
+
+import fr.ubo.hello.utils.ConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private ConcurrencyLimiter limiter;
+    private ConcurrencyLimitFilter filter;
+    private FilterChain chain;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 4 requêtes simultanées, dont 2 au plus pour l'émission d'OTP
+        limiter = new ConcurrencyLimiter("test", 4, 1, 4, 50, 1.5);
+        filter = new ConcurrencyLimitFilter();
+        filter.init(limiter, 2);
+        chain = mock(FilterChain.class);
+
+        body = new ByteArrayOutputStream();
+        response = mock(HttpServletResponse.class);
+        when(response.getStatus()).thenReturn(200);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        });
+    }
+
+    private void send(String method, String path) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getContextPath()).thenReturn("");
+        when(request.getRequestURI()).thenReturn(path);
+        filter.doFilter(request, response, chain);
+    }
+
+    private void fill(int requests, boolean critical) {
+        for (int i = 0; i < requests; i++) {
+            assertTrue(limiter.tryAcquire(critical));
+        }
+    }
+
+    @Test
+    void testPassesThrough_UnderLimit() throws Exception {
+        send("POST", "/api/auth/login");
+
+        verify(chain).doFilter(any(), any());
+        verify(response, never()).setStatus(503);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testIssuanceRejected_With503AndRetryAfter() throws Exception {
+        fill(2, false);
+
+        send("POST", "/api/auth/login");
+
+        verify(chain, never()).doFilter(any(), any());
+        verify(response).setStatus(503);
+        verify(response).setHeader("Retry-After", "2");
+        assertTrue(body.toString(StandardCharsets.UTF_8).contains("\"success\":false"));
+        assertEquals(1, limiter.getStats().rejectedNonCritical());
+    }
+
+    @Test
+    void testVerifyPrioritized_OverIssuance() throws Exception {
+        fill(2, false);
+
+        send("POST", "/auth/request-otp");
+        send("POST", "/api/auth/verify-otp");
+        send("POST", "/auth/verify-otp");
+
+        verify(response, times(1)).setStatus(503);
+        verify(chain, times(2)).doFilter(any(), any());
+    }
+
+    @Test
+    void testOtpEndpointsRejected_WithTheirResponseFormat() throws Exception {
+        fill(4, true);
+
+        send("POST", "/auth/verify-otp");
+
+        verify(response).setStatus(503);
+        assertTrue(body.toString(StandardCharsets.UTF_8).contains("\"status\":\"error\""));
+    }
+
+    @Test
+    void testServerErrors_ShrinkTheLimit() throws Exception {
+        when(response.getStatus()).thenReturn(500);
+
+        send("POST", "/api/auth/login");
+
+        assertTrue(limiter.getStats().limit() < 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testOtherRequests_NotLimited() throws Exception {
+        fill(4, true);
+
+        send("GET", "/api/auth/sms-delivery/abc");
+        send("POST", "/api/auth/cleanup-otp");
+
+        verify(chain, times(2)).doFilter(any(), any());
+        verify(response, never()).setStatus(503);
+    }
+}
@@ -0,0 +1,58 @@
+package fr.ubo.hello.Controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ubo.hello.Service.OTPService;
+import fr.ubo.hello.Service.RateLimiter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OTPControllerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Mock
+    private OTPService otpService;
+
+    @InjectMocks
+    private OTPController controller;
+
+    @Test
+    void testVerifyOtp_Success() throws IOException {
+        when(otpService.acquireVerifyAttempt(7)).thenReturn(new RateLimiter.Decision(true, 9, 0));
+        when(otpService.verifyOTP(7, "123456")).thenReturn(true);
+
+        ResponseEntity<byte[]> response = controller.verifyOTP(new OTPController.OtpRequest("7", "123456"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("success", json(response).get("status").asText());
+    }
+
+    @Test
+    void testVerifyOtp_TooManyAttempts() throws IOException {
+        when(otpService.acquireVerifyAttempt(7)).thenReturn(new RateLimiter.Decision(false, 0, 1500));
+
+        ResponseEntity<byte[]> response = controller.verifyOTP(new OTPController.OtpRequest("7", "000000"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("error", json(response).get("status").asText());
+        verify(otpService, never()).verifyOTP(anyInt(), anyString());
+    }
+
+    private JsonNode json(ResponseEntity<byte[]> response) throws IOException {
+        return mapper.readTree(response.getBody());
+    }
+}
@@ -1,8 +1,13 @@
 package fr.ubo.hello.Controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.ubo.hello.Exceptions.UserNotFoundException;
 import fr.ubo.hello.Model.User;
 import fr.ubo.hello.Service.UserService;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,11 +16,21 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -221,5 +236,227 @@ class UserControllerTest {
         verify(service, times(1)).delete(1);
     }
 
+    @Test
+    void testGetUsersPage_ReturnsNextCursorWhenMoreUsers() throws IOException {
+        when(service.findPage(0, 3)).thenReturn(users(1, 3));
+
+        ResponseEntity<byte[]> response = controller.getUsersPage(0, 2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode page = new ObjectMapper().readTree(response.getBody());
+        assertEquals(2, page.get("users").size());
+        assertEquals(2, page.get("nextCursor").asInt());
+        assertFalse(page.get("users").get(0).has("password"));
+    }
+
+    @Test
+    void testGetUsersPage_LastPage_HasNoCursor() throws IOException {
+        when(service.findPage(2, 3)).thenReturn(users(3, 1));
+
+        ResponseEntity<byte[]> response = controller.getUsersPage(2, 2);
+
+        JsonNode page = new ObjectMapper().readTree(response.getBody());
+        assertEquals(1, page.get("users").size());
+        assertFalse(page.has("nextCursor"));
+    }
+
+    @Test
+    void testGetUsersPage_CapsLimitAndUsesDefaultSize() {
+        ReflectionTestUtils.setField(controller, "maxPageSize", 10);
+        ReflectionTestUtils.setField(controller, "pageSize", 5);
+        when(service.findPage(anyInt(), anyInt())).thenReturn(List.of());
+
+        controller.getUsersPage(0, 500);
+        controller.getUsersPage(7);
+
+        verify(service).findPage(0, 11);
+        verify(service).findPage(7, 6);
+    }
 
-}
\ No newline at end of file
+    @Test
+    void testGetUsersPage_InvalidLimit() {
+        ResponseEntity<byte[]> response = controller.getUsersPage(0, 0);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void testStreamUsers_WritesJsonArray() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = streamedResponse(body);
+        doAnswer(inv -> {
+            Consumer<User> consumer = inv.getArgument(0);
+            users(1, 3).forEach(consumer);
+            return null;
+        }).when(service).forEachUser(any());
+
+        controller.streamUsers(response);
+
+        JsonNode users = new ObjectMapper().readTree(body.toByteArray());
+        assertEquals(3, users.size());
+        assertEquals(3, users.get(2).get("id").asInt());
+        verify(response, never()).setStatus(anyInt());
+    }
+
+    @Test
+    void testStreamUsers_ErrorBeforeCommit_Returns500() throws IOException {
+        HttpServletResponse response = streamedResponse(new ByteArrayOutputStream());
+        doThrow(new RuntimeException("Database error")).when(service).forEachUser(any());
+
+        controller.streamUsers(response);
+
+        verify(response).reset();
+        verify(response).setStatus(500);
+    }
+
+    @Test
+    void testImportUsers_Ndjson_InsertsInChunksAndReportsRowErrors() throws IOException {
+        ReflectionTestUtils.setField(controller, "importBatchSize", 2);
+        List<List<String>> chunks = new ArrayList<>();
+        when(service.createAll(any())).thenAnswer(inv -> {
+            List<User> chunk = inv.getArgument(0);
+            chunks.add(chunk.stream().map(User::getEmail).toList());
+            return chunk.get(0).getEmail().equals("c@x.fr") ? Map.of(0, "Duplicate entry") : Map.of();
+        });
+        String body = """
+                {"name":"A","email":"a@x.fr","password":"p"}
+                {"name":"B","email":"b@x.fr","password":"p"}
+                pas du json
+
+                {"name":"C","email":"c@x.fr","password":"p"}
+                {"email":"sans-nom@x.fr"}
+                {"name":"D","email":"d@x.fr","password":"p"}
+                """;
+
+        ResponseEntity<byte[]> response = controller.importUsers("application/x-ndjson", stream(body));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(List.of("a@x.fr", "b@x.fr"), List.of("c@x.fr", "d@x.fr")), chunks);
+        JsonNode report = new ObjectMapper().readTree(response.getBody());
+        assertEquals(7, report.get("lastLine").asInt());
+        assertEquals(3, report.get("inserted").asInt());
+        assertEquals(3, report.get("failed").asInt());
+        assertEquals(List.of(3, 6, 5), lines(report.get("errors")));
+        assertEquals("Duplicate entry", report.get("errors").get(2).get("error").asText());
+    }
+
+    @Test
+    void testImportUsers_Csv_MapsColumnsByHeader() throws IOException {
+        List<User> imported = new ArrayList<>();
+        when(service.createAll(any())).thenAnswer(inv -> {
+            imported.addAll(inv.<List<User>>getArgument(0));
+            return Map.of();
+        });
+        String body = "phone;Email;name;password\r\n"
+                + "06 12 34 56 78;a@x.fr;\"Doe; Jane\";secret\r\n"
+                + ";b@x.fr;B\r\n";
+
+        ResponseEntity<byte[]> response = controller.importUsers("text/csv", stream(body));
+
+        JsonNode report = new ObjectMapper().readTree(response.getBody());
+        assertEquals(1, report.get("inserted").asInt());
+        assertEquals(1, report.get("failed").asInt());
+        assertEquals(3, report.get("errors").get(0).get("line").asInt());
+        assertEquals("Doe; Jane", imported.get(0).getName());
+        assertEquals("secret", imported.get(0).getPassword());
+        assertEquals("06 12 34 56 78", imported.get(0).getPhone());
+    }
+
+    @Test
+    void testImportUsers_CsvWithoutEmailColumn_Returns400() {
+        ResponseEntity<byte[]> response = controller.importUsers("text/csv", stream("name,phone\nA,0612345678\n"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void testImportUsers_ServiceFailure_Returns500WithResumePoint() throws IOException {
+        ReflectionTestUtils.setField(controller, "importBatchSize", 1);
+        when(service.createAll(any())).thenReturn(Map.of()).thenThrow(new RuntimeException("Database error"));
+        String body = """
+                {"name":"A","email":"a@x.fr"}
+                {"name":"B","email":"b@x.fr"}
+                {"name":"C","email":"c@x.fr"}
+                """;
+
+        ResponseEntity<byte[]> response = controller.importUsers("application/x-ndjson", stream(body));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        JsonNode report = new ObjectMapper().readTree(response.getBody());
+        assertEquals(1, report.get("lastLine").asInt());
+        assertEquals(1, report.get("inserted").asInt());
+        verify(service, times(2)).createAll(any());
+    }
+
+    @Test
+    void testExportUsers_NdjsonAndCsv() throws IOException {
+        doAnswer(inv -> {
+            Consumer<User> consumer = inv.getArgument(0);
+            consumer.accept(new User(1, "Doe, Jane", "jane@x.fr", "secret", "0612345678"));
+            consumer.accept(new User(2, "B", "b@x.fr", "secret"));
+            return null;
+        }).when(service).forEachUser(any());
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        controller.exportUsers("ndjson", streamedResponse(ndjson));
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        controller.exportUsers("csv", streamedResponse(csv));
+
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("jane@x.fr", new ObjectMapper().readTree(lines[0]).get("email").asText());
+        assertFalse(lines[0].contains("password"));
+        assertEquals("id,name,email,phone\r\n1,\"Doe, Jane\",jane@x.fr,0612345678\r\n2,B,b@x.fr,\r\n",
+                csv.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportUsers_UnknownFormat_Returns400() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        controller.exportUsers("xml", response);
+
+        verify(response).setStatus(400);
+        verifyNoInteractions(service);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Integer> lines(JsonNode errors) {
+        List<Integer> lines = new ArrayList<>();
+        errors.forEach(error -> lines.add(error.get("line").asInt()));
+        return lines;
+    }
+
+    private static List<User> users(int firstId, int count) {
+        List<User> users = new ArrayList<>();
+        for (int id = firstId; id < firstId + count; id++) {
+            users.add(new User(id, "User " + id, "user" + id + "@gmail.com", null));
+        }
+        return users;
+    }
+
+    private static HttpServletResponse streamedResponse(ByteArrayOutputStream body) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        });
+        return response;
+    }
+}
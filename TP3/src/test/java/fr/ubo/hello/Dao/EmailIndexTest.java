@@ -0,0 +1,81 @@
+package fr.ubo.hello.Dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailIndexTest {
+
+    private static String email(int i) {
+        return "user" + i + "@gmail.com";
+    }
+
+    @Test
+    void testAddDuringRebuild_KeptInNewFilter() throws Exception {
+        // « base » des emails 0..stored-1 ; seuls les plus récents sont relus, les autres ne sont plus vérifiés
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger scanFrom = new AtomicInteger();
+        UserDao source = new UserDao_Mock() {
+            @Override
+            public void forEachEmail(Consumer<String> consumer) {
+                for (int i = scanFrom.get(), end = stored.get(); i < end; i++) {
+                    consumer.accept(email(i));
+                }
+            }
+        };
+        EmailIndex index = new EmailIndex(source);
+        index.rebuild();
+
+        AtomicInteger added = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> adder = threads.submit(() -> {
+                for (int i = 0; !stop.get(); i++) {
+                    // écrit en base puis ajouté : s'il arrive après le parcours, seul add() le fait entrer
+                    // dans le filtre en construction
+                    stored.incrementAndGet();
+                    index.add(email(i));
+                    added.incrementAndGet();
+                    // débit borné : le parcours de chaque reconstruction reste court
+                    long until = System.nanoTime() + 2_000;
+                    while (System.nanoTime() < until) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            Future<Integer> rebuilder = threads.submit(() -> {
+                int missing = 0;
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+                while (System.nanoTime() < deadline) {
+                    int before = added.get();
+                    index.rebuild();
+                    int after = added.get();
+                    // emails dont l'ajout s'est terminé pendant la reconstruction
+                    for (int i = before; i < after; i++) {
+                        if (!index.mightExist(email(i))) {
+                            missing++;
+                        }
+                    }
+                    scanFrom.set(before);
+                }
+                return missing;
+            });
+
+            assertEquals(0, rebuilder.get(30, TimeUnit.SECONDS), "emails absents du nouveau filtre");
+            stop.set(true);
+            adder.get(30, TimeUnit.SECONDS);
+        } finally {
+            stop.set(true);
+            threads.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.DBConnection;
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.SchemaMigrations;
+import fr.ubo.hello.utils.UnitOfWork;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Requêtes de {@link OTPDao_BD} exécutées sur le pool de {@link DBConnection} :
+ * la configuration est posée en propriétés système avant le premier accès au pool.
+ * <p>
+ * Par défaut sur H2 en mode MySQL, comparaisons insensibles à la casse comme la collation MySQL par
+ * défaut. Comme pour {@link QueryPlanTest}, {@code QUERY_PLAN_DB_URL} (avec {@code QUERY_PLAN_DB_USER}
+ * et {@code QUERY_PLAN_DB_PASSWORD}) désigne une base MySQL jetable à la place.
+ */
+class OTPDao_BDTest {
+
+    private static final int POOL_SIZE = 2;
+    private static final String DB_URL = EnvConfig.getString("QUERY_PLAN_DB_URL",
+            "jdbc:h2:mem:otpdao;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1");
+    private static final String EMAIL_DOMAIN = "@otpdao.test";
+
+    private static final Map<String, String> CONFIG = Map.of(
+            "DB_URL", DB_URL,
+            "DB_DRIVER", DB_URL.startsWith("jdbc:mysql:") ? "com.mysql.cj.jdbc.Driver" : "org.h2.Driver",
+            "DB_USER", EnvConfig.getString("QUERY_PLAN_DB_USER", "test"),
+            "DB_PASSWORD", EnvConfig.getString("QUERY_PLAN_DB_PASSWORD", "test"),
+            "DB_POOL_MAX_SIZE", String.valueOf(POOL_SIZE),
+            "DB_POOL_CONNECTION_TIMEOUT_MS", "1000"
+    );
+
+    private static OTPDao_BD otpDao;
+    private static int userId;
+    private static int noPhoneUserId;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        CONFIG.forEach(System::setProperty);
+        assumeTrue(DBConnection.getPoolStats().maxSize() == POOL_SIZE, "Pool déjà configuré par un autre test");
+
+        try (Connection conn = DBConnection.getConnection()) {
+            SchemaMigrations.apply(conn);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM users WHERE email LIKE '%" + EMAIL_DOMAIN + "'");
+            }
+            userId = insertUser(conn, "kaoutar", "0612345678");
+            noPhoneUserId = insertUser(conn, "sansnumero", null);
+        }
+        otpDao = new OTPDao_BD();
+    }
+
+    private static int insertUser(Connection conn, String name, String phone) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO users (name, email, password, phone) VALUES (?, ?, 'Secret', ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.setString(2, name + EMAIL_DOMAIN);
+            stmt.setString(3, phone);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                assertTrue(keys.next());
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DBConnection.shutdown();
+        CONFIG.keySet().forEach(System::clearProperty);
+    }
+
+    private static OTP otp(String code) {
+        return new OTP(userId, code, LocalDateTime.now().plusMinutes(2));
+    }
+
+    private static int count(String code) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM otp_codes WHERE otp = ?")) {
+            stmt.setString(1, code);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    @Test
+    void testSave_PoolHeldByUnitsOfWork_InsertsOnTheirConnections() throws Exception {
+        // chaque requête tient une connexion (lecture préalable) : le pool entier est emprunté
+        // quand les OTPs sont enregistrés, aucune autre connexion n'est disponible
+        ExecutorService requests = Executors.newFixedThreadPool(POOL_SIZE);
+        CyclicBarrier poolExhausted = new CyclicBarrier(POOL_SIZE);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            List<OTP> otps = new ArrayList<>();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                OTP otp = otp("10000" + i);
+                otps.add(otp);
+                results.add(requests.submit(() -> UnitOfWork.inTransaction(() -> {
+                    try (Statement stmt = DBConnection.getConnection().createStatement()) {
+                        stmt.execute("SELECT 1");
+                        poolExhausted.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return otpDao.save(otp);
+                })));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(5, TimeUnit.SECONDS));
+            }
+            for (OTP otp : otps) {
+                assertTrue(otp.getId() > 0);
+                assertEquals(1, count(otp.getOtpCode()));
+            }
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSave_InTransaction_RolledBackWithIt() throws SQLException {
+        OTP otp = otp("200000");
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.inTransaction(() -> {
+            assertTrue(otpDao.save(otp));
+            throw new IllegalStateException("annulation");
+        }));
+
+        assertEquals(0, count("200000"), "OTP inséré dans la transaction de l'appelant");
+    }
+
+    @Test
+    void testSave_OutsideUnitOfWork() throws SQLException {
+        OTP otp = otp("300000");
+
+        assertTrue(otpDao.save(otp));
+
+        assertTrue(otp.getId() > 0);
+        assertEquals(1, count("300000"));
+    }
+
+    @Test
+    void testConsumeValidOTPAndGetUser_SecondAttemptFails() {
+        assertTrue(otpDao.save(otp("800000")));
+
+        User user = otpDao.consumeValidOTPAndGetUser(userId, "800000");
+        assertEquals(userId, user.getId());
+        assertEquals("kaoutar" + EMAIL_DOMAIN, user.getEmail());
+        assertNull(user.getPassword());
+
+        assertNull(otpDao.consumeValidOTPAndGetUser(userId, "800000"));
+        assertFalse(otpDao.consumeValidOTP(userId, "800000"));
+    }
+
+    @Test
+    void testConsumeValidOTPAndGetUser_ConcurrentAttempts_OneWins() throws Exception {
+        assertTrue(otpDao.save(otp("810000")));
+        ExecutorService attempts = Executors.newFixedThreadPool(POOL_SIZE);
+        CyclicBarrier start = new CyclicBarrier(POOL_SIZE);
+        try {
+            List<Future<User>> results = new ArrayList<>();
+            for (int i = 0; i < POOL_SIZE; i++) {
+                results.add(attempts.submit(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    return otpDao.consumeValidOTPAndGetUser(userId, "810000");
+                }));
+            }
+
+            int winners = 0;
+            for (Future<User> result : results) {
+                if (result.get(5, TimeUnit.SECONDS) != null) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners);
+        } finally {
+            attempts.shutdownNow();
+        }
+    }
+
+    @Test
+    void testIssueLoginOTP_ValidCredentials_InsertedWithItsId() throws SQLException {
+        OTP otp = new OTP(0, "400000", LocalDateTime.now().plusMinutes(2));
+
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("kaoutar" + EMAIL_DOMAIN, "Secret", otp);
+
+        assertTrue(issue.issued());
+        assertEquals(userId, issue.user().getId());
+        assertEquals("0612345678", issue.user().getPhone());
+        assertEquals(userId, otp.getUserId());
+        assertEquals(1, count("400000"));
+        assertEquals("400000", otpDao.findValidOTP(userId, "400000").getOtpCode());
+        assertEquals(otp.getId(), otpDao.findValidOTP(userId, "400000").getId());
+    }
+
+    @Test
+    void testIssueLoginOTP_WrongPassword_NothingInserted() throws SQLException {
+        OTP otp = new OTP(0, "500000", LocalDateTime.now().plusMinutes(2));
+
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("kaoutar" + EMAIL_DOMAIN, "autre", otp);
+
+        assertNull(issue.user());
+        assertFalse(issue.issued());
+        assertEquals(0, otp.getId());
+        assertEquals(0, count("500000"));
+    }
+
+    @Test
+    void testIssueLoginOTP_PasswordDiffersByCase_RowDeleted() throws SQLException {
+        OTP otp = new OTP(0, "600000", LocalDateTime.now().plusMinutes(2));
+
+        // la collation insensible à la casse laisse passer l'INSERT ... SELECT
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("kaoutar" + EMAIL_DOMAIN, "SECRET", otp);
+
+        assertNull(issue.user());
+        assertFalse(issue.issued());
+        assertEquals(0, count("600000"));
+    }
+
+    @Test
+    void testIssueLoginOTP_NoPhone_UserWithoutOTP() throws SQLException {
+        OTP otp = new OTP(0, "700000", LocalDateTime.now().plusMinutes(2));
+
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("sansnumero" + EMAIL_DOMAIN, "Secret", otp);
+
+        User user = issue.user();
+        assertEquals(noPhoneUserId, user.getId());
+        assertNull(user.getPhone());
+        assertFalse(issue.issued());
+        assertEquals(0, otp.getId());
+        assertEquals(0, count("700000"));
+    }
+}
@@ -0,0 +1,204 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OTPDao_MemoryTest {
+
+    private AtomicLong clock;
+    private OTPDao_Memory otpDao;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(System.currentTimeMillis());
+        // 3 emplacements par utilisateur, 2 utilisateurs max, rétention 30 min
+        otpDao = new OTPDao_Memory(3, 2, 30, clock::get);
+    }
+
+    private OTP otp(int userId, String code, int validMinutes) {
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(clock.get()), ZoneId.systemDefault());
+        OTP otp = new OTP(userId, code, now.plusMinutes(validMinutes));
+        otp.setCreatedAt(now);
+        return otp;
+    }
+
+    private void advanceMinutes(long minutes) {
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(minutes));
+    }
+
+    @Test
+    void testSaveAndFindValidOTP() {
+        OTP otp = otp(1, "012345", 2);
+        assertTrue(otpDao.save(otp));
+        assertTrue(otp.getId() > 0);
+
+        OTP found = otpDao.findValidOTP(1, "012345");
+        assertNotNull(found);
+        assertEquals(otp.getId(), found.getId());
+        assertEquals("012345", found.getOtpCode());
+        assertFalse(found.isUsed());
+
+        assertNull(otpDao.findValidOTP(1, "12345"));
+        assertNull(otpDao.findValidOTP(2, "012345"));
+    }
+
+    @Test
+    void testConsumeValidOTP_OnlyOnce() {
+        otpDao.save(otp(1, "111111", 2));
+
+        assertTrue(otpDao.consumeValidOTP(1, "111111"));
+        assertFalse(otpDao.consumeValidOTP(1, "111111"));
+        assertNull(otpDao.findValidOTP(1, "111111"));
+    }
+
+    @Test
+    void testMarkAsUsed() {
+        OTP otp = otp(1, "222222", 2);
+        otpDao.save(otp);
+
+        otpDao.markAsUsed(otp.getId());
+
+        assertNull(otpDao.findValidOTP(1, "222222"));
+    }
+
+    @Test
+    void testExpiredOTP_NotValid() {
+        otpDao.save(otp(1, "333333", 2));
+
+        advanceMinutes(3);
+
+        assertFalse(otpDao.consumeValidOTP(1, "333333"));
+    }
+
+    @Test
+    void testCountRecentOTPs() {
+        otpDao.save(otp(1, "100001", 2));
+        advanceMinutes(10);
+        otpDao.save(otp(1, "100002", 2));
+        otpDao.save(otp(1, "100003", 2));
+
+        assertEquals(2, otpDao.countRecentOTPsByUserId(1, 5));
+        assertEquals(3, otpDao.countRecentOTPsByUserId(1, 15));
+        assertEquals(0, otpDao.countRecentOTPsByUserId(2, 15));
+    }
+
+    @Test
+    void testRingKeepsLatestOTPs() {
+        OTP first = otp(1, "100001", 2);
+        otpDao.save(first);
+        otpDao.save(otp(1, "100002", 2));
+        otpDao.save(otp(1, "100003", 2));
+        otpDao.save(otp(1, "100004", 2));
+
+        assertNull(otpDao.findValidOTP(1, "100001"));
+        assertNotNull(otpDao.findValidOTP(1, "100004"));
+        assertEquals(3, otpDao.countRecentOTPsByUserId(1, 15));
+
+        // l'ancien id ne doit plus invalider l'OTP qui l'a remplacé
+        otpDao.markAsUsed(first.getId());
+        assertNotNull(otpDao.findValidOTP(1, "100004"));
+    }
+
+    @Test
+    void testDeleteExpiredOTPs_ReleasesUsersAfterRetention() {
+        otpDao.save(otp(1, "444444", 2));
+        otpDao.save(otp(2, "555555", 2));
+        assertEquals(2, otpDao.trackedUsers());
+
+        advanceMinutes(20);
+        otpDao.deleteExpiredOTPs();
+        assertEquals(2, otpDao.trackedUsers());
+
+        advanceMinutes(11);
+        otpDao.deleteExpiredOTPs();
+        assertEquals(0, otpDao.trackedUsers());
+        assertEquals(0, otpDao.countRecentOTPsByUserId(1, 60));
+    }
+
+    @Test
+    void testSave_RejectedWhenCapacityReached() {
+        assertTrue(otpDao.save(otp(1, "100001", 2)));
+        assertTrue(otpDao.save(otp(2, "100002", 2)));
+
+        assertFalse(otpDao.save(otp(3, "100003", 2)));
+        assertTrue(otpDao.save(otp(1, "100004", 2)));
+
+        // après la rétention, le balayage libère de la place
+        advanceMinutes(31);
+        assertTrue(otpDao.save(otp(3, "100005", 2)));
+    }
+
+    @Test
+    void testSave_RejectsNonNumericCode() {
+        assertFalse(otpDao.save(otp(1, "12AB56", 2)));
+        assertFalse(otpDao.save(otp(1, "123456789", 2)));
+    }
+
+    private UserDao_Mock loginUsers() {
+        UserDao_Mock users = new UserDao_Mock();
+        users.findById(1).setPhone("0612345678");
+        ReflectionTestUtils.setField(otpDao, "userDao", users);
+        return users;
+    }
+
+    @Test
+    void testConsumeValidOTPAndGetUser_PublicColumnsOnly() {
+        UserDao_Mock users = loginUsers();
+        otpDao.save(otp(1, "222222", 2));
+
+        User user = otpDao.consumeValidOTPAndGetUser(1, "222222");
+
+        assertEquals(1, user.getId());
+        assertEquals("kaoutar@gmail.com", user.getEmail());
+        assertEquals("0612345678", user.getPhone());
+        assertNull(user.getPassword());
+        assertEquals("1234", users.findById(1).getPassword(), "utilisateur stocké inchangé");
+        assertNull(otpDao.consumeValidOTPAndGetUser(1, "222222"));
+    }
+
+    @Test
+    void testIssueLoginOTP_SavesOtpForValidCredentials() {
+        loginUsers();
+        OTP otp = otp(0, "654321", 2);
+
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("kaoutar@gmail.com", "1234", otp);
+
+        assertEquals(1, issue.user().getId());
+        assertTrue(issue.issued());
+        assertEquals(1, otp.getUserId());
+        assertNotNull(otpDao.findValidOTP(1, "654321"));
+    }
+
+    @Test
+    void testIssueLoginOTP_InvalidPassword_SavesNothing() {
+        loginUsers();
+
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("kaoutar@gmail.com", "4321", otp(0, "654321", 2));
+
+        assertNull(issue.user());
+        assertFalse(issue.issued());
+        assertEquals(0, otpDao.countRecentOTPsByUserId(1, 30));
+    }
+
+    @Test
+    void testIssueLoginOTP_WithoutPhone_ReturnsUserWithoutOtp() {
+        loginUsers();
+
+        OTPDao.LoginIssue issue = otpDao.issueLoginOTP("iabakriman@gmail.com", "1234", otp(0, "654321", 2));
+
+        assertEquals(2, issue.user().getId());
+        assertFalse(issue.issued());
+        assertEquals(0, otpDao.countRecentOTPsByUserId(2, 30));
+    }
+}
@@ -0,0 +1,256 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.utils.EnvConfig;
+import fr.ubo.hello.utils.SchemaMigrations;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plan d'exécution (EXPLAIN) de chaque requête SQL des DAO sur le schéma des migrations : échoue si
+ * une requête parcourt toute une table au lieu d'un index.
+ * <p>
+ * Par défaut sur H2 en mode MySQL. {@code QUERY_PLAN_DB_URL} (avec {@code QUERY_PLAN_DB_USER} et
+ * {@code QUERY_PLAN_DB_PASSWORD}) désigne une base MySQL à la place, par exemple celle de
+ * docker-compose ; elle doit être jetable : le test y applique les migrations et y insère des lignes.
+ * Sous H2, les fonctions propres à MySQL sont réécrites sans toucher aux colonnes filtrées.
+ */
+class QueryPlanTest {
+
+    private static final String DB_URL = EnvConfig.getString("QUERY_PLAN_DB_URL",
+            "jdbc:h2:mem:queryplan;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+    private static final int USERS = 200;
+    private static final int OTPS_PER_USER = 5;
+    private static final String EMAIL_DOMAIN = "@queryplan.test";
+
+    // Lectures de toute la table par construction (liste complète, préchargement de l'index des emails, export)
+    private static final Set<String> WHOLE_TABLE_READS = Set.of(
+            UserDao_BD.FIND_ALL_SQL, UserDao_BD.FOR_EACH_EMAIL_SQL, UserDao_BD.FOR_EACH_USER_SQL);
+
+    private static final List<Class<?>> DAOS = List.of(UserDao_BD.class, OTPDao_BD.class, RateLimitStore_BD.class);
+
+    private static Connection conn;
+    private static boolean mysql;
+    private static int userId;
+    private static int otpId;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        conn = DriverManager.getConnection(DB_URL,
+                EnvConfig.getString("QUERY_PLAN_DB_USER", "test"), EnvConfig.getString("QUERY_PLAN_DB_PASSWORD", "test"));
+        mysql = "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+        SchemaMigrations.apply(conn);
+        seed();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void testDaoStatements_UseAnIndex() throws SQLException {
+        List<String> fullScans = new ArrayList<>();
+        for (Map.Entry<String, Object[]> statement : statements().entrySet()) {
+            if (WHOLE_TABLE_READS.contains(statement.getKey())) {
+                continue;
+            }
+            for (String plan : explain(statement.getKey(), statement.getValue())) {
+                fullScans.add(statement.getKey() + "\n    " + plan);
+            }
+        }
+
+        assertTrue(fullScans.isEmpty(), "Parcours complets de table :\n" + String.join("\n", fullScans));
+    }
+
+    @Test
+    void testEveryDaoStatement_IsExplained() throws IllegalAccessException {
+        Set<String> explained = statements().keySet();
+        List<String> missing = new ArrayList<>();
+        for (Class<?> dao : DAOS) {
+            for (Field field : dao.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getName().endsWith("_SQL")) {
+                    field.setAccessible(true);
+                    if (!explained.contains((String) field.get(null))) {
+                        missing.add(dao.getSimpleName() + "." + field.getName());
+                    }
+                }
+            }
+        }
+
+        assertTrue(missing.isEmpty(), "Requêtes sans plan vérifié : " + missing);
+    }
+
+    /**
+     * @return chaque requête des DAO avec des paramètres représentatifs.
+     */
+    private static Map<String, Object[]> statements() {
+        String email = email(userId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Object[]> statements = new LinkedHashMap<>();
+
+        statements.put(UserDao_BD.INSERT_SQL, params("Nouveau", "nouveau" + EMAIL_DOMAIN, "secret", "0600000000"));
+        statements.put(UserDao_BD.FIND_ALL_SQL, params());
+        statements.put(UserDao_BD.FIND_BY_ID_SQL, params(userId));
+        statements.put(UserDao_BD.UPDATE_SQL, params("Nom", email, "secret", "0600000000", userId));
+        statements.put(UserDao_BD.DELETE_SQL, params(userId));
+        statements.put(UserDao_BD.FIND_BY_EMAIL_SQL, params(email));
+        statements.put(UserDao_BD.FOR_EACH_EMAIL_SQL, params());
+        statements.put(UserDao_BD.FIND_PAGE_SQL, params(userId, 100));
+        statements.put(UserDao_BD.FOR_EACH_USER_SQL, params());
+
+        statements.put(OTPDao_BD.INSERT_SQL, params(userId, "123456", now));
+        statements.put(OTPDao_BD.FIND_VALID_SQL, params(userId, "123456"));
+        statements.put(OTPDao_BD.MARK_AS_USED_SQL, params(otpId));
+        statements.put(OTPDao_BD.CONSUME_VALID_SQL, params(userId, "123456"));
+        statements.put(OTPDao_BD.OTP_OWNER_SQL, params(userId));
+        statements.put(OTPDao_BD.FIND_PURGEABLE_IDS_SQL, params(0, now, 500));
+        statements.put(OTPDao_BD.DELETE_BY_ID_SQL, params(otpId));
+        statements.put(OTPDao_BD.deleteByIdsSql(3), params(otpId, otpId + 1, otpId + 2));
+        statements.put(OTPDao_BD.COUNT_RECENT_SQL, params(userId, 10));
+        statements.put(OTPDao_BD.ISSUE_LOGIN_SQL, params("123456", now, email, "secret"));
+        statements.put(OTPDao_BD.LOGIN_USER_SQL, params(email));
+
+        statements.put(RateLimitStore_BD.GET_SQL, params("otp_request", "7"));
+        statements.put(RateLimitStore_BD.INSERT_IF_ABSENT_SQL, params(1L, "otp_request", "7"));
+        statements.put(RateLimitStore_BD.COMPARE_AND_SET_SQL, params(2L, "otp_request", "7", 1L));
+        statements.put(RateLimitStore_BD.EVICT_SQL, params("otp_request", 5L));
+        return statements;
+    }
+
+    /**
+     * Explique chaque instruction de {@code sql} (plusieurs si séparées par {@code ;}).
+     *
+     * @return la description des parcours complets de table, vide s'il n'y en a pas.
+     */
+    private static List<String> explain(String sql, Object[] params) throws SQLException {
+        List<String> fullScans = new ArrayList<>();
+        int next = 0;
+        for (String part : sql.split(";\\s*")) {
+            int count = (int) part.chars().filter(c -> c == '?').count();
+            try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + (mysql ? part : toH2(part)))) {
+                for (int i = 0; i < count; i++) {
+                    stmt.setObject(i + 1, params[next + i]);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (mysql) {
+                            // type ALL : toute la table ; index : tout un index. La ligne INSERT d'un
+                            // INSERT ... SELECT désigne la table écrite, pas un parcours
+                            String type = rs.getString("type");
+                            if (("ALL".equals(type) || "index".equals(type))
+                                    && !"INSERT".equals(rs.getString("select_type"))) {
+                                fullScans.add(rs.getString("table") + " : type=" + type);
+                            }
+                        } else if (rs.getString(1).contains(".tableScan")) {
+                            fullScans.add(rs.getString(1).replaceAll("\\s+", " "));
+                        }
+                    }
+                }
+            }
+            next += count;
+        }
+        return fullScans;
+    }
+
+    /**
+     * Équivalents H2 des fonctions MySQL ; les prédicats sur les colonnes restent les mêmes.
+     */
+    private static String toH2(String sql) {
+        return sql.replaceAll("DATE_SUB\\(NOW\\(\\), INTERVAL \\? (\\w+)\\)", "DATEADD($1, ?, NOW())")
+                .replace("(state >> 32)", "RSHIFT(state, 32)");
+    }
+
+    /**
+     * Assez de lignes pour que l'optimiseur préfère un index à un parcours complet quand il le peut.
+     */
+    private static void seed() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM users WHERE email LIKE '%" + EMAIL_DOMAIN + "'");
+            stmt.executeUpdate("DELETE FROM rate_limit_counters WHERE limit_key LIKE 'queryplan-%'");
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement insert = conn.prepareStatement(UserDao_BD.INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 1; i <= USERS; i++) {
+                insert.setString(1, "Utilisateur " + i);
+                insert.setString(2, "user" + i + EMAIL_DOMAIN);
+                insert.setString(3, "secret");
+                insert.setString(4, String.format("06%08d", i));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getInt(1));
+                }
+            }
+        }
+        userId = ids.get(ids.size() / 2);
+
+        try (PreparedStatement insert = conn.prepareStatement(OTPDao_BD.INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            LocalDateTime now = LocalDateTime.now();
+            for (int id : ids) {
+                for (int k = 0; k < OTPS_PER_USER; k++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, String.format("%06d", (id * OTPS_PER_USER + k) % 1_000_000));
+                    insert.setTimestamp(3, Timestamp.valueOf(now.plusMinutes(k - 2)));
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                assertTrue(keys.next());
+                otpId = keys.getInt(1);
+            }
+        }
+
+        try (PreparedStatement insert = conn.prepareStatement(RateLimitStore_BD.INSERT_IF_ABSENT_SQL)) {
+            for (int i = 0; i < USERS; i++) {
+                insert.setLong(1, (long) i << 32);
+                insert.setString(2, i % 2 == 0 ? "otp_request" : "otp_verify");
+                insert.setString(3, "queryplan-" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(mysql ? "ANALYZE TABLE users, otp_codes, rate_limit_counters" : "ANALYZE");
+        }
+    }
+
+    private static String email(int id) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT email FROM users WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object[] params(Object... values) {
+        return values;
+    }
+}
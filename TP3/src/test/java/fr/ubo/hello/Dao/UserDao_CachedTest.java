@@ -0,0 +1,200 @@
+package fr.ubo.hello.Dao;
+
+import fr.ubo.hello.Model.User;
+import fr.ubo.hello.utils.UnitOfWork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDao_CachedTest {
+
+    private UserDao delegate;
+    private UserDao_Cached dao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserDao.class);
+        when(delegate.findById(1)).thenReturn(new User(1, "Kaoutar", "kaoutar@gmail.com", "1234", "0601020304"));
+        when(delegate.findByEmail("kaoutar@gmail.com")).thenReturn(new User(1, "Kaoutar", "kaoutar@gmail.com", "1234", "0601020304"));
+        when(delegate.update(any())).thenReturn(true);
+        when(delegate.delete(anyInt())).thenReturn(true);
+        // 100 entrées, TTL 5 min, pas de rafraîchissement anticipé, index des emails activé
+        dao = new UserDao_Cached(delegate, 100, 300, 0, 60, true, 10);
+    }
+
+    @Test
+    void testFindById_LoadsOnce() {
+        assertEquals("Kaoutar", dao.findById(1).getName());
+        assertEquals("Kaoutar", dao.findById(1).getName());
+
+        verify(delegate, times(1)).findById(1);
+        UserDao_Cached.Stats stats = dao.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void testFindById_UnknownUserNotCached() {
+        assertNull(dao.findById(99));
+        assertNull(dao.findById(99));
+
+        verify(delegate, times(2)).findById(99);
+    }
+
+    @Test
+    void testFindById_LoadedOnCallerThread() {
+        AtomicReference<Thread> loader = new AtomicReference<>();
+        when(delegate.findById(2)).thenAnswer(invocation -> {
+            loader.set(Thread.currentThread());
+            return new User(2, "Imane", "iabakriman@gmail.com", "1234", null);
+        });
+
+        assertEquals("Imane", dao.findById(2).getName());
+
+        // même thread, donc même connexion que l'unité de travail de l'appelant
+        assertSame(Thread.currentThread(), loader.get());
+    }
+
+    @Test
+    void testFindById_InTransaction_NotCached() {
+        // lecture peut-être non validée : elle ne doit pas entrer dans le cache
+        assertEquals("Kaoutar", UnitOfWork.inTransaction(() -> dao.findById(1)).getName());
+        assertEquals("Kaoutar", dao.findById(1).getName());
+        assertEquals("Kaoutar", dao.findById(1).getName());
+
+        verify(delegate, times(2)).findById(1);
+    }
+
+    @Test
+    void testReturnedUser_IsACopy() {
+        dao.findById(1).setName("Modifié");
+
+        assertEquals("Kaoutar", dao.findById(1).getName());
+    }
+
+    @Test
+    void testFindByEmail_ServedFromIdCache() {
+        dao.findByEmail("kaoutar@gmail.com");
+        dao.findByEmail("kaoutar@gmail.com");
+        dao.findByEmail("kaoutar@gmail.com");
+
+        verify(delegate, times(1)).findByEmail("kaoutar@gmail.com");
+        verify(delegate, times(1)).findById(1);
+    }
+
+    @Test
+    void testUpdate_Invalidates() {
+        dao.findById(1);
+        User updated = new User(1, "Kaoutar I.", "kaoutar@ubo.fr", "1234", "0601020304");
+        when(delegate.findById(1)).thenReturn(updated);
+
+        assertTrue(dao.update(updated));
+
+        assertEquals("Kaoutar I.", dao.findById(1).getName());
+        verify(delegate, times(2)).findById(1);
+    }
+
+    @Test
+    void testFindByEmail_StaleMappingReloaded() {
+        dao.findByEmail("kaoutar@gmail.com");
+        dao.findById(1);
+        // l'email a changé en base, l'association email -> id n'est plus valable
+        when(delegate.findById(1)).thenReturn(new User(1, "Kaoutar", "kaoutar@ubo.fr", "1234", "0601020304"));
+        when(delegate.findByEmail("kaoutar@gmail.com")).thenReturn(null);
+        dao.update(new User(1, "Kaoutar", "kaoutar@ubo.fr", "1234", "0601020304"));
+
+        assertNull(dao.findByEmail("kaoutar@gmail.com"));
+    }
+
+    @Test
+    void testDelete_Invalidates() {
+        dao.findById(1);
+        when(delegate.findById(1)).thenReturn(null);
+
+        assertTrue(dao.delete(1));
+
+        assertNull(dao.findById(1));
+    }
+
+    @Test
+    void testUnknownEmail_RejectedWithoutQuery() {
+        indexEmails("kaoutar@gmail.com");
+        dao.rebuildEmailIndex();
+
+        assertNull(dao.findByEmail("attaquant@example.com"));
+        assertNull(dao.findByEmail("inconnu@example.com"));
+
+        verify(delegate, never()).findByEmail("attaquant@example.com");
+        verify(delegate, never()).findByEmail("inconnu@example.com");
+        assertEquals(2, dao.getStats().unknownEmailsRejected());
+    }
+
+    @Test
+    void testEmailIndexDisabled_UnknownEmailAskedToTheDatabase() {
+        UserDao_Cached withoutIndex = new UserDao_Cached(delegate, 100, 300, 0, 60, false, 10);
+        indexEmails("kaoutar@gmail.com");
+        withoutIndex.rebuildEmailIndex();
+        // créé par une autre instance ou en SQL : cette instance ne l'a jamais vu passer
+        User elsewhere = new User(5, "Ailleurs", "ailleurs@ubo.fr", "1234");
+        when(delegate.findByEmail("ailleurs@ubo.fr")).thenReturn(elsewhere);
+
+        assertNotNull(withoutIndex.findByEmail("ailleurs@ubo.fr"));
+        assertFalse(withoutIndex.getStats().emailIndexReady());
+        assertEquals(0, withoutIndex.getStats().unknownEmailsRejected());
+        verify(delegate, never()).forEachEmail(any());
+    }
+
+    @Test
+    void testEmailIndex_CaseInsensitive() {
+        indexEmails("Kaoutar@Gmail.com");
+        dao.rebuildEmailIndex();
+        when(delegate.findByEmail("KAOUTAR@gmail.com")).thenReturn(new User(1, "Kaoutar", "Kaoutar@Gmail.com", "1234"));
+
+        assertNotNull(dao.findByEmail("KAOUTAR@gmail.com"));
+        assertNotNull(dao.findByEmail("kaoutar@gmail.com"));
+    }
+
+    @Test
+    void testSavedUser_FoundAfterIndexBuilt() {
+        indexEmails("kaoutar@gmail.com");
+        dao.rebuildEmailIndex();
+        User created = new User(3, "Nouveau", "nouveau@ubo.fr", "1234");
+        when(delegate.save(created)).thenReturn(true);
+        when(delegate.findByEmail("nouveau@ubo.fr")).thenReturn(created);
+
+        assertTrue(dao.save(created));
+
+        assertNotNull(dao.findByEmail("nouveau@ubo.fr"));
+    }
+
+    @Test
+    void testNegativeCache_InvalidatedBySave() {
+        // avant le premier chargement de l'index, tout va en base
+        when(delegate.findByEmail("nouveau@ubo.fr")).thenReturn(null);
+        assertNull(dao.findByEmail("nouveau@ubo.fr"));
+        assertNull(dao.findByEmail("nouveau@ubo.fr"));
+        verify(delegate, times(1)).findByEmail("nouveau@ubo.fr");
+        assertEquals(1, dao.getStats().negativeCacheHits());
+
+        User created = new User(3, "Nouveau", "nouveau@ubo.fr", "1234");
+        when(delegate.findByEmail("nouveau@ubo.fr")).thenReturn(created);
+        dao.save(created);
+
+        assertNotNull(dao.findByEmail("nouveau@ubo.fr"));
+    }
+
+    private void indexEmails(String... emails) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            for (String email : emails) {
+                consumer.accept(email);
+            }
+            return null;
+        }).when(delegate).forEachEmail(any());
+    }
+}
@@ -105,6 +105,15 @@ class UserDao_MockTest {
         assertFalse(result, "save() devrait retourner false (méthode non implémentée)");
     }
 
+    @Test
+    void testSave_StoresNormalizedPhone_ArgumentUnchanged() {
+        User newUser = new User(3, "Alae", "Alae@gmail.com", "pass123", "06 12 34 56 78");
+        dao.save(newUser);
+
+        assertEquals("0612345678", dao.findById(3).getPhone());
+        assertEquals("06 12 34 56 78", newUser.getPhone());
+    }
+
     @Test
     void testSave_MultipleUsers() {
         User user3 = new User(3, "User3", "user3@gmail.com", "pass");
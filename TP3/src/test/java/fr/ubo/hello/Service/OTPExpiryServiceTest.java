@@ -0,0 +1,103 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.OTPDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OTPExpiryServiceTest {
+
+    private AtomicLong clock;
+    private OTPDao otpDao;
+    private OTPExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(System.currentTimeMillis());
+        otpDao = mock(OTPDao.class);
+        when(otpDao.deleteOTPsByIds(any(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(otpDao.findPurgeableOTPIds(any(), anyInt(), anyInt())).thenReturn(new int[0]);
+        // lots de 2 ids, sans pause, 3 lots max par passage, rétention 30 min
+        expiryService = new OTPExpiryService(2, 0, 3, 30, clock::get);
+        ReflectionTestUtils.setField(expiryService, "otpDao", otpDao);
+    }
+
+    private void track(int otpId) {
+        expiryService.track(otpId, LocalDateTime.now().plusMinutes(2));
+    }
+
+    @Test
+    void testTrackedOTPs_DeletedAfterRetention() throws InterruptedException {
+        track(1);
+        track(2);
+        track(3);
+
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(29));
+        expiryService.runOnce();
+        verify(otpDao, never()).deleteOTPsByIds(any(), anyInt());
+
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(2));
+        expiryService.runOnce();
+
+        verify(otpDao, times(2)).deleteOTPsByIds(any(), anyInt());
+        OTPExpiryService.Stats stats = expiryService.getStats();
+        assertEquals(3, stats.deleted());
+        assertEquals(0, stats.backlog());
+        assertEquals(0, stats.scheduled());
+    }
+
+    @Test
+    void testBatchesPerRun_AreBounded() throws InterruptedException {
+        for (int id = 1; id <= 10; id++) {
+            track(id);
+        }
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(31));
+
+        expiryService.runOnce();
+        assertEquals(6, expiryService.getStats().deleted());
+        assertEquals(4, expiryService.getStats().backlog());
+
+        expiryService.runOnce();
+        assertEquals(10, expiryService.getStats().deleted());
+    }
+
+    @Test
+    void testFailedBatch_IsRetried() throws InterruptedException {
+        track(1);
+        clock.addAndGet(TimeUnit.MINUTES.toMillis(31));
+        when(otpDao.deleteOTPsByIds(any(), anyInt())).thenReturn(-1).thenReturn(1);
+
+        expiryService.runOnce();
+        assertEquals(1, expiryService.getStats().backlog());
+        assertEquals(1, expiryService.getStats().failedBatches());
+
+        expiryService.runOnce();
+        assertEquals(0, expiryService.getStats().backlog());
+        assertEquals(1, expiryService.getStats().deleted());
+    }
+
+    @Test
+    void testSweep_WalksTableByKeyset() throws InterruptedException {
+        when(otpDao.findPurgeableOTPIds(any(), eq(0), eq(2))).thenReturn(new int[]{4, 8});
+        when(otpDao.findPurgeableOTPIds(any(), eq(8), eq(2))).thenReturn(new int[]{15});
+
+        assertTrue(expiryService.requestSweep());
+        assertFalse(expiryService.requestSweep());
+        expiryService.runOnce();
+
+        verify(otpDao).findPurgeableOTPIds(any(), eq(8), eq(2));
+        OTPExpiryService.Stats stats = expiryService.getStats();
+        assertEquals(3, stats.deleted());
+        assertFalse(stats.sweepInProgress());
+        assertEquals(1, stats.sweeps());
+        assertTrue(expiryService.requestSweep());
+    }
+}
@@ -0,0 +1,107 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.OTPDao;
+import fr.ubo.hello.Dao.RateLimitStore_Memory;
+import fr.ubo.hello.Model.OTP;
+import fr.ubo.hello.Model.SmsDelivery;
+import fr.ubo.hello.Model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OTPServiceTest {
+
+    @Mock
+    private OTPDao otpDao;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private SMSDispatchQueue smsDispatchQueue;
+
+    @Mock
+    private OTPExpiryService otpExpiryService;
+
+    @InjectMocks
+    private OTPService service;
+
+    private RateLimiter rateLimiter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new RateLimiter(System::currentTimeMillis);
+        ReflectionTestUtils.setField(rateLimiter, "store", new RateLimitStore_Memory());
+        rateLimiter.register(RateLimiter.Limit.parse(RateLimiter.OTP_REQUEST, "3/30m"));
+        ReflectionTestUtils.setField(service, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(service, "statelessOTP", false);
+
+        user = new User(1, "Kaoutar", "kaoutar@gmail.com", "1234", "+33612345678");
+        lenient().when(userService.findByEmail("kaoutar@gmail.com")).thenReturn(user);
+        lenient().when(userService.getById(1)).thenReturn(user);
+        lenient().when(otpDao.save(any(OTP.class))).thenReturn(true);
+        lenient().when(smsDispatchQueue.submitOTP(eq(1), anyString(), anyString()))
+                .thenAnswer(invocation -> new SmsDelivery("d", 1, invocation.getArgument(1), invocation.getArgument(2)));
+    }
+
+    private void loginIssues(OTPDao.LoginIssue issue) {
+        when(otpDao.issueLoginOTP(eq("kaoutar@gmail.com"), anyString(), any(OTP.class))).thenReturn(issue);
+    }
+
+    @Test
+    void testLogin_SharesBudgetWithRequestOtp() {
+        loginIssues(new OTPDao.LoginIssue(user, true));
+        service.generateAndDispatchOTP(1);
+        service.generateAndDispatchOTP(1);
+
+        OTPService.LoginResult third = service.loginAndDispatchOTP("kaoutar@gmail.com", "1234");
+        assertNotNull(third.delivery());
+
+        OTPService.LoginResult refused = service.loginAndDispatchOTP("kaoutar@gmail.com", "1234");
+        assertEquals(1, refused.user().getId(), "identifiants valides : connexion acceptée sans OTP");
+        assertNull(refused.delivery());
+        verify(otpDao, times(1)).issueLoginOTP(anyString(), anyString(), any(OTP.class));
+
+        assertThrows(RuntimeException.class, () -> service.generateAndDispatchOTP(1));
+    }
+
+    @Test
+    void testLogin_LimitReached_InvalidPassword_Rejected() {
+        for (int i = 0; i < 3; i++) {
+            service.generateAndDispatchOTP(1);
+        }
+
+        OTPService.LoginResult result = service.loginAndDispatchOTP("kaoutar@gmail.com", "4321");
+
+        assertNull(result.user());
+        verify(otpDao, never()).issueLoginOTP(anyString(), anyString(), any(OTP.class));
+    }
+
+    @Test
+    void testLogin_NothingIssued_PermitReleased() {
+        loginIssues(new OTPDao.LoginIssue(null, false));
+        for (int i = 0; i < 5; i++) {
+            assertNull(service.loginAndDispatchOTP("kaoutar@gmail.com", "4321").user());
+        }
+
+        assertEquals(2, rateLimiter.peek(RateLimiter.OTP_REQUEST, 1).remaining(), "budget intact");
+    }
+
+    @Test
+    void testLogin_UnknownEmail_NoPermitNoQuery() {
+        OTPService.LoginResult result = service.loginAndDispatchOTP("inconnu@gmail.com", "1234");
+
+        assertNull(result.user());
+        verifyNoInteractions(otpDao);
+    }
+}
@@ -0,0 +1,183 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.RateLimitStore_Memory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long WINDOW = TimeUnit.MINUTES.toMillis(30);
+
+    private AtomicLong clock;
+    private RateLimitStore_Memory store;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // début de fenêtre aligné pour des calculs lisibles
+        clock = new AtomicLong(WINDOW * 1000);
+        store = new RateLimitStore_Memory();
+        rateLimiter = newLimiter(store);
+    }
+
+    private RateLimiter newLimiter(RateLimitStore_Memory sharedStore) {
+        RateLimiter limiter = new RateLimiter(clock::get);
+        ReflectionTestUtils.setField(limiter, "store", sharedStore);
+        limiter.register(RateLimiter.Limit.parse("otp", "3/30m"));
+        return limiter;
+    }
+
+    @Test
+    void testAllowsUpToLimit() {
+        assertEquals(2, rateLimiter.tryAcquire("otp", 1).remaining());
+        assertEquals(1, rateLimiter.tryAcquire("otp", 1).remaining());
+        assertEquals(0, rateLimiter.tryAcquire("otp", 1).remaining());
+
+        RateLimiter.Decision rejected = rateLimiter.tryAcquire("otp", 1);
+        assertFalse(rejected.allowed());
+        assertTrue(rejected.retryAfterMillis() > 0);
+
+        // les autres clés ont leur propre budget
+        assertTrue(rateLimiter.tryAcquire("otp", 2).allowed());
+    }
+
+    @Test
+    void testSlidingWindow_PreviousWindowWeighs() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("otp", 1);
+        }
+
+        // 10 min dans la fenêtre suivante : 3 * 2/3 = 2 requêtes estimées, 1 permise
+        clock.addAndGet(WINDOW + TimeUnit.MINUTES.toMillis(10));
+        assertTrue(rateLimiter.tryAcquire("otp", 1).allowed());
+        assertFalse(rateLimiter.tryAcquire("otp", 1).allowed());
+
+        // deux fenêtres plus tard, tout est oublié
+        clock.addAndGet(2 * WINDOW);
+        assertEquals(2, rateLimiter.tryAcquire("otp", 1).remaining());
+    }
+
+    @Test
+    void testBurstAtWindowBoundary_WorstCase() {
+        // 3 requêtes à la toute fin d'une fenêtre, puis une tentative par minute pendant 30 min
+        long burst = WINDOW * 1001 - 1;
+        clock.set(burst);
+        int allowed = 0;
+        for (int i = 0; i < 3; i++) {
+            allowed += rateLimiter.tryAcquire("otp", 1).allowed() ? 1 : 0;
+        }
+        for (long t = WINDOW * 1001; t < burst + WINDOW; t += TimeUnit.MINUTES.toMillis(1)) {
+            clock.set(t);
+            allowed += rateLimiter.tryAcquire("otp", 1).allowed() ? 1 : 0;
+        }
+
+        // estimation, pas un décompte exact : au plus 2 * 3 - 1 requêtes sur une durée de fenêtre
+        assertEquals(5, allowed);
+    }
+
+    @Test
+    void testRetryAfter_IsAccurate() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("otp", 1);
+        }
+        long retryAfter = rateLimiter.tryAcquire("otp", 1).retryAfterMillis();
+
+        clock.addAndGet(retryAfter - 1000);
+        assertFalse(rateLimiter.peek("otp", "1").allowed());
+        clock.addAndGet(1000);
+        assertTrue(rateLimiter.peek("otp", "1").allowed());
+    }
+
+    @Test
+    void testPeek_DoesNotReserve() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rateLimiter.peek("otp", "1").allowed());
+        }
+        assertEquals(2, rateLimiter.tryAcquire("otp", 1).remaining());
+    }
+
+    @Test
+    void testRelease_GivesPermitBack() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire("otp", 1);
+        }
+        rateLimiter.release("otp", 1);
+
+        assertTrue(rateLimiter.tryAcquire("otp", 1).allowed());
+        assertFalse(rateLimiter.tryAcquire("otp", 1).allowed());
+    }
+
+    @Test
+    void testConcurrentAcquire_NeverOvershoots() throws InterruptedException {
+        rateLimiter.register(RateLimiter.Limit.parse("burst", "100/1m"));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (rateLimiter.tryAcquire("burst", "same-key").allowed()) {
+                    allowed.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, allowed.get());
+    }
+
+    @Test
+    void testSharedStore_LimitHoldsAcrossReplicas() {
+        RateLimiter replica = newLimiter(store);
+
+        assertTrue(rateLimiter.tryAcquire("otp", 1).allowed());
+        assertTrue(replica.tryAcquire("otp", 1).allowed());
+        assertTrue(rateLimiter.tryAcquire("otp", 1).allowed());
+
+        assertFalse(replica.tryAcquire("otp", 1).allowed());
+        assertFalse(rateLimiter.tryAcquire("otp", 1).allowed());
+    }
+
+    @Test
+    void testEvictIdle_RemovesOnlyIdleKeys() {
+        rateLimiter.tryAcquire("otp", 1);
+        clock.addAndGet(WINDOW);
+        rateLimiter.tryAcquire("otp", 2);
+
+        rateLimiter.evictIdle();
+        assertEquals(2, store.size("otp"));
+
+        clock.addAndGet(WINDOW);
+        rateLimiter.evictIdle();
+        assertEquals(1, store.size("otp"));
+        assertEquals(1, rateLimiter.tryAcquire("otp", 2).remaining());
+    }
+
+    @Test
+    void testLimitParsing() {
+        RateLimiter.Limit limit = RateLimiter.Limit.parse("x", "10/5m");
+        assertEquals(10, limit.maxRequests());
+        assertEquals(TimeUnit.MINUTES.toMillis(5), limit.windowMillis());
+
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.Limit.parse("x", "10/5d"));
+        assertThrows(IllegalArgumentException.class, () -> RateLimiter.Limit.parse("x", "0/5m"));
+        assertThrows(IllegalArgumentException.class, () -> rateLimiter.tryAcquire("unknown", 1));
+    }
+}
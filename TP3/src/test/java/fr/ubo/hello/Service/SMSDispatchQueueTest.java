@@ -0,0 +1,100 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Model.SmsDelivery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SMSDispatchQueueTest {
+
+    private SMSDispatchQueue queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    private SMSDispatchQueue newQueue(int capacity, SMSDispatchQueue.OverflowPolicy policy, SMSService smsService) {
+        SMSDispatchQueue q = new SMSDispatchQueue(1, capacity, policy);
+        ReflectionTestUtils.setField(q, "smsService", smsService);
+        return q;
+    }
+
+    private void awaitStatus(SmsDelivery delivery, SmsDelivery.Status expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delivery.getStatus() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, delivery.getStatus());
+    }
+
+    @Test
+    void testSubmit_DeliveredByWorker() throws InterruptedException {
+        SMSService smsService = mock(SMSService.class);
+        when(smsService.sendOTP("0612345678", "123456")).thenReturn(true);
+        queue = newQueue(10, SMSDispatchQueue.OverflowPolicy.REJECT, smsService);
+
+        SmsDelivery delivery = queue.submitOTP(1, "0612345678", "123456");
+
+        awaitStatus(delivery, SmsDelivery.Status.SENT);
+        assertSame(delivery, queue.getDelivery(delivery.getId()));
+        assertEquals(1, delivery.getAttempts());
+        assertEquals(1, queue.getStats().sent());
+        verify(smsService, times(1)).sendOTP("0612345678", "123456");
+    }
+
+    @Test
+    void testSubmit_QueueFull_Rejected() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        SMSService smsService = mock(SMSService.class);
+        when(smsService.sendOTP(anyString(), anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        queue = newQueue(1, SMSDispatchQueue.OverflowPolicy.REJECT, smsService);
+
+        SmsDelivery first = queue.submitOTP(1, "0600000001", "111111");
+        awaitStatus(first, SmsDelivery.Status.SENDING);
+        SmsDelivery second = queue.submitOTP(2, "0600000002", "222222");
+        SmsDelivery third = queue.submitOTP(3, "0600000003", "333333");
+
+        assertEquals(SmsDelivery.Status.QUEUED, second.getStatus());
+        assertEquals(SmsDelivery.Status.REJECTED, third.getStatus());
+        assertEquals(1, queue.getStats().rejected());
+
+        release.countDown();
+        awaitStatus(second, SmsDelivery.Status.SENT);
+    }
+
+    @Test
+    void testSubmit_QueueFull_DropOldest() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        SMSService smsService = mock(SMSService.class);
+        when(smsService.sendOTP(anyString(), anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        queue = newQueue(1, SMSDispatchQueue.OverflowPolicy.DROP_OLDEST, smsService);
+
+        SmsDelivery first = queue.submitOTP(1, "0600000001", "111111");
+        awaitStatus(first, SmsDelivery.Status.SENDING);
+        SmsDelivery second = queue.submitOTP(2, "0600000002", "222222");
+        SmsDelivery third = queue.submitOTP(3, "0600000003", "333333");
+
+        assertEquals(SmsDelivery.Status.DROPPED, second.getStatus());
+        assertEquals(SmsDelivery.Status.QUEUED, third.getStatus());
+
+        release.countDown();
+        awaitStatus(third, SmsDelivery.Status.SENT);
+        assertEquals(1, queue.getStats().dropped());
+    }
+}
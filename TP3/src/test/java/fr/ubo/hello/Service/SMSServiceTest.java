@@ -0,0 +1,56 @@
+package fr.ubo.hello.Service;
+
+import com.sun.net.httpserver.HttpServer;
+import fr.ubo.hello.utils.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SMSServiceTest {
+
+    private HttpServer gateway;
+    private SMSService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // passerelle locale : envois acceptés, URL de santé en panne
+        gateway = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        gateway.createContext("/send-sms", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        gateway.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        gateway.start();
+        String base = "http://" + gateway.getAddress().getHostString() + ":" + gateway.getAddress().getPort();
+        service = new SMSService(base + "/send-sms", base + "/health");
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.stop(0);
+    }
+
+    @Test
+    void testFailingHealthProbes_DoNotOpenTheCircuit() {
+        for (int i = 0; i < 30; i++) {
+            assertFalse(service.probeHealth());
+        }
+
+        SMSService.GatewayStatus status = service.getGatewayStatus();
+        assertFalse(status.healthy());
+        assertEquals(CircuitBreaker.State.CLOSED, status.circuitBreaker().state());
+        assertEquals(0, status.circuitBreaker().bufferedCalls());
+        assertTrue(service.sendSMS("0612345678", "test"));
+        assertEquals(1, service.getGatewayStatus().circuitBreaker().bufferedCalls());
+    }
+}
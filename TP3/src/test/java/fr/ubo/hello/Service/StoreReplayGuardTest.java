@@ -0,0 +1,67 @@
+package fr.ubo.hello.Service;
+
+import fr.ubo.hello.Dao.RateLimitStore_Memory;
+import fr.ubo.hello.utils.HmacOtp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreReplayGuardTest {
+
+    private static final byte[] KEY = "clé partagée par les instances".getBytes(StandardCharsets.UTF_8);
+
+    private AtomicLong now;
+    private RateLimitStore_Memory store;
+    private HmacOtp instanceA;
+    private HmacOtp instanceB;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(56_666_667L * 30_000);
+        // deux instances du backend, même clé, même registre partagé
+        store = new RateLimitStore_Memory();
+        instanceA = new HmacOtp(KEY, 30, 3, now::get);
+        instanceB = new HmacOtp(KEY, 30, 3, now::get);
+        instanceA.useReplayGuard(new StoreReplayGuard(store));
+        instanceB.useReplayGuard(new StoreReplayGuard(store));
+    }
+
+    @Test
+    void testCodeAcceptedByOneInstance_RejectedByTheOther() {
+        String code = instanceA.currentCode(1);
+
+        assertTrue(instanceA.verify(1, code));
+        assertFalse(instanceB.verify(1, code), "rejeu sur une autre instance");
+        assertFalse(instanceA.verify(1, code));
+    }
+
+    @Test
+    void testOlderCodeRejectedAfterNewerAcceptedElsewhere() {
+        String older = instanceA.currentCode(1);
+        now.addAndGet(30_000);
+
+        assertTrue(instanceB.verify(1, instanceB.currentCode(1)));
+        assertFalse(instanceA.verify(1, older));
+    }
+
+    @Test
+    void testExpiredUsersForgotten() {
+        for (int userId = 1; userId <= 1000; userId++) {
+            assertTrue(instanceA.verify(userId, instanceA.currentCode(userId)));
+        }
+        assertEquals(1000, store.size(StoreReplayGuard.OTP_REPLAY));
+
+        // au-delà de la fenêtre, les entrées sont purgées à la prochaine série d'acceptations
+        now.addAndGet(5 * 30_000);
+        for (int userId = 2001; userId <= 2024; userId++) {
+            assertTrue(instanceA.verify(userId, instanceA.currentCode(userId)));
+        }
+
+        assertTrue(store.size(StoreReplayGuard.OTP_REPLAY) <= 24);
+        assertEquals(0, instanceA.getTrackedUsers(), "table locale inutilisée");
+    }
+}
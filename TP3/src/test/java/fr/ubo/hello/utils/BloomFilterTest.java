@@ -0,0 +1,42 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@ubo.fr");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@ubo.fr"));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRate_NearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@ubo.fr");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("inconnu" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        // 1 % visé, marge pour la variance
+        assertTrue(falsePositives < 2_000, "faux positifs : " + falsePositives);
+    }
+
+    @Test
+    void testEmptyFilter_ContainsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("kaoutar@gmail.com"));
+        assertTrue(filter.hashCount() >= 1);
+    }
+}
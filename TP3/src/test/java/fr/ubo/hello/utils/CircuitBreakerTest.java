@@ -0,0 +1,108 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    private AtomicLong clock;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        // fenêtre de 10 appels, 4 minimum, 50% d'échecs, 80% de lents (>= 1s), ouvert 30s, 2 essais
+        breaker = new CircuitBreaker("test", 10, 4, 50, 80, 1000, 30000, 2, clock::get);
+    }
+
+    private void advanceMillis(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testClosed_AllowsCalls() {
+        for (int i = 0; i < 20; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(FAST);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testOpens_WhenFailureRateReached() {
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        breaker.onError(FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "Pas assez d'appels pour décider");
+
+        breaker.onError(FAST);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getStats().rejectedCalls());
+    }
+
+    @Test
+    void testOpens_WhenSlowCallRateReached() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(SLOW);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpen_ClosesAfterSuccessfulTrials() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+        advanceMillis(30000);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "Seulement 2 appels d'essai autorisés");
+
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testHalfOpen_ReopensOnFailure() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+        advanceMillis(30000);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onError(FAST);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.getStats().openings());
+    }
+
+    @Test
+    void testSlidingWindow_ForgetsOldFailures() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(FAST);
+        }
+        breaker.onError(FAST);
+        breaker.onError(FAST);
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(FAST);
+        }
+        assertEquals(0, breaker.getStats().failureRate());
+        assertEquals(10, breaker.getStats().bufferedCalls());
+    }
+}
@@ -0,0 +1,138 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private ConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        // limite initiale 10, entre 2 et 50, 50% pour les requêtes non prioritaires, latence tolérée x1.5
+        limiter = new ConcurrencyLimiter("test", 10, 2, 50, 50, 1.5);
+    }
+
+    /**
+     * Occupe toute la limite puis termine les requêtes avec la durée donnée, {@code rounds} fois.
+     */
+    private void saturate(int rounds, long durationNanos) {
+        for (int r = 0; r < rounds; r++) {
+            int acquired = 0;
+            while (limiter.tryAcquire(true)) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.onSuccess(true, durationNanos);
+            }
+        }
+    }
+
+    @Test
+    void testRejects_WhenLimitReached() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(true));
+        }
+        assertFalse(limiter.tryAcquire(true));
+        assertEquals(10, limiter.getInFlight());
+        assertEquals(1, limiter.getStats().rejectedCritical());
+    }
+
+    @Test
+    void testNonCritical_LimitedToTheirShare() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        assertFalse(limiter.tryAcquire(false));
+        // les requêtes prioritaires ont encore de la place
+        assertTrue(limiter.tryAcquire(true));
+        assertEquals(1, limiter.getStats().rejectedNonCritical());
+        assertEquals(0, limiter.getStats().rejectedCritical());
+    }
+
+    @Test
+    void testCriticalKeepReserve_WhenLimitDropsBelowNonCriticalInFlight() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        // échecs : la limite passe sous le nombre de requêtes non prioritaires en cours
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(true));
+            limiter.onDropped(true);
+        }
+        assertTrue(limiter.getLimit() <= 5);
+        assertFalse(limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(true));
+    }
+
+    @Test
+    void testLimitGrows_WhileLatencyStable() {
+        saturate(20, FAST);
+        assertTrue(limiter.getLimit() > 10, "limite : " + limiter.getLimit());
+    }
+
+    @Test
+    void testLimitCapped_AtMax() {
+        saturate(200, FAST);
+        assertEquals(50, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitDoesNotGrow_WhenMostlyIdle() {
+        for (int i = 0; i < 500; i++) {
+            assertTrue(limiter.tryAcquire(true));
+            limiter.onSuccess(true, FAST);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitShrinks_WhenLatencyRises() {
+        saturate(30, FAST);
+        int before = limiter.getLimit();
+        saturate(5, SLOW);
+        assertTrue(limiter.getLimit() < before, before + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    void testLimitRecovers_AfterLatencyReturnsToNormal() {
+        saturate(30, FAST);
+        saturate(5, SLOW);
+        int degraded = limiter.getLimit();
+        saturate(30, FAST);
+        assertTrue(limiter.getLimit() > degraded, degraded + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    void testLatencyTrackedPerPriority() {
+        // requêtes rapides prioritaires et lentes non prioritaires, en proportions changeantes :
+        // aucune des deux latences n'augmente, la limite ne doit pas baisser
+        saturate(30, FAST);
+        int before = limiter.getLimit();
+        for (int r = 0; r < 20; r++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(limiter.tryAcquire(false));
+                limiter.onSuccess(false, SLOW);
+            }
+            saturate(1, FAST);
+        }
+        assertTrue(limiter.getLimit() >= before, before + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    void testDropped_BacksOffAndKeepsMinimum() {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire(true));
+            limiter.onDropped(true);
+        }
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
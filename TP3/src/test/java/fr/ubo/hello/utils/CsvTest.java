@@ -0,0 +1,45 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTest {
+
+    @Test
+    void testParseLine_PlainAndQuotedFields() {
+        assertEquals(List.of("Kaoutar", "kaoutar@gmail.com", "", "06 12"),
+                Csv.parseLine("Kaoutar,kaoutar@gmail.com,,06 12", ','));
+        assertEquals(List.of("Iabakriman, K.", "dit \"K\"", ""),
+                Csv.parseLine("\"Iabakriman, K.\",\"dit \"\"K\"\"\",", ','));
+        assertEquals(List.of("a", "b"), Csv.parseLine("a;b", ';'));
+    }
+
+    @Test
+    void testParseLine_Malformed_ReturnsNull() {
+        assertNull(Csv.parseLine("\"non refermé,b", ','));
+        assertNull(Csv.parseLine("\"a\"b,c", ','));
+    }
+
+    @Test
+    void testAppendField_QuotesOnlyWhenNeeded() throws IOException {
+        StringBuilder out = new StringBuilder();
+        Csv.appendField(out, "simple", ',');
+        out.append(',');
+        Csv.appendField(out, "avec, \"guillemets\"", ',');
+        out.append(',');
+        Csv.appendField(out, null, ',');
+
+        assertEquals("simple,\"avec, \"\"guillemets\"\"\",", out.toString());
+        assertEquals(List.of("simple", "avec, \"guillemets\"", ""), Csv.parseLine(out.toString(), ','));
+    }
+
+    @Test
+    void testDetectSeparator() {
+        assertEquals(';', Csv.detectSeparator("name;email;phone"));
+        assertEquals(',', Csv.detectSeparator("name,email,phone"));
+    }
+}
@@ -0,0 +1,105 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HmacOtpTest {
+
+    private static final byte[] KEY = "clé maîtresse de test".getBytes(StandardCharsets.UTF_8);
+
+    private AtomicLong now;
+    private HmacOtp otp;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(56_666_667L * 30_000); // début d'un pas
+        // pas de 30 s, code accepté pendant son pas et les 3 suivants
+        otp = new HmacOtp(KEY, 30, 3, now::get);
+    }
+
+    @Test
+    void testHotp_Rfc4226TestVectors() {
+        byte[] secret = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+        int[] expected = {755224, 287082, 359152, 969429, 338314, 254676, 287922, 162583, 399871, 520489};
+        Mac mac = HmacOtp.mac("HmacSHA1", null);
+
+        for (int counter = 0; counter < expected.length; counter++) {
+            assertEquals(expected[counter], HmacOtp.hotp(mac, secret, counter), "compteur " + counter);
+        }
+    }
+
+    @Test
+    void testCurrentCode_SixDigitsStableWithinStepAndPerUser() {
+        String code = otp.currentCode(1);
+
+        assertTrue(code.matches("\\d{6}"));
+        now.addAndGet(10_000);
+        assertEquals(code, otp.currentCode(1), "même pas de temps, même code");
+        assertNotEquals(code, otp.currentCode(2));
+        assertNotEquals(code, new HmacOtp("autre clé".getBytes(StandardCharsets.UTF_8), 30, 3, now::get).currentCode(1));
+    }
+
+    @Test
+    void testVerify_AcceptedWithinWindowThenExpired() {
+        String code = otp.currentCode(1);
+        now.addAndGet(3 * 30_000);
+        assertTrue(otp.verify(1, code), "encore accepté 3 pas plus tard");
+
+        String late = otp.currentCode(2);
+        now.addAndGet(4 * 30_000);
+        assertFalse(otp.verify(2, late), "expiré au-delà de la fenêtre");
+    }
+
+    @Test
+    void testVerify_ReplayRejected() {
+        String code = otp.currentCode(1);
+
+        assertTrue(otp.verify(1, code));
+        assertFalse(otp.verify(1, code), "un code ne sert qu'une fois");
+    }
+
+    @Test
+    void testVerify_OlderCodeRejectedAfterNewerAccepted() {
+        String older = otp.currentCode(1);
+        now.addAndGet(30_000);
+        String newer = otp.currentCode(1);
+
+        assertTrue(otp.verify(1, newer));
+        assertFalse(otp.verify(1, older));
+    }
+
+    @Test
+    void testVerify_WrongOrMalformedCodes() {
+        String code = otp.currentCode(1);
+        String wrong = code.equals("000000") ? "000001" : "000000";
+
+        assertFalse(otp.verify(1, wrong));
+        assertFalse(otp.verify(1, null));
+        assertFalse(otp.verify(1, "12345"));
+        assertFalse(otp.verify(1, "12a456"));
+        assertFalse(otp.verify(2, code), "code d'un autre utilisateur");
+        assertTrue(otp.verify(1, code));
+    }
+
+    @Test
+    void testReplayGuard_StaleEntriesPurged() {
+        for (int userId = 1; userId <= 1000; userId++) {
+            assertTrue(otp.verify(userId, otp.currentCode(userId)));
+        }
+        assertEquals(1000, otp.getTrackedUsers());
+
+        // au-delà de la fenêtre, les entrées sont purgées à la prochaine série d'acceptations
+        now.addAndGet(5 * 30_000);
+        for (int userId = 2001; userId <= 2024; userId++) {
+            assertTrue(otp.verify(userId, otp.currentCode(userId)));
+        }
+
+        assertTrue(otp.getTrackedUsers() <= 24);
+    }
+}
@@ -0,0 +1,52 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverValuesWithinThreePercent() {
+        for (long value = 1; value < (1L << 36); value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            long highest = LatencyHistogram.highestValueOf(index);
+            assertTrue(highest >= value, "seau trop bas pour " + value);
+            assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS, "seau trop large pour " + value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);  // 1 µs .. 1 ms
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.count());
+        assertEquals(1_000_000, snapshot.maxNanos());
+        assertEquals(500_500_000L, snapshot.sumNanos());
+        assertEquals(500_000, snapshot.valueAtPercentile(50), 500_000 * 0.035);
+        assertEquals(990_000, snapshot.valueAtPercentile(99), 990_000 * 0.035);
+        assertEquals(1_000_000, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    void testCountAtOrBelow_AndOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(100);
+        histogram.record(10_000);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1, snapshot.countAtOrBelow(0));
+        assertEquals(2, snapshot.countAtOrBelow(100));
+        assertEquals(3, snapshot.countAtOrBelow(1_000_000));
+        assertEquals(4, snapshot.countAtOrBelow(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, snapshot.maxNanos());
+    }
+}
@@ -0,0 +1,55 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testLetsThroughAtMostTheRatePerWindow() {
+        AtomicLong clock = new AtomicLong();
+        LogSampler sampler = new LogSampler(3, clock::get);
+
+        int logged = 0;
+        for (int i = 0; i < 10; i++) {
+            if (sampler.sample()) {
+                logged++;
+            }
+        }
+
+        assertEquals(3, logged);
+        assertEquals(7, sampler.takeSuppressed());
+        assertEquals(0, sampler.takeSuppressed(), "le compteur d'omis est remis à zéro");
+    }
+
+    @Test
+    void testNewWindowAfterOneSecond() {
+        AtomicLong clock = new AtomicLong();
+        LogSampler sampler = new LogSampler(1, clock::get);
+
+        assertTrue(sampler.sample());
+        assertFalse(sampler.sample());
+
+        clock.addAndGet(SECOND - 1);
+        assertFalse(sampler.sample());
+
+        clock.addAndGet(1);
+        assertTrue(sampler.sample());
+        assertEquals(2, sampler.takeSuppressed());
+    }
+
+    @Test
+    void testZeroRateDisablesSampling() {
+        LogSampler sampler = new LogSampler(0, () -> 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sampler.sample());
+        }
+        assertEquals(0, sampler.takeSuppressed());
+    }
+}
@@ -0,0 +1,51 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testTimerExportedAsCumulativeHistogram() {
+        Metrics.Timer timer = Metrics.timer("test_timer_seconds", "Durée de test.", "method", "GET");
+        timer.recordNanos(200_000);      // 0.2 ms
+        timer.recordNanos(3_000_000);    // 3 ms
+        timer.recordNanos(20_000_000_000L);
+
+        String text = Metrics.scrape();
+
+        assertTrue(text.contains("# TYPE test_timer_seconds histogram\n"));
+        assertTrue(text.contains("test_timer_seconds_bucket{method=\"GET\",le=\"0.0001\"} 0\n"));
+        assertTrue(text.contains("test_timer_seconds_bucket{method=\"GET\",le=\"0.00025\"} 1\n"));
+        assertTrue(text.contains("test_timer_seconds_bucket{method=\"GET\",le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("test_timer_seconds_bucket{method=\"GET\",le=\"10\"} 2\n"));
+        assertTrue(text.contains("test_timer_seconds_bucket{method=\"GET\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_timer_seconds_sum{method=\"GET\"} 20.0032\n"));
+        assertTrue(text.contains("test_timer_seconds_count{method=\"GET\"} 3\n"));
+    }
+
+    @Test
+    void testSameLabelsReturnSameSeries() {
+        Metrics.Counter first = Metrics.counter("test_counter_total", "Compteur de test.", "kind", "a");
+        Metrics.Counter second = Metrics.counter("test_counter_total", "Compteur de test.", "kind", "a");
+        first.increment();
+        second.increment();
+
+        assertSame(first, second);
+        assertTrue(Metrics.scrape().contains("test_counter_total{kind=\"a\"} 2\n"));
+    }
+
+    @Test
+    void testLabelValuesAreEscaped() {
+        assertEquals("{uri=\"/a\\\"b\\\\c\\n\"}", Metrics.renderLabels("uri", "/a\"b\\c\n"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.renderLabels("uri"));
+    }
+
+    @Test
+    void testNameReusedWithAnotherType_Rejected() {
+        Metrics.counter("test_typed_total", "Compteur de test.");
+
+        assertThrows(IllegalArgumentException.class, () -> Metrics.timer("test_typed_total", "Durée de test."));
+    }
+}
@@ -0,0 +1,54 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneNumbersTest {
+
+    @Test
+    void testNormalize_FrenchFormats() {
+        assertEquals("0612345678", PhoneNumbers.normalize("06 12 34 56 78"));
+        assertEquals("0612345678", PhoneNumbers.normalize("06.12.34.56.78"));
+        assertEquals("0612345678", PhoneNumbers.normalize("06-12-34-56-78"));
+        assertEquals("0612345678", PhoneNumbers.normalize("+33 6 12 34 56 78"));
+        assertEquals("0612345678", PhoneNumbers.normalize("+33 (0)6 12 34 56 78"));
+        assertEquals("0612345678", PhoneNumbers.normalize("0033612345678"));
+        assertEquals("0612345678", PhoneNumbers.normalize("33612345678"));
+    }
+
+    @Test
+    void testNormalize_InternationalToE164() {
+        assertEquals("+447911123456", PhoneNumbers.normalize("+44 7911 123456"));
+        assertEquals("+447911123456", PhoneNumbers.normalize("0044 (0)7911 123456"));
+        assertEquals("+212612345678", PhoneNumbers.normalize("+212 6 12 34 56 78"));
+        assertEquals("+14155552671", PhoneNumbers.normalize("+1 (415) 555-2671"));
+        assertEquals("+390612345678", PhoneNumbers.normalize("+39 06 1234 5678"), "0 initial conservé en Italie");
+    }
+
+    @Test
+    void testNormalize_AlreadyNormalized_ReturnsSameInstance() {
+        String national = "0612345678";
+        String international = "+447911123456";
+
+        assertSame(national, PhoneNumbers.normalize(national));
+        assertSame(international, PhoneNumbers.normalize(international));
+        assertTrue(PhoneNumbers.isNormalized(national));
+        assertFalse(PhoneNumbers.isNormalized("06 12 34 56 78"));
+    }
+
+    @Test
+    void testNormalize_Invalid() {
+        assertNull(PhoneNumbers.normalize(null));
+        assertNull(PhoneNumbers.normalize(""));
+        assertNull(PhoneNumbers.normalize("061234567"), "9 chiffres");
+        assertNull(PhoneNumbers.normalize("06123456789"), "11 chiffres");
+        assertNull(PhoneNumbers.normalize("06 12 AB 56 78"));
+        assertNull(PhoneNumbers.normalize("+33 6 12 34 56"), "numéro national trop court");
+        assertNull(PhoneNumbers.normalize("+999 123456789"), "indicatif inconnu");
+        assertNull(PhoneNumbers.normalize("+07 123 456 7890"), "un indicatif ne commence pas par 0");
+        assertNull(PhoneNumbers.normalize("6 12 34 56 78"));
+        assertNull(PhoneNumbers.normalize("0612+345678"));
+        assertNull(PhoneNumbers.normalize("+33 6 12 34 56 78 90 12 34 56"));
+    }
+}
@@ -0,0 +1,90 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:migrations;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "test", "test");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void testApply_CreatesSchemaOnceAndRecordsVersions() throws SQLException {
+        assertEquals(SchemaMigrations.MIGRATIONS.size(), SchemaMigrations.apply(conn));
+        assertEquals(0, SchemaMigrations.apply(conn), "Migrations déjà appliquées non rejouées");
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, description FROM schema_version ORDER BY version")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+            assertEquals("initial_schema", rs.getString(2));
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testApply_UniqueEmail() throws SQLException {
+        SchemaMigrations.apply(conn);
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO users (name, email, password) VALUES ('A', 'a@x.fr', 'p')");
+            assertThrows(SQLException.class,
+                    () -> stmt.execute("INSERT INTO users (name, email, password) VALUES ('B', 'a@x.fr', 'p')"));
+        }
+    }
+
+    @Test
+    void testApply_DuplicateEmailsReportedBeforeUniqueIndex() throws SQLException {
+        // base créée avant les migrations, sans contrainte d'unicité
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL, "
+                    + "email VARCHAR(255) NOT NULL, password VARCHAR(255) NOT NULL, phone VARCHAR(20))");
+            stmt.execute("INSERT INTO users (name, email, password) VALUES "
+                    + "('A', 'a@x.fr', 'p'), ('B', 'b@x.fr', 'p'), ('A bis', 'a@x.fr', 'p')");
+        }
+
+        SQLException e = assertThrows(SQLException.class, () -> SchemaMigrations.apply(conn));
+
+        assertTrue(e.getMessage().contains("a@x.fr (ids 1, 3)"), e.getMessage());
+        assertFalse(e.getMessage().contains("b@x.fr"), e.getMessage());
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM users WHERE id = 3");
+        }
+        assertEquals(1, SchemaMigrations.apply(conn), "V2 appliquée une fois les doublons retirés");
+    }
+
+    @Test
+    void testStatements_SplitsOnSemicolonAndSkipsComments() {
+        String script = """
+                -- commentaire ; ignoré
+                CREATE TABLE t (
+                    id INT
+                );
+
+                CREATE INDEX i ON t (id);
+                """;
+
+        assertEquals(List.of("CREATE TABLE t (\n    id INT\n)", "CREATE INDEX i ON t (id)"),
+                SchemaMigrations.statements(script));
+    }
+}
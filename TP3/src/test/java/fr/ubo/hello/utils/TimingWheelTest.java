@@ -0,0 +1,88 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    void testFiresAtDeadline() {
+        TimingWheel wheel = new TimingWheel(1000, 8, 2, START);
+        wheel.schedule(1, START + 2500);
+        List<Integer> fired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(START + 2999, fired::add));
+        assertEquals(1, wheel.advance(START + 3000, fired::add));
+        assertEquals(List.of(1), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testPastDeadline_FiresOnNextTick() {
+        TimingWheel wheel = new TimingWheel(1000, 8, 2, START);
+        wheel.advance(START + 5000, id -> {});
+        wheel.schedule(7, START);
+        List<Integer> fired = new ArrayList<>();
+
+        wheel.advance(START + 6000, fired::add);
+
+        assertEquals(List.of(7), fired);
+    }
+
+    @Test
+    void testCascadesFromUpperLevels() {
+        // 8 cases x 3 niveaux : portée 512 ticks
+        TimingWheel wheel = new TimingWheel(1000, 8, 3, START);
+        long[] deadlines = {9, 63, 64, 65, 200, 511};
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.schedule(i, START + deadlines[i] * 1000);
+        }
+
+        for (int i = 0; i < deadlines.length; i++) {
+            List<Integer> fired = new ArrayList<>();
+            wheel.advance(START + deadlines[i] * 1000 - 1, fired::add);
+            assertTrue(fired.isEmpty(), "id " + i + " ne doit pas expirer en avance");
+            wheel.advance(START + deadlines[i] * 1000, fired::add);
+            assertEquals(List.of(i), fired);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testDeadlineBeyondRange_StillFiresOnTime() {
+        TimingWheel wheel = new TimingWheel(1000, 8, 2, START);  // portée 64 ticks
+        wheel.schedule(42, START + TimeUnit.SECONDS.toMillis(300));
+        List<Integer> fired = new ArrayList<>();
+
+        wheel.advance(START + TimeUnit.SECONDS.toMillis(299), fired::add);
+        assertTrue(fired.isEmpty());
+        wheel.advance(START + TimeUnit.SECONDS.toMillis(300), fired::add);
+        assertEquals(List.of(42), fired);
+    }
+
+    @Test
+    void testManyEntries_AllFireOnce() {
+        TimingWheel wheel = new TimingWheel(1000, 64, 3, START);
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(i, START + (i % 1800) * 1000L + 1);
+        }
+        assertEquals(count, wheel.size());
+
+        boolean[] seen = new boolean[count];
+        int fired = wheel.advance(START + TimeUnit.MINUTES.toMillis(31), id -> {
+            assertFalse(seen[id]);
+            seen[id] = true;
+        });
+
+        assertEquals(count, fired);
+        assertEquals(0, wheel.size());
+    }
+}
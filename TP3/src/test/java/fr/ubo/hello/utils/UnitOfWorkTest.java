@@ -0,0 +1,156 @@
+package fr.ubo.hello.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UnitOfWorkTest {
+
+    private Connection physical;
+    private AtomicInteger borrows;
+    private UnitOfWork.ConnectionSource source;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        physical = mock(Connection.class);
+        AtomicBoolean autoCommit = new AtomicBoolean(true);
+        doAnswer(inv -> {
+            autoCommit.set(inv.getArgument(0));
+            return null;
+        }).when(physical).setAutoCommit(anyBoolean());
+        when(physical.getAutoCommit()).thenAnswer(inv -> autoCommit.get());
+
+        borrows = new AtomicInteger();
+        source = () -> {
+            borrows.incrementAndGet();
+            return physical;
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        UnitOfWork unit = UnitOfWork.current();
+        if (unit != null) {
+            unit.close();
+        }
+    }
+
+    @Test
+    void testConnection_BorrowedOnceAndSharedUntilClose() throws SQLException {
+        try (UnitOfWork unit = UnitOfWork.begin(source)) {
+            assertFalse(unit.hasConnection(), "Connexion empruntée au premier accès seulement");
+
+            for (int i = 0; i < 4; i++) {
+                try (Connection conn = unit.connection()) {
+                    assertFalse(conn.isClosed());
+                }
+            }
+
+            assertEquals(1, borrows.get());
+            assertEquals(4, unit.getUses());
+            verify(physical, never()).close();
+        }
+
+        verify(physical).close();
+        assertNull(UnitOfWork.current());
+    }
+
+    @Test
+    void testClose_WithoutDatabaseAccess_BorrowsNothing() {
+        UnitOfWork.begin(source).close();
+
+        assertEquals(0, borrows.get());
+        assertNull(UnitOfWork.current());
+    }
+
+    @Test
+    void testBegin_Twice_Throws() {
+        UnitOfWork.begin(source);
+
+        assertThrows(IllegalStateException.class, () -> UnitOfWork.begin(source));
+    }
+
+    @Test
+    void testInTransaction_CommitsOnSuccess() throws SQLException {
+        try (UnitOfWork unit = UnitOfWork.begin(source)) {
+            String result = UnitOfWork.inTransaction(() -> {
+                use(unit);
+                use(unit);
+                return "ok";
+            });
+
+            assertEquals("ok", result);
+            assertTrue(physical.getAutoCommit(), "Auto-commit rétabli après la transaction");
+        }
+
+        InOrder order = inOrder(physical);
+        order.verify(physical).setAutoCommit(false);
+        order.verify(physical).commit();
+        order.verify(physical).setAutoCommit(true);
+        order.verify(physical).close();
+        verify(physical, never()).rollback();
+    }
+
+    @Test
+    void testInTransaction_RollsBackAndRethrowsOnFailure() throws SQLException {
+        try (UnitOfWork unit = UnitOfWork.begin(source)) {
+            use(unit);
+            IllegalArgumentException error = new IllegalArgumentException("échec");
+
+            IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                    () -> UnitOfWork.inTransaction(() -> {
+                        use(unit);
+                        throw error;
+                    }));
+
+            assertSame(error, thrown);
+            assertTrue(physical.getAutoCommit());
+        }
+
+        verify(physical).rollback();
+        verify(physical, never()).commit();
+        assertEquals(1, borrows.get());
+    }
+
+    @Test
+    void testInTransaction_Nested_JoinsOuterTransaction() throws SQLException {
+        try (UnitOfWork unit = UnitOfWork.begin(source)) {
+            UnitOfWork.inTransaction(() -> {
+                use(unit);
+                return UnitOfWork.inTransaction(() -> {
+                    use(unit);
+                    return null;
+                });
+            });
+        }
+
+        verify(physical, times(1)).setAutoCommit(false);
+        verify(physical, times(1)).commit();
+    }
+
+    @Test
+    void testInTransaction_WithoutDatabaseAccess_TouchesNoConnection() {
+        try (UnitOfWork ignored = UnitOfWork.begin(source)) {
+            assertEquals(42, UnitOfWork.inTransaction(() -> 42));
+        }
+
+        assertEquals(0, borrows.get());
+    }
+
+    private static void use(UnitOfWork unit) {
+        try (Connection ignored = unit.connection()) {
+            // accès DAO simulé
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}